@@ -0,0 +1,22 @@
+package com.alan.rpc.v4.benchmark;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 基准测试用地址对象（嵌套在 UserDTO 中）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AddressDTO implements Serializable {
+
+    private String city;
+
+    private String street;
+
+    private String zipCode;
+}
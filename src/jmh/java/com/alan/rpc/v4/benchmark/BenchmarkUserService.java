@@ -0,0 +1,17 @@
+package com.alan.rpc.v4.benchmark;
+
+import com.alan.rpc.v4.common.annotation.RpcService;
+
+import java.util.List;
+
+/**
+ * 基准测试用服务接口
+ * 只用于声明 PayloadShape 中出现的 DTO，让 RpcCodecProcessor 为 UserDTO、AddressDTO 生成编解码器
+ */
+@RpcService
+public interface BenchmarkUserService {
+
+    List<UserDTO> listUsers(Integer count);
+
+    Boolean updateUser(UserDTO user, Boolean notify);
+}
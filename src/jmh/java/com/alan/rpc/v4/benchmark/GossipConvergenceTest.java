@@ -0,0 +1,465 @@
+package com.alan.rpc.v4.benchmark;
+
+import com.alan.rpc.v4.gossip.GossipMember;
+import com.alan.rpc.v4.gossip.GossipNode;
+import com.alan.rpc.v4.gossip.MemberStateEnum;
+
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Gossip 成员协议收敛测试
+ * 在多个本地进程中启动 Gossip 节点（每个节点发布若干服务），依次测量：
+ * <pre>
+ * 加入收敛  最后一个进程的节点启动后，到所有节点都看到全部成员及其服务的时间
+ * 带宽      稳定状态下平均每个节点每秒收发的字节数和数据报数
+ * 服务扩散  一个节点发布新服务后，到所有节点都看到该服务的时间
+ * 故障检测  强制结束最后一个进程后，到首个节点把其中的成员标记为疑似故障、到所有节点把它们都标记为已下线的时间
+ * </pre>
+ * 结束时输出一行 JSON 汇总。父进程通过标准输入向子进程发送命令，子进程在本地节点满足条件时输出带时间戳的事件，
+ * 各进程在同一台机器上，时间戳可以直接比较
+ *
+ * 运行方式：
+ * <pre>
+ * java -cp target/benchmarks.jar com.alan.rpc.v4.benchmark.GossipConvergenceTest nodes=16 processes=4
+ * java -cp target/benchmarks.jar com.alan.rpc.v4.benchmark.GossipConvergenceTest nodes=48 processes=6 interval=500
+ * </pre>
+ * 参数（key=value）：
+ * nodes      节点总数，默认 16，平均分配到各进程
+ * processes  进程数，默认 4；只有 1 个进程时不测量故障检测
+ * services   每个节点发布的服务数，默认 3
+ * interval   探测周期（毫秒），默认 1000
+ * port       第一个节点的 UDP 端口，默认 17946，其余节点依次递增；第一个节点是所有节点的种子节点
+ * settle     加入收敛后等待更新传播完的时间（秒），默认 5，之后开始统计带宽
+ * window     带宽统计窗口（秒），默认 10
+ * timeout    每个阶段的超时（秒），默认 60
+ */
+public class GossipConvergenceTest {
+
+    /**
+     * 汇总结果行的前缀
+     */
+    private static final String SUMMARY_PREFIX = "{\"nodes\"";
+
+    /**
+     * 子进程检查本地节点状态的间隔（毫秒）
+     */
+    private static final long WATCH_INTERVAL_MILLIS = 5;
+
+    /**
+     * 服务扩散阶段发布的服务
+     */
+    private static final String PROBE_SERVICE = "com.alan.rpc.gossiptest.ProbeService";
+
+    private final int nodes;
+    private final int processes;
+    private final int services;
+    private final long intervalMillis;
+    private final int basePort;
+
+    private GossipConvergenceTest(Map<String, String> options) {
+        this.nodes = Integer.parseInt(options.getOrDefault("nodes", "16"));
+        this.processes = Math.min(nodes, Integer.parseInt(options.getOrDefault("processes", "4")));
+        this.services = Integer.parseInt(options.getOrDefault("services", "3"));
+        this.intervalMillis = Long.parseLong(options.getOrDefault("interval",
+                String.valueOf(GossipNode.DEFAULT_PROBE_INTERVAL_MILLIS)));
+        this.basePort = Integer.parseInt(options.getOrDefault("port", "17946"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (index > 0) {
+                options.put(arg.substring(0, index), arg.substring(index + 1));
+            }
+        }
+        GossipConvergenceTest test = new GossipConvergenceTest(options);
+        if (options.containsKey("child")) {
+            test.runChild(Integer.parseInt(options.get("child")));
+        } else {
+            test.runParent(options);
+        }
+    }
+
+    // ------------------------------------------------------------------ 父进程
+
+    private void runParent(Map<String, String> options) throws Exception {
+        int settleSeconds = Integer.parseInt(options.getOrDefault("settle", "5"));
+        int windowSeconds = Integer.parseInt(options.getOrDefault("window", "10"));
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(options.getOrDefault("timeout", "60")));
+        System.out.println("[收敛测试] 节点数: " + nodes + "，进程数: " + processes + "，每节点服务数: " + services
+                + "，探测周期: " + intervalMillis + "ms");
+
+        List<Child> children = new ArrayList<>(processes);
+        try {
+            for (int i = 0; i < processes; i++) {
+                children.add(new Child(i, options));
+            }
+            Summary summary = new Summary();
+
+            long lastStarted = 0;
+            for (Child child : children) {
+                lastStarted = Math.max(lastStarted, child.await("STARTED", timeoutMillis));
+            }
+            long converged = 0;
+            for (Child child : children) {
+                converged = Math.max(converged, child.await("CONVERGED", timeoutMillis));
+            }
+            summary.joinMillis = converged - lastStarted;
+            System.out.println("[收敛测试] 加入收敛: " + summary.joinMillis + "ms");
+
+            // 等待加入过程中产生的更新传播完，再统计稳定状态的带宽
+            Thread.sleep(TimeUnit.SECONDS.toMillis(settleSeconds));
+            long[] before = stats(children, timeoutMillis);
+            long windowStart = System.nanoTime();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(windowSeconds));
+            long[] after = stats(children, timeoutMillis);
+            double seconds = (System.nanoTime() - windowStart) / 1e9;
+            summary.bytesSentPerNodePerSecond = (after[0] - before[0]) / seconds / nodes;
+            summary.bytesReceivedPerNodePerSecond = (after[1] - before[1]) / seconds / nodes;
+            summary.packetsSentPerNodePerSecond = (after[2] - before[2]) / seconds / nodes;
+            System.out.printf("[收敛测试] 稳定状态带宽: 每节点发送 %.0f 字节/秒（%.1f 个数据报/秒），接收 %.0f 字节/秒%n",
+                    summary.bytesSentPerNodePerSecond, summary.packetsSentPerNodePerSecond,
+                    summary.bytesReceivedPerNodePerSecond);
+
+            long advertised = System.currentTimeMillis();
+            long seen = 0;
+            for (Child child : children) {
+                child.send("advertise 0 " + PROBE_SERVICE);
+            }
+            for (Child child : children) {
+                seen = Math.max(seen, child.await("SEEN", timeoutMillis));
+            }
+            summary.disseminationMillis = seen - advertised;
+            System.out.println("[收敛测试] 服务扩散: " + summary.disseminationMillis + "ms");
+
+            summary.suspectMillis = -1;
+            summary.failureDetectionMillis = -1;
+            if (children.size() > 1) {
+                Child victim = children.remove(children.size() - 1);
+                List<String> crashed = new ArrayList<>();
+                for (int node = victim.firstNode; node < victim.lastNode; node++) {
+                    crashed.add(address(node));
+                }
+                long killed = System.currentTimeMillis();
+                victim.process.destroyForcibly().waitFor();
+                for (Child child : children) {
+                    child.send("crash " + String.join(",", crashed));
+                }
+                long suspected = Long.MAX_VALUE;
+                long detected = 0;
+                for (Child child : children) {
+                    suspected = Math.min(suspected, child.await("SUSPECTED", timeoutMillis));
+                    detected = Math.max(detected, child.await("DETECTED", timeoutMillis));
+                }
+                summary.suspectMillis = suspected - killed;
+                summary.failureDetectionMillis = detected - killed;
+                System.out.println("[收敛测试] 结束进程 " + (victim.index + 1) + "（" + crashed.size() + " 个节点）: 首次疑似故障 "
+                        + summary.suspectMillis + "ms，全部节点确认下线 " + summary.failureDetectionMillis + "ms");
+            }
+
+            summary.nodes = nodes;
+            summary.processes = processes;
+            summary.services = services;
+            summary.intervalMillis = intervalMillis;
+            System.out.println(summary.toJson());
+        } finally {
+            for (Child child : children) {
+                child.close();
+            }
+        }
+    }
+
+    /**
+     * 汇总所有子进程的收发统计：发送字节、接收字节、发送数据报、接收数据报
+     */
+    private static long[] stats(List<Child> children, long timeoutMillis) throws Exception {
+        long[] total = new long[4];
+        for (Child child : children) {
+            child.send("stats");
+        }
+        for (Child child : children) {
+            String[] values = child.awaitLine("STATS", timeoutMillis).split(" ");
+            for (int i = 0; i < total.length; i++) {
+                total[i] += Long.parseLong(values[i + 1]);
+            }
+        }
+        return total;
+    }
+
+    private String address(int node) {
+        return "127.0.0.1:" + (basePort + node);
+    }
+
+    /**
+     * 子进程：按行读取其输出的事件
+     */
+    private class Child {
+
+        private final int index;
+        private final int firstNode;
+        private final int lastNode;
+        private final Process process;
+        private final Writer commands;
+        private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        private final List<String> skipped = new ArrayList<>();
+
+        Child(int index, Map<String, String> options) throws Exception {
+            this.index = index;
+            this.firstNode = index * nodes / processes;
+            this.lastNode = (index + 1) * nodes / processes;
+            List<String> command = new ArrayList<>(Arrays.asList(
+                    ProcessHandle.current().info().command().orElse("java"),
+                    "-Dfile.encoding=UTF-8", "-Dstdout.encoding=UTF-8",
+                    "-cp", System.getProperty("java.class.path"), GossipConvergenceTest.class.getName()));
+            options.forEach((key, value) -> command.add(key + "=" + value));
+            command.add("child=" + index);
+            this.process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            this.commands = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+            Thread reader = new Thread(() -> {
+                try (BufferedReader in = new BufferedReader(
+                        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        events.add(line);
+                    }
+                } catch (Exception e) {
+                    // 子进程被结束
+                }
+            }, "gossip-child-" + index);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        void send(String command) throws Exception {
+            commands.write(command + "\n");
+            commands.flush();
+        }
+
+        /**
+         * 等待事件，返回事件的时间戳
+         */
+        long await(String event, long timeoutMillis) throws Exception {
+            return Long.parseLong(awaitLine(event, timeoutMillis).split(" ")[1]);
+        }
+
+        /**
+         * 等待指定类型的事件行，先到达的其他事件留给之后的等待
+         */
+        String awaitLine(String event, long timeoutMillis) throws Exception {
+            for (Iterator<String> iterator = skipped.iterator(); iterator.hasNext(); ) {
+                String line = iterator.next();
+                if (line.startsWith(event + " ")) {
+                    iterator.remove();
+                    return line;
+                }
+            }
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (true) {
+                String line = events.poll(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                if (line == null) {
+                    throw new IllegalStateException("进程 " + (index + 1) + " 等待 " + event + " 超时");
+                }
+                if (line.startsWith(event + " ")) {
+                    return line;
+                }
+                skipped.add(line);
+            }
+        }
+
+        void close() throws Exception {
+            if (process.isAlive()) {
+                try {
+                    send("exit");
+                } catch (Exception e) {
+                    // 子进程已退出
+                }
+                if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------ 子进程
+
+    /**
+     * 子进程：启动分配到的节点，执行父进程的命令，本地节点都满足条件时输出事件
+     * 节点日志输出到空设备，标准输出只用于事件
+     */
+    private void runChild(int index) throws Exception {
+        PrintStream events = new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8);
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        int firstNode = index * nodes / processes;
+        int lastNode = (index + 1) * nodes / processes;
+        List<String> seeds = Collections.singletonList(address(0));
+        Map<Integer, GossipNode> local = new LinkedHashMap<>();
+        for (int node = firstNode; node < lastNode; node++) {
+            GossipNode gossipNode = new GossipNode("127.0.0.1", basePort + node, seeds, intervalMillis);
+            gossipNode.start();
+            gossipNode.advertise("127.0.0.1", 20000 + node, serviceNames(node), Collections.emptyMap());
+            local.put(node, gossipNode);
+        }
+        events.println("STARTED " + System.currentTimeMillis());
+
+        List<Watch> watches = new CopyOnWriteArrayList<>();
+        watches.add(new Watch("CONVERGED", false, this::converged));
+        Thread watcher = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                for (Watch watch : watches) {
+                    boolean satisfied = watch.any
+                            ? local.values().stream().anyMatch(watch.condition)
+                            : local.values().stream().allMatch(watch.condition);
+                    if (satisfied) {
+                        watches.remove(watch);
+                        events.println(watch.event + " " + System.currentTimeMillis());
+                    }
+                }
+                try {
+                    Thread.sleep(WATCH_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "gossip-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null && !line.equals("exit")) {
+            String[] parts = line.split(" ");
+            switch (parts[0]) {
+                case "advertise": {
+                    int node = Integer.parseInt(parts[1]);
+                    String serviceName = parts[2];
+                    watches.add(new Watch("SEEN", false, gossipNode -> !gossipNode.getInstances(serviceName).isEmpty()));
+                    GossipNode owner = local.get(node);
+                    if (owner != null) {
+                        List<String> names = new ArrayList<>(serviceNames(node));
+                        names.add(serviceName);
+                        owner.advertise("127.0.0.1", 20000 + node, names, Collections.emptyMap());
+                    }
+                    break;
+                }
+                case "crash": {
+                    Set<String> crashed = new HashSet<>(Arrays.asList(parts[1].split(",")));
+                    watches.add(new Watch("SUSPECTED", true, gossipNode -> gossipNode.getMembers().stream()
+                            .anyMatch(member -> crashed.contains(member.getAddress())
+                                    && member.getState() != MemberStateEnum.ALIVE)));
+                    watches.add(new Watch("DETECTED", false, gossipNode -> gossipNode.getMembers().stream()
+                            .noneMatch(member -> crashed.contains(member.getAddress())
+                                    && member.getState() != MemberStateEnum.DEAD)));
+                    break;
+                }
+                case "stats": {
+                    long[] total = new long[4];
+                    for (GossipNode gossipNode : local.values()) {
+                        total[0] += gossipNode.getBytesSent();
+                        total[1] += gossipNode.getBytesReceived();
+                        total[2] += gossipNode.getPacketsSent();
+                        total[3] += gossipNode.getPacketsReceived();
+                    }
+                    events.println("STATS " + total[0] + " " + total[1] + " " + total[2] + " " + total[3]);
+                    break;
+                }
+                default:
+                    System.err.println("[收敛测试] 未知命令: " + line);
+            }
+        }
+        watcher.interrupt();
+        for (GossipNode gossipNode : local.values()) {
+            gossipNode.close();
+        }
+    }
+
+    /**
+     * 节点看到了全部存活成员和它们发布的服务
+     */
+    private boolean converged(GossipNode gossipNode) {
+        int alive = 0;
+        for (GossipMember member : gossipNode.getMembers()) {
+            if (member.getState() == MemberStateEnum.ALIVE) {
+                alive++;
+            }
+        }
+        if (alive < nodes) {
+            return false;
+        }
+        for (int node = 0; node < nodes; node++) {
+            for (String serviceName : serviceNames(node)) {
+                if (gossipNode.getInstances(serviceName).isEmpty()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private List<String> serviceNames(int node) {
+        List<String> names = new ArrayList<>(services);
+        for (int i = 0; i < services; i++) {
+            names.add("com.alan.rpc.gossiptest.Node" + node + "Service" + i);
+        }
+        return names;
+    }
+
+    /**
+     * 子进程等待的条件：any 为 true 时任一本地节点满足即可，否则需要所有本地节点满足
+     */
+    private static class Watch {
+
+        private final String event;
+        private final boolean any;
+        private final Predicate<GossipNode> condition;
+
+        Watch(String event, boolean any, Predicate<GossipNode> condition) {
+            this.event = event;
+            this.any = any;
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * 汇总结果
+     */
+    private static class Summary {
+        int nodes;
+        int processes;
+        int services;
+        long intervalMillis;
+        long joinMillis;
+        long disseminationMillis;
+        long suspectMillis;
+        long failureDetectionMillis;
+        double bytesSentPerNodePerSecond;
+        double bytesReceivedPerNodePerSecond;
+        double packetsSentPerNodePerSecond;
+
+        String toJson() {
+            return String.format(SUMMARY_PREFIX + ": %d, \"processes\": %d, \"servicesPerNode\": %d, "
+                            + "\"intervalMillis\": %d, \"joinMillis\": %d, \"disseminationMillis\": %d, "
+                            + "\"suspectMillis\": %d, \"failureDetectionMillis\": %d, "
+                            + "\"bytesSentPerNodePerSecond\": %.0f, \"bytesReceivedPerNodePerSecond\": %.0f, "
+                            + "\"packetsSentPerNodePerSecond\": %.1f}",
+                    nodes, processes, services, intervalMillis, joinMillis, disseminationMillis,
+                    suspectMillis, failureDetectionMillis, bytesSentPerNodePerSecond,
+                    bytesReceivedPerNodePerSecond, packetsSentPerNodePerSecond);
+        }
+    }
+}
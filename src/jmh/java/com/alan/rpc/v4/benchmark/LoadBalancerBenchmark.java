@@ -0,0 +1,84 @@
+package com.alan.rpc.v4.benchmark;
+
+import com.alan.rpc.v4.consumer.loadbalance.LoadBalancer;
+import com.alan.rpc.v4.consumer.loadbalance.LoadBalancerFactory;
+import com.alan.rpc.v4.consumer.loadbalance.LoadBalancerTypeEnum;
+import com.alan.rpc.v4.demo.UserService;
+import com.alan.rpc.v4.registry.ServiceInstance;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 负载均衡选择开销基准测试
+ * 同一个负载均衡器被多个线程并发调用，衡量各策略每次选择的开销及共享计数器在竞争下的表现；
+ * 实例权重为 100 ~ 400 不等，每次调用 UserService.getUserName 的参数（用户ID）随机
+ *
+ * 运行方式：
+ * <pre>
+ * mvn -Pjmh package
+ * java -jar target/benchmarks.jar LoadBalancerBenchmark -t 16
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBalancerBenchmark {
+
+    private static final String SERVICE_NAME = "com.alan.rpc.benchmark.Service";
+
+    /**
+     * 预先生成的调用参数个数
+     */
+    private static final int ARGUMENTS = 1024;
+
+    @Param({"RANDOM", "ROUND_ROBIN", "WEIGHTED_RANDOM", "SMOOTH_WEIGHTED_ROUND_ROBIN", "LATENCY_AWARE",
+            "CONSISTENT_HASH"})
+    private LoadBalancerTypeEnum type;
+
+    @Param({"10", "100"})
+    private int instances;
+
+    private LoadBalancer loadBalancer;
+    private List<ServiceInstance> candidates;
+    private Method method;
+    private Object[][] arguments;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        loadBalancer = LoadBalancerFactory.create(type);
+        List<ServiceInstance> list = new ArrayList<>(instances);
+        for (int i = 0; i < instances; i++) {
+            list.add(new ServiceInstance(SERVICE_NAME, "10.0.0." + i, 8080, "instance-" + i,
+                    Collections.singletonMap(ServiceInstance.METADATA_WEIGHT, String.valueOf(100 * (1 + i % 4)))));
+        }
+        candidates = Collections.unmodifiableList(list);
+        method = UserService.class.getMethod("getUserName", Integer.class);
+        arguments = new Object[ARGUMENTS][];
+        for (int i = 0; i < ARGUMENTS; i++) {
+            arguments[i] = new Object[]{ThreadLocalRandom.current().nextInt(1_000_000)};
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ServiceInstance selectSingleThread() {
+        return loadBalancer.select(SERVICE_NAME, candidates, method,
+                arguments[ThreadLocalRandom.current().nextInt(ARGUMENTS)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ServiceInstance selectConcurrent() {
+        return loadBalancer.select(SERVICE_NAME, candidates, method,
+                arguments[ThreadLocalRandom.current().nextInt(ARGUMENTS)]);
+    }
+}
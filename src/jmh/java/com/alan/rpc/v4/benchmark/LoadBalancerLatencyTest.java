@@ -0,0 +1,216 @@
+package com.alan.rpc.v4.benchmark;
+
+import com.alan.rpc.v4.consumer.loadbalance.LoadBalancer;
+import com.alan.rpc.v4.consumer.loadbalance.LoadBalancerFactory;
+import com.alan.rpc.v4.consumer.loadbalance.LoadBalancerTypeEnum;
+import com.alan.rpc.v4.registry.ServiceInstance;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 负载均衡延迟测试
+ * 在进程内模拟一组性能不一的服务实例：大部分实例正常，少数实例持续变慢，少数实例周期性停顿（模拟 GC），
+ * 每个实例同时只能处理有限个请求，超出时排队。多个调用线程按闭环方式（收到响应立即发送下一个）经负载均衡器调用，
+ * 依次测试各策略，每个策略输出一行 JSON：吞吐量、延迟分位数和发往慢实例 / 停顿实例的请求占比
+ *
+ * 运行方式：
+ * <pre>
+ * java -cp target/benchmarks.jar com.alan.rpc.v4.benchmark.LoadBalancerLatencyTest
+ * java -cp target/benchmarks.jar com.alan.rpc.v4.benchmark.LoadBalancerLatencyTest policies=random,latencyAware slow=2
+ * </pre>
+ * 参数（key=value）：
+ * policies            依次测试的策略，逗号分隔，默认 weightedRandom,roundRobin,latencyAware
+ * instances           实例数，默认 10
+ * slow                持续变慢的实例数，默认 1
+ * slowFactor          慢实例的延迟倍数，默认 10
+ * paused              周期性停顿的实例数，默认 1
+ * pauseEvery          停顿周期（毫秒），默认 2000
+ * pauseMillis         每次停顿时长（毫秒），默认 300
+ * latency             正常实例的平均处理时间（毫秒），默认 5
+ * capacity            每个实例同时处理的请求数，默认 4
+ * threads             调用线程数，默认 24
+ * duration            每个策略的测试时长（秒），默认 10
+ */
+public class LoadBalancerLatencyTest {
+
+    private static final String SERVICE_NAME = "com.alan.rpc.benchmark.Service";
+
+    private final int instances;
+    private final int slow;
+    private final int slowFactor;
+    private final int paused;
+    private final long pauseEveryNanos;
+    private final long pauseNanos;
+    private final long latencyNanos;
+    private final int capacity;
+    private final int threads;
+    private final long durationNanos;
+
+    private LoadBalancerLatencyTest(Map<String, String> options) {
+        this.instances = Integer.parseInt(options.getOrDefault("instances", "10"));
+        this.slow = Integer.parseInt(options.getOrDefault("slow", "1"));
+        this.slowFactor = Integer.parseInt(options.getOrDefault("slowFactor", "10"));
+        this.paused = Integer.parseInt(options.getOrDefault("paused", "1"));
+        this.pauseEveryNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(options.getOrDefault("pauseEvery", "2000")));
+        this.pauseNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(options.getOrDefault("pauseMillis", "300")));
+        this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(options.getOrDefault("latency", "5")));
+        this.capacity = Integer.parseInt(options.getOrDefault("capacity", "4"));
+        this.threads = Integer.parseInt(options.getOrDefault("threads", "24"));
+        this.durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "10")));
+        if (slow + paused > instances) {
+            throw new IllegalArgumentException("slow + paused 不能超过 instances");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (index > 0) {
+                options.put(arg.substring(0, index), arg.substring(index + 1));
+            }
+        }
+        LoadBalancerLatencyTest test = new LoadBalancerLatencyTest(options);
+        for (String policy : options.getOrDefault("policies", "weightedRandom,roundRobin,latencyAware").split(",")) {
+            System.out.println(test.run(LoadBalancerTypeEnum.fromCode(policy.trim())));
+        }
+    }
+
+    /**
+     * 测试一个策略，返回一行 JSON 结果
+     */
+    private String run(LoadBalancerTypeEnum type) throws InterruptedException {
+        // 前 slow 个实例持续变慢，接下来 paused 个实例周期性停顿，各停顿实例的停顿时间错开
+        List<ServiceInstance> candidates = new ArrayList<>(instances);
+        Map<String, SimulatedInstance> simulated = new HashMap<>();
+        for (int i = 0; i < instances; i++) {
+            ServiceInstance instance = new ServiceInstance(SERVICE_NAME, "10.0.0." + i, 8080, "instance-" + i);
+            candidates.add(instance);
+            long pauseOffset = i >= slow && i < slow + paused ? pauseEveryNanos * (i - slow) / paused : -1;
+            simulated.put(instance.getAddress(), new SimulatedInstance(i < slow ? slowFactor : 1, pauseOffset));
+        }
+        candidates = Collections.unmodifiableList(candidates);
+
+        LoadBalancer loadBalancer = LoadBalancerFactory.create(type);
+        AtomicLongArray requestsPerInstance = new AtomicLongArray(instances);
+        long[][] latencies = new long[threads][];
+        int[] counts = new int[threads];
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        CountDownLatch done = new CountDownLatch(threads);
+        List<ServiceInstance> list = candidates;
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                long[] samples = new long[4096];
+                int count = 0;
+                try {
+                    while (System.nanoTime() < deadline) {
+                        ServiceInstance instance = loadBalancer.select(SERVICE_NAME, list);
+                        requestsPerInstance.incrementAndGet(list.indexOf(instance));
+                        loadBalancer.onRequestStart(SERVICE_NAME, instance);
+                        long begin = System.nanoTime();
+                        simulated.get(instance.getAddress()).handle(begin - start);
+                        long latency = System.nanoTime() - begin;
+                        loadBalancer.onRequestEnd(SERVICE_NAME, instance, latency, true);
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, count * 2);
+                        }
+                        samples[count++] = latency;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latencies[thread] = samples;
+                    counts[thread] = count;
+                    done.countDown();
+                }
+            }, "lb-caller-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        long[] all = new long[total];
+        int offset = 0;
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(latencies[t], 0, all, offset, counts[t]);
+            offset += counts[t];
+        }
+        Arrays.sort(all);
+        long slowRequests = 0;
+        long pausedRequests = 0;
+        for (int i = 0; i < instances; i++) {
+            if (i < slow) {
+                slowRequests += requestsPerInstance.get(i);
+            } else if (i < slow + paused) {
+                pausedRequests += requestsPerInstance.get(i);
+            }
+        }
+        return String.format(Locale.ROOT, "{\"policy\": \"%s\", \"requests\": %d, \"throughput\": %.0f, "
+                        + "\"p50Millis\": %.2f, \"p99Millis\": %.2f, \"p999Millis\": %.2f, \"maxMillis\": %.2f, "
+                        + "\"slowShare\": %.4f, \"pausedShare\": %.4f}",
+                type.getCode(), total, total / seconds,
+                percentileMillis(all, 0.5), percentileMillis(all, 0.99), percentileMillis(all, 0.999),
+                total == 0 ? 0 : all[total - 1] / 1e6,
+                total == 0 ? 0 : (double) slowRequests / total, total == 0 ? 0 : (double) pausedRequests / total);
+    }
+
+    private static double percentileMillis(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(sorted.length * quantile) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * 模拟的服务实例：同时最多处理 capacity 个请求，处理时间在平均值附近随机波动；
+     * 停顿实例在每个周期开始时停顿一段时间，期间到达或正在处理的请求都要等停顿结束
+     */
+    private final class SimulatedInstance {
+        private final Semaphore slots = new Semaphore(capacity, true);
+        private final int factor;
+
+        /**
+         * 停顿周期的相位偏移，不停顿的实例为 -1
+         */
+        private final long pauseOffsetNanos;
+
+        SimulatedInstance(int factor, long pauseOffsetNanos) {
+            this.factor = factor;
+            this.pauseOffsetNanos = pauseOffsetNanos;
+        }
+
+        void handle(long elapsedNanos) throws InterruptedException {
+            slots.acquire();
+            try {
+                // 平均值的 0.5 ~ 1.5 倍
+                long serviceNanos = (long) (latencyNanos * factor * (0.5 + ThreadLocalRandom.current().nextDouble()));
+                if (pauseOffsetNanos >= 0) {
+                    long phase = Math.floorMod(elapsedNanos + pauseOffsetNanos, pauseEveryNanos);
+                    if (phase < pauseNanos) {
+                        serviceNanos += pauseNanos - phase;
+                    } else if (phase + serviceNanos > pauseEveryNanos) {
+                        // 处理过程中进入下一次停顿
+                        serviceNanos += pauseNanos;
+                    }
+                }
+                LockSupport.parkNanos(serviceNanos);
+            } finally {
+                slots.release();
+            }
+        }
+    }
+}
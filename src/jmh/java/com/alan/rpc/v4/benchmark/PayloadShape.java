@@ -0,0 +1,84 @@
+package com.alan.rpc.v4.benchmark;
+
+import com.alan.rpc.v4.common.RpcError;
+import com.alan.rpc.v4.common.RpcErrorCodeEnum;
+import com.alan.rpc.v4.common.RpcRequest;
+import com.alan.rpc.v4.common.RpcResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基准测试的消息形态
+ * 覆盖 RPC 中常见的几类负载：简单参数请求、大集合响应、嵌套对象请求、异常响应
+ */
+public enum PayloadShape {
+
+    /**
+     * 基本类型参数的请求，对应 UserService.getUserName(Integer)
+     */
+    PRIMITIVE_REQUEST {
+        @Override
+        public Object create() {
+            return request("getUserName", new Class<?>[]{Integer.class}, new Object[]{1001});
+        }
+    },
+
+    /**
+     * 大集合响应：1000 个用户对象
+     */
+    LARGE_COLLECTION {
+        @Override
+        public Object create() {
+            List<UserDTO> users = new ArrayList<>(1000);
+            for (int i = 0; i < 1000; i++) {
+                users.add(user(1000 + i));
+            }
+            return RpcResponse.success("req-" + ordinal(), users);
+        }
+    },
+
+    /**
+     * 嵌套对象参数的请求
+     */
+    NESTED_DTO {
+        @Override
+        public Object create() {
+            return request("updateUser", new Class<?>[]{UserDTO.class, Boolean.class}, new Object[]{user(1001), true});
+        }
+    },
+
+    /**
+     * 带异常链的失败响应（只编码错误码、异常类名和消息）
+     */
+    EXCEPTION_RESPONSE {
+        @Override
+        public Object create() {
+            Exception cause = new IOException("数据库连接超时");
+            Exception exception = new IllegalStateException("查询用户失败: 1001", cause);
+            return RpcResponse.fail("req-" + ordinal(), RpcError.of(RpcErrorCodeEnum.BUSINESS_EXCEPTION, exception, 0));
+        }
+    };
+
+    /**
+     * 创建该形态的消息对象
+     */
+    public abstract Object create();
+
+    private static RpcRequest request(String methodName, Class<?>[] parameterTypes, Object[] parameters) {
+        RpcRequest request = new RpcRequest();
+        request.setRequestId("5f0c6a8e-4d7b-4f3a-9c1e-2b8d7a6e5f40");
+        request.setInterfaceName("com.alan.rpc.v4.demo.UserService");
+        request.setMethodName(methodName);
+        request.setParameterTypes(parameterTypes);
+        request.setParameters(parameters);
+        return request;
+    }
+
+    private static UserDTO user(int id) {
+        AddressDTO address = new AddressDTO("上海", "世纪大道 " + id + " 号", "200120");
+        return new UserDTO(id, "用户-" + id, 25, address, Arrays.asList("vip", "beta"));
+    }
+}
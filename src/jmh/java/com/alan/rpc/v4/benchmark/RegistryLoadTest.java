@@ -0,0 +1,741 @@
+package com.alan.rpc.v4.benchmark;
+
+import com.alan.rpc.v4.registry.*;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 注册中心压测
+ * 模拟大量服务实例持续心跳、上下线，消费者持续发现服务：每条连接保持固定数量的在途请求（收到响应立即发送下一个），
+ * 每秒输出一次吞吐量，结束时输出一行 JSON 汇总：各类请求的吞吐量和延迟分位数、注册中心的堆内存占用和锁竞争
+ *
+ * 运行方式：
+ * <pre>
+ * java -cp target/benchmarks.jar com.alan.rpc.v4.benchmark.RegistryLoadTest connections=64 inflight=32 duration=30
+ * java -cp target/benchmarks.jar com.alan.rpc.v4.benchmark.RegistryLoadTest processes=4 instances=20000
+ * </pre>
+ * 参数（key=value）：
+ * host / port         压测已启动的注册中心；不指定 host 时在进程内启动一个
+ * processes           压测进程数，默认 1（在当前进程内压测）；大于 1 时当前进程只运行注册中心，
+ *                     另外启动相应数量的子进程产生负载，结束后汇总各子进程的结果
+ * connections         每个压测进程的连接数，默认 32
+ * inflight            每条连接的在途请求数，默认 32
+ * services            服务数，默认 100
+ * instances           实例总数，默认 5000，多进程时平均分配
+ * heartbeatRatio      心跳请求占比，默认 0.9
+ * churnRatio          上下线请求占比（每条连接在自己的 64 个实例上交替注册、下线），默认 0.02，其余为服务发现
+ * duration            压测时长（秒），默认 20
+ * delta               服务发现是否带上已知版本号（增量服务发现），默认 true；false 时每次拉取完整列表
+ *
+ * 作为回归门禁时指定阈值，任一项不达标时以退出码 1 结束：
+ * minThroughput       最低总吞吐量（请求/秒）
+ * maxP99Micros        最高 p99 延迟（微秒）
+ * maxFailures         最多失败请求数
+ *
+ * 堆内存和锁竞争只在注册中心运行于当前进程时统计（否则为 -1）：堆内存为压测结束时相对注册中心空载时的增量（均在 GC 后测量）；
+ * 锁竞争为压测期间注册中心线程进入 synchronized（包括 ConcurrentHashMap 的桶锁）时被阻塞的次数和总时长
+ */
+public class RegistryLoadTest {
+
+    /**
+     * 延迟直方图每个 2 的幂区间细分的子桶数（2^6 = 64），分位数的相对误差不超过 1/64
+     */
+    private static final int LATENCY_SUB_BUCKET_BITS = 6;
+    private static final int LATENCY_SUB_BUCKETS = 1 << LATENCY_SUB_BUCKET_BITS;
+
+    /**
+     * 延迟直方图记录的最大值为 2^(该值 + 1) - 1 微秒（约 71 分钟），更大的值按最大值记录
+     */
+    private static final int LATENCY_MAX_EXPONENT = 31;
+
+    private static final int LATENCY_BUCKETS = (LATENCY_MAX_EXPONENT - LATENCY_SUB_BUCKET_BITS + 2) * LATENCY_SUB_BUCKETS;
+
+    /**
+     * 每条连接用于上下线的实例数
+     */
+    private static final int CHURN_INSTANCES_PER_CONNECTION = 64;
+
+    /**
+     * 压测线程名前缀，统计锁竞争时排除
+     */
+    private static final String LOAD_THREAD_PREFIX = "registry-load";
+
+    /**
+     * 汇总结果行的前缀，父进程据此从子进程输出中识别结果
+     */
+    private static final String SUMMARY_PREFIX = "{\"connections\"";
+
+    private final String host;
+    private final int port;
+    private final int connections;
+    private final int inflight;
+    private final int services;
+    private final int instances;
+    private final double heartbeatRatio;
+    private final double churnRatio;
+    private final int durationSeconds;
+    private final boolean delta;
+    private final boolean child;
+
+    /**
+     * 实例ID前缀，多个压测进程压测同一个注册中心时互不冲突
+     */
+    private final String idPrefix = "p" + ProcessHandle.current().pid() + "-";
+
+    private final LongAdder heartbeats = new LongAdder();
+    private final LongAdder discovers = new LongAdder();
+    private final LongAdder churns = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final Histogram heartbeatLatency = new Histogram();
+    private final Histogram discoverLatency = new Histogram();
+    private final Histogram churnLatency = new Histogram();
+
+    private volatile long deadlineNanos;
+
+    private RegistryLoadTest(Map<String, String> options) {
+        this.host = options.getOrDefault("host", "127.0.0.1");
+        this.port = Integer.parseInt(options.getOrDefault("port", "19900"));
+        this.connections = Integer.parseInt(options.getOrDefault("connections", "32"));
+        this.inflight = Integer.parseInt(options.getOrDefault("inflight", "32"));
+        this.services = Integer.parseInt(options.getOrDefault("services", "100"));
+        this.instances = Integer.parseInt(options.getOrDefault("instances", "5000"));
+        this.heartbeatRatio = Double.parseDouble(options.getOrDefault("heartbeatRatio", "0.9"));
+        this.churnRatio = Double.parseDouble(options.getOrDefault("churnRatio", "0.02"));
+        this.durationSeconds = Integer.parseInt(options.getOrDefault("duration", "20"));
+        this.delta = Boolean.parseBoolean(options.getOrDefault("delta", "true"));
+        this.child = Boolean.parseBoolean(options.getOrDefault("child", "false"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (index > 0) {
+                options.put(arg.substring(0, index), arg.substring(index + 1));
+            }
+        }
+        int processes = Integer.parseInt(options.getOrDefault("processes", "1"));
+
+        RegistryServer server = null;
+        ServerProbe probe = null;
+        if (!options.containsKey("host")) {
+            server = new RegistryServer(Integer.parseInt(options.getOrDefault("port", "19900")));
+            server.start();
+            probe = new ServerProbe();
+        }
+        Summary summary;
+        try {
+            summary = processes > 1
+                    ? runProcesses(options, processes, probe)
+                    : new RegistryLoadTest(options).run(probe);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+        System.out.println(summary.toJson());
+        // 多进程时门禁由父进程按汇总结果检查
+        boolean child = Boolean.parseBoolean(options.getOrDefault("child", "false"));
+        if (!child && !summary.check(options)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 多进程压测：子进程各自连接注册中心产生负载，当前进程汇总子进程输出的结果
+     */
+    private static Summary runProcesses(Map<String, String> options, int processes, ServerProbe probe) throws Exception {
+        int totalInstances = Integer.parseInt(options.getOrDefault("instances", "5000"));
+        List<Process> children = new ArrayList<>(processes);
+        for (int i = 0; i < processes; i++) {
+            List<String> command = new ArrayList<>(Arrays.asList(
+                    ProcessHandle.current().info().command().orElse("java"),
+                    "-Dfile.encoding=UTF-8", "-Dstdout.encoding=UTF-8",
+                    "-cp", System.getProperty("java.class.path"), RegistryLoadTest.class.getName()));
+            options.forEach((key, value) -> {
+                if (!key.equals("processes") && !key.equals("instances") && !key.equals("host")) {
+                    command.add(key + "=" + value);
+                }
+            });
+            command.add("host=" + options.getOrDefault("host", "127.0.0.1"));
+            command.add("instances=" + Math.max(1, totalInstances / processes));
+            command.add("child=true");
+            children.add(new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start());
+        }
+        System.out.println("[压测] 启动 " + processes + " 个压测进程，实例总数: " + totalInstances);
+        if (probe != null) {
+            // 子进程注册实例的时间不固定，锁竞争从子进程启动起统计
+            probe.start();
+        }
+
+        Summary total = null;
+        for (int i = 0; i < children.size(); i++) {
+            Process process = children.get(i);
+            Summary result = null;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(SUMMARY_PREFIX)) {
+                        result = Summary.parse(line);
+                    } else {
+                        System.out.println("[压测进程 " + (i + 1) + "] " + line);
+                    }
+                }
+            }
+            if (process.waitFor() != 0 || result == null) {
+                throw new IllegalStateException("压测进程 " + (i + 1) + " 异常退出");
+            }
+            total = total == null ? result : total.merge(result);
+        }
+        total.connections *= processes;
+        total.instances = totalInstances;
+        if (probe != null) {
+            probe.finish(total, totalInstances);
+        }
+        return total;
+    }
+
+    private Summary run(ServerProbe probe) throws Exception {
+        EventLoopGroup group = new NioEventLoopGroup(0, new DefaultThreadFactory(LOAD_THREAD_PREFIX));
+        try {
+            List<LoadConnection> loadConnections = new ArrayList<>();
+            Bootstrap bootstrap = new Bootstrap()
+                    .group(group)
+                    .channel(NioSocketChannel.class)
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .handler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) {
+                            LoadConnection connection;
+                            synchronized (loadConnections) {
+                                connection = new LoadConnection(loadConnections.size());
+                                loadConnections.add(connection);
+                            }
+                            RegistryProtocol.initPipeline(ch.pipeline(), RegistryResponse.class);
+                            ch.pipeline().addLast(connection);
+                        }
+                    });
+            List<Channel> channels = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                channels.add(bootstrap.connect(host, port).sync().channel());
+            }
+
+            RegistryClient registryClient = new RegistryClient(host, port);
+            registerInstances(registryClient);
+            registryClient.close();
+
+            log("[压测] 连接数: " + connections + "，每连接在途请求: " + inflight + "，服务数: " + services
+                    + "，实例数: " + instances + "，心跳占比: " + heartbeatRatio + "，上下线占比: " + churnRatio
+                    + "，增量发现: " + delta);
+            if (probe != null) {
+                probe.start();
+            }
+            deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+            long startNanos = System.nanoTime();
+            for (LoadConnection connection : loadConnections) {
+                connection.startLoad();
+            }
+
+            long lastTotal = 0;
+            for (int second = 1; second <= durationSeconds; second++) {
+                Thread.sleep(1000);
+                long total = heartbeats.sum() + discovers.sum() + churns.sum();
+                log("[压测] 第 " + second + " 秒: " + (total - lastTotal) + " 请求/秒");
+                lastTotal = total;
+            }
+
+            for (LoadConnection connection : loadConnections) {
+                connection.drained.await(10, TimeUnit.SECONDS);
+            }
+            Summary summary = summarize((System.nanoTime() - startNanos) / 1e9);
+            if (probe != null) {
+                probe.finish(summary, instances);
+            }
+
+            for (Channel channel : channels) {
+                channel.close().sync();
+            }
+            return summary;
+        } finally {
+            group.shutdownGracefully().sync();
+        }
+    }
+
+    /**
+     * 子进程只输出汇总结果
+     */
+    private void log(String message) {
+        if (!child) {
+            System.out.println(message);
+        }
+    }
+
+    /**
+     * 压测前注册所有实例
+     */
+    private void registerInstances(RegistryClient registryClient) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(instances);
+        for (int i = 0; i < instances; i++) {
+            futures.add(registryClient.registerAsync(serviceName(i % services), "10.0." + (i / 250) + "." + (i % 250), 8080, instanceId(i)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    }
+
+    private Summary summarize(double elapsedSeconds) {
+        Histogram all = new Histogram();
+        all.add(heartbeatLatency);
+        all.add(discoverLatency);
+        all.add(churnLatency);
+
+        Summary summary = new Summary();
+        summary.connections = connections;
+        summary.inflight = inflight;
+        summary.instances = instances;
+        summary.seconds = elapsedSeconds;
+        summary.heartbeatPerSecond = heartbeats.sum() / elapsedSeconds;
+        summary.discoverPerSecond = discovers.sum() / elapsedSeconds;
+        summary.churnPerSecond = churns.sum() / elapsedSeconds;
+        summary.failures = failures.sum();
+        summary.p50Micros = all.percentile(0.5);
+        summary.p99Micros = all.percentile(0.99);
+        summary.p999Micros = all.percentile(0.999);
+        summary.heartbeatP99Micros = heartbeatLatency.percentile(0.99);
+        summary.discoverP99Micros = discoverLatency.percentile(0.99);
+        summary.churnP99Micros = churnLatency.percentile(0.99);
+        return summary;
+    }
+
+    private static String serviceName(int index) {
+        return "com.alan.rpc.loadtest.Service" + index;
+    }
+
+    private String instanceId(int index) {
+        return idPrefix + "instance-" + index;
+    }
+
+    /**
+     * 延迟直方图（微秒），与 HdrHistogram 相同的对数-线性分桶：小于 64 的值每个值一个桶，
+     * 之后每个 [2^k, 2^(k+1)) 区间平均分成 64 个子桶，分位数的相对误差不超过 1/64，压测门禁不会因分桶粗糙而误判
+     */
+    private static final class Histogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(LATENCY_BUCKETS);
+
+        void record(long nanos) {
+            long micros = Math.min(Math.max(1, nanos / 1000), (1L << (LATENCY_MAX_EXPONENT + 1)) - 1);
+            buckets.incrementAndGet(bucketOf(micros));
+        }
+
+        void add(Histogram other) {
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                buckets.addAndGet(i, other.buckets.get(i));
+            }
+        }
+
+        /**
+         * 延迟分位数（微秒），取所在桶的上界（桶内最大值）
+         */
+        long percentile(double quantile) {
+            long total = 0;
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                total += buckets.get(i);
+            }
+            long threshold = (long) Math.ceil(total * quantile);
+            long count = 0;
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                count += buckets.get(i);
+                if (count >= threshold && count > 0) {
+                    return upperBound(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * 值所在的桶：[2^k, 2^(k+1)) 区间（k >= 6）的第 (k - 5) 组子桶，组内按除最高位外的接下来 6 位定位
+         */
+        private static int bucketOf(long micros) {
+            if (micros < LATENCY_SUB_BUCKETS) {
+                return (int) micros;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            int shift = exponent - LATENCY_SUB_BUCKET_BITS;
+            int sub = (int) (micros >>> shift) & (LATENCY_SUB_BUCKETS - 1);
+            return (shift + 1) * LATENCY_SUB_BUCKETS + sub;
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < LATENCY_SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / LATENCY_SUB_BUCKETS - 1;
+            long lower = (long) (LATENCY_SUB_BUCKETS + bucket % LATENCY_SUB_BUCKETS) << shift;
+            return lower + (1L << shift) - 1;
+        }
+    }
+
+    /**
+     * 压测结果，输出为一行 JSON；多进程时父进程解析各子进程的输出后合并
+     */
+    private static final class Summary {
+
+        private static final Pattern FIELD = Pattern.compile("\"(\\w+)\": (-?[0-9.]+)");
+
+        int connections;
+        int inflight;
+        int instances;
+        double seconds;
+        double heartbeatPerSecond;
+        double discoverPerSecond;
+        double churnPerSecond;
+        long failures;
+        long p50Micros;
+        long p99Micros;
+        long p999Micros;
+        long heartbeatP99Micros;
+        long discoverP99Micros;
+        long churnP99Micros;
+
+        /**
+         * 注册中心不在当前进程时为 -1
+         */
+        long registryHeapBytes = -1;
+        long heapBytesPerInstance = -1;
+        long blockedCount = -1;
+        long blockedMillis = -1;
+
+        double throughput() {
+            return heartbeatPerSecond + discoverPerSecond + churnPerSecond;
+        }
+
+        /**
+         * 合并另一个压测进程的结果：吞吐量和失败数相加，延迟分位数取较大值（偏保守）
+         */
+        Summary merge(Summary other) {
+            seconds = Math.max(seconds, other.seconds);
+            heartbeatPerSecond += other.heartbeatPerSecond;
+            discoverPerSecond += other.discoverPerSecond;
+            churnPerSecond += other.churnPerSecond;
+            failures += other.failures;
+            p50Micros = Math.max(p50Micros, other.p50Micros);
+            p99Micros = Math.max(p99Micros, other.p99Micros);
+            p999Micros = Math.max(p999Micros, other.p999Micros);
+            heartbeatP99Micros = Math.max(heartbeatP99Micros, other.heartbeatP99Micros);
+            discoverP99Micros = Math.max(discoverP99Micros, other.discoverP99Micros);
+            churnP99Micros = Math.max(churnP99Micros, other.churnP99Micros);
+            return this;
+        }
+
+        /**
+         * 按门禁阈值检查，不达标时输出原因
+         */
+        boolean check(Map<String, String> options) {
+            List<String> violations = new ArrayList<>();
+            if (options.containsKey("minThroughput") && throughput() < Double.parseDouble(options.get("minThroughput"))) {
+                violations.add(String.format("总吞吐量 %.0f < %s", throughput(), options.get("minThroughput")));
+            }
+            if (options.containsKey("maxP99Micros") && p99Micros > Long.parseLong(options.get("maxP99Micros"))) {
+                violations.add("p99 延迟 " + p99Micros + "us > " + options.get("maxP99Micros") + "us");
+            }
+            if (options.containsKey("maxFailures") && failures > Long.parseLong(options.get("maxFailures"))) {
+                violations.add("失败请求 " + failures + " > " + options.get("maxFailures"));
+            }
+            for (String violation : violations) {
+                System.out.println("[压测] 未达标: " + violation);
+            }
+            return violations.isEmpty();
+        }
+
+        String toJson() {
+            return String.format(SUMMARY_PREFIX + ": %d, \"inflight\": %d, \"instances\": %d, \"seconds\": %.1f, "
+                            + "\"throughput\": %.0f, \"heartbeatPerSecond\": %.0f, \"discoverPerSecond\": %.0f, "
+                            + "\"churnPerSecond\": %.0f, \"failures\": %d, "
+                            + "\"p50Micros\": %d, \"p99Micros\": %d, \"p999Micros\": %d, "
+                            + "\"heartbeatP99Micros\": %d, \"discoverP99Micros\": %d, \"churnP99Micros\": %d, "
+                            + "\"registryHeapBytes\": %d, \"heapBytesPerInstance\": %d, "
+                            + "\"blockedCount\": %d, \"blockedMillis\": %d}",
+                    connections, inflight, instances, seconds, throughput(), heartbeatPerSecond, discoverPerSecond,
+                    churnPerSecond, failures, p50Micros, p99Micros, p999Micros,
+                    heartbeatP99Micros, discoverP99Micros, churnP99Micros,
+                    registryHeapBytes, heapBytesPerInstance, blockedCount, blockedMillis);
+        }
+
+        static Summary parse(String json) {
+            Map<String, String> fields = new HashMap<>();
+            Matcher matcher = FIELD.matcher(json);
+            while (matcher.find()) {
+                fields.put(matcher.group(1), matcher.group(2));
+            }
+            Summary summary = new Summary();
+            summary.connections = Integer.parseInt(fields.get("connections"));
+            summary.inflight = Integer.parseInt(fields.get("inflight"));
+            summary.instances = Integer.parseInt(fields.get("instances"));
+            summary.seconds = Double.parseDouble(fields.get("seconds"));
+            summary.heartbeatPerSecond = Double.parseDouble(fields.get("heartbeatPerSecond"));
+            summary.discoverPerSecond = Double.parseDouble(fields.get("discoverPerSecond"));
+            summary.churnPerSecond = Double.parseDouble(fields.get("churnPerSecond"));
+            summary.failures = Long.parseLong(fields.get("failures"));
+            summary.p50Micros = Long.parseLong(fields.get("p50Micros"));
+            summary.p99Micros = Long.parseLong(fields.get("p99Micros"));
+            summary.p999Micros = Long.parseLong(fields.get("p999Micros"));
+            summary.heartbeatP99Micros = Long.parseLong(fields.get("heartbeatP99Micros"));
+            summary.discoverP99Micros = Long.parseLong(fields.get("discoverP99Micros"));
+            summary.churnP99Micros = Long.parseLong(fields.get("churnP99Micros"));
+            return summary;
+        }
+    }
+
+    /**
+     * 注册中心运行在当前进程时，统计其堆内存占用和锁竞争
+     * ServiceRegistry 本身不加锁，并发更新同一服务时在 ConcurrentHashMap 的桶锁上竞争，表现为线程阻塞
+     */
+    private static final class ServerProbe {
+
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private final long baselineHeapBytes;
+        private final Map<Long, long[]> blockedAtStart = new HashMap<>();
+
+        ServerProbe() {
+            if (threads.isThreadContentionMonitoringSupported()) {
+                threads.setThreadContentionMonitoringEnabled(true);
+            }
+            baselineHeapBytes = usedHeapAfterGc();
+        }
+
+        /**
+         * 压测开始：记录注册中心各线程此前的阻塞次数和时长
+         */
+        void start() {
+            blockedAtStart.clear();
+            for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+                if (isServerThread(info)) {
+                    blockedAtStart.put(info.getThreadId(), new long[]{info.getBlockedCount(), info.getBlockedTime()});
+                }
+            }
+        }
+
+        /**
+         * 压测结束：统计压测期间的阻塞增量和堆内存增量
+         */
+        void finish(Summary summary, int registeredInstances) {
+            long blockedCount = 0;
+            long blockedMillis = 0;
+            for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+                if (isServerThread(info)) {
+                    long[] start = blockedAtStart.getOrDefault(info.getThreadId(), new long[2]);
+                    blockedCount += info.getBlockedCount() - start[0];
+                    blockedMillis += Math.max(0, info.getBlockedTime() - start[1]);
+                }
+            }
+            summary.blockedCount = blockedCount;
+            summary.blockedMillis = threads.isThreadContentionMonitoringEnabled() ? blockedMillis : -1;
+            summary.registryHeapBytes = Math.max(0, usedHeapAfterGc() - baselineHeapBytes);
+            summary.heapBytesPerInstance = summary.registryHeapBytes / Math.max(1, registeredInstances);
+        }
+
+        private static boolean isServerThread(ThreadInfo info) {
+            return info != null && !info.getThreadName().startsWith(LOAD_THREAD_PREFIX)
+                    && !"main".equals(info.getThreadName());
+        }
+
+        private long usedHeapAfterGc() {
+            for (int i = 0; i < 3; i++) {
+                System.gc();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return memory.getHeapMemoryUsage().getUsed();
+        }
+    }
+
+    /**
+     * 单条压测连接，请求的发送和响应处理都在连接的 EventLoop 线程中进行
+     */
+    private class LoadConnection extends ChannelInboundHandlerAdapter {
+
+        /**
+         * 在途请求：requestId -> 请求
+         */
+        private final Map<Long, InFlight> inFlight = new HashMap<>();
+
+        /**
+         * 本连接已知的服务版本（delta=true 时使用）：服务名称 -> {epoch, revision}
+         */
+        private final Map<String, long[]> knownRevisions = new HashMap<>();
+
+        /**
+         * 本连接用于上下线的实例：当前是否已注册、是否有请求在途（同一实例同时只有一个请求在途）
+         */
+        private final boolean[] churnRegistered = new boolean[CHURN_INSTANCES_PER_CONNECTION];
+        private final boolean[] churnPending = new boolean[CHURN_INSTANCES_PER_CONNECTION];
+
+        private final int index;
+        private final CountDownLatch drained = new CountDownLatch(1);
+        private ChannelHandlerContext ctx;
+        private long nextRequestId;
+
+        LoadConnection(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) {
+            this.ctx = ctx;
+        }
+
+        void startLoad() {
+            ctx.executor().execute(() -> {
+                for (int i = 0; i < inflight; i++) {
+                    send();
+                }
+                ctx.flush();
+            });
+        }
+
+        private void send() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            RegistryRequest request = new RegistryRequest();
+            request.setRequestId(++nextRequestId);
+            double dice = random.nextDouble();
+            int churnSlot = -1;
+            if (dice < heartbeatRatio) {
+                // 实例级心跳，与 RpcServer 一致
+                request.setType(RegistryRequestTypeEnum.HEARTBEAT);
+                request.setInstanceId(instanceId(random.nextInt(instances)));
+            } else if (dice < heartbeatRatio + churnRatio && (churnSlot = freeChurnSlot(random)) >= 0) {
+                // 上下线：未注册的实例注册，已注册的实例下线
+                request.setServiceName(serviceName(churnSlot % services));
+                request.setInstanceId(idPrefix + "churn-" + index + "-" + churnSlot);
+                if (churnRegistered[churnSlot]) {
+                    request.setType(RegistryRequestTypeEnum.DEREGISTER);
+                } else {
+                    request.setType(RegistryRequestTypeEnum.REGISTER);
+                    request.setHost("10.1." + (index % 250) + "." + churnSlot);
+                    request.setPort(8080);
+                }
+                churnPending[churnSlot] = true;
+            } else {
+                request.setType(RegistryRequestTypeEnum.DISCOVER);
+                request.setServiceName(serviceName(random.nextInt(services)));
+                long[] known = knownRevisions.get(request.getServiceName());
+                if (delta && known != null) {
+                    request.setEpoch(known[0]);
+                    request.setRevision(known[1]);
+                }
+            }
+            inFlight.put(request.getRequestId(), new InFlight(request.getType(), churnSlot, System.nanoTime()));
+            ctx.write(request);
+        }
+
+        /**
+         * 随机选择一个没有请求在途的上下线实例，都在途时返回 -1（改为服务发现）
+         */
+        private int freeChurnSlot(ThreadLocalRandom random) {
+            int start = random.nextInt(CHURN_INSTANCES_PER_CONNECTION);
+            for (int i = 0; i < CHURN_INSTANCES_PER_CONNECTION; i++) {
+                int slot = (start + i) % CHURN_INSTANCES_PER_CONNECTION;
+                if (!churnPending[slot]) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            RegistryResponse response = (RegistryResponse) msg;
+            long now = System.nanoTime();
+            InFlight request = inFlight.remove(response.getRequestId());
+            if (request == null) {
+                return;
+            }
+            long latency = now - request.sendNanos;
+            if (!response.isSuccess()) {
+                failures.increment();
+            }
+            switch (request.type) {
+                case HEARTBEAT:
+                    heartbeatLatency.record(latency);
+                    heartbeats.increment();
+                    break;
+                case DISCOVER:
+                    discoverLatency.record(latency);
+                    discovers.increment();
+                    if (response.isSuccess()) {
+                        // 不跟踪实例列表本身，只记录版本号，模拟客户端的增量请求
+                        knownRevisions.put(response.getServiceName(), new long[]{response.getEpoch(), response.getRevision()});
+                    }
+                    break;
+                default:
+                    churnLatency.record(latency);
+                    churns.increment();
+                    churnPending[request.churnSlot] = false;
+                    if (response.isSuccess()) {
+                        churnRegistered[request.churnSlot] = request.type == RegistryRequestTypeEnum.REGISTER;
+                    }
+                    break;
+            }
+
+            if (now < deadlineNanos) {
+                send();
+            } else if (inFlight.isEmpty()) {
+                drained.countDown();
+            }
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            System.err.println("[压测] 连接异常: " + cause.getMessage());
+            failures.increment();
+            ctx.close();
+            drained.countDown();
+        }
+    }
+
+    /**
+     * 在途请求
+     */
+    private static final class InFlight {
+
+        private final RegistryRequestTypeEnum type;
+        private final int churnSlot;
+        private final long sendNanos;
+
+        InFlight(RegistryRequestTypeEnum type, int churnSlot, long sendNanos) {
+            this.type = type;
+            this.churnSlot = churnSlot;
+            this.sendNanos = sendNanos;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.alan.rpc.v4.benchmark;
+
+import com.alan.rpc.v4.common.serializer.SerializationSession;
+import com.alan.rpc.v4.common.serializer.SerializerFactory;
+import com.alan.rpc.v4.registry.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 注册中心协议基准测试
+ * 对比二进制编解码器（{@link RegistryCodec}）与之前使用的 Kryo、更早的 Java 对象流在注册中心典型消息上的
+ * 编码 + 解码吞吐量。三者都按长连接的稳定状态测量：同一对编解码器（会话）连续处理同类消息
+ *
+ * 运行方式：
+ * <pre>
+ * java -jar target/benchmarks.jar RegistryProtocolBenchmark -prof gc
+ * java -cp target/benchmarks.jar com.alan.rpc.v4.benchmark.RegistryProtocolBenchmark   # 编码大小
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RegistryProtocolBenchmark {
+
+    /**
+     * 服务发现响应中的实例数
+     */
+    private static final int DISCOVER_INSTANCES = 50;
+
+    @Param({"binary", "kryo", "java"})
+    private String protocol;
+
+    @Param({"HEARTBEAT_REQUEST", "REGISTER_REQUEST", "DISCOVER_RESPONSE", "NOT_MODIFIED_RESPONSE"})
+    private String message;
+
+    private Channel channel;
+    private Object payload;
+
+    @Setup
+    public void setup() {
+        payload = message(message);
+        channel = new Channel(protocol, payload.getClass());
+        // 第一条消息建立会话状态（驻留字符串、类注册），之后测量稳定状态
+        channel.roundTrip(payload);
+    }
+
+    @Benchmark
+    public Object roundTrip() {
+        return channel.roundTrip(payload);
+    }
+
+    /**
+     * 输出各协议各消息的稳定状态编码大小（字节）
+     */
+    public static void main(String[] args) {
+        for (String message : new String[]{"HEARTBEAT_REQUEST", "REGISTER_REQUEST", "DISCOVER_RESPONSE",
+                "NOT_MODIFIED_RESPONSE"}) {
+            StringBuilder line = new StringBuilder(message);
+            for (String protocol : new String[]{"binary", "kryo", "java"}) {
+                Object payload = message(message);
+                Channel channel = new Channel(protocol, payload.getClass());
+                channel.roundTrip(payload);
+                line.append("  ").append(protocol).append('=').append(channel.encodedSize(payload));
+            }
+            System.out.println(line);
+        }
+    }
+
+    static Object message(String shape) {
+        String serviceName = "com.alan.rpc.v4.demo.UserService";
+        switch (shape) {
+            case "HEARTBEAT_REQUEST":
+                return new RegistryRequest(42, RegistryRequestTypeEnum.HEARTBEAT, null, null, 0,
+                        "192.168.1.10:8080-3f2a9c1e");
+            case "REGISTER_REQUEST":
+                return new RegistryRequest(42, RegistryRequestTypeEnum.REGISTER, serviceName, "192.168.1.10", 8080,
+                        "192.168.1.10:8080-3f2a9c1e");
+            case "DISCOVER_RESPONSE":
+                List<ServiceInstance> instances = new ArrayList<>(DISCOVER_INSTANCES);
+                for (int i = 0; i < DISCOVER_INSTANCES; i++) {
+                    ServiceInstance instance = new ServiceInstance(serviceName, "192.168.1." + (10 + i), 8080,
+                            "192.168.1." + (10 + i) + ":8080-3f2a9c1e");
+                    instance.setRevision(1000 + i);
+                    instances.add(instance);
+                }
+                return RegistryResponse.full(42, serviceName, 0x5DEECE66DL, 1049, instances);
+            case "NOT_MODIFIED_RESPONSE":
+                return RegistryResponse.delta(42, serviceName, 0x5DEECE66DL, 1049, 1049, null, null);
+            default:
+                throw new IllegalArgumentException("未知的消息: " + shape);
+        }
+    }
+
+    /**
+     * 一条连接的两端：发送方编码，接收方解码
+     */
+    private static class Channel {
+
+        private final RegistryCodec writer;
+        private final RegistryCodec reader;
+        private final SerializationSession writerSession;
+        private final SerializationSession readerSession;
+        private final Class<?> type;
+        private final ByteBuf buffer = Unpooled.buffer(4096);
+
+        Channel(String protocol, Class<?> type) {
+            this.type = type;
+            Class<?> otherSide = type == RegistryRequest.class ? RegistryResponse.class : RegistryRequest.class;
+            if ("binary".equals(protocol)) {
+                writer = new RegistryCodec(otherSide);
+                reader = new RegistryCodec(type);
+                writerSession = null;
+                readerSession = null;
+            } else {
+                writer = null;
+                reader = null;
+                writerSession = SerializerFactory.getSerializer(protocol).openSession();
+                readerSession = SerializerFactory.getSerializer(protocol).openSession();
+            }
+        }
+
+        Object roundTrip(Object payload) {
+            if (writer != null) {
+                buffer.clear();
+                writer.write(payload, buffer);
+                return reader.read(buffer);
+            }
+            return readerSession.deserialize(writerSession.serialize(payload), type);
+        }
+
+        int encodedSize(Object payload) {
+            if (writer != null) {
+                buffer.clear();
+                writer.write(payload, buffer);
+                int size = buffer.readableBytes();
+                reader.read(buffer);
+                return size;
+            }
+            byte[] data = writerSession.serialize(payload);
+            readerSession.deserialize(data, type);
+            return data.length;
+        }
+    }
+}
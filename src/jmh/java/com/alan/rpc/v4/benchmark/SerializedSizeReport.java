@@ -0,0 +1,55 @@
+package com.alan.rpc.v4.benchmark;
+
+import com.alan.rpc.v4.common.SerializationTypeEnum;
+import com.alan.rpc.v4.common.serializer.SerializationSession;
+import com.alan.rpc.v4.common.serializer.Serializer;
+import com.alan.rpc.v4.common.serializer.SerializerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 编码大小报告
+ * JMH 只统计时间和分配，这里补充每种序列化方式、每种消息形态的编码字节数，输出为 JSON
+ * bytes 为单条消息独立编码的大小，sessionBytes 为同一会话（连接）内第二条同类消息的大小，即稳定状态下的大小
+ *
+ * 运行方式：
+ * <pre>
+ * java -cp target/benchmarks.jar com.alan.rpc.v4.benchmark.SerializedSizeReport target/serialized-size.json
+ * </pre>
+ * 不指定输出文件时打印到标准输出
+ */
+public class SerializedSizeReport {
+
+    public static void main(String[] args) throws IOException {
+        StringBuilder json = new StringBuilder("[\n");
+        boolean first = true;
+        for (SerializationTypeEnum type : SerializationTypeEnum.values()) {
+            Serializer serializer = SerializerFactory.getSerializer(type);
+            for (PayloadShape shape : PayloadShape.values()) {
+                int size = serializer.serialize(shape.create()).length;
+                SerializationSession session = serializer.openSession();
+                session.serialize(shape.create());
+                int sessionSize = session.serialize(shape.create()).length;
+                if (!first) {
+                    json.append(",\n");
+                }
+                first = false;
+                json.append(String.format("  {\"serializer\": \"%s\", \"payload\": \"%s\", \"bytes\": %d, \"sessionBytes\": %d}",
+                        type.getCode(), shape.name(), size, sessionSize));
+            }
+        }
+        json.append("\n]\n");
+
+        if (args.length > 0) {
+            Path output = Paths.get(args[0]);
+            Files.write(output, json.toString().getBytes(StandardCharsets.UTF_8));
+            System.out.println("编码大小报告已写入: " + output.toAbsolutePath());
+        } else {
+            System.out.print(json);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.alan.rpc.v4.benchmark;
+
+import com.alan.rpc.v4.common.serializer.Serializer;
+import com.alan.rpc.v4.common.serializer.SerializerFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 序列化基准测试
+ * 对比 Java / JSON / Hessian / Kryo 四种序列化方式在不同消息形态下的吞吐量
+ *
+ * 运行方式（结果输出为 JSON，可用于回归对比）：
+ * <pre>
+ * mvn -Pjmh package
+ * java -jar target/benchmarks.jar SerializerBenchmark -prof gc -rf json -rff target/jmh-serializer.json
+ * </pre>
+ * 加上 -prof gc 后 gc.alloc.rate.norm 即每次操作的分配字节数；编码大小见 {@link SerializedSizeReport}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializerBenchmark {
+
+    @Param({"java", "json", "hessian", "kryo", "codegen"})
+    private String serializerType;
+
+    @Param({"PRIMITIVE_REQUEST", "LARGE_COLLECTION", "NESTED_DTO", "EXCEPTION_RESPONSE"})
+    private String payloadShape;
+
+    private Serializer serializer;
+    private Object payload;
+    private Class<?> payloadClass;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        serializer = SerializerFactory.getSerializer(serializerType);
+        payload = PayloadShape.valueOf(payloadShape).create();
+        payloadClass = payload.getClass();
+        encoded = serializer.serialize(payload);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(payload);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(encoded, payloadClass);
+    }
+}
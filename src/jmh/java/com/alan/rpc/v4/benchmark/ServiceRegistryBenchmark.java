@@ -0,0 +1,99 @@
+package com.alan.rpc.v4.benchmark;
+
+import com.alan.rpc.v4.registry.ServiceInstance;
+import com.alan.rpc.v4.registry.ServiceRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 注册表并发基准测试
+ * 多线程同时心跳、发现服务，衡量 ServiceRegistry 在竞争下的吞吐量；
+ * mixed 组模拟注册中心的实际负载：大部分线程心跳，少量线程发现服务
+ *
+ * 运行方式：
+ * <pre>
+ * mvn -Pjmh package
+ * java -jar target/benchmarks.jar ServiceRegistryBenchmark -t 16
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceRegistryBenchmark {
+
+    @Param({"100"})
+    private int services;
+
+    @Param({"5000"})
+    private int instances;
+
+    private ServiceRegistry registry;
+    private String[] serviceNames;
+    private String[] instanceIds;
+
+    @Setup
+    public void setup() {
+        registry = new ServiceRegistry();
+        serviceNames = new String[services];
+        for (int i = 0; i < services; i++) {
+            serviceNames[i] = "com.alan.rpc.benchmark.Service" + i;
+        }
+        instanceIds = new String[instances];
+        for (int i = 0; i < instances; i++) {
+            instanceIds[i] = "instance-" + i;
+            registry.register(serviceNames[i % services], "10.0." + (i / 250) + "." + (i % 250), 8080, instanceIds[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        registry.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int instanceHeartbeat() {
+        return registry.heartbeat(randomInstance());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void serviceHeartbeat() {
+        int index = ThreadLocalRandom.current().nextInt(instances);
+        registry.heartbeat(serviceNames[index % services], instanceIds[index]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public List<ServiceInstance> discover() {
+        return registry.discover(randomService());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public int mixedHeartbeat() {
+        return registry.heartbeat(randomInstance());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public List<ServiceInstance> mixedDiscover() {
+        return registry.discover(randomService());
+    }
+
+    private String randomInstance() {
+        return instanceIds[ThreadLocalRandom.current().nextInt(instances)];
+    }
+
+    private String randomService() {
+        return serviceNames[ThreadLocalRandom.current().nextInt(services)];
+    }
+}
@@ -0,0 +1,27 @@
+package com.alan.rpc.v4.benchmark;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 基准测试用用户对象
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserDTO implements Serializable {
+
+    private Integer id;
+
+    private String name;
+
+    private int age;
+
+    private AddressDTO address;
+
+    private List<String> tags;
+}
@@ -0,0 +1,412 @@
+package com.alan.rpc.v4.codegen;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * 编解码器注解处理器
+ * 扫描 @RpcService 接口的方法签名，为参数和返回值中（包括集合元素、DTO 字段中）出现的 DTO
+ * 生成 {@code <DTO>_RpcCodec} 类，并写入 ServiceLoader 配置文件供 CodecRegistry 加载
+ *
+ * DTO 需满足：public 非抽象类（嵌套类须为 static）、有无参构造函数、每个字段都有 getter/setter
+ * （手写或 Lombok 生成）。不满足条件的类型不生成编解码器，运行时自动回退到备用序列化器
+ *
+ * 注意：本处理器不依赖框架的其他类，由 pom.xml 中单独的 compile 执行先行编译
+ */
+@SupportedAnnotationTypes(RpcCodecProcessor.RPC_SERVICE)
+public class RpcCodecProcessor extends AbstractProcessor {
+
+    static final String RPC_SERVICE = "com.alan.rpc.v4.common.annotation.RpcService";
+
+    private static final String CODEC_SUFFIX = "_RpcCodec";
+    private static final String CODEC_INTERFACE = "com.alan.rpc.v4.common.serializer.codec.GeneratedCodec";
+    private static final String CODEC_SUPPORT = "com.alan.rpc.v4.common.serializer.codec.CodecSupport";
+
+    private static final Set<String> LOMBOK_ACCESSOR_ANNOTATIONS = Set.of("lombok.Data", "lombok.Value");
+    private static final Set<String> LOMBOK_NO_ARGS_ANNOTATIONS = Set.of("lombok.Data", "lombok.NoArgsConstructor");
+
+    /**
+     * 已检查过的类型：全限定名 -> 是否可生成编解码器
+     */
+    private final Map<String, Boolean> dtoTypes = new HashMap<>();
+
+    /**
+     * 本次编译生成的编解码器全限定名
+     */
+    private final Set<String> generatedCodecs = new LinkedHashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeServiceFile();
+            return false;
+        }
+
+        TypeElement rpcService = processingEnv.getElementUtils().getTypeElement(RPC_SERVICE);
+        if (rpcService == null) {
+            return false;
+        }
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(rpcService)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error(element, "@RpcService 只能标注在接口上");
+                continue;
+            }
+            for (ExecutableElement method : ElementFilter.methodsIn(
+                    processingEnv.getElementUtils().getAllMembers((TypeElement) element))) {
+                if (method.getEnclosingElement().toString().equals("java.lang.Object")) {
+                    continue;
+                }
+                collect(method.getReturnType());
+                for (VariableElement parameter : method.getParameters()) {
+                    collect(parameter.asType());
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 递归收集类型中出现的 DTO（泛型参数、数组元素、DTO 字段），并为其生成编解码器
+     */
+    private void collect(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            collect(((ArrayType) type).getComponentType());
+            return;
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return;
+        }
+
+        DeclaredType declaredType = (DeclaredType) type;
+        for (TypeMirror typeArgument : declaredType.getTypeArguments()) {
+            collect(typeArgument);
+        }
+
+        TypeElement typeElement = (TypeElement) declaredType.asElement();
+        String name = typeElement.getQualifiedName().toString();
+        if (dtoTypes.containsKey(name)) {
+            return;
+        }
+        boolean dto = isDto(typeElement);
+        dtoTypes.put(name, dto);
+        if (!dto) {
+            return;
+        }
+
+        List<VariableElement> fields = fieldsOf(typeElement);
+        for (VariableElement field : fields) {
+            collect(field.asType());
+        }
+        generateCodec(typeElement, fields);
+    }
+
+    private boolean isDto(TypeElement type) {
+        String name = type.getQualifiedName().toString();
+        if (type.getKind() != ElementKind.CLASS || name.startsWith("java.") || name.startsWith("javax.")) {
+            return false;
+        }
+        Set<Modifier> modifiers = type.getModifiers();
+        if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)) {
+            return false;
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            note(type, "泛型类不生成编解码器");
+            return false;
+        }
+        if (!hasNoArgsConstructor(type)) {
+            note(type, "没有无参构造函数，不生成编解码器");
+            return false;
+        }
+        for (VariableElement field : fieldsOf(type)) {
+            if (!hasAccessors(type, field)) {
+                note(type, "字段 " + field.getSimpleName() + " 缺少 getter/setter，不生成编解码器");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasNoArgsConstructor(TypeElement type) {
+        if (hasAnnotation(type, LOMBOK_NO_ARGS_ANNOTATIONS) && !hasAnnotation(type, Set.of("lombok.AllArgsConstructor"))) {
+            return true;
+        }
+        if (hasAnnotation(type, Set.of("lombok.NoArgsConstructor"))) {
+            return true;
+        }
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+        if (constructors.isEmpty()) {
+            return true;
+        }
+        for (ExecutableElement constructor : constructors) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasAccessors(TypeElement type, VariableElement field) {
+        boolean lombokGetter = hasAnnotation(type, LOMBOK_ACCESSOR_ANNOTATIONS)
+                || hasAnnotation(type, Set.of("lombok.Getter")) || hasAnnotation(field, Set.of("lombok.Getter"));
+        boolean lombokSetter = hasAnnotation(type, Set.of("lombok.Data"))
+                || hasAnnotation(type, Set.of("lombok.Setter")) || hasAnnotation(field, Set.of("lombok.Setter"));
+        return (lombokGetter || hasMethod(type, getterName(field), 0))
+                && (lombokSetter || hasMethod(type, setterName(field), 1));
+    }
+
+    private boolean hasMethod(TypeElement type, String name, int parameterCount) {
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == parameterCount
+                    && method.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasAnnotation(Element element, Set<String> annotationNames) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (annotationNames.contains(annotation.getAnnotationType().toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 需要编解码的字段：父类字段在前，跳过 static 和 transient 字段
+     */
+    private List<VariableElement> fieldsOf(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<>();
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() == TypeKind.DECLARED) {
+            TypeElement superElement = (TypeElement) ((DeclaredType) superclass).asElement();
+            if (!superElement.getQualifiedName().contentEquals("java.lang.Object")) {
+                fields.addAll(fieldsOf(superElement));
+            }
+        }
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    // ---------------------------------------------------------------- 代码生成
+
+    private void generateCodec(TypeElement type, List<VariableElement> fields) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String dtoName = type.getQualifiedName().toString();
+        String codecSimpleName = codecSimpleName(type);
+        String codecName = packageName.isEmpty() ? codecSimpleName : packageName + "." + codecSimpleName;
+
+        StringBuilder encode = new StringBuilder();
+        StringBuilder decode = new StringBuilder();
+        for (VariableElement field : fields) {
+            appendField(field, encode, decode);
+        }
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n")
+                .append(" * ").append(type.getSimpleName()).append(" 的编解码器，由 RpcCodecProcessor 生成，请勿修改\n")
+                .append(" */\n")
+                .append("@javax.annotation.processing.Generated(\"").append(RpcCodecProcessor.class.getName()).append("\")\n")
+                .append("public final class ").append(codecSimpleName)
+                .append(" implements ").append(CODEC_INTERFACE).append("<").append(dtoName).append("> {\n\n")
+                .append("    public static final ").append(codecSimpleName).append(" INSTANCE = new ")
+                .append(codecSimpleName).append("();\n\n")
+                .append("    @Override\n")
+                .append("    public Class<").append(dtoName).append("> getType() {\n")
+                .append("        return ").append(dtoName).append(".class;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public void encode(java.io.DataOutput out, ").append(dtoName)
+                .append(" value) throws java.io.IOException {\n")
+                .append(encode)
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    @SuppressWarnings(\"unchecked\")\n")
+                .append("    public ").append(dtoName).append(" decode(java.io.DataInput in) throws java.io.IOException {\n")
+                .append("        ").append(dtoName).append(" value = new ").append(dtoName).append("();\n")
+                .append(decode)
+                .append("        return value;\n")
+                .append("    }\n")
+                .append("}\n");
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(codecName, type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+            generatedCodecs.add(codecName);
+        } catch (IOException e) {
+            error(type, "生成编解码器失败: " + e.getMessage());
+        }
+    }
+
+    private void appendField(VariableElement field, StringBuilder encode, StringBuilder decode) {
+        TypeMirror type = field.asType();
+        String get = "value." + getterName(field) + "()";
+        String set = "value." + setterName(field);
+
+        if (type.getKind().isPrimitive()) {
+            String method = primitiveMethod(type.getKind());
+            encode.append("        out.write").append(method).append("(").append(get).append(");\n");
+            decode.append("        ").append(set).append("(in.read").append(method).append("());\n");
+            return;
+        }
+
+        if (type.getKind() == TypeKind.DECLARED) {
+            TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+            String name = element.getQualifiedName().toString();
+            if (name.equals("java.lang.String")) {
+                encode.append("        ").append(CODEC_SUPPORT).append(".writeString(out, ").append(get).append(");\n");
+                decode.append("        ").append(set).append("(").append(CODEC_SUPPORT).append(".readString(in));\n");
+                return;
+            }
+            if (element.getKind() == ElementKind.ENUM) {
+                encode.append("        {\n")
+                        .append("            ").append(name).append(" v = ").append(get).append(";\n")
+                        .append("            ").append(CODEC_SUPPORT).append(".writeString(out, v == null ? null : v.name());\n")
+                        .append("        }\n");
+                decode.append("        {\n")
+                        .append("            String v = ").append(CODEC_SUPPORT).append(".readString(in);\n")
+                        .append("            ").append(set).append("(v == null ? null : ").append(name).append(".valueOf(v));\n")
+                        .append("        }\n");
+                return;
+            }
+            if (Boolean.TRUE.equals(dtoTypes.get(name))) {
+                String codec = codecName(element);
+                encode.append("        ").append(CODEC_SUPPORT).append(".writeNested(out, ").append(get)
+                        .append(", ").append(codec).append(".INSTANCE);\n");
+                decode.append("        ").append(set).append("(").append(CODEC_SUPPORT).append(".readNested(in, ")
+                        .append(codec).append(".INSTANCE));\n");
+                return;
+            }
+        }
+
+        // 其余类型（包装类型、集合、Object 等）在运行时按实际类型编码
+        String erasure = processingEnv.getTypeUtils().erasure(type).toString();
+        encode.append("        ").append(CODEC_SUPPORT).append(".writeValue(out, ").append(get).append(");\n");
+        decode.append("        ").append(set).append("((").append(type.getKind() == TypeKind.DECLARED ? type.toString() : erasure)
+                .append(") ").append(CODEC_SUPPORT).append(".readValue(in));\n");
+    }
+
+    private static String primitiveMethod(TypeKind kind) {
+        switch (kind) {
+            case INT:
+                return "Int";
+            case LONG:
+                return "Long";
+            case BOOLEAN:
+                return "Boolean";
+            case DOUBLE:
+                return "Double";
+            case FLOAT:
+                return "Float";
+            case SHORT:
+                return "Short";
+            case BYTE:
+                return "Byte";
+            case CHAR:
+                return "Char";
+            default:
+                throw new IllegalArgumentException("未知的基本类型: " + kind);
+        }
+    }
+
+    private static String getterName(VariableElement field) {
+        String name = field.getSimpleName().toString();
+        if (field.asType().getKind() == TypeKind.BOOLEAN) {
+            return isPrefixed(name) ? name : "is" + capitalize(name);
+        }
+        return "get" + capitalize(name);
+    }
+
+    private static String setterName(VariableElement field) {
+        String name = field.getSimpleName().toString();
+        if (field.asType().getKind() == TypeKind.BOOLEAN && isPrefixed(name)) {
+            return "set" + name.substring(2);
+        }
+        return "set" + capitalize(name);
+    }
+
+    /**
+     * 与 Lombok 一致：boolean 字段 isXxx 的 getter 为 isXxx()，setter 为 setXxx()
+     */
+    private static boolean isPrefixed(String name) {
+        return name.length() > 2 && name.startsWith("is") && Character.isUpperCase(name.charAt(2));
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private String codecSimpleName(TypeElement type) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String qualifiedName = type.getQualifiedName().toString();
+        String nestedName = packageName.isEmpty() ? qualifiedName : qualifiedName.substring(packageName.length() + 1);
+        return nestedName.replace('.', '_') + CODEC_SUFFIX;
+    }
+
+    private String codecName(TypeElement type) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        return packageName.isEmpty() ? codecSimpleName(type) : packageName + "." + codecSimpleName(type);
+    }
+
+    /**
+     * 写入 ServiceLoader 配置文件
+     */
+    private void writeServiceFile() {
+        if (generatedCodecs.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    "META-INF/services/" + CODEC_INTERFACE);
+            try (Writer writer = file.openWriter()) {
+                for (String codec : generatedCodecs) {
+                    writer.write(codec);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "写入编解码器配置失败: " + e.getMessage());
+        }
+    }
+
+    private void note(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message, element);
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,57 @@
+package com.alan.rpc.v4.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * RPC 错误信息
+ * 替代直接序列化 Exception 对象：只传输错误码、异常类名、消息和可选的截断堆栈，
+ * 既避免了 Java 序列化完整异常链的高昂开销，也避免了 JSON 反序列化异常对象的兼容问题
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RpcError implements Serializable {
+
+    /**
+     * 错误码，见 {@link RpcErrorCodeEnum}
+     */
+    private int code;
+
+    /**
+     * 服务端异常的全限定类名
+     */
+    private String exceptionClass;
+
+    /**
+     * 异常消息
+     */
+    private String message;
+
+    /**
+     * 截断后的堆栈，格式与 StackTraceElement.toString() 一致，默认不传输（null）
+     */
+    private String[] stackTrace;
+
+    /**
+     * 从异常构建错误信息
+     *
+     * @param errorCode       错误码
+     * @param throwable       服务端异常
+     * @param stackTraceDepth 保留的堆栈深度，0 表示不传输堆栈
+     */
+    public static RpcError of(RpcErrorCodeEnum errorCode, Throwable throwable, int stackTraceDepth) {
+        String[] stackTrace = null;
+        if (stackTraceDepth > 0) {
+            StackTraceElement[] elements = throwable.getStackTrace();
+            stackTrace = new String[Math.min(stackTraceDepth, elements.length)];
+            for (int i = 0; i < stackTrace.length; i++) {
+                stackTrace[i] = elements[i].toString();
+            }
+        }
+        return new RpcError(errorCode.getCode(), throwable.getClass().getName(), throwable.getMessage(), stackTrace);
+    }
+}
@@ -0,0 +1,55 @@
+package com.alan.rpc.v4.common;
+
+/**
+ * RPC 错误码枚举
+ * 区分框架错误和业务异常，客户端不必解析异常类型即可判断错误来源
+ */
+public enum RpcErrorCodeEnum {
+    /**
+     * 服务未找到
+     */
+    SERVICE_NOT_FOUND(1001, "服务未找到"),
+
+    /**
+     * 方法未找到
+     */
+    METHOD_NOT_FOUND(1002, "方法未找到"),
+
+    /**
+     * 业务方法抛出异常
+     */
+    BUSINESS_EXCEPTION(2001, "业务异常"),
+
+    /**
+     * 服务端内部错误
+     */
+    INTERNAL_ERROR(5001, "服务端内部错误");
+
+    private final int code;
+    private final String description;
+
+    RpcErrorCodeEnum(int code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 根据 code 获取枚举类型
+     */
+    public static RpcErrorCodeEnum fromCode(int code) {
+        for (RpcErrorCodeEnum type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("未知的错误码: " + code);
+    }
+}
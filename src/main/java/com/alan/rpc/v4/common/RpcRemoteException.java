@@ -0,0 +1,32 @@
+package com.alan.rpc.v4.common;
+
+/**
+ * 远程调用异常
+ * 客户端无法还原服务端异常类型时抛出，默认不采集本地堆栈
+ */
+public class RpcRemoteException extends RuntimeException {
+
+    /**
+     * 错误码
+     */
+    private final int code;
+
+    /**
+     * 服务端异常的全限定类名
+     */
+    private final String remoteExceptionClass;
+
+    public RpcRemoteException(RpcError error, boolean writableStackTrace) {
+        super("[" + error.getExceptionClass() + "] " + error.getMessage(), null, false, writableStackTrace);
+        this.code = error.getCode();
+        this.remoteExceptionClass = error.getExceptionClass();
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getRemoteExceptionClass() {
+        return remoteExceptionClass;
+    }
+}
@@ -4,15 +4,17 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.Serializable;
+
 /**
  * RPC 请求对象
  * 封装客户端发起的 RPC 调用请求信息
- * v4 版本：移除 Serializable 接口，支持多序列化方式
+ * v4 版本：支持多序列化方式，保留 Serializable 以兼容 Java 原生和 Hessian 序列化
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class RpcRequest {
+public class RpcRequest implements Serializable {
 
     /**
      * 请求唯一标识
@@ -4,15 +4,17 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.Serializable;
+
 /**
  * RPC 响应对象
  * 封装服务端返回的 RPC 调用结果
- * v4 版本：移除 Serializable 接口，支持多序列化方式
+ * v4 版本：支持多序列化方式，保留 Serializable 以兼容 Java 原生和 Hessian 序列化
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class RpcResponse {
+public class RpcResponse implements Serializable {
 
     /**
      * 请求唯一标识
@@ -25,9 +27,9 @@ public class RpcResponse {
     private Object result;
 
     /**
-     * 异常信息
+     * 错误信息，调用成功时为 null
      */
-    private Exception exception;
+    private RpcError error;
 
     /**
      * 创建成功响应
@@ -39,7 +41,7 @@ public class RpcResponse {
     /**
      * 创建失败响应
      */
-    public static RpcResponse fail(String requestId, Exception exception) {
-        return new RpcResponse(requestId, null, exception);
+    public static RpcResponse fail(String requestId, RpcError error) {
+        return new RpcResponse(requestId, null, error);
     }
 }
@@ -23,7 +23,12 @@ public enum SerializationTypeEnum {
     /**
      * Kryo 高性能序列化
      */
-    KRYO("kryo", "Kryo 高性能序列化");
+    KRYO("kryo", "Kryo 高性能序列化"),
+
+    /**
+     * 编译期生成的编解码器，没有生成时回退到 Kryo
+     */
+    CODEGEN("codegen", "编译期生成编解码器");
 
     private final String code;
     private final String description;
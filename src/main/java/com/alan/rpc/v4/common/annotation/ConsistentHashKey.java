@@ -0,0 +1,19 @@
+package com.alan.rpc.v4.common.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 指定一致性哈希负载均衡按方法的哪个参数路由
+ * 参数值相同的调用总是落到同一个服务实例上，使该实例上与这个参数相关的缓存保持命中；
+ * 只对 LoadBalancerTypeEnum.CONSISTENT_HASH 生效，未标注的方法使用负载均衡器配置的参数下标
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConsistentHashKey {
+
+    /**
+     * 参数下标，从 0 开始
+     */
+    int value() default 0;
+}
@@ -0,0 +1,14 @@
+package com.alan.rpc.v4.common.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 标记 RPC 服务接口
+ * 编译期由 RpcCodecProcessor 扫描接口的参数和返回值类型，为其中的 DTO 生成免反射的编解码器，
+ * 配合 SerializationTypeEnum.CODEGEN 使用
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RpcService {
+}
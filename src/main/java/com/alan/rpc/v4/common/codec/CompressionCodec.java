@@ -0,0 +1,119 @@
+package com.alan.rpc.v4.common.codec;
+
+import com.alan.rpc.v4.common.compress.CompressionException;
+import com.alan.rpc.v4.common.compress.CompressionMetrics;
+import com.alan.rpc.v4.common.compress.CompressionTypeEnum;
+import com.alan.rpc.v4.common.compress.Compressor;
+import com.alan.rpc.v4.common.compress.CompressorFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageCodec;
+
+import java.util.List;
+
+/**
+ * 压缩编解码器
+ * 位于序列化与传输之间（在长度帧编解码器之后），为每条消息加上压缩头：
+ *
+ * <pre>
+ * +-----------------+---------------------------------+---------------+
+ * | 压缩类型 (1字节) | 原始长度 (4字节，仅压缩时存在)      | 消息体         |
+ * +-----------------+---------------------------------+---------------+
+ * </pre>
+ *
+ * 只有消息体超过阈值且压缩后确实变小时才压缩；接收方只看消息头，不依赖本地配置。
+ * 原始长度来自对端，解压前先检查不超过单帧最大长度，避免伪造的长度让一个很小的帧分配大量内存
+ */
+@ChannelHandler.Sharable
+public class CompressionCodec extends MessageToMessageCodec<ByteBuf, ByteBuf> {
+
+    /**
+     * 默认允许的最大原始长度，与 RPC 单帧最大长度一致
+     */
+    public static final int DEFAULT_MAX_ORIGINAL_LENGTH = 16 * 1024 * 1024;
+
+    private final CompressionTypeEnum compressionType;
+    private final int threshold;
+    private final int maxOriginalLength;
+    private final CompressionMetrics metrics;
+
+    /**
+     * @param compressionType 发送方向使用的压缩类型
+     * @param threshold       压缩阈值（字节），消息体不超过该值时不压缩
+     * @param metrics         压缩统计指标
+     */
+    public CompressionCodec(CompressionTypeEnum compressionType, int threshold, CompressionMetrics metrics) {
+        this(compressionType, threshold, DEFAULT_MAX_ORIGINAL_LENGTH, metrics);
+    }
+
+    /**
+     * @param compressionType   发送方向使用的压缩类型
+     * @param threshold         压缩阈值（字节），消息体不超过该值时不压缩
+     * @param maxOriginalLength 接收方向允许的最大原始长度（字节），通常为单帧最大长度
+     * @param metrics           压缩统计指标
+     */
+    public CompressionCodec(CompressionTypeEnum compressionType, int threshold, int maxOriginalLength,
+                            CompressionMetrics metrics) {
+        this.compressionType = compressionType;
+        this.threshold = threshold;
+        this.maxOriginalLength = maxOriginalLength;
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) {
+        int rawLength = msg.readableBytes();
+        if (compressionType == CompressionTypeEnum.NONE || rawLength <= threshold) {
+            metrics.recordSkip(0);
+            out.add(withoutCompression(ctx, msg));
+            return;
+        }
+
+        Compressor compressor = CompressorFactory.getCompressor(compressionType);
+        long start = System.nanoTime();
+        byte[] compressed = compressor.compress(ByteBufUtil.getBytes(msg));
+        long nanos = System.nanoTime() - start;
+
+        // 压缩没有收益时按原样发送，避免接收方白白解压
+        if (compressed.length >= rawLength) {
+            metrics.recordSkip(nanos);
+            out.add(withoutCompression(ctx, msg));
+            return;
+        }
+
+        metrics.recordCompress(rawLength, compressed.length, nanos);
+        ByteBuf buf = ctx.alloc().buffer(5 + compressed.length);
+        buf.writeByte(compressionType.getCode());
+        buf.writeInt(rawLength);
+        buf.writeBytes(compressed);
+        out.add(buf);
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) {
+        byte code = msg.readByte();
+        if (code == CompressionTypeEnum.NONE.getCode()) {
+            out.add(msg.retain());
+            return;
+        }
+
+        int originalLength = msg.readInt();
+        if (originalLength < 0 || originalLength > maxOriginalLength) {
+            throw new CompressionException("非法的原始长度: " + originalLength + "，上限: " + maxOriginalLength);
+        }
+        Compressor compressor = CompressorFactory.getCompressor(code);
+        long start = System.nanoTime();
+        byte[] data = compressor.decompress(ByteBufUtil.getBytes(msg), originalLength);
+        metrics.recordDecompress(System.nanoTime() - start);
+        out.add(Unpooled.wrappedBuffer(data));
+    }
+
+    private ByteBuf withoutCompression(ChannelHandlerContext ctx, ByteBuf msg) {
+        ByteBuf header = ctx.alloc().buffer(1);
+        header.writeByte(CompressionTypeEnum.NONE.getCode());
+        return Unpooled.wrappedBuffer(header, msg.retain());
+    }
+}
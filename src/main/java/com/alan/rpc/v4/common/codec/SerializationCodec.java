@@ -0,0 +1,41 @@
+package com.alan.rpc.v4.common.codec;
+
+import com.alan.rpc.v4.common.serializer.SerializationSession;
+import com.alan.rpc.v4.common.serializer.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageCodec;
+
+import java.util.List;
+
+/**
+ * 序列化编解码器
+ * 每条连接一个实例，持有该连接的序列化会话；编解码都在连接所属的 EventLoop 线程中执行，
+ * 保证会话内的消息顺序与网络上的发送顺序一致
+ */
+public class SerializationCodec extends MessageToMessageCodec<ByteBuf, Object> {
+
+    private final SerializationSession session;
+    private final Class<?> inboundType;
+
+    /**
+     * @param serializer  序列化器
+     * @param inboundType 入站消息类型（服务端为 RpcRequest，客户端为 RpcResponse）
+     */
+    public SerializationCodec(Serializer serializer, Class<?> inboundType) {
+        this.session = serializer.openSession();
+        this.inboundType = inboundType;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) {
+        out.add(Unpooled.wrappedBuffer(session.serialize(msg)));
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) {
+        out.add(session.deserialize(ByteBufUtil.getBytes(msg), inboundType));
+    }
+}
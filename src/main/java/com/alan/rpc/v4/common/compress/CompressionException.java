@@ -0,0 +1,16 @@
+package com.alan.rpc.v4.common.compress;
+
+/**
+ * 压缩异常
+ * 统一封装所有压缩/解压相关的异常
+ */
+public class CompressionException extends RuntimeException {
+
+    public CompressionException(String message) {
+        super(message);
+    }
+
+    public CompressionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
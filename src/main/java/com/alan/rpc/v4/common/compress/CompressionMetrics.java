@@ -0,0 +1,108 @@
+package com.alan.rpc.v4.common.compress;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压缩统计指标
+ * 记录压缩率和 CPU 耗时，用于在 CPU 与带宽之间做权衡
+ */
+public class CompressionMetrics {
+
+    /**
+     * 实际压缩的消息数
+     */
+    private final LongAdder compressedMessages = new LongAdder();
+
+    /**
+     * 未压缩的消息数（低于阈值或压缩无收益）
+     */
+    private final LongAdder skippedMessages = new LongAdder();
+
+    /**
+     * 压缩前总字节数（仅统计实际压缩的消息）
+     */
+    private final LongAdder rawBytes = new LongAdder();
+
+    /**
+     * 压缩后总字节数
+     */
+    private final LongAdder compressedBytes = new LongAdder();
+
+    /**
+     * 压缩耗时（纳秒），包含压缩无收益被丢弃的部分
+     */
+    private final LongAdder compressNanos = new LongAdder();
+
+    /**
+     * 解压的消息数
+     */
+    private final LongAdder decompressedMessages = new LongAdder();
+
+    /**
+     * 解压耗时（纳秒）
+     */
+    private final LongAdder decompressNanos = new LongAdder();
+
+    public void recordCompress(int rawLength, int compressedLength, long nanos) {
+        compressedMessages.increment();
+        rawBytes.add(rawLength);
+        compressedBytes.add(compressedLength);
+        compressNanos.add(nanos);
+    }
+
+    /**
+     * @param nanos 尝试压缩的耗时，低于阈值（未尝试压缩）时为 0
+     */
+    public void recordSkip(long nanos) {
+        skippedMessages.increment();
+        compressNanos.add(nanos);
+    }
+
+    public void recordDecompress(long nanos) {
+        decompressedMessages.increment();
+        decompressNanos.add(nanos);
+    }
+
+    public long getCompressedMessages() {
+        return compressedMessages.sum();
+    }
+
+    public long getSkippedMessages() {
+        return skippedMessages.sum();
+    }
+
+    public long getRawBytes() {
+        return rawBytes.sum();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    public long getCompressNanos() {
+        return compressNanos.sum();
+    }
+
+    public long getDecompressedMessages() {
+        return decompressedMessages.sum();
+    }
+
+    public long getDecompressNanos() {
+        return decompressNanos.sum();
+    }
+
+    /**
+     * 压缩率：压缩后字节数 / 压缩前字节数，越小越好
+     */
+    public double getCompressionRatio() {
+        long raw = getRawBytes();
+        return raw == 0 ? 1.0 : (double) getCompressedBytes() / raw;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("压缩消息: %d, 跳过: %d, 压缩率: %.3f, 压缩耗时: %.3f ms, 解压消息: %d, 解压耗时: %.3f ms",
+                getCompressedMessages(), getSkippedMessages(), getCompressionRatio(),
+                getCompressNanos() / 1_000_000.0, getDecompressedMessages(), getDecompressNanos() / 1_000_000.0);
+    }
+}
@@ -0,0 +1,68 @@
+package com.alan.rpc.v4.common.compress;
+
+/**
+ * 压缩类型枚举
+ * code 会写入消息头，接收方据此选择解压方式
+ */
+public enum CompressionTypeEnum {
+    /**
+     * 不压缩
+     */
+    NONE((byte) 0, "none", "不压缩"),
+
+    /**
+     * JDK Deflater 压缩，压缩率高
+     */
+    DEFLATE((byte) 1, "deflate", "Deflate 压缩"),
+
+    /**
+     * 纯 Java 实现的 LZF 压缩，速度快
+     */
+    LZF((byte) 2, "lzf", "LZF 快速压缩");
+
+    private final byte code;
+    private final String name;
+    private final String description;
+
+    CompressionTypeEnum(byte code, String name, String description) {
+        this.code = code;
+        this.name = name;
+        this.description = description;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 根据消息头中的 code 获取枚举类型
+     */
+    public static CompressionTypeEnum fromCode(byte code) {
+        for (CompressionTypeEnum type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("未知的压缩类型: " + code);
+    }
+
+    /**
+     * 根据名称获取枚举类型
+     */
+    public static CompressionTypeEnum fromName(String name) {
+        for (CompressionTypeEnum type : values()) {
+            if (type.name.equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("未知的压缩类型: " + name);
+    }
+}
@@ -0,0 +1,34 @@
+package com.alan.rpc.v4.common.compress;
+
+/**
+ * 压缩接口
+ * 位于序列化与网络传输之间，对序列化后的字节数组进行压缩
+ */
+public interface Compressor {
+
+    /**
+     * 压缩
+     *
+     * @param data 原始字节数组
+     * @return 压缩后的字节数组
+     * @throws CompressionException 压缩失败时抛出
+     */
+    byte[] compress(byte[] data) throws CompressionException;
+
+    /**
+     * 解压
+     *
+     * @param data           压缩后的字节数组
+     * @param originalLength 原始长度（由消息头携带）
+     * @return 解压后的字节数组
+     * @throws CompressionException 解压失败时抛出
+     */
+    byte[] decompress(byte[] data, int originalLength) throws CompressionException;
+
+    /**
+     * 获取压缩类型
+     *
+     * @return 压缩类型枚举
+     */
+    CompressionTypeEnum getType();
+}
@@ -0,0 +1,45 @@
+package com.alan.rpc.v4.common.compress;
+
+import com.alan.rpc.v4.common.compress.impl.DeflateCompressor;
+import com.alan.rpc.v4.common.compress.impl.LzfCompressor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 压缩器工厂
+ * 负责创建和管理压缩器实例（单例模式）
+ */
+public class CompressorFactory {
+
+    private static final Map<CompressionTypeEnum, Compressor> COMPRESSOR_CACHE = new ConcurrentHashMap<>();
+
+    static {
+        COMPRESSOR_CACHE.put(CompressionTypeEnum.DEFLATE, new DeflateCompressor());
+        COMPRESSOR_CACHE.put(CompressionTypeEnum.LZF, new LzfCompressor());
+    }
+
+    /**
+     * 根据枚举类型获取压缩器实例
+     *
+     * @param type 压缩类型枚举（NONE 没有对应的压缩器）
+     * @return 压缩器实例
+     */
+    public static Compressor getCompressor(CompressionTypeEnum type) {
+        Compressor compressor = COMPRESSOR_CACHE.get(type);
+        if (compressor == null) {
+            throw new IllegalArgumentException("不支持的压缩类型: " + type);
+        }
+        return compressor;
+    }
+
+    /**
+     * 根据消息头中的 code 获取压缩器
+     *
+     * @param code 压缩类型代码
+     * @return 压缩器实例
+     */
+    public static Compressor getCompressor(byte code) {
+        return getCompressor(CompressionTypeEnum.fromCode(code));
+    }
+}
@@ -0,0 +1,150 @@
+package com.alan.rpc.v4.common.compress.impl;
+
+import com.alan.rpc.v4.common.compress.CompressionException;
+import com.alan.rpc.v4.common.compress.CompressionTypeEnum;
+import com.alan.rpc.v4.common.compress.Compressor;
+
+import java.util.Arrays;
+
+/**
+ * LZF 压缩实现
+ * 纯 Java 实现的 LZ77 族压缩算法，压缩率不如 Deflate，但速度快得多
+ *
+ * 编码格式（与 liblzf 一致）：
+ * 控制字节 < 32         : 字面量，后跟 (ctrl + 1) 个原始字节
+ * 控制字节高 3 位 1~6   : 回溯引用，长度 = 高 3 位 + 2，偏移 = ((ctrl & 0x1f) << 8) + 下一字节 + 1
+ * 控制字节高 3 位 == 7  : 长回溯引用，长度 = 7 + 下一字节 + 2，再跟偏移低 8 位
+ */
+public class LzfCompressor implements Compressor {
+
+    private static final int HASH_LOG = 14;
+    private static final int HASH_SIZE = 1 << HASH_LOG;
+    private static final int MAX_LITERAL = 1 << 5;
+    private static final int MAX_OFFSET = 1 << 13;
+    private static final int MAX_REFERENCE = (1 << 8) + (1 << 3);
+
+    /**
+     * 哈希表：3 字节前缀 -> 最近出现的位置，每个线程复用一份
+     */
+    private static final ThreadLocal<int[]> HASH_TABLE_THREAD_LOCAL = ThreadLocal.withInitial(() -> new int[HASH_SIZE]);
+
+    @Override
+    public byte[] compress(byte[] data) throws CompressionException {
+        if (data == null) {
+            throw new CompressionException("压缩数据不能为 null");
+        }
+
+        int inLength = data.length;
+        // 最坏情况：全部是字面量，每 32 字节多 1 个控制字节
+        byte[] out = new byte[inLength + (inLength >> 5) + 2];
+        int[] table = HASH_TABLE_THREAD_LOCAL.get();
+        Arrays.fill(table, -1);
+
+        int ip = 0;
+        int op = 0;
+        int anchor = 0;
+        while (ip < inLength - 2) {
+            int hash = hash(data, ip);
+            int ref = table[hash];
+            table[hash] = ip;
+
+            int offset = ip - ref - 1;
+            if (ref >= 0 && offset < MAX_OFFSET
+                    && data[ref] == data[ip] && data[ref + 1] == data[ip + 1] && data[ref + 2] == data[ip + 2]) {
+                int maxLength = Math.min(MAX_REFERENCE, inLength - ip);
+                int length = 3;
+                while (length < maxLength && data[ref + length] == data[ip + length]) {
+                    length++;
+                }
+
+                op = writeLiterals(data, anchor, ip, out, op);
+                int encodedLength = length - 2;
+                if (encodedLength < 7) {
+                    out[op++] = (byte) ((encodedLength << 5) + (offset >> 8));
+                } else {
+                    out[op++] = (byte) ((7 << 5) + (offset >> 8));
+                    out[op++] = (byte) (encodedLength - 7);
+                }
+                out[op++] = (byte) offset;
+
+                ip += length;
+                anchor = ip;
+            } else {
+                ip++;
+            }
+        }
+        op = writeLiterals(data, anchor, inLength, out, op);
+        return Arrays.copyOf(out, op);
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int originalLength) throws CompressionException {
+        if (data == null || data.length == 0) {
+            throw new CompressionException("解压数据不能为空");
+        }
+        if (originalLength < 0) {
+            throw new CompressionException("非法的原始长度: " + originalLength);
+        }
+
+        byte[] out = new byte[originalLength];
+        int ip = 0;
+        int op = 0;
+        try {
+            while (ip < data.length) {
+                int ctrl = data[ip++] & 0xff;
+                if (ctrl < MAX_LITERAL) {
+                    int run = ctrl + 1;
+                    System.arraycopy(data, ip, out, op, run);
+                    ip += run;
+                    op += run;
+                } else {
+                    int length = ctrl >> 5;
+                    int ref = op - ((ctrl & 0x1f) << 8) - 1;
+                    if (length == 7) {
+                        length += data[ip++] & 0xff;
+                    }
+                    ref -= data[ip++] & 0xff;
+                    length += 2;
+                    if (ref < 0 || op + length > originalLength) {
+                        throw new CompressionException("LZF 数据损坏，非法回溯引用");
+                    }
+                    // 引用区间可能与输出区间重叠，必须逐字节复制
+                    for (int i = 0; i < length; i++) {
+                        out[op++] = out[ref++];
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new CompressionException("LZF 数据损坏: " + e.getMessage(), e);
+        }
+
+        if (op != originalLength) {
+            throw new CompressionException("LZF 解压长度不匹配，期望: " + originalLength + "，实际: " + op);
+        }
+        return out;
+    }
+
+    @Override
+    public CompressionTypeEnum getType() {
+        return CompressionTypeEnum.LZF;
+    }
+
+    private static int hash(byte[] data, int p) {
+        int v = ((data[p] & 0xff) << 16) | ((data[p + 1] & 0xff) << 8) | (data[p + 2] & 0xff);
+        return (v * 0x9E3779B1) >>> (32 - HASH_LOG);
+    }
+
+    /**
+     * 输出 [from, to) 区间的字面量，每段最多 32 字节
+     */
+    private static int writeLiterals(byte[] data, int from, int to, byte[] out, int op) {
+        while (from < to) {
+            int run = Math.min(MAX_LITERAL, to - from);
+            out[op++] = (byte) (run - 1);
+            System.arraycopy(data, from, out, op, run);
+            op += run;
+            from += run;
+        }
+        return op;
+    }
+}
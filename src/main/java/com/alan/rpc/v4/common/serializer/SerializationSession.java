@@ -0,0 +1,31 @@
+package com.alan.rpc.v4.common.serializer;
+
+/**
+ * 序列化会话
+ * 与一条连接绑定：同一连接上的消息按发送顺序编解码，会话可以缓存已经发送过的类描述信息，
+ * 后续消息只发送引用编号。连接断开重连时会创建新的会话，双方的缓存随之一起重置。
+ *
+ * 注意：会话不是线程安全的，只能在连接所属的 EventLoop 线程中使用
+ */
+public interface SerializationSession {
+
+    /**
+     * 在会话内序列化对象
+     *
+     * @param obj 要序列化的对象
+     * @return 序列化后的字节数组
+     * @throws SerializationException 序列化失败时抛出，失败的消息不会污染会话状态
+     */
+    byte[] serialize(Object obj) throws SerializationException;
+
+    /**
+     * 在会话内反序列化对象
+     *
+     * @param data  要反序列化的字节数组
+     * @param clazz 目标类型
+     * @param <T>   泛型类型
+     * @return 反序列化后的对象
+     * @throws SerializationException 反序列化失败时抛出，此后会话状态不可信，应断开连接
+     */
+    <T> T deserialize(byte[] data, Class<T> clazz) throws SerializationException;
+}
@@ -28,6 +28,28 @@ public interface Serializer {
      */
     <T> T deserialize(byte[] data, Class<T> clazz) throws SerializationException;
 
+    /**
+     * 打开一个序列化会话（每条连接一个）
+     * 默认实现不保存任何状态，直接委托给当前序列化器；有状态的序列化器可以覆盖此方法，
+     * 在会话内缓存类描述信息以减小稳定状态下的消息大小
+     *
+     * @return 序列化会话
+     */
+    default SerializationSession openSession() {
+        Serializer serializer = this;
+        return new SerializationSession() {
+            @Override
+            public byte[] serialize(Object obj) throws SerializationException {
+                return serializer.serialize(obj);
+            }
+
+            @Override
+            public <T> T deserialize(byte[] data, Class<T> clazz) throws SerializationException {
+                return serializer.deserialize(data, clazz);
+            }
+        };
+    }
+
     /**
      * 获取序列化类型
      *
@@ -20,6 +20,7 @@ public class SerializerFactory {
         SERIALIZER_CACHE.put(SerializationTypeEnum.JSON, new JsonSerializer());
         SERIALIZER_CACHE.put(SerializationTypeEnum.HESSIAN, new HessianSerializer());
         SERIALIZER_CACHE.put(SerializationTypeEnum.KRYO, new KryoSerializer());
+        SERIALIZER_CACHE.put(SerializationTypeEnum.CODEGEN, new CodecSerializer(SERIALIZER_CACHE.get(SerializationTypeEnum.KRYO)));
     }
 
     /**
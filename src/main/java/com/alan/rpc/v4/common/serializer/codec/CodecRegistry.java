@@ -0,0 +1,56 @@
+package com.alan.rpc.v4.common.serializer.codec;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 生成编解码器注册表
+ * 启动时通过 ServiceLoader 加载编译期生成的所有编解码器（RpcCodecProcessor 会写入
+ * META-INF/services/com.alan.rpc.v4.common.serializer.codec.GeneratedCodec）
+ */
+public class CodecRegistry {
+
+    private static final Map<Class<?>, GeneratedCodec<?>> CODECS_BY_TYPE = new ConcurrentHashMap<>();
+    private static final Map<String, GeneratedCodec<?>> CODECS_BY_NAME = new ConcurrentHashMap<>();
+
+    static {
+        for (GeneratedCodec<?> codec : ServiceLoader.load(GeneratedCodec.class, CodecRegistry.class.getClassLoader())) {
+            register(codec);
+        }
+    }
+
+    /**
+     * 手动注册编解码器
+     */
+    public static void register(GeneratedCodec<?> codec) {
+        CODECS_BY_TYPE.put(codec.getType(), codec);
+        CODECS_BY_NAME.put(codec.getType().getName(), codec);
+    }
+
+    /**
+     * 根据类型查找编解码器
+     *
+     * @return 编解码器，没有生成时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> GeneratedCodec<T> find(Class<T> type) {
+        return (GeneratedCodec<T>) CODECS_BY_TYPE.get(type);
+    }
+
+    /**
+     * 根据类名查找编解码器
+     *
+     * @return 编解码器，没有生成时返回 null
+     */
+    public static GeneratedCodec<?> find(String typeName) {
+        return CODECS_BY_NAME.get(typeName);
+    }
+
+    /**
+     * 已加载的编解码器数量
+     */
+    public static int size() {
+        return CODECS_BY_TYPE.size();
+    }
+}
@@ -0,0 +1,296 @@
+package com.alan.rpc.v4.common.serializer.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 生成编解码器的公共读写方法
+ * 生成代码对已知类型的字段直接调用对应方法；类型在编译期不确定的值（Object、集合元素、包装类型）
+ * 通过 writeValue/readValue 以"类型标记 + 数据"的形式编码
+ */
+public final class CodecSupport {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte FLOAT = 6;
+    private static final byte SHORT = 7;
+    private static final byte BYTE = 8;
+    private static final byte CHARACTER = 9;
+    private static final byte LIST = 10;
+    private static final byte MAP = 11;
+    private static final byte ENUM = 12;
+    private static final byte GENERATED = 13;
+    private static final byte GENERATED_LIST = 14;
+
+    private static final Map<String, Class<?>> PRIMITIVE_TYPES = new HashMap<>();
+
+    /**
+     * 类名 -> Class 缓存，只在解码枚举和参数类型时使用
+     */
+    private static final Map<String, Class<?>> CLASS_CACHE = new ConcurrentHashMap<>();
+
+    static {
+        for (Class<?> type : new Class<?>[]{int.class, long.class, boolean.class, double.class, float.class,
+                short.class, byte.class, char.class, void.class}) {
+            PRIMITIVE_TYPES.put(type.getName(), type);
+        }
+    }
+
+    private CodecSupport() {
+    }
+
+    // ---------------------------------------------------------------- 基础类型
+
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("非法的 varint 编码");
+    }
+
+    /**
+     * 写字符串：长度 + 1（0 表示 null）+ UTF-8 字节
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 写嵌套的 DTO（编解码器在编译期已确定）
+     */
+    public static <T> void writeNested(DataOutput out, T value, GeneratedCodec<T> codec) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            codec.encode(out, value);
+        }
+    }
+
+    public static <T> T readNested(DataInput in, GeneratedCodec<T> codec) throws IOException {
+        return in.readBoolean() ? codec.decode(in) : null;
+    }
+
+    // ---------------------------------------------------------------- 动态类型
+
+    /**
+     * 写任意值：类型标记 + 数据
+     *
+     * @throws UnsupportedValueException 值的类型不受支持（数组、没有生成编解码器的类等）
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            out.writeByte(CHARACTER);
+            out.writeChar((Character) value);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            GeneratedCodec codec = elementCodec(list);
+            if (codec != null) {
+                // 元素类型相同的 DTO 列表只写一次类名
+                out.writeByte(GENERATED_LIST);
+                writeString(out, codec.getType().getName());
+                writeVarInt(out, list.size());
+                for (Object element : list) {
+                    writeNested(out, element, codec);
+                }
+                return;
+            }
+            out.writeByte(LIST);
+            writeVarInt(out, list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(MAP);
+            writeVarInt(out, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        } else if (value instanceof Enum) {
+            out.writeByte(ENUM);
+            writeString(out, ((Enum<?>) value).getDeclaringClass().getName());
+            writeString(out, ((Enum<?>) value).name());
+        } else {
+            GeneratedCodec codec = CodecRegistry.find(value.getClass());
+            if (codec == null) {
+                throw new UnsupportedValueException("没有生成编解码器: " + value.getClass().getName());
+            }
+            out.writeByte(GENERATED);
+            writeString(out, value.getClass().getName());
+            codec.encode(out, value);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Object readValue(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case BOOLEAN:
+                return in.readBoolean();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case CHARACTER:
+                return in.readChar();
+            case LIST: {
+                int size = readVarInt(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case MAP: {
+                int size = readVarInt(in);
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(in), readValue(in));
+                }
+                return map;
+            }
+            case ENUM: {
+                Class enumType = forName(readString(in));
+                return Enum.valueOf(enumType, readString(in));
+            }
+            case GENERATED:
+                return findCodec(readString(in)).decode(in);
+            case GENERATED_LIST: {
+                GeneratedCodec<?> codec = findCodec(readString(in));
+                int size = readVarInt(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readNested(in, codec));
+                }
+                return list;
+            }
+            default:
+                throw new IOException("未知的类型标记: " + tag);
+        }
+    }
+
+    /**
+     * 列表中非 null 元素都是同一个生成了编解码器的类时返回该编解码器，否则返回 null
+     */
+    private static GeneratedCodec<?> elementCodec(List<?> list) {
+        Class<?> elementType = null;
+        for (Object element : list) {
+            if (element == null) {
+                continue;
+            }
+            if (elementType == null) {
+                elementType = element.getClass();
+            } else if (element.getClass() != elementType) {
+                return null;
+            }
+        }
+        return elementType == null ? null : CodecRegistry.find(elementType);
+    }
+
+    private static GeneratedCodec<?> findCodec(String typeName) throws IOException {
+        GeneratedCodec<?> codec = CodecRegistry.find(typeName);
+        if (codec == null) {
+            throw new IOException("没有生成编解码器: " + typeName);
+        }
+        return codec;
+    }
+
+    // ---------------------------------------------------------------- 类型
+
+    /**
+     * 根据类名加载类（支持基本类型），结果会被缓存
+     */
+    public static Class<?> forName(String className) throws IOException {
+        Class<?> type = PRIMITIVE_TYPES.get(className);
+        if (type != null) {
+            return type;
+        }
+        type = CLASS_CACHE.get(className);
+        if (type != null) {
+            return type;
+        }
+        try {
+            type = Class.forName(className, false, CodecSupport.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("类不存在: " + className, e);
+        }
+        CLASS_CACHE.put(className, type);
+        return type;
+    }
+}
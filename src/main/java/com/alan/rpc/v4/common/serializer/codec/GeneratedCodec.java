@@ -0,0 +1,29 @@
+package com.alan.rpc.v4.common.serializer.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 编译期生成的编解码器
+ * 由 RpcCodecProcessor 为 @RpcService 接口涉及的 DTO 生成，直接调用 getter/setter，不使用反射
+ *
+ * @param <T> DTO 类型
+ */
+public interface GeneratedCodec<T> {
+
+    /**
+     * 获取编解码的 DTO 类型
+     */
+    Class<T> getType();
+
+    /**
+     * 编码（value 不为 null）
+     */
+    void encode(DataOutput out, T value) throws IOException;
+
+    /**
+     * 解码
+     */
+    T decode(DataInput in) throws IOException;
+}
@@ -0,0 +1,12 @@
+package com.alan.rpc.v4.common.serializer.codec;
+
+/**
+ * 值类型不受生成编解码器支持
+ * CodecSerializer 捕获后会整条消息回退到备用序列化器，因此不采集堆栈
+ */
+public class UnsupportedValueException extends RuntimeException {
+
+    public UnsupportedValueException(String message) {
+        super(message, null, false, false);
+    }
+}
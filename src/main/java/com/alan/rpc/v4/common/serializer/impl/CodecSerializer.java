@@ -0,0 +1,198 @@
+package com.alan.rpc.v4.common.serializer.impl;
+
+import com.alan.rpc.v4.common.RpcError;
+import com.alan.rpc.v4.common.RpcRequest;
+import com.alan.rpc.v4.common.RpcResponse;
+import com.alan.rpc.v4.common.SerializationTypeEnum;
+import com.alan.rpc.v4.common.serializer.SerializationException;
+import com.alan.rpc.v4.common.serializer.Serializer;
+import com.alan.rpc.v4.common.serializer.codec.CodecSupport;
+import com.alan.rpc.v4.common.serializer.codec.UnsupportedValueException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 生成编解码器序列化实现
+ * RpcRequest/RpcResponse 信封按固定格式直接读写，参数和返回值中的 DTO 使用编译期生成的编解码器，
+ * 全程不使用反射。消息中出现没有生成编解码器的类型时，整条消息回退到备用序列化器
+ *
+ * 消息格式：
+ * 格式标记 (1字节)  0 = 备用序列化器，1 = RpcRequest，2 = RpcResponse，3 = 其他值
+ */
+public class CodecSerializer implements Serializer {
+
+    private static final byte FORMAT_FALLBACK = 0;
+    private static final byte FORMAT_REQUEST = 1;
+    private static final byte FORMAT_RESPONSE = 2;
+    private static final byte FORMAT_VALUE = 3;
+
+    /**
+     * 备用序列化器
+     */
+    private final Serializer fallback;
+
+    /**
+     * @param fallback 没有生成编解码器时使用的备用序列化器
+     */
+    public CodecSerializer(Serializer fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public byte[] serialize(Object obj) throws SerializationException {
+        if (obj == null) {
+            throw new SerializationException("序列化对象不能为 null");
+        }
+
+        // ByteBufOutputStream 直接写入 ByteBuf，避免 DataOutputStream + ByteArrayOutputStream 逐字节同步写
+        ByteBuf buffer = Unpooled.buffer(256);
+        ByteBufOutputStream out = new ByteBufOutputStream(buffer);
+        try {
+            if (obj instanceof RpcRequest) {
+                out.writeByte(FORMAT_REQUEST);
+                writeRequest(out, (RpcRequest) obj);
+            } else if (obj instanceof RpcResponse) {
+                out.writeByte(FORMAT_RESPONSE);
+                writeResponse(out, (RpcResponse) obj);
+            } else {
+                out.writeByte(FORMAT_VALUE);
+                CodecSupport.writeValue(out, obj);
+            }
+            byte[] result = new byte[buffer.readableBytes()];
+            buffer.readBytes(result);
+            return result;
+        } catch (UnsupportedValueException e) {
+            byte[] data = fallback.serialize(obj);
+            byte[] result = new byte[data.length + 1];
+            result[0] = FORMAT_FALLBACK;
+            System.arraycopy(data, 0, result, 1, data.length);
+            return result;
+        } catch (IOException e) {
+            throw new SerializationException("Codec 序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, Class<T> clazz) throws SerializationException {
+        if (data == null || data.length == 0) {
+            throw new SerializationException("反序列化数据不能为空");
+        }
+
+        if (data[0] == FORMAT_FALLBACK) {
+            byte[] payload = new byte[data.length - 1];
+            System.arraycopy(data, 1, payload, 0, payload.length);
+            return fallback.deserialize(payload, clazz);
+        }
+
+        ByteBufInputStream in = new ByteBufInputStream(Unpooled.wrappedBuffer(data, 1, data.length - 1));
+        try {
+            Object obj;
+            switch (data[0]) {
+                case FORMAT_REQUEST:
+                    obj = readRequest(in);
+                    break;
+                case FORMAT_RESPONSE:
+                    obj = readResponse(in);
+                    break;
+                case FORMAT_VALUE:
+                    obj = CodecSupport.readValue(in);
+                    break;
+                default:
+                    throw new SerializationException("未知的消息格式: " + data[0]);
+            }
+            if (!clazz.isInstance(obj)) {
+                throw new SerializationException("类型不匹配，期望: " + clazz.getName() + "，实际: "
+                        + (obj == null ? "null" : obj.getClass().getName()));
+            }
+            return clazz.cast(obj);
+        } catch (IOException e) {
+            throw new SerializationException("Codec 反序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public SerializationTypeEnum getType() {
+        return SerializationTypeEnum.CODEGEN;
+    }
+
+    private static void writeRequest(DataOutput out, RpcRequest request) throws IOException {
+        CodecSupport.writeString(out, request.getRequestId());
+        CodecSupport.writeString(out, request.getInterfaceName());
+        CodecSupport.writeString(out, request.getMethodName());
+
+        Class<?>[] parameterTypes = request.getParameterTypes();
+        Object[] parameters = request.getParameters();
+        int count = parameterTypes == null ? 0 : parameterTypes.length;
+        CodecSupport.writeVarInt(out, count);
+        for (int i = 0; i < count; i++) {
+            CodecSupport.writeString(out, parameterTypes[i].getName());
+            CodecSupport.writeValue(out, parameters[i]);
+        }
+    }
+
+    private static RpcRequest readRequest(DataInput in) throws IOException {
+        RpcRequest request = new RpcRequest();
+        request.setRequestId(CodecSupport.readString(in));
+        request.setInterfaceName(CodecSupport.readString(in));
+        request.setMethodName(CodecSupport.readString(in));
+
+        int count = CodecSupport.readVarInt(in);
+        Class<?>[] parameterTypes = new Class<?>[count];
+        Object[] parameters = new Object[count];
+        for (int i = 0; i < count; i++) {
+            parameterTypes[i] = CodecSupport.forName(CodecSupport.readString(in));
+            parameters[i] = CodecSupport.readValue(in);
+        }
+        request.setParameterTypes(parameterTypes);
+        request.setParameters(parameters);
+        return request;
+    }
+
+    private static void writeResponse(DataOutput out, RpcResponse response) throws IOException {
+        CodecSupport.writeString(out, response.getRequestId());
+        RpcError error = response.getError();
+        out.writeBoolean(error != null);
+        if (error != null) {
+            CodecSupport.writeVarInt(out, error.getCode());
+            CodecSupport.writeString(out, error.getExceptionClass());
+            CodecSupport.writeString(out, error.getMessage());
+            String[] stackTrace = error.getStackTrace();
+            CodecSupport.writeVarInt(out, stackTrace == null ? 0 : stackTrace.length + 1);
+            if (stackTrace != null) {
+                for (String frame : stackTrace) {
+                    CodecSupport.writeString(out, frame);
+                }
+            }
+        }
+        CodecSupport.writeValue(out, response.getResult());
+    }
+
+    private static RpcResponse readResponse(DataInput in) throws IOException {
+        RpcResponse response = new RpcResponse();
+        response.setRequestId(CodecSupport.readString(in));
+        if (in.readBoolean()) {
+            RpcError error = new RpcError();
+            error.setCode(CodecSupport.readVarInt(in));
+            error.setExceptionClass(CodecSupport.readString(in));
+            error.setMessage(CodecSupport.readString(in));
+            int frames = CodecSupport.readVarInt(in) - 1;
+            if (frames >= 0) {
+                String[] stackTrace = new String[frames];
+                for (int i = 0; i < frames; i++) {
+                    stackTrace[i] = CodecSupport.readString(in);
+                }
+                error.setStackTrace(stackTrace);
+            }
+            response.setError(error);
+        }
+        response.setResult(CodecSupport.readValue(in));
+        return response;
+    }
+}
@@ -0,0 +1,138 @@
+package com.alan.rpc.v4.common.serializer.impl;
+
+import com.alan.rpc.v4.common.serializer.SerializationException;
+import com.alan.rpc.v4.common.serializer.SerializationSession;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Java 原生序列化会话
+ * 每条消息仍然使用独立的 ObjectOutputStream（避免对象句柄表跨消息累积），
+ * 但类描述符在会话内只完整发送一次，之后只发送编号；同时省去每条消息 4 字节的流头
+ *
+ * 类描述符编码：
+ * 0 + 完整描述符  : 首次发送，接收方按到达顺序分配编号
+ * 1 + 编号 (int)  : 引用已发送过的描述符
+ */
+class JavaSerializationSession implements SerializationSession {
+
+    private static final byte NEW_DESCRIPTOR = 0;
+    private static final byte CACHED_DESCRIPTOR = 1;
+
+    /**
+     * 发送方向：类名 -> 编号
+     */
+    private final Map<String, Integer> sentDescriptors = new HashMap<>();
+
+    /**
+     * 发送方向：按编号排列的类名，用于失败时回滚
+     */
+    private final List<String> sentOrder = new ArrayList<>();
+
+    /**
+     * 接收方向：编号 -> 描述符
+     */
+    private final List<ObjectStreamClass> receivedDescriptors = new ArrayList<>();
+
+    @Override
+    public byte[] serialize(Object obj) throws SerializationException {
+        if (obj == null) {
+            throw new SerializationException("序列化对象不能为 null");
+        }
+
+        int committed = sentOrder.size();
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
+             ObjectOutputStream oos = new SessionObjectOutputStream(bos)) {
+            oos.writeObject(obj);
+            oos.flush();
+            return bos.toByteArray();
+        } catch (IOException e) {
+            // 本条消息不会发出，撤销本次新分配的编号，保持与接收方一致
+            while (sentOrder.size() > committed) {
+                sentDescriptors.remove(sentOrder.remove(sentOrder.size() - 1));
+            }
+            throw new SerializationException("Java 序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(byte[] data, Class<T> clazz) throws SerializationException {
+        if (data == null || data.length == 0) {
+            throw new SerializationException("反序列化数据不能为空");
+        }
+
+        try (ByteArrayInputStream bis = new ByteArrayInputStream(data);
+             ObjectInputStream ois = new SessionObjectInputStream(bis)) {
+            Object obj = ois.readObject();
+            if (!clazz.isInstance(obj)) {
+                throw new SerializationException("类型不匹配，期望: " + clazz.getName() + "，实际: " + obj.getClass().getName());
+            }
+            return (T) obj;
+        } catch (IOException | ClassNotFoundException e) {
+            throw new SerializationException("Java 反序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    private class SessionObjectOutputStream extends ObjectOutputStream {
+
+        SessionObjectOutputStream(OutputStream out) throws IOException {
+            super(out);
+        }
+
+        @Override
+        protected void writeStreamHeader() {
+            // 会话内不需要流头
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+            Integer id = sentDescriptors.get(desc.getName());
+            if (id != null) {
+                writeByte(CACHED_DESCRIPTOR);
+                writeInt(id);
+                return;
+            }
+
+            writeByte(NEW_DESCRIPTOR);
+            super.writeClassDescriptor(desc);
+            sentDescriptors.put(desc.getName(), sentOrder.size());
+            sentOrder.add(desc.getName());
+        }
+    }
+
+    private class SessionObjectInputStream extends ObjectInputStream {
+
+        SessionObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected void readStreamHeader() {
+            // 会话内不需要流头
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            byte marker = readByte();
+            if (marker == CACHED_DESCRIPTOR) {
+                int id = readInt();
+                if (id < 0 || id >= receivedDescriptors.size()) {
+                    throw new StreamCorruptedException("未知的类描述符编号: " + id);
+                }
+                return receivedDescriptors.get(id);
+            }
+            if (marker != NEW_DESCRIPTOR) {
+                throw new StreamCorruptedException("非法的类描述符标记: " + marker);
+            }
+
+            ObjectStreamClass desc = super.readClassDescriptor();
+            receivedDescriptors.add(desc);
+            return desc;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.alan.rpc.v4.common.serializer.impl;
 
 import com.alan.rpc.v4.common.SerializationTypeEnum;
 import com.alan.rpc.v4.common.serializer.SerializationException;
+import com.alan.rpc.v4.common.serializer.SerializationSession;
 import com.alan.rpc.v4.common.serializer.Serializer;
 
 import java.io.*;
@@ -47,6 +48,14 @@ public class JavaSerializer implements Serializer {
         }
     }
 
+    /**
+     * 会话内缓存类描述符，描述符只在首次出现时完整发送
+     */
+    @Override
+    public SerializationSession openSession() {
+        return new JavaSerializationSession();
+    }
+
     @Override
     public SerializationTypeEnum getType() {
         return SerializationTypeEnum.JAVA;
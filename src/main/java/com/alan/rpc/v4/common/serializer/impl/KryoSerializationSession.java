@@ -0,0 +1,107 @@
+package com.alan.rpc.v4.common.serializer.impl;
+
+import com.alan.rpc.v4.common.serializer.SerializationException;
+import com.alan.rpc.v4.common.serializer.SerializationSession;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Registration;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.DefaultClassResolver;
+import com.esotericsoftware.kryo.util.MapReferenceResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kryo 序列化会话
+ * 未注册的类在 Kryo 中以"编号 + 类名"的形式写出，默认每条消息结束都会清空编号表，
+ * 导致每条消息都要重复写类名。会话内保留编号表，类名只在首次出现时发送一次。
+ * 发送和接收方向各使用一个 Kryo 实例，编号表互不干扰
+ */
+class KryoSerializationSession implements SerializationSession {
+
+    private final Kryo writeKryo;
+    private final SessionClassResolver writeResolver = new SessionClassResolver();
+    private final Kryo readKryo;
+
+    private final Output output = new Output(256, -1);
+
+    KryoSerializationSession() {
+        this.writeKryo = KryoSerializer.configure(new Kryo(writeResolver, new MapReferenceResolver()));
+        this.readKryo = KryoSerializer.configure(new Kryo(new SessionClassResolver(), new MapReferenceResolver()));
+    }
+
+    @Override
+    public byte[] serialize(Object obj) throws SerializationException {
+        if (obj == null) {
+            throw new SerializationException("序列化对象不能为 null");
+        }
+
+        try {
+            output.reset();
+            writeKryo.writeClassAndObject(output, obj);
+            writeResolver.commit();
+            return output.toBytes();
+        } catch (Exception e) {
+            // 本条消息不会发出，撤销本次新分配的类名编号，保持与接收方一致
+            writeResolver.rollback();
+            throw new SerializationException("Kryo 序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(byte[] data, Class<T> clazz) throws SerializationException {
+        if (data == null || data.length == 0) {
+            throw new SerializationException("反序列化数据不能为空");
+        }
+
+        try {
+            Object obj = readKryo.readClassAndObject(new Input(data));
+            if (!clazz.isInstance(obj)) {
+                throw new SerializationException("类型不匹配，期望: " + clazz.getName() + "，实际: " + obj.getClass().getName());
+            }
+            return (T) obj;
+        } catch (SerializationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SerializationException("Kryo 反序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 会话级类解析器：Kryo.reset() 时不清空类名编号表
+     */
+    private static class SessionClassResolver extends DefaultClassResolver {
+
+        /**
+         * 当前消息中新分配编号的类
+         */
+        private final List<Class<?>> uncommitted = new ArrayList<>();
+
+        @Override
+        protected void writeName(Output output, Class type, Registration registration) {
+            if (classToNameId == null || classToNameId.get(type, -1) == -1) {
+                uncommitted.add(type);
+            }
+            super.writeName(output, type, registration);
+        }
+
+        @Override
+        public void reset() {
+            // 保留类名编号表，由会话生命周期（即连接）决定何时重置
+        }
+
+        void commit() {
+            uncommitted.clear();
+        }
+
+        void rollback() {
+            for (Class<?> type : uncommitted) {
+                classToNameId.remove(type, -1);
+            }
+            nextNameId -= uncommitted.size();
+            uncommitted.clear();
+        }
+    }
+}
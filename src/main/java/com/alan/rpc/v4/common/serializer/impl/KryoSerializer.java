@@ -2,6 +2,7 @@ package com.alan.rpc.v4.common.serializer.impl;
 
 import com.alan.rpc.v4.common.SerializationTypeEnum;
 import com.alan.rpc.v4.common.serializer.SerializationException;
+import com.alan.rpc.v4.common.serializer.SerializationSession;
 import com.alan.rpc.v4.common.serializer.Serializer;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
@@ -20,14 +21,18 @@ public class KryoSerializer implements Serializer {
     /**
      * Kryo 不是线程安全的，使用 ThreadLocal 为每个线程创建独立的 Kryo 实例
      */
-    private static final ThreadLocal<Kryo> KRYO_THREAD_LOCAL = ThreadLocal.withInitial(() -> {
-        Kryo kryo = new Kryo();
+    private static final ThreadLocal<Kryo> KRYO_THREAD_LOCAL = ThreadLocal.withInitial(() -> configure(new Kryo()));
+
+    /**
+     * 统一的 Kryo 配置，会话内的 Kryo 实例也使用相同配置
+     */
+    static Kryo configure(Kryo kryo) {
         // 允许未注册的类序列化（生产环境建议注册所有类以提高性能）
         kryo.setRegistrationRequired(false);
         // 支持循环引用
         kryo.setReferences(true);
         return kryo;
-    });
+    }
 
     @Override
     public byte[] serialize(Object obj) throws SerializationException {
@@ -66,6 +71,14 @@ public class KryoSerializer implements Serializer {
         }
     }
 
+    /**
+     * 会话内保留类名编号表，类名只在首次出现时发送
+     */
+    @Override
+    public SerializationSession openSession() {
+        return new KryoSerializationSession();
+    }
+
     @Override
     public SerializationTypeEnum getType() {
         return SerializationTypeEnum.KRYO;
@@ -0,0 +1,30 @@
+package com.alan.rpc.v4.common.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 哈希工具
+ */
+public final class HashUtils {
+
+    private HashUtils() {
+    }
+
+    /**
+     * 64 位 FNV-1a 哈希再经过 murmur3 的 fmix64 混合，使相近的字符串（如 "user-1"、"user-2"）在哈希环上充分分散
+     * 结果在不同进程、不同版本之间保持稳定，可以用于一致性哈希
+     */
+    public static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,270 @@
+package com.alan.rpc.v4.consumer;
+
+import com.alan.rpc.v4.registry.RegistryClient;
+import com.alan.rpc.v4.registry.RegistryException;
+import com.alan.rpc.v4.registry.ServiceInstance;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 服务发现本地缓存
+ * 首次调用某个服务时向注册中心订阅并缓存实例列表，之后由注册中心推送变更；
+ * 另外定期重新订阅一次做全量校准，弥补丢失的推送。稳定状态下 RPC 调用不访问注册中心
+ * 预热和全量校准都把多个服务合并为一个批量订阅请求
+ *
+ * 启用快照（{@link #enableSnapshot}）后缓存定期写入本地文件，客户端重启时先加载快照中的实例，
+ * 调用可以立即路由，不必等待注册中心；后台订阅成功后以注册中心的数据为准。
+ * 超过有效期的快照不直接加载，其中的实例只在首次订阅某个服务失败（注册中心不可用）时使用
+ */
+class DiscoveryCache implements ServiceDiscovery {
+
+    /**
+     * 全量校准间隔（秒）
+     */
+    private static final long RESYNC_INTERVAL_SECONDS = 30;
+
+    /**
+     * 快照写入间隔（秒），缓存没有变化时不写
+     */
+    private static final long SNAPSHOT_INTERVAL_SECONDS = 10;
+
+    /**
+     * 快照中的服务尚未得到注册中心确认时的重试间隔（秒）
+     */
+    private static final long STALE_REFRESH_SECONDS = 2;
+
+    private final RegistryClient registryClient;
+
+    /**
+     * 服务发现快照，未启用时为 null
+     */
+    private volatile DiscoverySnapshot snapshot;
+
+    /**
+     * 缓存自上次写快照后是否有变化
+     */
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    /**
+     * 从快照加载、还没有向注册中心订阅成功的服务
+     */
+    private final Set<String> staleServices = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 过期快照中的实例：服务名称 -> 实例列表，只在订阅失败时使用
+     */
+    private volatile Map<String, List<ServiceInstance>> expiredSnapshot = Collections.emptyMap();
+
+    /**
+     * 是否有重试订阅快照服务的任务在运行，避免重复调度
+     */
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * 本地缓存：服务名称 -> 实例列表（不可变，整体替换）
+     */
+    private final Map<String, List<ServiceInstance>> cache = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService resyncExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "discovery-resync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    DiscoveryCache(RegistryClient registryClient) {
+        this.registryClient = registryClient;
+        resyncExecutor.scheduleAtFixedRate(this::resync, RESYNC_INTERVAL_SECONDS, RESYNC_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 获取服务实例列表，只有首次获取某个服务时才访问注册中心
+     */
+    @Override
+    public List<ServiceInstance> getInstances(String serviceName) {
+        List<ServiceInstance> instances = cache.get(serviceName);
+        if (instances != null) {
+            return instances;
+        }
+
+        List<ServiceInstance> subscribed;
+        try {
+            subscribed = registryClient.subscribe(serviceName, list -> update(serviceName, list));
+        } catch (RegistryException e) {
+            List<ServiceInstance> fallback = expiredSnapshot.get(serviceName);
+            if (fallback == null) {
+                throw e;
+            }
+            if (cache.putIfAbsent(serviceName, Collections.unmodifiableList(fallback)) == null) {
+                staleServices.add(serviceName);
+                System.err.println("[客户端] 注册中心不可用，使用过期快照中的实例: " + serviceName + "，实例数: " + fallback.size());
+                startRefresh();
+            }
+            return cache.get(serviceName);
+        }
+        // 订阅返回前可能已经收到了更新的推送，此时保留推送的结果
+        instances = cache.putIfAbsent(serviceName, Collections.unmodifiableList(subscribed));
+        if (instances == null) {
+            dirty.set(true);
+            System.out.println("[客户端] 订阅服务: " + serviceName + "，实例数: " + subscribed.size());
+            return cache.get(serviceName);
+        }
+        return instances;
+    }
+
+    /**
+     * 预热：一次请求订阅尚未缓存的服务
+     */
+    @Override
+    public void preload(Collection<String> serviceNames) {
+        Map<String, Consumer<List<ServiceInstance>>> listeners = new LinkedHashMap<>();
+        for (String serviceName : serviceNames) {
+            if (!cache.containsKey(serviceName)) {
+                listeners.put(serviceName, list -> update(serviceName, list));
+            }
+        }
+        if (listeners.isEmpty()) {
+            return;
+        }
+        try {
+            registryClient.subscribeAll(listeners).forEach((serviceName, instances) -> {
+                if (cache.putIfAbsent(serviceName, Collections.unmodifiableList(instances)) == null) {
+                    dirty.set(true);
+                    System.out.println("[客户端] 订阅服务: " + serviceName + "，实例数: " + instances.size());
+                }
+            });
+        } catch (RegistryException e) {
+            System.err.println("[客户端] 预热服务发现失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 启用快照：加载快照中的实例（不覆盖已缓存的服务），在后台向注册中心订阅这些服务，并开始定期写快照
+     * 注册中心不可用时继续使用快照中的实例，每 STALE_REFRESH_SECONDS 秒重试订阅。
+     * 快照超过有效期时不加载，只在订阅失败时作为后备
+     *
+     * @param maxAgeMillis 快照有效期（毫秒）
+     */
+    void enableSnapshot(Path file, long maxAgeMillis) {
+        DiscoverySnapshot discoverySnapshot = new DiscoverySnapshot(file);
+        DiscoverySnapshot.SavedState saved = discoverySnapshot.load();
+        if (saved.ageMillis() > maxAgeMillis) {
+            System.out.println("[客户端] 服务发现快照已过期，只在注册中心不可用时使用: " + file);
+            expiredSnapshot = saved.services;
+        } else {
+            saved.services.forEach((serviceName, instances) -> {
+                if (cache.putIfAbsent(serviceName, Collections.unmodifiableList(instances)) == null) {
+                    staleServices.add(serviceName);
+                }
+            });
+        }
+        this.snapshot = discoverySnapshot;
+        resyncExecutor.scheduleWithFixedDelay(this::saveSnapshot, SNAPSHOT_INTERVAL_SECONDS, SNAPSHOT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        if (!staleServices.isEmpty()) {
+            startRefresh();
+        }
+    }
+
+    /**
+     * 关闭缓存，停止全量校准；启用了快照时最后写一次快照
+     */
+    @Override
+    public void close() {
+        resyncExecutor.shutdown();
+        if (snapshot != null) {
+            saveSnapshot();
+        }
+        resyncExecutor.shutdownNow();
+    }
+
+    private void update(String serviceName, List<ServiceInstance> instances) {
+        staleServices.remove(serviceName);
+        dirty.set(true);
+        List<ServiceInstance> previous = cache.put(serviceName, Collections.unmodifiableList(instances));
+        if (previous == null || previous.size() != instances.size()) {
+            System.out.println("[客户端] 服务实例变更: " + serviceName + "，实例数: " + instances.size());
+        }
+    }
+
+    /**
+     * 全量校准：重新订阅所有已缓存的服务，同时让断开的注册中心连接得以重连
+     * 注册中心不可用时保留原有缓存，不影响调用
+     */
+    private void resync() {
+        Map<String, Consumer<List<ServiceInstance>>> listeners = new LinkedHashMap<>();
+        for (String serviceName : cache.keySet()) {
+            listeners.put(serviceName, list -> update(serviceName, list));
+        }
+        if (listeners.isEmpty()) {
+            return;
+        }
+        registryClient.subscribeAllAsync(listeners).whenComplete((results, e) -> {
+            if (e != null) {
+                System.err.println("[客户端] 服务发现校准失败: " + listeners.keySet() + ", " + e.getMessage());
+            } else {
+                results.forEach(this::update);
+            }
+        });
+    }
+
+    private void startRefresh() {
+        if (refreshing.compareAndSet(false, true)) {
+            resyncExecutor.execute(this::refreshStale);
+        }
+    }
+
+    /**
+     * 订阅从快照加载的服务，失败时保留快照中的实例并稍后重试
+     * （确认之前新加入的快照服务由下一次全量校准订阅）
+     */
+    private void refreshStale() {
+        Map<String, Consumer<List<ServiceInstance>>> listeners = new LinkedHashMap<>();
+        for (String serviceName : staleServices) {
+            listeners.put(serviceName, list -> update(serviceName, list));
+        }
+        if (listeners.isEmpty()) {
+            refreshing.set(false);
+            return;
+        }
+        registryClient.subscribeAllAsync(listeners).whenComplete((results, e) -> {
+            if (e == null) {
+                results.forEach(this::update);
+                refreshing.set(false);
+                System.out.println("[客户端] 快照中的服务已由注册中心确认: " + results.size() + " 个");
+                return;
+            }
+            System.err.println("[客户端] 注册中心不可用，继续使用快照中的实例: " + e.getMessage());
+            if (!resyncExecutor.isShutdown()) {
+                resyncExecutor.schedule(this::refreshStale, STALE_REFRESH_SECONDS, TimeUnit.SECONDS);
+            }
+        });
+    }
+
+    /**
+     * 缓存有变化时写快照，写入失败时保留变化标记，下次重试
+     */
+    private synchronized void saveSnapshot() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            snapshot.save(new HashMap<>(cache));
+        } catch (IOException | RuntimeException e) {
+            dirty.set(true);
+            System.err.println("[客户端] 写服务发现快照失败: " + snapshot.getFile() + ", " + e.getMessage());
+        }
+    }
+}
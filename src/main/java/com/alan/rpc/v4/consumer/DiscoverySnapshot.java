@@ -0,0 +1,219 @@
+package com.alan.rpc.v4.consumer;
+
+import com.alan.rpc.v4.registry.ServiceInstance;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 服务发现快照：把客户端的服务发现缓存保存到本地文件，客户端启动时加载
+ * 注册中心不可用或响应慢时，客户端先按上次已知的实例发起调用，不必等待注册中心
+ *
+ * 文件格式：
+ * <pre>
+ * 魔数 | 版本 | 保存时间 (8字节) | 服务数 | (服务名称 | 实例数 | (instanceId | host | port | 元数据条目数 + (键 | 值))) | CRC32
+ * </pre>
+ * 整数为 4 字节，字符串为 4 字节长度 + UTF-8 字节。先写临时文件再原子替换，校验失败的快照整体忽略。
+ * 超过 {@link #MMAP_THRESHOLD_BYTES} 的快照通过内存映射读取，不经过堆内缓冲区。
+ * 保存时间随快照一起返回，由调用方判断快照是否过期
+ */
+class DiscoverySnapshot {
+
+    /**
+     * 超过该大小的快照使用内存映射读取
+     */
+    static final int MMAP_THRESHOLD_BYTES = 1 << 20;
+
+    /**
+     * 默认的快照有效期（毫秒），超过后快照中的实例只在注册中心不可用时使用
+     */
+    static final long DEFAULT_MAX_AGE_MILLIS = 60 * 60 * 1000L;
+
+    private static final int MAGIC = 0x44495343;
+    private static final int VERSION = 1;
+
+    private final Path file;
+
+    DiscoverySnapshot(Path file) {
+        this.file = file;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * 加载快照，文件不存在、格式错误或校验失败时返回空快照（只输出日志，不影响客户端启动）
+     */
+    SavedState load() {
+        if (!Files.exists(file)) {
+            return SavedState.EMPTY;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 24 || size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("快照长度非法: " + size);
+            }
+            ByteBuffer buffer;
+            if (size >= MMAP_THRESHOLD_BYTES) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        throw new IllegalArgumentException("快照不完整");
+                    }
+                }
+                buffer.flip();
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().limit((int) size - 4));
+            if (buffer.getInt((int) size - 4) != (int) crc.getValue()) {
+                throw new IllegalArgumentException("校验失败");
+            }
+            buffer.limit((int) size - 4);
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("格式错误");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("不支持的版本: " + version);
+            }
+            long savedAt = buffer.getLong();
+            Map<String, List<ServiceInstance>> state = readState(buffer);
+            int instances = 0;
+            for (List<ServiceInstance> list : state.values()) {
+                instances += list.size();
+            }
+            System.out.println("[客户端] 加载服务发现快照: " + state.size() + " 个服务，" + instances + " 个实例，保存于 "
+                    + Math.max(0, (System.currentTimeMillis() - savedAt) / 1000) + " 秒前");
+            return new SavedState(savedAt, state);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[客户端] 忽略无法读取的服务发现快照: " + file + ", " + e.getMessage());
+            return SavedState.EMPTY;
+        }
+    }
+
+    /**
+     * 保存快照
+     */
+    void save(Map<String, List<ServiceInstance>> state) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(tmp.toFile())) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(output, crc)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(state.size());
+            for (Map.Entry<String, List<ServiceInstance>> entry : state.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (ServiceInstance instance : entry.getValue()) {
+                    writeString(out, instance.getInstanceId());
+                    writeString(out, instance.getHost());
+                    out.writeInt(instance.getPort());
+                    out.writeInt(instance.getMetadata().size());
+                    for (Map.Entry<String, String> metadata : instance.getMetadata().entrySet()) {
+                        writeString(out, metadata.getKey());
+                        writeString(out, metadata.getValue());
+                    }
+                }
+            }
+            out.flush();
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            output.getChannel().force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Map<String, List<ServiceInstance>> readState(ByteBuffer in) {
+        int serviceCount = readCount(in);
+        Map<String, List<ServiceInstance>> state = new LinkedHashMap<>(serviceCount * 2);
+        for (int i = 0; i < serviceCount; i++) {
+            String serviceName = readString(in);
+            int instanceCount = readCount(in);
+            List<ServiceInstance> instances = new ArrayList<>(instanceCount);
+            for (int j = 0; j < instanceCount; j++) {
+                String instanceId = readString(in);
+                String host = readString(in);
+                int port = in.getInt();
+                int metadataCount = readCount(in);
+                Map<String, String> metadata = new LinkedHashMap<>(metadataCount * 2);
+                for (int k = 0; k < metadataCount; k++) {
+                    metadata.put(readString(in), readString(in));
+                }
+                instances.add(new ServiceInstance(serviceName, host, port, instanceId,
+                        metadata.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(metadata)));
+            }
+            state.put(serviceName, instances);
+        }
+        return state;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readCount(in);
+        ByteBuffer bytes = in.slice();
+        bytes.limit(length);
+        in.position(in.position() + length);
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+
+    /**
+     * 读取元素个数或长度，不能超过剩余字节数
+     */
+    private static int readCount(ByteBuffer in) {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining()) {
+            throw new IllegalArgumentException("非法的长度: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * 加载的快照：保存时间和服务名称 -> 实例列表
+     */
+    static final class SavedState {
+
+        static final SavedState EMPTY = new SavedState(0, Collections.emptyMap());
+
+        final long savedAtMillis;
+        final Map<String, List<ServiceInstance>> services;
+
+        SavedState(long savedAtMillis, Map<String, List<ServiceInstance>> services) {
+            this.savedAtMillis = savedAtMillis;
+            this.services = services;
+        }
+
+        /**
+         * 快照保存后经过的时间（毫秒）
+         */
+        long ageMillis() {
+            return Math.max(0, System.currentTimeMillis() - savedAtMillis);
+        }
+    }
+}
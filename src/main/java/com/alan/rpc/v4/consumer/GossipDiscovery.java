@@ -0,0 +1,35 @@
+package com.alan.rpc.v4.consumer;
+
+import com.alan.rpc.v4.gossip.GossipNode;
+import com.alan.rpc.v4.registry.ServiceInstance;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 基于 Gossip 成员协议的服务发现
+ * 节点本地已经有整个集群的成员和服务列表，调用时直接读取快照，不需要订阅、预热或校准
+ */
+class GossipDiscovery implements ServiceDiscovery {
+
+    private final GossipNode gossipNode;
+
+    GossipDiscovery(GossipNode gossipNode) {
+        this.gossipNode = gossipNode;
+    }
+
+    @Override
+    public List<ServiceInstance> getInstances(String serviceName) {
+        return gossipNode.getInstances(serviceName);
+    }
+
+    @Override
+    public void preload(Collection<String> serviceNames) {
+        // 成员列表随 Gossip 扩散，无需预热
+    }
+
+    @Override
+    public void close() {
+        // 节点由创建方关闭，同一进程的服务提供者可能还在使用
+    }
+}
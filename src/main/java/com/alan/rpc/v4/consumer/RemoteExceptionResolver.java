@@ -0,0 +1,174 @@
+package com.alan.rpc.v4.consumer;
+
+import com.alan.rpc.v4.common.RpcError;
+import com.alan.rpc.v4.common.RpcRemoteException;
+
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 远程异常还原器
+ * 根据服务端返回的 RpcError 在客户端重建异常：
+ * 1. 服务端异常类在本地存在、有 (String) 或 (String, Throwable, boolean, boolean) 构造函数，
+ *    且是非受检异常或方法声明了该受检异常时，还原为原类型
+ * 2. 否则抛出 RpcRemoteException
+ * 服务端没有传输堆栈时，重建的异常不带堆栈：优先通过 (String, Throwable, boolean, boolean) 构造函数
+ * 关闭堆栈，不遍历本地调用栈；只有 (String) 构造函数的异常类在构造时仍会填充一次本地堆栈（随后被替换），
+ * 这条路径不是零开销的
+ */
+class RemoteExceptionResolver {
+
+    private static final StackTraceElement[] EMPTY_STACK_TRACE = new StackTraceElement[0];
+
+    /**
+     * 异常类名 -> 可用的构造函数，都找不到时缓存空值，避免错误频繁时反复反射
+     */
+    private final Map<String, Optional<Constructors>> constructorCache = new ConcurrentHashMap<>();
+
+    /**
+     * 重建异常
+     *
+     * @param error                  服务端错误信息
+     * @param declaredExceptionTypes 调用方法声明的受检异常
+     * @return 重建后的异常
+     */
+    Exception resolve(RpcError error, Class<?>[] declaredExceptionTypes) {
+        StackTraceElement[] stackTrace = error.getStackTrace() == null
+                ? EMPTY_STACK_TRACE : parseStackTrace(error.getStackTrace());
+
+        Exception exception = instantiate(error, declaredExceptionTypes, stackTrace.length > 0);
+        if (exception == null) {
+            exception = new RpcRemoteException(error, stackTrace.length > 0);
+        }
+        exception.setStackTrace(stackTrace);
+        return exception;
+    }
+
+    /**
+     * @param writableStackTrace 服务端是否传输了堆栈，没有时尽量构造不带堆栈的异常
+     */
+    private Exception instantiate(RpcError error, Class<?>[] declaredExceptionTypes, boolean writableStackTrace) {
+        Optional<Constructors> constructors =
+                constructorCache.computeIfAbsent(error.getExceptionClass(), this::findConstructors);
+        if (constructors.isEmpty()) {
+            return null;
+        }
+
+        Class<? extends Exception> exceptionClass = constructors.get().exceptionClass;
+        if (!RuntimeException.class.isAssignableFrom(exceptionClass)
+                && !isDeclared(exceptionClass, declaredExceptionTypes)) {
+            return null;
+        }
+
+        Constructor<? extends Exception> full = constructors.get().full;
+        Constructor<? extends Exception> message = constructors.get().message;
+        try {
+            if (full != null && (!writableStackTrace || message == null)) {
+                return full.newInstance(error.getMessage(), null, false, writableStackTrace);
+            }
+            return message.newInstance(error.getMessage());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private Optional<Constructors> findConstructors(String className) {
+        Class<? extends Exception> exceptionClass;
+        try {
+            Class<?> clazz = Class.forName(className, false, RemoteExceptionResolver.class.getClassLoader());
+            if (!Exception.class.isAssignableFrom(clazz)) {
+                return Optional.empty();
+            }
+            exceptionClass = clazz.asSubclass(Exception.class);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return Optional.empty();
+        }
+
+        Constructor<? extends Exception> message = null;
+        try {
+            message = exceptionClass.getConstructor(String.class);
+        } catch (NoSuchMethodException ignored) {
+            // 只能使用完整构造函数
+        }
+        Constructor<? extends Exception> full = null;
+        try {
+            // 通常声明为 protected（与 Throwable 一致），无法访问时（例如模块未开放）不使用
+            Constructor<? extends Exception> declared = exceptionClass.getDeclaredConstructor(
+                    String.class, Throwable.class, boolean.class, boolean.class);
+            if (declared.trySetAccessible()) {
+                full = declared;
+            }
+        } catch (NoSuchMethodException | SecurityException ignored) {
+            // 只能使用 (String) 构造函数
+        }
+        return message == null && full == null
+                ? Optional.empty() : Optional.of(new Constructors(exceptionClass, message, full));
+    }
+
+    private static boolean isDeclared(Class<?> exceptionClass, Class<?>[] declaredExceptionTypes) {
+        for (Class<?> declared : declaredExceptionTypes) {
+            if (declared.isAssignableFrom(exceptionClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析 StackTraceElement.toString() 格式的堆栈，如 java.base/com.foo.Bar.run(Bar.java:12)
+     */
+    private static StackTraceElement[] parseStackTrace(String[] frames) {
+        StackTraceElement[] elements = new StackTraceElement[frames.length];
+        for (int i = 0; i < frames.length; i++) {
+            elements[i] = parseFrame(frames[i]);
+        }
+        return elements;
+    }
+
+    private static StackTraceElement parseFrame(String frame) {
+        int open = frame.lastIndexOf('(');
+        String location = open < 0 ? frame : frame.substring(0, open);
+        location = location.substring(location.lastIndexOf('/') + 1);
+        int dot = location.lastIndexOf('.');
+        String declaringClass = dot < 0 ? "" : location.substring(0, dot);
+        String methodName = location.substring(dot + 1);
+
+        String fileName = null;
+        int lineNumber = -1;
+        if (open >= 0 && frame.endsWith(")")) {
+            String source = frame.substring(open + 1, frame.length() - 1);
+            int colon = source.lastIndexOf(':');
+            if (colon > 0) {
+                fileName = source.substring(0, colon);
+                try {
+                    lineNumber = Integer.parseInt(source.substring(colon + 1));
+                } catch (NumberFormatException ignored) {
+                    // 保持 -1
+                }
+            } else if ("Native Method".equals(source)) {
+                lineNumber = -2;
+            } else if (!"Unknown Source".equals(source)) {
+                fileName = source;
+            }
+        }
+        return new StackTraceElement(declaringClass, methodName, fileName, lineNumber);
+    }
+
+    /**
+     * 异常类可用的构造函数，至少有一个不为 null
+     */
+    private static final class Constructors {
+        private final Class<? extends Exception> exceptionClass;
+        private final Constructor<? extends Exception> message;
+        private final Constructor<? extends Exception> full;
+
+        Constructors(Class<? extends Exception> exceptionClass, Constructor<? extends Exception> message,
+                     Constructor<? extends Exception> full) {
+            this.exceptionClass = exceptionClass;
+            this.message = message;
+            this.full = full;
+        }
+    }
+}
@@ -3,48 +3,211 @@ package com.alan.rpc.v4.consumer;
 import com.alan.rpc.v4.common.RpcRequest;
 import com.alan.rpc.v4.common.RpcResponse;
 import com.alan.rpc.v4.common.SerializationTypeEnum;
+import com.alan.rpc.v4.common.codec.CompressionCodec;
+import com.alan.rpc.v4.common.codec.SerializationCodec;
+import com.alan.rpc.v4.common.compress.CompressionMetrics;
+import com.alan.rpc.v4.common.compress.CompressionTypeEnum;
 import com.alan.rpc.v4.common.serializer.Serializer;
 import com.alan.rpc.v4.common.serializer.SerializerFactory;
+import com.alan.rpc.v4.consumer.loadbalance.LoadBalancer;
+import com.alan.rpc.v4.consumer.loadbalance.LoadBalancerFactory;
+import com.alan.rpc.v4.consumer.loadbalance.LoadBalancerTypeEnum;
+import com.alan.rpc.v4.gossip.GossipNode;
 import com.alan.rpc.v4.registry.RegistryClient;
 import com.alan.rpc.v4.registry.ServiceInstance;
 import io.netty.bootstrap.Bootstrap;
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.util.AttributeKey;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.*;
 
 /**
  * RPC 客户端 - v4 版本支持多序列化方式
  */
 public class RpcClient {
 
-    private final String registryHost;
-    private final int registryPort;
+    /**
+     * 单帧最大长度
+     */
+    private static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * 默认压缩阈值（字节）
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 2048;
+
+    /**
+     * 请求超时时间（毫秒）
+     */
+    private static final long REQUEST_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * 连接超时时间（毫秒）
+     */
+    private static final int CONNECT_TIMEOUT_MILLIS = 3_000;
+
+    /**
+     * 连接上等待响应的请求：requestId -> 响应
+     */
+    private static final AttributeKey<Map<String, CompletableFuture<RpcResponse>>> PENDING_REQUESTS =
+            AttributeKey.valueOf("pendingRequests");
+
+    private final List<String> registryAddresses;
+
+    /**
+     * 注册中心客户端，使用 Gossip 服务发现时为 null
+     */
     private final RegistryClient registryClient;
+    private final ServiceDiscovery discovery;
     private final Serializer serializer;
+    private final String serializationCode;
+    private final CompressionCodec compressionCodec;
+    private final CompressionMetrics compressionMetrics = new CompressionMetrics();
+    private final RemoteExceptionResolver exceptionResolver = new RemoteExceptionResolver();
+    private final EventLoopGroup eventLoopGroup = new NioEventLoopGroup();
+    private final Bootstrap bootstrap;
+    private final RpcClientHandler clientHandler = new RpcClientHandler();
 
     /**
-     * 构造函数 - 指定序列化类型
+     * 长连接：服务地址 -> 建立连接的 ChannelFuture，连接失败或关闭后移除。
+     * 到同一地址的并发调用等待同一个连接，不同地址的连接互不阻塞
+     */
+    private final Map<String, ChannelFuture> channels = new ConcurrentHashMap<>();
+
+    /**
+     * 负载均衡器：服务名称 -> 负载均衡器，未单独指定的服务首次调用时按默认策略创建
+     */
+    private final Map<String, LoadBalancer> loadBalancers = new ConcurrentHashMap<>();
+
+    /**
+     * 支持本客户端序列化方式的候选实例：服务名称 -> 候选实例，实例列表变化后重新过滤
+     */
+    private final Map<String, Candidates> candidates = new ConcurrentHashMap<>();
+
+    private volatile LoadBalancerTypeEnum defaultLoadBalancerType = LoadBalancerTypeEnum.WEIGHTED_RANDOM;
+
+    /**
+     * 构造函数 - 指定序列化类型和压缩方式
+     *
+     * @param registryHost         注册中心主机
+     * @param registryPort         注册中心端口
+     * @param serializationType    序列化类型
+     * @param compressionType      压缩类型
+     * @param compressionThreshold 压缩阈值（字节），请求体超过该值才压缩
+     */
+    public RpcClient(String registryHost, int registryPort, SerializationTypeEnum serializationType,
+                     CompressionTypeEnum compressionType, int compressionThreshold) {
+        this(Collections.singletonList(registryHost + ":" + registryPort), serializationType,
+                compressionType, compressionThreshold);
+    }
+
+    /**
+     * 构造函数 - 注册中心集群
+     *
+     * @param registryAddresses    注册中心各节点地址（host:port），节点不可用时自动切换
+     * @param serializationType    序列化类型
+     * @param compressionType      压缩类型
+     * @param compressionThreshold 压缩阈值（字节），请求体超过该值才压缩
+     */
+    public RpcClient(List<String> registryAddresses, SerializationTypeEnum serializationType,
+                     CompressionTypeEnum compressionType, int compressionThreshold) {
+        this(registryAddresses, null, serializationType, compressionType, compressionThreshold);
+    }
+
+    /**
+     * 构造函数 - Gossip 服务发现，不使用注册中心
+     *
+     * @param gossipNode           已启动的 Gossip 节点，由调用方关闭（可以与同一进程的服务提供者共用）
+     * @param serializationType    序列化类型
+     * @param compressionType      压缩类型
+     * @param compressionThreshold 压缩阈值（字节），请求体超过该值才压缩
+     */
+    public RpcClient(GossipNode gossipNode, SerializationTypeEnum serializationType,
+                     CompressionTypeEnum compressionType, int compressionThreshold) {
+        this(null, gossipNode, serializationType, compressionType, compressionThreshold);
+    }
+
+    /**
+     * 构造函数 - Gossip 服务发现，使用默认压缩方式
+     *
+     * @param gossipNode        已启动的 Gossip 节点，由调用方关闭
+     * @param serializationType 序列化类型
+     */
+    public RpcClient(GossipNode gossipNode, SerializationTypeEnum serializationType) {
+        this(gossipNode, serializationType, CompressionTypeEnum.LZF, DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * 注册中心地址和 Gossip 节点二选一
+     */
+    private RpcClient(List<String> registryAddresses, GossipNode gossipNode, SerializationTypeEnum serializationType,
+                      CompressionTypeEnum compressionType, int compressionThreshold) {
+        this.registryAddresses = registryAddresses;
+        this.serializer = SerializerFactory.getSerializer(serializationType);
+        this.serializationCode = serializationType.getCode();
+        this.compressionCodec = new CompressionCodec(compressionType, compressionThreshold, MAX_FRAME_LENGTH,
+                compressionMetrics);
+        if (gossipNode != null) {
+            this.registryClient = null;
+            this.discovery = new GossipDiscovery(gossipNode);
+        } else {
+            this.registryClient = new RegistryClient(registryAddresses);
+            this.discovery = new DiscoveryCache(registryClient);
+        }
+        this.bootstrap = new Bootstrap()
+                .group(eventLoopGroup)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT_MILLIS)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.attr(PENDING_REQUESTS).set(new ConcurrentHashMap<>());
+                        ch.pipeline()
+                                .addLast(new LengthFieldBasedFrameDecoder(MAX_FRAME_LENGTH, 0, 4, 0, 4))
+                                .addLast(new LengthFieldPrepender(4))
+                                .addLast(compressionCodec)
+                                .addLast(new SerializationCodec(serializer, RpcResponse.class))
+                                .addLast(clientHandler);
+                    }
+                });
+        System.out.println("[客户端] 使用序列化方式: " + serializationType.getDescription());
+        System.out.println("[客户端] 使用压缩方式: " + compressionType.getDescription() + "，阈值: " + compressionThreshold + " 字节");
+    }
+
+    /**
+     * 构造函数 - 指定序列化类型，使用默认压缩方式（LZF，超过 2KB 才压缩）
      *
      * @param registryHost      注册中心主机
      * @param registryPort      注册中心端口
      * @param serializationType 序列化类型
      */
     public RpcClient(String registryHost, int registryPort, SerializationTypeEnum serializationType) {
-        this.registryHost = registryHost;
-        this.registryPort = registryPort;
-        this.serializer = SerializerFactory.getSerializer(serializationType);
-        this.registryClient = new RegistryClient(registryHost, registryPort);
-        System.out.println("[客户端] 使用序列化方式: " + serializationType.getDescription());
+        this(registryHost, registryPort, serializationType, CompressionTypeEnum.LZF, DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * 构造函数 - 注册中心集群，使用默认压缩方式
+     *
+     * @param registryAddresses 注册中心各节点地址（host:port）
+     * @param serializationType 序列化类型
+     */
+    public RpcClient(List<String> registryAddresses, SerializationTypeEnum serializationType) {
+        this(registryAddresses, serializationType, CompressionTypeEnum.LZF, DEFAULT_COMPRESSION_THRESHOLD);
     }
 
     /**
@@ -62,7 +225,7 @@ public class RpcClient {
      *
      * @param registryHost        注册中心主机
      * @param registryPort        注册中心端口
-     * @param serializationTypeCode 序列化类型代码（"java", "json", "hessian", "kryo"）
+     * @param serializationTypeCode 序列化类型代码（"java", "json", "hessian", "kryo", "codegen"）
      */
     public RpcClient(String registryHost, int registryPort, String serializationTypeCode) {
         this(registryHost, registryPort, SerializationTypeEnum.fromCode(serializationTypeCode));
@@ -80,80 +243,226 @@ public class RpcClient {
         );
     }
 
+    /**
+     * 预热：一次请求订阅多个服务接口，之后首次调用这些服务时不再访问注册中心
+     * 注册中心不可用时只输出日志，首次调用时仍会按需订阅；使用 Gossip 服务发现时本地已有全部服务，不需要预热
+     */
+    public void preload(Class<?>... interfaceClasses) {
+        List<String> serviceNames = new ArrayList<>(interfaceClasses.length);
+        for (Class<?> interfaceClass : interfaceClasses) {
+            serviceNames.add(interfaceClass.getName());
+        }
+        discovery.preload(serviceNames);
+    }
+
+    /**
+     * 启用服务发现快照：立即加载快照中的实例列表，之后缓存变化时定期写入该文件，关闭客户端时再写一次
+     * 重启后即使注册中心不可用，也能按上次已知的实例发起调用，后台向注册中心订阅成功后以注册中心的数据为准。
+     * 需要在首次调用之前设置；使用 Gossip 服务发现时不支持。快照有效期默认 1 小时，
+     * 更早保存的快照不直接用于路由，只在首次订阅某个服务失败（注册中心不可用）时使用
+     *
+     * @param file 快照文件，不存在时在首次写入时创建
+     */
+    public void setDiscoverySnapshot(Path file) {
+        setDiscoverySnapshot(file, DiscoverySnapshot.DEFAULT_MAX_AGE_MILLIS);
+    }
+
+    /**
+     * 启用服务发现快照，见 {@link #setDiscoverySnapshot(Path)}
+     *
+     * @param file         快照文件，不存在时在首次写入时创建
+     * @param maxAgeMillis 快照有效期（毫秒）
+     */
+    public void setDiscoverySnapshot(Path file, long maxAgeMillis) {
+        if (!(discovery instanceof DiscoveryCache)) {
+            throw new IllegalStateException("Gossip 服务发现不支持快照");
+        }
+        ((DiscoveryCache) discovery).enableSnapshot(file, maxAgeMillis);
+    }
+
+    /**
+     * 设置默认负载均衡策略，对之后首次调用的服务生效，默认按权重随机
+     */
+    public void setDefaultLoadBalancer(LoadBalancerTypeEnum type) {
+        this.defaultLoadBalancerType = type;
+    }
+
+    /**
+     * 为某个服务接口指定负载均衡策略
+     */
+    public void setLoadBalancer(Class<?> interfaceClass, LoadBalancerTypeEnum type) {
+        setLoadBalancer(interfaceClass, LoadBalancerFactory.create(type));
+    }
+
+    /**
+     * 为某个服务接口指定自定义负载均衡器
+     */
+    public void setLoadBalancer(Class<?> interfaceClass, LoadBalancer loadBalancer) {
+        loadBalancers.put(interfaceClass.getName(), loadBalancer);
+    }
+
+    /**
+     * 获取压缩统计指标
+     */
+    public CompressionMetrics getCompressionMetrics() {
+        return compressionMetrics;
+    }
+
     /**
      * 发起 RPC 调用
      */
-    private Object invoke(String interfaceName, String methodName,
-                         Class<?>[] parameterTypes, Object[] parameters) throws Exception {
-        // 从注册中心发现服务
-        List<ServiceInstance> instances = registryClient.discover(interfaceName);
+    private Object invoke(String interfaceName, Method method, Object[] parameters) throws Exception {
+        // 从本地缓存获取服务实例，缓存由注册中心推送或 Gossip 扩散更新
+        List<ServiceInstance> instances = discovery.getInstances(interfaceName);
         if (instances.isEmpty()) {
             throw new RuntimeException("没有可用的服务实例: " + interfaceName);
         }
 
-        // 简单的负载均衡：取第一个可用实例
-        // v5 版本将实现更复杂的负载均衡策略
-        ServiceInstance instance = instances.get(0);
+        LoadBalancer loadBalancer = loadBalancer(interfaceName);
+        ServiceInstance instance = select(interfaceName, instances, loadBalancer, method, parameters);
         System.out.println("[客户端] 选择服务实例: " + instance.getAddress());
 
         // 构建请求
         RpcRequest request = new RpcRequest();
         request.setRequestId(UUID.randomUUID().toString());
         request.setInterfaceName(interfaceName);
-        request.setMethodName(methodName);
-        request.setParameterTypes(parameterTypes);
+        request.setMethodName(method.getName());
+        request.setParameterTypes(method.getParameterTypes());
         request.setParameters(parameters);
 
-        // 使用配置的序列化器序列化请求
-        byte[] requestBytes = serializer.serialize(request);
-
-        // 发送请求并获取响应
-        byte[] responseBytes = sendRequest(instance.getHost(), instance.getPort(), requestBytes);
-
-        // 使用配置的序列化器反序列化响应
-        RpcResponse response = serializer.deserialize(responseBytes, RpcResponse.class);
+        // 发送请求并获取响应，把在途请求和响应延迟反馈给负载均衡器
+        loadBalancer.onRequestStart(interfaceName, instance);
+        long start = System.nanoTime();
+        RpcResponse response;
+        try {
+            response = sendRequest(instance.getHost(), instance.getPort(), request);
+        } catch (Exception e) {
+            loadBalancer.onRequestEnd(interfaceName, instance, System.nanoTime() - start, false);
+            throw e;
+        }
+        loadBalancer.onRequestEnd(interfaceName, instance, System.nanoTime() - start, true);
 
-        if (response.getException() != null) {
-            throw response.getException();
+        if (response.getError() != null) {
+            throw exceptionResolver.resolve(response.getError(), method.getExceptionTypes());
         }
 
         return response.getResult();
     }
 
     /**
-     * 发送请求到服务端
+     * 按服务的负载均衡策略选择实例；跳过不支持本客户端序列化方式的实例
      */
-    private byte[] sendRequest(String host, int port, byte[] requestBytes) throws Exception {
-        EventLoopGroup group = new NioEventLoopGroup();
-        RpcClientHandler handler = new RpcClientHandler();
-        CountDownLatch latch = new CountDownLatch(1);
+    private ServiceInstance select(String interfaceName, List<ServiceInstance> instances, LoadBalancer loadBalancer,
+                                   Method method, Object[] parameters) {
+        List<ServiceInstance> supported = supportedInstances(interfaceName, instances);
+        if (supported.isEmpty()) {
+            throw new RuntimeException("没有支持序列化方式 " + serializationCode + " 的服务实例: " + interfaceName);
+        }
+        return loadBalancer.select(interfaceName, supported, method, parameters);
+    }
 
-        try {
-            Bootstrap bootstrap = new Bootstrap();
-            bootstrap.group(group)
-                    .channel(NioSocketChannel.class)
-                    .handler(new ChannelInitializer<SocketChannel>() {
-                        @Override
-                        protected void initChannel(SocketChannel ch) {
-                            ch.pipeline().addLast(handler);
-                        }
-                    });
+    /**
+     * 服务的负载均衡器，未单独指定时首次调用按默认策略创建
+     */
+    private LoadBalancer loadBalancer(String interfaceName) {
+        LoadBalancer loadBalancer = loadBalancers.get(interfaceName);
+        if (loadBalancer == null) {
+            loadBalancer = loadBalancers.computeIfAbsent(interfaceName,
+                    name -> LoadBalancerFactory.create(defaultLoadBalancerType));
+        }
+        return loadBalancer;
+    }
+
+    /**
+     * 过滤出支持本客户端序列化方式的实例，结果按实例列表对象缓存
+     * 实例列表不变时返回同一个列表对象，负载均衡器可以据此复用预计算的结果
+     */
+    private List<ServiceInstance> supportedInstances(String interfaceName, List<ServiceInstance> instances) {
+        Candidates cached = candidates.get(interfaceName);
+        if (cached != null && cached.source == instances) {
+            return cached.supported;
+        }
+        List<ServiceInstance> supported = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            if (instance.supportsSerializer(serializationCode)) {
+                supported.add(instance);
+            }
+        }
+        List<ServiceInstance> result = supported.size() == instances.size()
+                ? instances : Collections.unmodifiableList(supported);
+        candidates.put(interfaceName, new Candidates(instances, result));
+        return result;
+    }
 
-            ChannelFuture future = bootstrap.connect(host, port).sync();
-            handler.setLatch(latch);
+    /**
+     * 发送请求到服务端，同一服务实例复用一条长连接，按 requestId 关联响应
+     */
+    private RpcResponse sendRequest(String host, int port, RpcRequest request) throws Exception {
+        Channel channel = getChannel(host, port);
+        Map<String, CompletableFuture<RpcResponse>> pendingRequests = channel.attr(PENDING_REQUESTS).get();
+        CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+        pendingRequests.put(request.getRequestId(), future);
+
+        // 序列化在 SerializationCodec 中完成（连接的 EventLoop 线程），保证会话内消息有序
+        channel.writeAndFlush(request).addListener(writeFuture -> {
+            if (!writeFuture.isSuccess()) {
+                pendingRequests.remove(request.getRequestId());
+                future.completeExceptionally(writeFuture.cause());
+            }
+        });
 
-            ByteBuf buffer = Unpooled.buffer(requestBytes.length);
-            buffer.writeBytes(requestBytes);
-            future.channel().writeAndFlush(buffer);
+        try {
+            return future.get(REQUEST_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            pendingRequests.remove(request.getRequestId());
+            throw new RuntimeException("请求超时: " + request.getRequestId() + " -> " + host + ":" + port);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("请求发送失败: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
 
-            latch.await();
+    /**
+     * 获取到服务实例的长连接，不存在或已断开时重新建立
+     * 新连接会创建新的序列化会话，双方的会话缓存随之重置
+     */
+    private Channel getChannel(String host, int port) throws InterruptedException {
+        String address = host + ":" + port;
+        ChannelFuture connectFuture = channels.get(address);
+        if (connectFuture != null && connectFuture.isSuccess() && !connectFuture.channel().isActive()) {
+            // 连接已断开，关闭监听器还未移除
+            channels.remove(address, connectFuture);
+            connectFuture = null;
+        }
+        if (connectFuture == null) {
+            connectFuture = channels.computeIfAbsent(address, key -> connect(host, port, key));
+        }
+        return connectFuture.sync().channel();
+    }
 
-            byte[] responseBytes = handler.getResponse();
-            future.channel().close().sync();
+    /**
+     * 发起连接（不等待完成），连接失败或关闭后从 channels 中移除，下一次调用重新连接
+     */
+    private ChannelFuture connect(String host, int port, String address) {
+        ChannelFuture connectFuture = bootstrap.connect(host, port);
+        connectFuture.addListener((ChannelFutureListener) future -> {
+            if (future.isSuccess()) {
+                System.out.println("[客户端] 建立连接: " + address);
+            } else {
+                channels.remove(address, future);
+            }
+        });
+        connectFuture.channel().closeFuture().addListener(future -> channels.remove(address, connectFuture));
+        return connectFuture;
+    }
 
-            return responseBytes;
-        } finally {
-            group.shutdownGracefully();
+    /**
+     * 关闭客户端，释放所有连接
+     */
+    public void close() {
+        eventLoopGroup.shutdownGracefully();
+        discovery.close();
+        if (registryClient != null) {
+            registryClient.close();
         }
     }
 
@@ -170,48 +479,54 @@ public class RpcClient {
 
         @Override
         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-            return RpcClient.this.invoke(
-                    interfaceName,
-                    method.getName(),
-                    method.getParameterTypes(),
-                    args
-            );
+            return RpcClient.this.invoke(interfaceName, method, args);
         }
     }
 
     /**
      * Netty 客户端处理器
+     * 按 requestId 把响应交给对应的等待方，连接断开时让所有未完成的请求失败
      */
+    @ChannelHandler.Sharable
     private static class RpcClientHandler extends ChannelInboundHandlerAdapter {
 
-        private byte[] response;
-        private CountDownLatch latch;
-
-        public void setLatch(CountDownLatch latch) {
-            this.latch = latch;
-        }
-
-        public byte[] getResponse() {
-            return response;
-        }
-
         @Override
         public void channelRead(ChannelHandlerContext ctx, Object msg) {
-            ByteBuf buf = (ByteBuf) msg;
-            try {
-                response = new byte[buf.readableBytes()];
-                buf.readBytes(response);
-            } finally {
-                buf.release();
+            RpcResponse response = (RpcResponse) msg;
+            CompletableFuture<RpcResponse> future = ctx.channel().attr(PENDING_REQUESTS).get().remove(response.getRequestId());
+            if (future != null) {
+                future.complete(response);
+            } else {
+                System.err.println("[客户端] 收到未知请求的响应: " + response.getRequestId());
             }
-            latch.countDown();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            Map<String, CompletableFuture<RpcResponse>> pendingRequests = ctx.channel().attr(PENDING_REQUESTS).get();
+            IllegalStateException cause = new IllegalStateException("连接已断开: " + ctx.channel().remoteAddress());
+            pendingRequests.values().forEach(future -> future.completeExceptionally(cause));
+            pendingRequests.clear();
+            ctx.fireChannelInactive();
         }
 
         @Override
         public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
-            cause.printStackTrace();
+            System.err.println("[客户端] 连接异常，关闭连接: " + cause.getMessage());
             ctx.close();
-            latch.countDown();
+        }
+    }
+
+    /**
+     * 某个实例列表中支持本客户端序列化方式的实例
+     */
+    private static final class Candidates {
+        private final List<ServiceInstance> source;
+        private final List<ServiceInstance> supported;
+
+        Candidates(List<ServiceInstance> source, List<ServiceInstance> supported) {
+            this.source = source;
+            this.supported = supported;
         }
     }
 }
@@ -0,0 +1,28 @@
+package com.alan.rpc.v4.consumer;
+
+import com.alan.rpc.v4.registry.ServiceInstance;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 服务发现：RPC 调用前获取服务实例列表
+ * 实现有两种：经由注册中心的 {@link DiscoveryCache}，以及不经过中心节点的 {@link GossipDiscovery}
+ */
+interface ServiceDiscovery {
+
+    /**
+     * 获取服务实例列表
+     */
+    List<ServiceInstance> getInstances(String serviceName);
+
+    /**
+     * 预热：提前获取多个服务的实例列表
+     */
+    void preload(Collection<String> serviceNames);
+
+    /**
+     * 关闭，释放服务发现占用的资源
+     */
+    void close();
+}
@@ -0,0 +1,55 @@
+package com.alan.rpc.v4.consumer.loadbalance;
+
+import com.alan.rpc.v4.registry.ServiceInstance;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * 负载均衡策略接口
+ * 每次调用从候选实例中选出一个；实现需要线程安全，调用方会在多个线程上并发调用
+ */
+public interface LoadBalancer {
+
+    /**
+     * 选择一个服务实例
+     *
+     * @param serviceName 服务名称
+     * @param candidates  候选实例，非空且不可修改；实例列表变化前每次传入同一个列表对象，有状态的实现可以按对象身份缓存计算结果
+     * @return 选中的实例
+     */
+    ServiceInstance select(String serviceName, List<ServiceInstance> candidates);
+
+    /**
+     * 按本次调用选择服务实例，默认忽略调用信息；需要按参数路由的实现（如一致性哈希）覆盖此方法
+     *
+     * @param serviceName 服务名称
+     * @param candidates  候选实例，要求同 {@link #select(String, List)}
+     * @param method      调用的接口方法
+     * @param args        调用参数，无参方法为 null
+     * @return 选中的实例
+     */
+    default ServiceInstance select(String serviceName, List<ServiceInstance> candidates, Method method, Object[] args) {
+        return select(serviceName, candidates);
+    }
+
+    /**
+     * 请求发往选中的实例之前调用，默认不处理
+     *
+     * @param serviceName 服务名称
+     * @param instance    选中的实例
+     */
+    default void onRequestStart(String serviceName, ServiceInstance instance) {
+    }
+
+    /**
+     * 收到响应或请求失败之后调用，默认不处理；与 {@link #onRequestStart} 成对出现
+     *
+     * @param serviceName  服务名称
+     * @param instance     选中的实例
+     * @param latencyNanos 从发出请求到收到响应（或失败）的时间
+     * @param success      是否收到响应（服务端返回的业务异常也算收到响应），连接失败、超时为 false
+     */
+    default void onRequestEnd(String serviceName, ServiceInstance instance, long latencyNanos, boolean success) {
+    }
+}
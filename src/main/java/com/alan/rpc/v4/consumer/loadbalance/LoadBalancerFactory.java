@@ -0,0 +1,50 @@
+package com.alan.rpc.v4.consumer.loadbalance;
+
+import com.alan.rpc.v4.consumer.loadbalance.impl.ConsistentHashLoadBalancer;
+import com.alan.rpc.v4.consumer.loadbalance.impl.LatencyAwareLoadBalancer;
+import com.alan.rpc.v4.consumer.loadbalance.impl.RandomLoadBalancer;
+import com.alan.rpc.v4.consumer.loadbalance.impl.RoundRobinLoadBalancer;
+import com.alan.rpc.v4.consumer.loadbalance.impl.SmoothWeightedRoundRobinLoadBalancer;
+import com.alan.rpc.v4.consumer.loadbalance.impl.WeightedRandomLoadBalancer;
+
+/**
+ * 负载均衡器工厂
+ * 轮询类策略带有计数状态、延迟感知策略带有各实例的统计、一致性哈希策略缓存哈希环，每次创建新实例，由调用方按服务分别持有
+ */
+public class LoadBalancerFactory {
+
+    /**
+     * 根据枚举类型创建负载均衡器
+     *
+     * @param type 负载均衡策略枚举
+     * @return 新的负载均衡器实例
+     */
+    public static LoadBalancer create(LoadBalancerTypeEnum type) {
+        switch (type) {
+            case RANDOM:
+                return new RandomLoadBalancer();
+            case ROUND_ROBIN:
+                return new RoundRobinLoadBalancer();
+            case WEIGHTED_RANDOM:
+                return new WeightedRandomLoadBalancer();
+            case SMOOTH_WEIGHTED_ROUND_ROBIN:
+                return new SmoothWeightedRoundRobinLoadBalancer();
+            case LATENCY_AWARE:
+                return new LatencyAwareLoadBalancer();
+            case CONSISTENT_HASH:
+                return new ConsistentHashLoadBalancer();
+            default:
+                throw new IllegalArgumentException("不支持的负载均衡策略: " + type);
+        }
+    }
+
+    /**
+     * 根据 code 创建负载均衡器
+     *
+     * @param code 策略代码（"random", "roundRobin", "weightedRandom", "smoothWeightedRoundRobin", "latencyAware", "consistentHash"）
+     * @return 新的负载均衡器实例
+     */
+    public static LoadBalancer create(String code) {
+        return create(LoadBalancerTypeEnum.fromCode(code));
+    }
+}
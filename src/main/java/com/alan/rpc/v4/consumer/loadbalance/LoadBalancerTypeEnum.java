@@ -0,0 +1,64 @@
+package com.alan.rpc.v4.consumer.loadbalance;
+
+/**
+ * 负载均衡策略枚举
+ */
+public enum LoadBalancerTypeEnum {
+    /**
+     * 随机
+     */
+    RANDOM("random", "随机"),
+
+    /**
+     * 轮询
+     */
+    ROUND_ROBIN("roundRobin", "轮询"),
+
+    /**
+     * 按权重随机（默认）
+     */
+    WEIGHTED_RANDOM("weightedRandom", "按权重随机"),
+
+    /**
+     * 平滑加权轮询，同 Nginx 的 smooth weighted round-robin
+     */
+    SMOOTH_WEIGHTED_ROUND_ROBIN("smoothWeightedRoundRobin", "平滑加权轮询"),
+
+    /**
+     * 随机取两个实例，选在途请求数和响应延迟综合代价较低的一个
+     */
+    LATENCY_AWARE("latencyAware", "延迟感知"),
+
+    /**
+     * 按调用参数一致性哈希，相同参数总是落到同一个实例
+     */
+    CONSISTENT_HASH("consistentHash", "一致性哈希");
+
+    private final String code;
+    private final String description;
+
+    LoadBalancerTypeEnum(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 根据 code 获取枚举
+     */
+    public static LoadBalancerTypeEnum fromCode(String code) {
+        for (LoadBalancerTypeEnum type : values()) {
+            if (type.code.equalsIgnoreCase(code)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("未知的负载均衡策略: " + code);
+    }
+}
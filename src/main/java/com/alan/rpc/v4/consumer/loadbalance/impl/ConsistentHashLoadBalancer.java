@@ -0,0 +1,158 @@
+package com.alan.rpc.v4.consumer.loadbalance.impl;
+
+import com.alan.rpc.v4.common.annotation.ConsistentHashKey;
+import com.alan.rpc.v4.common.util.HashUtils;
+import com.alan.rpc.v4.consumer.loadbalance.LoadBalancer;
+import com.alan.rpc.v4.registry.ServiceInstance;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 一致性哈希负载均衡：按调用的某个参数路由，参数值相同的调用总是落到同一个实例，使实例上的缓存保持命中
+ * 路由参数由方法上的 {@link ConsistentHashKey} 指定，未标注时使用构造时给定的参数下标（默认第一个参数）；
+ * 参数值取 toString 后哈希，null 按 "null" 处理。无参方法没有路由键，随机选择。
+ *
+ * 每个实例按地址在环上放 {@link #VIRTUAL_NODES} 个虚拟节点，虚拟节点的位置只取决于实例自身的地址，
+ * 实例加入或离开时只有约 1/实例数 的键改变归属，其余键仍落在原来的实例上。
+ * 哈希环按候选列表对象缓存，实例列表变化时重建；选择时只做一次哈希和一次二分查找，不加锁。忽略实例权重
+ */
+public class ConsistentHashLoadBalancer implements LoadBalancer {
+
+    /**
+     * 每个实例在环上的虚拟节点数
+     */
+    public static final int VIRTUAL_NODES = 160;
+
+    /**
+     * 虚拟节点哈希值的低位用来存实例下标，实例数不能超过该值
+     */
+    private static final int MAX_INSTANCES = 1 << 20;
+
+    private final int defaultArgumentIndex;
+
+    /**
+     * 方法 -> 路由参数下标
+     */
+    private final Map<Method, Integer> argumentIndexes = new ConcurrentHashMap<>();
+
+    private volatile Ring ring;
+
+    /**
+     * 构造函数 - 未标注 {@link ConsistentHashKey} 的方法按第一个参数路由
+     */
+    public ConsistentHashLoadBalancer() {
+        this(0);
+    }
+
+    /**
+     * 构造函数 - 指定未标注 {@link ConsistentHashKey} 的方法使用的参数下标
+     *
+     * @param defaultArgumentIndex 参数下标，从 0 开始
+     */
+    public ConsistentHashLoadBalancer(int defaultArgumentIndex) {
+        if (defaultArgumentIndex < 0) {
+            throw new IllegalArgumentException("参数下标不能为负数: " + defaultArgumentIndex);
+        }
+        this.defaultArgumentIndex = defaultArgumentIndex;
+    }
+
+    /**
+     * 没有调用信息时无法路由，随机选择
+     */
+    @Override
+    public ServiceInstance select(String serviceName, List<ServiceInstance> candidates) {
+        return candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+    }
+
+    @Override
+    public ServiceInstance select(String serviceName, List<ServiceInstance> candidates, Method method, Object[] args) {
+        if (args == null || args.length == 0) {
+            return select(serviceName, candidates);
+        }
+        Integer index = argumentIndexes.get(method);
+        if (index == null) {
+            index = argumentIndexes.computeIfAbsent(method, this::argumentIndex);
+        }
+        return select(candidates, String.valueOf(args[index]));
+    }
+
+    /**
+     * 路由键对应的实例：环上顺时针方向第一个虚拟节点所属的实例
+     *
+     * @param candidates 候选实例
+     * @param key        路由键
+     * @return 选中的实例
+     */
+    public ServiceInstance select(List<ServiceInstance> candidates, String key) {
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        Ring current = ring;
+        if (current == null || current.instances != candidates) {
+            current = rebuild(candidates);
+        }
+        return candidates.get(current.owner(HashUtils.hash64(key)));
+    }
+
+    /**
+     * 方法的路由参数下标：优先取方法上的注解，否则为默认下标
+     */
+    private int argumentIndex(Method method) {
+        ConsistentHashKey annotation = method.getAnnotation(ConsistentHashKey.class);
+        int index = annotation != null ? annotation.value() : defaultArgumentIndex;
+        if (index < 0 || index >= method.getParameterCount()) {
+            throw new IllegalArgumentException("一致性哈希参数下标越界: " + method.getName() + " 只有 "
+                    + method.getParameterCount() + " 个参数，下标为 " + index);
+        }
+        return index;
+    }
+
+    private synchronized Ring rebuild(List<ServiceInstance> candidates) {
+        Ring current = ring;
+        if (current == null || current.instances != candidates) {
+            current = new Ring(candidates);
+            ring = current;
+        }
+        return current;
+    }
+
+    /**
+     * 某个候选列表的哈希环
+     */
+    private static final class Ring {
+        private final List<ServiceInstance> instances;
+
+        /**
+         * 虚拟节点按哈希值排序，高 44 位为哈希值，低 20 位为所属实例在候选列表中的下标
+         */
+        private final long[] points;
+
+        Ring(List<ServiceInstance> instances) {
+            if (instances.size() > MAX_INSTANCES) {
+                throw new IllegalArgumentException("实例数超过一致性哈希上限: " + instances.size());
+            }
+            this.instances = instances;
+            this.points = new long[instances.size() * VIRTUAL_NODES];
+            for (int i = 0; i < instances.size(); i++) {
+                String address = instances.get(i).getAddress();
+                for (int v = 0; v < VIRTUAL_NODES; v++) {
+                    points[i * VIRTUAL_NODES + v] = (HashUtils.hash64(address + "#" + v) & -MAX_INSTANCES) | i;
+                }
+            }
+            Arrays.sort(points);
+        }
+
+        int owner(long hash) {
+            int index = Arrays.binarySearch(points, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return (int) (points[index == points.length ? 0 : index] & (MAX_INSTANCES - 1));
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.alan.rpc.v4.consumer.loadbalance.impl;
+
+import com.alan.rpc.v4.consumer.loadbalance.LoadBalancer;
+import com.alan.rpc.v4.registry.ServiceInstance;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 延迟感知负载均衡（两次随机选择 + 峰值 EWMA）
+ * 记录每个实例的在途请求数和响应延迟的指数加权移动平均，代价 = 延迟估计 × (在途请求数 + 1)；
+ * 每次随机取两个不同的实例，选代价较低的一个。慢实例或 GC 停顿中的实例在途请求堆积、延迟估计升高，
+ * 流量随之转向其他实例，而只比较两个实例避免了所有客户端同时涌向同一个"最快"实例。
+ *
+ * 延迟估计：
+ * <ul>
+ *   <li>新样本高于当前估计时直接取新样本（峰值敏感），对突然变慢立即反应；低于时按时间衰减平滑下降</li>
+ *   <li>读取代价时按距上次更新的时间向 0 衰减，长时间没有被选中的慢实例会重新获得少量流量，恢复后得以被重新测量</li>
+ *   <li>请求失败（连接失败、超时）按不低于 {@link #FAILURE_PENALTY_NANOS} 的延迟计入，避免快速失败的实例吸走流量</li>
+ *   <li>还没有样本的实例估计为 0，空闲时先获得流量完成测量；已有在途请求时代价为 {@link #UNMEASURED_PENALTY} + 在途请求数，
+ *       新加入或卡住（一直没有响应）的实例不会因为代价为 0 而吸走所有流量</li>
+ * </ul>
+ * 忽略实例权重
+ */
+public class LatencyAwareLoadBalancer implements LoadBalancer {
+
+    /**
+     * EWMA 衰减时间常数：距上次更新经过该时间后，旧估计的权重降为 1/e
+     */
+    static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * 请求失败时计入的最低延迟
+     */
+    static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * 没有样本且有在途请求的实例的代价，远大于任何实际的延迟估计（同 Finagle / Linkerd 的峰值 EWMA）
+     */
+    static final double UNMEASURED_PENALTY = Long.MAX_VALUE >> 16;
+
+    /**
+     * 实例地址 -> 统计
+     */
+    private final Map<String, InstanceStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 当前候选列表各实例的统计，列表变化时重建并清理已下线实例的统计
+     */
+    private volatile Slots slots;
+
+    @Override
+    public ServiceInstance select(String serviceName, List<ServiceInstance> candidates) {
+        int size = candidates.size();
+        if (size == 1) {
+            return candidates.get(0);
+        }
+        Slots current = slots;
+        if (current == null || current.instances != candidates) {
+            current = rebuild(candidates);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        // 第二个实例与第一个不同
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        long now = System.nanoTime();
+        return current.stats[first].cost(now) <= current.stats[second].cost(now)
+                ? candidates.get(first) : candidates.get(second);
+    }
+
+    @Override
+    public void onRequestStart(String serviceName, ServiceInstance instance) {
+        stats.computeIfAbsent(instance.getAddress(), address -> new InstanceStats()).inflight.incrementAndGet();
+    }
+
+    @Override
+    public void onRequestEnd(String serviceName, ServiceInstance instance, long latencyNanos, boolean success) {
+        InstanceStats instanceStats = stats.get(instance.getAddress());
+        if (instanceStats == null) {
+            // 请求期间实例已下线，统计已清理
+            return;
+        }
+        instanceStats.inflight.decrementAndGet();
+        instanceStats.observe(success ? latencyNanos : Math.max(latencyNanos, FAILURE_PENALTY_NANOS), System.nanoTime());
+    }
+
+    /**
+     * 实例当前的延迟估计（纳秒），没有样本时为 0
+     */
+    public long getLatencyEstimateNanos(ServiceInstance instance) {
+        InstanceStats instanceStats = stats.get(instance.getAddress());
+        return instanceStats == null ? 0 : (long) instanceStats.estimate(System.nanoTime());
+    }
+
+    /**
+     * 实例当前的在途请求数
+     */
+    public int getInflight(ServiceInstance instance) {
+        InstanceStats instanceStats = stats.get(instance.getAddress());
+        return instanceStats == null ? 0 : instanceStats.inflight.get();
+    }
+
+    /**
+     * 按新的候选列表重建统计数组，只保留候选列表中实例的统计
+     */
+    private synchronized Slots rebuild(List<ServiceInstance> candidates) {
+        Slots current = slots;
+        if (current != null && current.instances == candidates) {
+            return current;
+        }
+        InstanceStats[] array = new InstanceStats[candidates.size()];
+        Set<String> addresses = new HashSet<>(candidates.size() * 2);
+        for (int i = 0; i < array.length; i++) {
+            String address = candidates.get(i).getAddress();
+            addresses.add(address);
+            array[i] = stats.computeIfAbsent(address, key -> new InstanceStats());
+        }
+        stats.keySet().retainAll(addresses);
+        current = new Slots(candidates, array);
+        slots = current;
+        return current;
+    }
+
+    /**
+     * 某个候选列表各实例的统计，与列表下标一一对应
+     */
+    private static final class Slots {
+        private final List<ServiceInstance> instances;
+        private final InstanceStats[] stats;
+
+        Slots(List<ServiceInstance> instances, InstanceStats[] stats) {
+            this.instances = instances;
+            this.stats = stats;
+        }
+    }
+
+    /**
+     * 单个实例的在途请求数和延迟估计
+     * 延迟估计和更新时间分两个字段读取，读到的偶尔不是同一次更新的结果，只影响单次选择，不影响正确性
+     */
+    private static final class InstanceStats {
+        private final AtomicInteger inflight = new AtomicInteger();
+        private volatile double ewmaNanos;
+        private volatile long updatedAt = System.nanoTime();
+
+        /**
+         * 按时间衰减后的延迟估计
+         */
+        double estimate(long now) {
+            long elapsed = Math.max(0, now - updatedAt);
+            return ewmaNanos * Math.exp(-(double) elapsed / DECAY_NANOS);
+        }
+
+        /**
+         * 选择代价：延迟估计 × (在途请求数 + 1)；没有样本时空闲为 0，有在途请求为 {@link #UNMEASURED_PENALTY} + 在途请求数
+         */
+        double cost(long now) {
+            // 实例下线又重新上线时，旧请求的结束可能记到新统计上，在途数短暂为负
+            int pending = Math.max(0, inflight.get());
+            if (ewmaNanos == 0) {
+                return pending == 0 ? 0 : UNMEASURED_PENALTY + pending;
+            }
+            return estimate(now) * (pending + 1);
+        }
+
+        synchronized void observe(long latencyNanos, long now) {
+            if (latencyNanos > ewmaNanos) {
+                ewmaNanos = latencyNanos;
+            } else {
+                long elapsed = Math.max(0, now - updatedAt);
+                double weight = Math.exp(-(double) elapsed / DECAY_NANOS);
+                ewmaNanos = ewmaNanos * weight + latencyNanos * (1 - weight);
+            }
+            updatedAt = now;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.alan.rpc.v4.consumer.loadbalance.impl;
+
+import com.alan.rpc.v4.consumer.loadbalance.LoadBalancer;
+import com.alan.rpc.v4.registry.ServiceInstance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 随机负载均衡：忽略权重，无共享状态
+ */
+public class RandomLoadBalancer implements LoadBalancer {
+
+    @Override
+    public ServiceInstance select(String serviceName, List<ServiceInstance> candidates) {
+        return candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+    }
+}
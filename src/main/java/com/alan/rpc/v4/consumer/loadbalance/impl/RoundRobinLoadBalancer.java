@@ -0,0 +1,21 @@
+package com.alan.rpc.v4.consumer.loadbalance.impl;
+
+import com.alan.rpc.v4.consumer.loadbalance.LoadBalancer;
+import com.alan.rpc.v4.registry.ServiceInstance;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 轮询负载均衡：忽略权重，依次选择各实例
+ * 只有一个原子计数器，不加锁；实例列表变化后从当前计数继续，不重新从头开始
+ */
+public class RoundRobinLoadBalancer implements LoadBalancer {
+
+    private final AtomicLong counter = new AtomicLong();
+
+    @Override
+    public ServiceInstance select(String serviceName, List<ServiceInstance> candidates) {
+        return candidates.get((int) Long.remainderUnsigned(counter.getAndIncrement(), candidates.size()));
+    }
+}
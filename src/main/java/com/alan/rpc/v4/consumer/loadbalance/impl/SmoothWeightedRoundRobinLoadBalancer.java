@@ -0,0 +1,109 @@
+package com.alan.rpc.v4.consumer.loadbalance.impl;
+
+import com.alan.rpc.v4.consumer.loadbalance.LoadBalancer;
+import com.alan.rpc.v4.registry.ServiceInstance;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 平滑加权轮询负载均衡（Nginx smooth weighted round-robin）
+ * 每轮按权重分配请求，且同一实例的请求均匀穿插在一轮之中，不会连续打到高权重实例。
+ *
+ * 算法本身每次选择都要修改全部实例的当前权重，直接实现需要加锁。
+ * 这里在候选列表变化时预先模拟一整轮（权重之和除以最大公约数），把选择顺序存为数组，
+ * 之后每次选择只是一次原子自增和一次数组读取。
+ * 一轮超过 {@link #MAX_SCHEDULE_LENGTH} 次时不预计算，退回加锁的逐次计算
+ */
+public class SmoothWeightedRoundRobinLoadBalancer implements LoadBalancer {
+
+    /**
+     * 预计算顺序的最大长度
+     */
+    static final int MAX_SCHEDULE_LENGTH = 1 << 16;
+
+    private final AtomicLong counter = new AtomicLong();
+    private volatile Schedule schedule;
+
+    @Override
+    public ServiceInstance select(String serviceName, List<ServiceInstance> candidates) {
+        Schedule current = schedule;
+        if (current == null || current.instances != candidates) {
+            current = new Schedule(candidates);
+            schedule = current;
+        }
+        if (current.order != null) {
+            int index = (int) Long.remainderUnsigned(counter.getAndIncrement(), current.order.length);
+            return candidates.get(current.order[index]);
+        }
+        synchronized (current) {
+            return candidates.get(current.next());
+        }
+    }
+
+    /**
+     * 某个候选列表的选择顺序
+     */
+    private static final class Schedule {
+        private final List<ServiceInstance> instances;
+        private final int[] weights;
+        private final long[] currentWeights;
+        private final long total;
+
+        /**
+         * 一整轮的选择顺序（实例下标），一轮过长时为 null
+         */
+        private final int[] order;
+
+        Schedule(List<ServiceInstance> instances) {
+            this.instances = instances;
+            this.weights = new int[instances.size()];
+            this.currentWeights = new long[weights.length];
+            int divisor = 0;
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = instances.get(i).getWeight();
+                divisor = gcd(divisor, weights[i]);
+            }
+            long sum = 0;
+            for (int i = 0; i < weights.length; i++) {
+                // 按最大公约数约分，顺序不变而一轮更短
+                weights[i] /= divisor;
+                sum += weights[i];
+            }
+            this.total = sum;
+
+            if (sum <= MAX_SCHEDULE_LENGTH) {
+                order = new int[(int) sum];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = next();
+                }
+            } else {
+                order = null;
+            }
+        }
+
+        /**
+         * 逐次计算：各实例当前权重加上自身权重，选当前权重最大的实例并减去总权重
+         */
+        int next() {
+            int best = 0;
+            for (int i = 0; i < weights.length; i++) {
+                currentWeights[i] += weights[i];
+                if (currentWeights[i] > currentWeights[best]) {
+                    best = i;
+                }
+            }
+            currentWeights[best] -= total;
+            return best;
+        }
+
+        private static int gcd(int a, int b) {
+            while (b != 0) {
+                int t = a % b;
+                a = b;
+                b = t;
+            }
+            return a;
+        }
+    }
+}
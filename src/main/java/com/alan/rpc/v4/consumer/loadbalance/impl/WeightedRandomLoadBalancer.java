@@ -0,0 +1,60 @@
+package com.alan.rpc.v4.consumer.loadbalance.impl;
+
+import com.alan.rpc.v4.consumer.loadbalance.LoadBalancer;
+import com.alan.rpc.v4.registry.ServiceInstance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按权重随机负载均衡：请求量与实例权重成正比
+ * 累计权重按候选列表对象缓存，列表不变时选择只需一次随机数和一次二分查找
+ */
+public class WeightedRandomLoadBalancer implements LoadBalancer {
+
+    private volatile Weights weights;
+
+    @Override
+    public ServiceInstance select(String serviceName, List<ServiceInstance> candidates) {
+        Weights current = weights;
+        if (current == null || current.instances != candidates) {
+            current = new Weights(candidates);
+            weights = current;
+        }
+
+        long point = ThreadLocalRandom.current().nextLong(current.total);
+        // 第一个累计权重大于 point 的实例
+        long[] cumulative = current.cumulative;
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] > point) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return candidates.get(low);
+    }
+
+    /**
+     * 某个候选列表的累计权重
+     */
+    private static final class Weights {
+        private final List<ServiceInstance> instances;
+        private final long[] cumulative;
+        private final long total;
+
+        Weights(List<ServiceInstance> instances) {
+            this.instances = instances;
+            this.cumulative = new long[instances.size()];
+            long sum = 0;
+            for (int i = 0; i < cumulative.length; i++) {
+                sum += instances.get(i).getWeight();
+                cumulative[i] = sum;
+            }
+            this.total = sum;
+        }
+    }
+}
@@ -2,6 +2,12 @@ package com.alan.rpc.v4.demo;
 
 import com.alan.rpc.v4.common.SerializationTypeEnum;
 import com.alan.rpc.v4.consumer.RpcClient;
+import com.alan.rpc.v4.consumer.loadbalance.LoadBalancerTypeEnum;
+import com.alan.rpc.v4.gossip.GossipNode;
+import com.alan.rpc.v4.registry.RegistryClient;
+
+import java.nio.file.Paths;
+import java.util.List;
 
 /**
  * RPC 客户端启动类 - v4 版本支持多序列化方式
@@ -9,22 +15,55 @@ import com.alan.rpc.v4.consumer.RpcClient;
  * 使用方式：
  * 1. 客户端和服务端必须使用相同的序列化类型
  * 2. 可指定序列化类型：SerializationTypeEnum.JSON / HESSIAN / KRYO / JAVA
+ * 3. 第一个参数可指定注册中心地址，集群时用逗号分隔，例如 127.0.0.1:9000,127.0.0.1:9001
+ * 4. 第一个参数为 gossip 时不使用注册中心，通过 Gossip 成员协议发现服务：
+ *    第二个参数为本节点的 Gossip 地址（默认 127.0.0.1:7947），第三个参数为种子节点地址（默认 127.0.0.1:7946）
+ * 5. 使用注册中心时可以通过 -Ddiscovery.snapshot=文件路径 启用服务发现快照，注册中心不可用时按快照中的实例调用
+ * 6. 可以通过 -Dloadbalancer=random / roundRobin / weightedRandom / smoothWeightedRoundRobin / latencyAware / consistentHash 指定负载均衡策略
  */
 public class ClientMain {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         // 选择序列化类型：必须与服务端一致
         SerializationTypeEnum serializationType = SerializationTypeEnum.JSON;
 
+        String registryAddresses = args.length > 0 ? args[0] : "127.0.0.1:9000";
+
         // 创建客户端（指定序列化类型）
-        RpcClient rpcClient = new RpcClient("127.0.0.1", 9000, serializationType);
+        RpcClient rpcClient;
+        GossipNode gossipNode = null;
+        if ("gossip".equals(registryAddresses)) {
+            String gossipAddress = args.length > 1 ? args[1] : "127.0.0.1:7947";
+            String seeds = args.length > 2 ? args[2] : "127.0.0.1:7946";
+            int index = gossipAddress.lastIndexOf(':');
+            gossipNode = new GossipNode(gossipAddress.substring(0, index),
+                    Integer.parseInt(gossipAddress.substring(index + 1)), RegistryClient.parseAddresses(seeds));
+            gossipNode.start();
+            // 等待服务列表扩散到本节点
+            for (int i = 0; i < 50 && gossipNode.getInstances(UserService.class.getName()).isEmpty(); i++) {
+                Thread.sleep(100);
+            }
+            rpcClient = new RpcClient(gossipNode, serializationType);
+            registryAddresses = "Gossip " + gossipAddress + "，种子节点 " + seeds;
+        } else {
+            rpcClient = new RpcClient(RegistryClient.parseAddresses(registryAddresses), serializationType);
+            String snapshotFile = System.getProperty("discovery.snapshot");
+            if (snapshotFile != null) {
+                rpcClient.setDiscoverySnapshot(Paths.get(snapshotFile));
+            }
+        }
+        String loadBalancer = System.getProperty("loadbalancer");
+        if (loadBalancer != null) {
+            rpcClient.setDefaultLoadBalancer(LoadBalancerTypeEnum.fromCode(loadBalancer));
+        }
 
-        // 获取服务代理
+        // 获取服务代理，并预先订阅（接口较多时一次请求批量订阅）
         UserService userService = rpcClient.getProxy(UserService.class);
+        rpcClient.preload(UserService.class);
 
         System.out.println("========================================");
         System.out.println("v4 RPC 客户端启动");
         System.out.println("序列化方式: " + serializationType.getDescription());
-        System.out.println("注册中心: 127.0.0.1:9000");
+        System.out.println("注册中心: " + registryAddresses);
         System.out.println("========================================");
 
         try {
@@ -41,11 +80,28 @@ public class ClientMain {
             String userInfo = userService.getUserInfo(1001);
             System.out.println("调用结果: " + userInfo);
 
+            System.out.println("\n--- 测试 4: listUserInfos（大结果，触发压缩）---");
+            List<String> userInfos = userService.listUserInfos(200);
+            System.out.println("调用结果: " + userInfos.size() + " 条用户信息");
+            System.out.println("压缩统计: " + rpcClient.getCompressionMetrics());
+
+            System.out.println("\n--- 测试 5: getUserName（服务端抛出业务异常）---");
+            try {
+                userService.getUserName(-1);
+            } catch (IllegalArgumentException e) {
+                System.out.println("捕获远程异常: " + e);
+            }
+
             System.out.println("\n========================================");
             System.out.println("所有调用成功完成！");
         } catch (Exception e) {
             System.err.println("调用失败: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            rpcClient.close();
+            if (gossipNode != null) {
+                gossipNode.close();
+            }
         }
     }
 }
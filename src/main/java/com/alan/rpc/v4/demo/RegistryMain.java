@@ -1,20 +1,55 @@
 package com.alan.rpc.v4.demo;
 
+import com.alan.rpc.v4.registry.RegistryClient;
 import com.alan.rpc.v4.registry.RegistryServer;
+import com.alan.rpc.v4.registry.ServiceRegistry;
+import com.alan.rpc.v4.registry.ShardRing;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * 注册中心启动类
- * v4 版本：与 v3 保持一致
+ * v4 版本：注册表持久化到 registry-data/&lt;端口&gt; 目录，重启后自动恢复
+ *
+ * 参数：[端口] [其他节点地址，逗号分隔]。本地启动三节点集群（每个节点一个进程）：
+ * <pre>
+ * RegistryMain 9000 127.0.0.1:9001,127.0.0.1:9002
+ * RegistryMain 9001 127.0.0.1:9000,127.0.0.1:9002
+ * RegistryMain 9002 127.0.0.1:9000,127.0.0.1:9001
+ * </pre>
+ *
+ * 分片部署：[端口] [分片拓扑] [本节点地址，默认 127.0.0.1:端口]，分片拓扑的格式见 ShardRing。两个分片、每个分片两个节点：
+ * <pre>
+ * RegistryMain 9000 "a=127.0.0.1:9000,127.0.0.1:9001;b=127.0.0.1:9002,127.0.0.1:9003"
+ * RegistryMain 9001 "a=127.0.0.1:9000,127.0.0.1:9001;b=127.0.0.1:9002,127.0.0.1:9003"
+ * ...
+ * </pre>
+ * 之后以包含新分片的拓扑启动新节点即加入集群，已有服务中约 1/分片数 迁移到新分片
  */
 public class RegistryMain {
     public static void main(String[] args) throws InterruptedException, IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9000;
+        Path dataDir = Paths.get("registry-data", String.valueOf(port));
+
         // 启动注册中心
-        RegistryServer registryServer = new RegistryServer(9000);
+        RegistryServer registryServer;
+        if (args.length > 1 && (args[1].contains(";") || args[1].contains("="))) {
+            String selfAddress = args.length > 2 ? args[2] : "127.0.0.1:" + port;
+            registryServer = new RegistryServer(port, RegistryServer.DEFAULT_WORKER_THREADS,
+                    ServiceRegistry.DEFAULT_LEASE_TTL_MILLIS, dataDir, ShardRing.parse(1, args[1]), selfAddress);
+        } else {
+            List<String> peers = args.length > 1 ? RegistryClient.parseAddresses(args[1]) : Collections.emptyList();
+            registryServer = new RegistryServer(port, RegistryServer.DEFAULT_WORKER_THREADS,
+                    ServiceRegistry.DEFAULT_LEASE_TTL_MILLIS, dataDir, peers);
+        }
         registryServer.start();
 
         System.out.println("[注册中心] 按任意键退出...");
         System.in.read();
+        registryServer.close();
     }
 }
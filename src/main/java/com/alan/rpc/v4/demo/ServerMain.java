@@ -1,7 +1,9 @@
 package com.alan.rpc.v4.demo;
 
 import com.alan.rpc.v4.common.SerializationTypeEnum;
+import com.alan.rpc.v4.gossip.GossipNode;
 import com.alan.rpc.v4.provider.RpcServer;
+import com.alan.rpc.v4.registry.RegistryClient;
 
 /**
  * RPC 服务端启动类 - v4 版本支持多序列化方式
@@ -9,14 +11,31 @@ import com.alan.rpc.v4.provider.RpcServer;
  * 使用方式：
  * 1. 默认使用 Java 序列化
  * 2. 可指定序列化类型：SerializationTypeEnum.JSON / HESSIAN / KRYO
+ * 3. 第一个参数可指定注册中心地址，集群时用逗号分隔，例如 127.0.0.1:9000,127.0.0.1:9001
+ * 4. 第一个参数为 gossip 时不使用注册中心，通过 Gossip 成员协议发布服务：
+ *    第二个参数为本节点的 Gossip 地址（默认 127.0.0.1:7946），第三个参数为种子节点地址（默认为本节点）
  */
 public class ServerMain {
     public static void main(String[] args) throws InterruptedException {
         // 选择序列化类型：可修改为 JSON、HESSIAN、KRYO 进行测试
         SerializationTypeEnum serializationType = SerializationTypeEnum.JSON;
 
+        String registryAddresses = args.length > 0 ? args[0] : "127.0.0.1:9000";
+
         // 创建服务端（指定序列化类型）
-        RpcServer rpcServer = new RpcServer(8080, "127.0.0.1", 9000, serializationType);
+        RpcServer rpcServer;
+        if ("gossip".equals(registryAddresses)) {
+            String gossipAddress = args.length > 1 ? args[1] : "127.0.0.1:7946";
+            String seeds = args.length > 2 ? args[2] : gossipAddress;
+            int index = gossipAddress.lastIndexOf(':');
+            GossipNode gossipNode = new GossipNode(gossipAddress.substring(0, index),
+                    Integer.parseInt(gossipAddress.substring(index + 1)), RegistryClient.parseAddresses(seeds));
+            gossipNode.start();
+            rpcServer = new RpcServer(8080, gossipNode, serializationType);
+            registryAddresses = "Gossip " + gossipAddress + "，种子节点 " + seeds;
+        } else {
+            rpcServer = new RpcServer(8080, RegistryClient.parseAddresses(registryAddresses), serializationType);
+        }
 
         // 注册服务实现
         rpcServer.registerService(UserService.class, new UserServiceImpl());
@@ -25,7 +44,7 @@ public class ServerMain {
         System.out.println("v4 RPC 服务端启动");
         System.out.println("序列化方式: " + serializationType.getDescription());
         System.out.println("服务端口: 8080");
-        System.out.println("注册中心: 127.0.0.1:9000");
+        System.out.println("注册中心: " + registryAddresses);
         System.out.println("========================================");
 
         // 启动服务
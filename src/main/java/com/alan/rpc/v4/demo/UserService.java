@@ -1,13 +1,20 @@
 package com.alan.rpc.v4.demo;
 
+import com.alan.rpc.v4.common.annotation.ConsistentHashKey;
+import com.alan.rpc.v4.common.annotation.RpcService;
+
+import java.util.List;
+
 /**
  * 用户服务接口
  */
+@RpcService
 public interface UserService {
 
     /**
      * 根据用户ID获取用户名
      */
+    @ConsistentHashKey(0)
     String getUserName(Integer userId);
 
     /**
@@ -18,5 +25,11 @@ public interface UserService {
     /**
      * 获取用户详细信息
      */
+    @ConsistentHashKey(0)
     String getUserInfo(Integer userId);
+
+    /**
+     * 批量获取用户信息（返回结果较大，用于演示压缩）
+     */
+    List<String> listUserInfos(Integer count);
 }
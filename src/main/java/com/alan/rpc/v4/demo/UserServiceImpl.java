@@ -1,5 +1,8 @@
 package com.alan.rpc.v4.demo;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * 用户服务实现类
  */
@@ -8,6 +11,9 @@ public class UserServiceImpl implements UserService {
     @Override
     public String getUserName(Integer userId) {
         System.out.println("[服务端] 执行 getUserName，参数: userId=" + userId);
+        if (userId == null || userId <= 0) {
+            throw new IllegalArgumentException("非法的用户ID: " + userId);
+        }
         return "用户-" + userId;
     }
 
@@ -22,4 +28,14 @@ public class UserServiceImpl implements UserService {
         System.out.println("[服务端] 执行 getUserInfo，参数: userId=" + userId);
         return "ID:" + userId + ",姓名:用户-" + userId + ",年龄:25";
     }
+
+    @Override
+    public List<String> listUserInfos(Integer count) {
+        System.out.println("[服务端] 执行 listUserInfos，参数: count=" + count);
+        List<String> userInfos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            userInfos.add(getUserInfo(1000 + i));
+        }
+        return userInfos;
+    }
 }
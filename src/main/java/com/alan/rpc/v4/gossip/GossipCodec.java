@@ -0,0 +1,172 @@
+package com.alan.rpc.v4.gossip;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gossip 消息二进制编解码，一条消息对应一个 UDP 数据报
+ * <pre>
+ * 消息：版本 (1字节) | 类型 (1字节) | seq | source | target | 更新数 (2字节) | 更新...
+ * 更新：address | incarnation | 状态 (1字节) | host | port | 服务数 + 服务名称 | 元数据条目数 + (键 | 值)
+ * </pre>
+ * 整数使用 varint，字符串为长度 + UTF-8 字节，target 为空字符串表示 null
+ */
+public final class GossipCodec {
+
+    /**
+     * 协议版本，不兼容的变更需要递增
+     */
+    static final int VERSION = 1;
+
+    private GossipCodec() {
+    }
+
+    /**
+     * 编码消息，捎带的更新按顺序写入，直到消息长度超过 maxBytes 为止（至少写入一条）
+     *
+     * @param maxBytes 消息长度上限，0 表示写入全部更新
+     * @return 实际写入的更新数
+     */
+    public static int encode(GossipMessage message, ByteBuf out, int maxBytes) {
+        int start = out.writerIndex();
+        out.writeByte(VERSION);
+        out.writeByte(message.getType().getCode());
+        writeVarLong(out, message.getSeq());
+        writeUtf8(out, message.getSource());
+        writeUtf8(out, message.getTarget() == null ? "" : message.getTarget());
+        int countIndex = out.writerIndex();
+        out.writeShort(0);
+
+        int count = 0;
+        for (GossipMember update : message.getUpdates()) {
+            if (count == 0xFFFF) {
+                break;
+            }
+            int mark = out.writerIndex();
+            writeMember(out, update);
+            if (maxBytes > 0 && count > 0 && out.writerIndex() - start > maxBytes) {
+                out.writerIndex(mark);
+                break;
+            }
+            count++;
+        }
+        out.setShort(countIndex, count);
+        return count;
+    }
+
+    /**
+     * 解码消息
+     *
+     * @throws GossipException 版本不兼容或消息不完整
+     */
+    public static GossipMessage decode(ByteBuf in) {
+        try {
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new GossipException("不兼容的 Gossip 协议版本: " + version);
+            }
+            GossipMessage message = new GossipMessage();
+            message.setType(GossipMessageTypeEnum.fromCode(in.readByte()));
+            message.setSeq(readVarLong(in));
+            message.setSource(readUtf8(in));
+            String target = readUtf8(in);
+            message.setTarget(target.isEmpty() ? null : target);
+            int count = in.readUnsignedShort();
+            List<GossipMember> updates = new ArrayList<>(Math.min(count, in.readableBytes()));
+            for (int i = 0; i < count; i++) {
+                updates.add(readMember(in));
+            }
+            message.setUpdates(updates);
+            return message;
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new GossipException("无法解析的 Gossip 消息: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeMember(ByteBuf out, GossipMember member) {
+        writeUtf8(out, member.getAddress());
+        writeVarLong(out, member.getIncarnation());
+        out.writeByte(member.getState().getCode());
+        writeUtf8(out, member.getHost() == null ? "" : member.getHost());
+        writeVarLong(out, member.getPort());
+        writeVarLong(out, member.getServiceNames().size());
+        for (String serviceName : member.getServiceNames()) {
+            writeUtf8(out, serviceName);
+        }
+        writeVarLong(out, member.getMetadata().size());
+        for (Map.Entry<String, String> entry : member.getMetadata().entrySet()) {
+            writeUtf8(out, entry.getKey());
+            writeUtf8(out, entry.getValue());
+        }
+    }
+
+    private static GossipMember readMember(ByteBuf in) {
+        GossipMember member = new GossipMember();
+        member.setAddress(readUtf8(in));
+        member.setIncarnation(readVarLong(in));
+        member.setState(MemberStateEnum.fromCode(in.readByte()));
+        member.setHost(readUtf8(in));
+        member.setPort((int) readVarLong(in));
+        int serviceCount = readCount(in);
+        List<String> serviceNames = new ArrayList<>(serviceCount);
+        for (int i = 0; i < serviceCount; i++) {
+            serviceNames.add(readUtf8(in));
+        }
+        member.setServiceNames(Collections.unmodifiableList(serviceNames));
+        int metadataCount = readCount(in);
+        Map<String, String> metadata = new LinkedHashMap<>();
+        for (int i = 0; i < metadataCount; i++) {
+            metadata.put(readUtf8(in), readUtf8(in));
+        }
+        member.setMetadata(Collections.unmodifiableMap(metadata));
+        return member;
+    }
+
+    private static void writeUtf8(ByteBuf out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static String readUtf8(ByteBuf in) {
+        int length = readCount(in);
+        return in.readCharSequence(length, StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * 读取元素个数或长度，不能超过剩余字节数
+     */
+    private static int readCount(ByteBuf in) {
+        long count = readVarLong(in);
+        if (count < 0 || count > in.readableBytes()) {
+            throw new GossipException("非法的长度: " + count);
+        }
+        return (int) count;
+    }
+
+    private static void writeVarLong(ByteBuf out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(ByteBuf in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new GossipException("非法的 varint 编码");
+    }
+}
@@ -0,0 +1,16 @@
+package com.alan.rpc.v4.gossip;
+
+/**
+ * Gossip 成员协议异常
+ * 统一封装节点启动失败、收到无法解析的消息等异常
+ */
+public class GossipException extends RuntimeException {
+
+    public GossipException(String message) {
+        super(message);
+    }
+
+    public GossipException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
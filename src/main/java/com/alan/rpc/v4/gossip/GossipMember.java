@@ -0,0 +1,78 @@
+package com.alan.rpc.v4.gossip;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gossip 成员：一个 GossipNode 及其对外提供的服务
+ * 既是节点本地成员表中的一项，也是消息中捎带传播的一条成员更新
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GossipMember {
+
+    /**
+     * Gossip 地址（host:port，UDP），成员的唯一标识
+     */
+    private String address;
+
+    /**
+     * 成员自己维护的版本号，只有成员本身可以递增：反驳疑似故障、变更服务列表时加一
+     */
+    private long incarnation;
+
+    /**
+     * 成员状态
+     */
+    private MemberStateEnum state;
+
+    /**
+     * RPC 服务主机地址，成员没有提供服务时为空字符串
+     */
+    private String host;
+
+    /**
+     * RPC 服务端口，成员没有提供服务时为 0
+     */
+    private int port;
+
+    /**
+     * 提供的服务名称（接口全限定名）
+     */
+    private List<String> serviceNames = Collections.emptyList();
+
+    /**
+     * RPC 实例元数据，见 ServiceInstance 的 METADATA_* 常量
+     */
+    private Map<String, String> metadata = Collections.emptyMap();
+
+    /**
+     * 本节点观察到状态变化的时间（不传输），用于疑似故障超时和清理已下线成员
+     */
+    private long stateChangedAt;
+
+    /**
+     * 复制一份，本地成员表中的对象只在 Gossip 线程修改，对外发布和排队传播的都是副本
+     */
+    public GossipMember copy() {
+        return new GossipMember(address, incarnation, state, host, port,
+                Collections.unmodifiableList(new ArrayList<>(serviceNames)),
+                Collections.unmodifiableMap(new LinkedHashMap<>(metadata)), stateChangedAt);
+    }
+
+    /**
+     * 是否比另一条更新更新：incarnation 更大，或 incarnation 相同而状态优先级更高
+     */
+    public boolean overrides(GossipMember other) {
+        return incarnation > other.incarnation
+                || (incarnation == other.incarnation && state.getCode() > other.state.getCode());
+    }
+}
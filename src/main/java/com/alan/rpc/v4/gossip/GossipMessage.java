@@ -0,0 +1,43 @@
+package com.alan.rpc.v4.gossip;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Gossip 消息
+ * 每条消息都捎带若干成员更新（SYNC / SYNC_ACK 则携带发送方的全部成员），成员变化由探测消息顺带扩散，不单独发送
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GossipMessage {
+
+    /**
+     * 消息类型
+     */
+    private GossipMessageTypeEnum type;
+
+    /**
+     * 探测序号，ACK 与对应的 PING 相同
+     */
+    private long seq;
+
+    /**
+     * 发送方的 Gossip 地址，回复发往这个地址
+     */
+    private String source;
+
+    /**
+     * PING_REQ 要求代为探测的成员，其他消息为 null
+     */
+    private String target;
+
+    /**
+     * 捎带的成员更新
+     */
+    private List<GossipMember> updates = Collections.emptyList();
+}
@@ -0,0 +1,59 @@
+package com.alan.rpc.v4.gossip;
+
+/**
+ * Gossip 消息类型枚举
+ */
+public enum GossipMessageTypeEnum {
+    /**
+     * 直接探测，收到后回复 ACK
+     */
+    PING((byte) 1, "探测"),
+
+    /**
+     * 间接探测：请求接收方代为探测 target，收到 target 的 ACK 后转发给请求方
+     */
+    PING_REQ((byte) 2, "间接探测"),
+
+    /**
+     * 探测回应，seq 与探测消息相同
+     */
+    ACK((byte) 3, "探测回应"),
+
+    /**
+     * 全量同步：携带发送方的全部成员，接收方合并后以 SYNC_ACK 回复自己的全部成员（加入集群和定期校准）
+     */
+    SYNC((byte) 4, "全量同步"),
+
+    /**
+     * 全量同步回应
+     */
+    SYNC_ACK((byte) 5, "全量同步回应");
+
+    private final byte code;
+    private final String description;
+
+    GossipMessageTypeEnum(byte code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 根据 code 获取枚举类型
+     */
+    public static GossipMessageTypeEnum fromCode(byte code) {
+        for (GossipMessageTypeEnum type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("未知的 Gossip 消息类型: " + code);
+    }
+}
@@ -0,0 +1,723 @@
+package com.alan.rpc.v4.gossip;
+
+import com.alan.rpc.v4.registry.ServiceInstance;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gossip 成员节点：SWIM 风格的去中心化服务发现，可以替代注册中心
+ * 服务提供者和消费者各自运行一个节点，节点之间互相探测存活，成员和服务列表以流行病方式扩散，服务发现路径上没有中心节点。
+ *
+ * 协议要点：
+ * <pre>
+ * 探测      每个探测周期按随机轮转的顺序选一个成员发送 PING；超时未回应则请 {@link #INDIRECT_PROBES} 个其他成员
+ *           代为探测（PING_REQ），周期结束时仍未收到任何 ACK 则标记为疑似故障
+ * 疑似故障  疑似故障的成员在超时（{@link #SUSPICION_MULTIPLIER} × log10(成员数) 个探测周期）后标记为已下线；
+ *           成员本身收到关于自己的疑似故障或下线消息时，递增 incarnation 发布存活消息反驳
+ * 扩散      成员状态变化不单独发送，而是捎带在探测消息中，每条更新传播 {@link #RETRANSMIT_MULTIPLIER} × log10(成员数 + 1)
+ *           次后丢弃，捎带内容不超过 {@link #MAX_PIGGYBACK_BYTES} 字节，优先发送传播次数少的更新
+ * 全量同步  加入集群时向种子节点发送全部成员（SYNC）并合并对方的全部成员，之后每 {@link #SYNC_INTERVAL_PROBES}
+ *           个探测周期与一个随机成员全量同步一次，弥补丢失的更新
+ * </pre>
+ * 优先级：incarnation 更大的更新覆盖较小的；incarnation 相同时已下线覆盖疑似故障，疑似故障覆盖存活。
+ *
+ * 协议状态只在节点唯一的 Gossip 线程中读写，不需要同步；对外发布的成员列表和服务实例是不可变快照
+ */
+public class GossipNode {
+
+    /**
+     * 默认探测周期（毫秒）
+     */
+    public static final long DEFAULT_PROBE_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 直接探测超时后发起间接探测的成员数
+     */
+    static final int INDIRECT_PROBES = 3;
+
+    /**
+     * 疑似故障超时的探测周期倍数（再乘以 log10(成员数)）
+     */
+    static final int SUSPICION_MULTIPLIER = 4;
+
+    /**
+     * 每条更新的传播次数倍数（再乘以 log10(成员数 + 1)）
+     */
+    static final int RETRANSMIT_MULTIPLIER = 4;
+
+    /**
+     * 定期全量同步的探测周期数
+     */
+    static final int SYNC_INTERVAL_PROBES = 30;
+
+    /**
+     * 已下线成员的保留探测周期数，保留期内迟到的旧存活消息不会让成员复活
+     */
+    static final int DEAD_RETENTION_PROBES = 60;
+
+    /**
+     * 探测消息的长度上限（字节），超出的更新留待下一条消息捎带，避免 IP 分片
+     */
+    static final int MAX_PIGGYBACK_BYTES = 1400;
+
+    /**
+     * UDP 数据报的最大长度，全量同步消息不能超过
+     */
+    private static final int MAX_DATAGRAM_BYTES = 65507;
+
+    /**
+     * 本节点的 Gossip 地址（host:port）
+     */
+    private final String address;
+    private final String host;
+    private final int port;
+    private final List<String> seeds;
+    private final long probeIntervalMillis;
+    private final long probeTimeoutMillis;
+    private final EventLoopGroup group;
+    private volatile Channel channel;
+
+    /**
+     * 成员表：Gossip 地址 -> 成员，包括本节点，只在 Gossip 线程访问
+     */
+    private final Map<String, GossipMember> members = new HashMap<>();
+
+    /**
+     * 待传播的更新：Gossip 地址 -> 更新，同一成员只保留最新的一条
+     */
+    private final Map<String, Broadcast> broadcasts = new HashMap<>();
+
+    /**
+     * 等待 ACK 的探测：seq -> 探测
+     */
+    private final Map<Long, PendingAck> pendingAcks = new HashMap<>();
+
+    /**
+     * 探测顺序：每轮把成员随机排列一次，依次探测
+     */
+    private final List<String> probeOrder = new ArrayList<>();
+    private int probeIndex;
+
+    private final Map<String, InetSocketAddress> socketAddresses = new HashMap<>();
+    private final GossipMember self;
+    private long sequence;
+    private long broadcastSequence;
+    private long ticks;
+
+    /**
+     * 成员表是否有变化需要重新发布快照
+     */
+    private boolean changed;
+
+    /**
+     * 成员列表快照（按地址排序）
+     */
+    private volatile List<GossipMember> view = Collections.emptyList();
+
+    /**
+     * 服务实例快照：服务名称 -> 存活成员提供的实例
+     */
+    private volatile Map<String, List<ServiceInstance>> instances = Collections.emptyMap();
+
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder packetsSent = new LongAdder();
+    private final LongAdder packetsReceived = new LongAdder();
+
+    /**
+     * 构造函数 - 使用默认探测周期
+     *
+     * @param host  本节点的主机地址，其他节点通过它访问本节点
+     * @param port  本节点的 UDP 端口
+     * @param seeds 种子节点地址（host:port），加入集群时联系，可以包含本节点
+     */
+    public GossipNode(String host, int port, List<String> seeds) {
+        this(host, port, seeds, DEFAULT_PROBE_INTERVAL_MILLIS);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param host                本节点的主机地址，其他节点通过它访问本节点
+     * @param port                本节点的 UDP 端口
+     * @param seeds               种子节点地址（host:port），加入集群时联系，可以包含本节点
+     * @param probeIntervalMillis 探测周期（毫秒），集群内所有节点应当一致
+     */
+    public GossipNode(String host, int port, List<String> seeds, long probeIntervalMillis) {
+        if (probeIntervalMillis <= 0) {
+            throw new IllegalArgumentException("探测周期必须大于 0: " + probeIntervalMillis);
+        }
+        this.host = host;
+        this.port = port;
+        this.address = host + ":" + port;
+        this.seeds = new ArrayList<>(seeds);
+        for (String seed : this.seeds) {
+            socketAddress(seed);
+        }
+        this.probeIntervalMillis = probeIntervalMillis;
+        this.probeTimeoutMillis = probeIntervalMillis * 2 / 5;
+        this.group = new NioEventLoopGroup(1, new DefaultThreadFactory("gossip-" + port));
+        this.self = new GossipMember(address, 0, MemberStateEnum.ALIVE, "", 0,
+                Collections.emptyList(), Collections.emptyMap(), System.currentTimeMillis());
+        members.put(address, self);
+        changed = true;
+        publishIfChanged();
+    }
+
+    /**
+     * 启动节点：绑定 UDP 端口，开始探测并联系种子节点加入集群
+     *
+     * @throws GossipException 端口绑定失败
+     */
+    public void start() {
+        Bootstrap bootstrap = new Bootstrap()
+                .group(group)
+                .channel(NioDatagramChannel.class)
+                .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(MAX_DATAGRAM_BYTES))
+                .handler(new GossipHandler());
+        try {
+            channel = bootstrap.bind(host, port).sync().channel();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            group.shutdownGracefully();
+            throw new GossipException("Gossip 节点启动被中断: " + address, e);
+        } catch (Exception e) {
+            group.shutdownGracefully();
+            throw new GossipException("Gossip 节点启动失败: " + address + ", " + e.getMessage(), e);
+        }
+        group.scheduleAtFixedRate(this::tick, 0, probeIntervalMillis, TimeUnit.MILLISECONDS);
+        System.out.println("[Gossip] 节点启动: " + address + "，种子节点: " + seeds + "，探测周期: " + probeIntervalMillis + "ms");
+    }
+
+    /**
+     * 发布本节点提供的服务，替换之前发布的服务列表，变更随探测消息扩散到整个集群
+     *
+     * @param host         RPC 服务主机地址
+     * @param port         RPC 服务端口
+     * @param serviceNames 服务名称（接口全限定名）
+     * @param metadata     RPC 实例元数据
+     */
+    public void advertise(String host, int port, Collection<String> serviceNames, Map<String, String> metadata) {
+        List<String> names = Collections.unmodifiableList(new ArrayList<>(serviceNames));
+        Map<String, String> copy = Collections.unmodifiableMap(new LinkedHashMap<>(metadata));
+        group.execute(() -> {
+            self.setHost(host);
+            self.setPort(port);
+            self.setServiceNames(names);
+            self.setMetadata(copy);
+            self.setIncarnation(self.getIncarnation() + 1);
+            enqueue(self);
+            changed = true;
+            publishIfChanged();
+            System.out.println("[Gossip] 发布服务: " + names + " -> " + host + ":" + port);
+        });
+    }
+
+    /**
+     * 撤销本节点发布的全部服务，节点继续参与成员协议
+     */
+    public void withdraw() {
+        advertise("", 0, Collections.emptyList(), Collections.emptyMap());
+    }
+
+    /**
+     * 关闭节点：把本节点标记为已下线并通知几个成员，由它们继续扩散，然后释放端口
+     */
+    public void close() {
+        Channel current = channel;
+        if (current != null) {
+            group.submit(this::leave).awaitUninterruptibly(probeIntervalMillis);
+            current.close().awaitUninterruptibly();
+        }
+        group.shutdownGracefully(0, probeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 本节点的 Gossip 地址
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * 成员列表快照（包括本节点和保留期内的已下线成员），按地址排序
+     */
+    public List<GossipMember> getMembers() {
+        return view;
+    }
+
+    /**
+     * 服务实例列表：存活成员提供的实例，疑似故障的成员不参与调用
+     * 直接读取本地快照，不产生网络请求
+     */
+    public List<ServiceInstance> getInstances(String serviceName) {
+        return instances.getOrDefault(serviceName, Collections.emptyList());
+    }
+
+    /**
+     * 发送的 UDP 字节数
+     */
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    /**
+     * 接收的 UDP 字节数
+     */
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    /**
+     * 发送的数据报数
+     */
+    public long getPacketsSent() {
+        return packetsSent.sum();
+    }
+
+    /**
+     * 接收的数据报数
+     */
+    public long getPacketsReceived() {
+        return packetsReceived.sum();
+    }
+
+    /**
+     * 探测周期：处理超时的疑似故障、清理已下线成员、全量同步，然后探测下一个成员
+     * 定时任务抛出异常后不会再执行，因此这里捕获所有异常
+     */
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            ticks++;
+            pendingAcks.values().removeIf(pending -> pending.deadline < now);
+            expireSuspects(now);
+            reapDead(now);
+            sync();
+            probe(now);
+            publishIfChanged();
+        } catch (RuntimeException e) {
+            System.err.println("[Gossip] 探测周期执行失败: " + e);
+        }
+    }
+
+    /**
+     * 直接探测下一个成员，超时后发起间接探测，周期结束时仍未收到 ACK 则标记为疑似故障
+     */
+    private void probe(long now) {
+        GossipMember target = nextProbeTarget();
+        if (target == null) {
+            return;
+        }
+        String targetAddress = target.getAddress();
+        long incarnation = target.getIncarnation();
+        long seq = ++sequence;
+        PendingAck pending = new PendingAck(now + probeIntervalMillis, null);
+        pendingAcks.put(seq, pending);
+        send(targetAddress, GossipMessageTypeEnum.PING, seq, null);
+
+        group.schedule(() -> {
+            if (!pending.acked) {
+                for (String relay : randomLiveMembers(INDIRECT_PROBES, targetAddress)) {
+                    send(relay, GossipMessageTypeEnum.PING_REQ, seq, targetAddress);
+                }
+            }
+        }, probeTimeoutMillis, TimeUnit.MILLISECONDS);
+        group.schedule(() -> {
+            if (!pending.acked) {
+                suspect(targetAddress, incarnation);
+                publishIfChanged();
+            }
+        }, probeIntervalMillis * 9 / 10, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 按随机轮转的顺序取下一个探测目标：每轮把未下线的成员随机排列，依次探测，保证每个成员在有限时间内被探测到
+     */
+    private GossipMember nextProbeTarget() {
+        for (int round = 0; round < 2; round++) {
+            while (probeIndex < probeOrder.size()) {
+                GossipMember member = members.get(probeOrder.get(probeIndex++));
+                if (member != null && member != self && member.getState() != MemberStateEnum.DEAD) {
+                    return member;
+                }
+            }
+            probeOrder.clear();
+            probeOrder.addAll(randomLiveMembers(Integer.MAX_VALUE, null));
+            probeIndex = 0;
+        }
+        return null;
+    }
+
+    /**
+     * 加入集群：还不知道任何其他成员时每个周期向所有种子节点发送全量同步；
+     * 加入后每 SYNC_INTERVAL_PROBES 个周期与一个随机成员全量同步
+     */
+    private void sync() {
+        List<String> live = randomLiveMembers(1, null);
+        if (live.isEmpty()) {
+            for (String seed : seeds) {
+                if (!seed.equals(address)) {
+                    send(seed, GossipMessageTypeEnum.SYNC, 0, null);
+                }
+            }
+        } else if (ticks % SYNC_INTERVAL_PROBES == 0) {
+            send(live.get(0), GossipMessageTypeEnum.SYNC, 0, null);
+        }
+    }
+
+    /**
+     * 探测无回应，把成员标记为疑似故障（成员在探测期间已经更新了 incarnation 时不处理）
+     */
+    private void suspect(String memberAddress, long incarnation) {
+        GossipMember member = members.get(memberAddress);
+        if (member != null && member.getState() == MemberStateEnum.ALIVE && member.getIncarnation() == incarnation) {
+            GossipMember update = member.copy();
+            update.setState(MemberStateEnum.SUSPECT);
+            apply(update);
+        }
+    }
+
+    /**
+     * 疑似故障超时的成员标记为已下线
+     */
+    private void expireSuspects(long now) {
+        long timeout = (long) (SUSPICION_MULTIPLIER * Math.max(1.0, Math.log10(members.size())) * probeIntervalMillis);
+        List<GossipMember> expired = new ArrayList<>();
+        for (GossipMember member : members.values()) {
+            if (member.getState() == MemberStateEnum.SUSPECT && now - member.getStateChangedAt() >= timeout) {
+                expired.add(member);
+            }
+        }
+        for (GossipMember member : expired) {
+            GossipMember update = member.copy();
+            update.setState(MemberStateEnum.DEAD);
+            apply(update);
+        }
+    }
+
+    /**
+     * 清理超过保留期的已下线成员
+     */
+    private void reapDead(long now) {
+        long retention = DEAD_RETENTION_PROBES * probeIntervalMillis;
+        if (members.values().removeIf(member -> member != self && member.getState() == MemberStateEnum.DEAD
+                && now - member.getStateChangedAt() > retention)) {
+            changed = true;
+        }
+    }
+
+    /**
+     * 主动离开：把本节点标记为已下线，通知几个随机成员，由它们继续扩散
+     */
+    private void leave() {
+        self.setState(MemberStateEnum.DEAD);
+        enqueue(self);
+        for (String member : randomLiveMembers(INDIRECT_PROBES, null)) {
+            send(member, GossipMessageTypeEnum.PING, 0, null);
+        }
+        System.out.println("[Gossip] 节点离开: " + address);
+    }
+
+    /**
+     * 处理收到的消息：先合并捎带的更新，再按类型回应
+     */
+    private void handle(GossipMessage message) {
+        for (GossipMember update : message.getUpdates()) {
+            apply(update);
+        }
+        switch (message.getType()) {
+            case PING:
+                send(message.getSource(), GossipMessageTypeEnum.ACK, message.getSeq(), null);
+                break;
+            case PING_REQ:
+                relay(message);
+                break;
+            case ACK:
+                PendingAck pending = pendingAcks.remove(message.getSeq());
+                if (pending != null) {
+                    pending.acked = true;
+                    if (pending.onAck != null) {
+                        pending.onAck.run();
+                    }
+                }
+                break;
+            case SYNC:
+                send(message.getSource(), GossipMessageTypeEnum.SYNC_ACK, message.getSeq(), null);
+                break;
+            default:
+                break;
+        }
+        publishIfChanged();
+    }
+
+    /**
+     * 间接探测：代为探测 target，收到 ACK 后以请求方的 seq 转发给请求方
+     */
+    private void relay(GossipMessage request) {
+        String requester = request.getSource();
+        long requestSeq = request.getSeq();
+        String target = request.getTarget();
+        long seq = ++sequence;
+        pendingAcks.put(seq, new PendingAck(System.currentTimeMillis() + probeIntervalMillis,
+                () -> send(requester, GossipMessageTypeEnum.ACK, requestSeq, target)));
+        send(target, GossipMessageTypeEnum.PING, seq, null);
+    }
+
+    /**
+     * 合并一条成员更新，改变了本地成员表时加入传播队列继续扩散
+     */
+    private void apply(GossipMember update) {
+        if (update.getAddress().equals(address)) {
+            // 关于本节点的消息：别人认为本节点疑似故障或已下线，或者流传着本节点重启前更大的 incarnation，递增后反驳
+            if (self.getState() == MemberStateEnum.ALIVE && (update.getIncarnation() > self.getIncarnation()
+                    || (update.getIncarnation() == self.getIncarnation() && update.getState() != MemberStateEnum.ALIVE))) {
+                self.setIncarnation(update.getIncarnation() + 1);
+                enqueue(self);
+                changed = true;
+                System.out.println("[Gossip] 反驳关于本节点的消息（" + update.getState().getDescription()
+                        + "，incarnation " + update.getIncarnation() + "），incarnation 更新为 " + self.getIncarnation());
+            }
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        GossipMember local = members.get(update.getAddress());
+        if (local == null) {
+            // 未知成员的下线消息没有意义，不加入成员表
+            if (update.getState() == MemberStateEnum.DEAD) {
+                return;
+            }
+            GossipMember member = update.copy();
+            member.setStateChangedAt(now);
+            members.put(member.getAddress(), member);
+            enqueue(member);
+            changed = true;
+            System.out.println("[Gossip] 发现成员: " + member.getAddress() + "（" + member.getState().getDescription()
+                    + "），服务: " + member.getServiceNames());
+            return;
+        }
+        if (!update.overrides(local)) {
+            return;
+        }
+
+        MemberStateEnum previous = local.getState();
+        local.setIncarnation(update.getIncarnation());
+        local.setState(update.getState());
+        local.setHost(update.getHost());
+        local.setPort(update.getPort());
+        local.setServiceNames(update.getServiceNames());
+        local.setMetadata(update.getMetadata());
+        if (previous != update.getState()) {
+            local.setStateChangedAt(now);
+            System.out.println("[Gossip] 成员状态变更: " + local.getAddress() + " " + previous.getDescription()
+                    + " -> " + update.getState().getDescription());
+        }
+        enqueue(local);
+        changed = true;
+    }
+
+    /**
+     * 加入传播队列，替换同一成员尚未传播完的旧更新
+     */
+    private void enqueue(GossipMember member) {
+        broadcasts.put(member.getAddress(), new Broadcast(member.copy(), ++broadcastSequence));
+    }
+
+    /**
+     * 发送消息，PING / PING_REQ / ACK 捎带传播队列中的更新，SYNC / SYNC_ACK 携带全部成员
+     */
+    private void send(String to, GossipMessageTypeEnum type, long seq, String target) {
+        Channel current = channel;
+        if (current == null || !current.isActive()) {
+            return;
+        }
+        boolean full = type == GossipMessageTypeEnum.SYNC || type == GossipMessageTypeEnum.SYNC_ACK;
+        List<Broadcast> queued = full ? Collections.emptyList() : piggyback();
+        List<GossipMember> updates = new ArrayList<>(full ? members.size() : queued.size());
+        if (full) {
+            for (GossipMember member : members.values()) {
+                updates.add(member.copy());
+            }
+        } else {
+            for (Broadcast broadcast : queued) {
+                updates.add(broadcast.member);
+            }
+        }
+
+        ByteBuf buffer = current.alloc().buffer();
+        int written = GossipCodec.encode(new GossipMessage(type, seq, address, target, updates), buffer,
+                full ? 0 : MAX_PIGGYBACK_BYTES);
+        int length = buffer.readableBytes();
+        if (length > MAX_DATAGRAM_BYTES) {
+            buffer.release();
+            System.err.println("[Gossip] " + type.getDescription() + "消息长度 " + length + " 超过 UDP 数据报上限，未发送");
+            return;
+        }
+        if (!full) {
+            markTransmitted(queued, written);
+        }
+        bytesSent.add(length);
+        packetsSent.increment();
+        current.writeAndFlush(new DatagramPacket(buffer, socketAddress(to)));
+    }
+
+    /**
+     * 待捎带的更新：传播次数少的优先，次数相同时较新的优先
+     */
+    private List<Broadcast> piggyback() {
+        if (broadcasts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Broadcast> queued = new ArrayList<>(broadcasts.values());
+        queued.sort(Comparator.comparingInt((Broadcast broadcast) -> broadcast.transmits)
+                .thenComparing(broadcast -> -broadcast.id));
+        return queued;
+    }
+
+    /**
+     * 记录前 count 条更新已传播一次，达到传播次数的移出队列
+     */
+    private void markTransmitted(List<Broadcast> queued, int count) {
+        int limit = RETRANSMIT_MULTIPLIER * (int) Math.ceil(Math.log10(members.size() + 1));
+        for (int i = 0; i < count; i++) {
+            Broadcast broadcast = queued.get(i);
+            if (++broadcast.transmits >= limit) {
+                broadcasts.remove(broadcast.member.getAddress(), broadcast);
+            }
+        }
+    }
+
+    /**
+     * 从未下线的其他成员中随机选取最多 count 个，排除 excluded
+     */
+    private List<String> randomLiveMembers(int count, String excluded) {
+        List<String> live = new ArrayList<>();
+        for (GossipMember member : members.values()) {
+            if (member != self && member.getState() != MemberStateEnum.DEAD && !member.getAddress().equals(excluded)) {
+                live.add(member.getAddress());
+            }
+        }
+        Collections.shuffle(live, ThreadLocalRandom.current());
+        return live.size() > count ? live.subList(0, count) : live;
+    }
+
+    /**
+     * 成员表有变化时重新发布成员列表和服务实例快照
+     */
+    private void publishIfChanged() {
+        if (!changed) {
+            return;
+        }
+        changed = false;
+        List<GossipMember> snapshot = new ArrayList<>(members.size());
+        Map<String, List<ServiceInstance>> services = new HashMap<>();
+        for (GossipMember member : members.values()) {
+            GossipMember copy = member.copy();
+            snapshot.add(copy);
+            if (copy.getState() != MemberStateEnum.ALIVE) {
+                continue;
+            }
+            for (String serviceName : copy.getServiceNames()) {
+                services.computeIfAbsent(serviceName, name -> new ArrayList<>()).add(new ServiceInstance(
+                        serviceName, copy.getHost(), copy.getPort(), copy.getAddress(), copy.getMetadata()));
+            }
+        }
+        snapshot.sort(Comparator.comparing(GossipMember::getAddress));
+        services.replaceAll((serviceName, list) -> Collections.unmodifiableList(list));
+        view = Collections.unmodifiableList(snapshot);
+        instances = Collections.unmodifiableMap(services);
+    }
+
+    private InetSocketAddress socketAddress(String memberAddress) {
+        InetSocketAddress cached = socketAddresses.get(memberAddress);
+        if (cached != null) {
+            return cached;
+        }
+        int index = memberAddress.lastIndexOf(':');
+        if (index <= 0) {
+            throw new IllegalArgumentException("非法的 Gossip 地址: " + memberAddress);
+        }
+        InetSocketAddress resolved = new InetSocketAddress(memberAddress.substring(0, index),
+                Integer.parseInt(memberAddress.substring(index + 1)));
+        socketAddresses.put(memberAddress, resolved);
+        return resolved;
+    }
+
+    /**
+     * 传播队列中的一条更新
+     */
+    private static class Broadcast {
+
+        private final GossipMember member;
+
+        /**
+         * 入队顺序，越大越新
+         */
+        private final long id;
+
+        private int transmits;
+
+        Broadcast(GossipMember member, long id) {
+            this.member = member;
+            this.id = id;
+        }
+    }
+
+    /**
+     * 等待 ACK 的探测，onAck 为间接探测时转发 ACK 的动作
+     */
+    private static class PendingAck {
+
+        private final long deadline;
+        private final Runnable onAck;
+        private boolean acked;
+
+        PendingAck(long deadline, Runnable onAck) {
+            this.deadline = deadline;
+            this.onAck = onAck;
+        }
+    }
+
+    /**
+     * UDP 处理器，运行在 Gossip 线程中
+     */
+    private class GossipHandler extends SimpleChannelInboundHandler<DatagramPacket> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket packet) {
+            bytesReceived.add(packet.content().readableBytes());
+            packetsReceived.increment();
+            GossipMessage message;
+            try {
+                message = GossipCodec.decode(packet.content());
+            } catch (GossipException e) {
+                System.err.println("[Gossip] 丢弃无法解析的消息（来自 " + packet.sender() + "）: " + e.getMessage());
+                return;
+            }
+            handle(message);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            // 所有成员共用一个 UDP 通道，出错时只记录，不关闭通道
+            System.err.println("[Gossip] 处理消息异常: " + cause);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.alan.rpc.v4.gossip;
+
+/**
+ * 成员状态枚举
+ * code 同时是同一 incarnation 下状态的优先级：同一 incarnation 的消息中，DEAD 覆盖 SUSPECT，SUSPECT 覆盖 ALIVE
+ */
+public enum MemberStateEnum {
+    /**
+     * 存活
+     */
+    ALIVE((byte) 0, "存活"),
+
+    /**
+     * 疑似故障：直接和间接探测都没有回应，超时前成员可以用更大的 incarnation 反驳
+     */
+    SUSPECT((byte) 1, "疑似故障"),
+
+    /**
+     * 已下线：疑似故障超时或主动离开
+     */
+    DEAD((byte) 2, "已下线");
+
+    private final byte code;
+    private final String description;
+
+    MemberStateEnum(byte code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 根据 code 获取枚举类型
+     */
+    public static MemberStateEnum fromCode(byte code) {
+        for (MemberStateEnum state : values()) {
+            if (state.code == code) {
+                return state;
+            }
+        }
+        throw new IllegalArgumentException("未知的成员状态: " + code);
+    }
+}
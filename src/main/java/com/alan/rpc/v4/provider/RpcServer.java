@@ -1,22 +1,36 @@
 package com.alan.rpc.v4.provider;
 
+import com.alan.rpc.v4.common.RpcError;
+import com.alan.rpc.v4.common.RpcErrorCodeEnum;
 import com.alan.rpc.v4.common.RpcRequest;
 import com.alan.rpc.v4.common.RpcResponse;
 import com.alan.rpc.v4.common.SerializationTypeEnum;
+import com.alan.rpc.v4.common.codec.CompressionCodec;
+import com.alan.rpc.v4.common.codec.SerializationCodec;
+import com.alan.rpc.v4.common.compress.CompressionMetrics;
+import com.alan.rpc.v4.common.compress.CompressionTypeEnum;
 import com.alan.rpc.v4.common.serializer.Serializer;
 import com.alan.rpc.v4.common.serializer.SerializerFactory;
+import com.alan.rpc.v4.gossip.GossipNode;
+import com.alan.rpc.v4.registry.InstanceNotRegisteredException;
 import com.alan.rpc.v4.registry.RegistryClient;
+import com.alan.rpc.v4.registry.ServiceInstance;
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -24,30 +38,161 @@ import java.util.concurrent.TimeUnit;
  */
 public class RpcServer {
 
+    /**
+     * 单帧最大长度
+     */
+    private static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * 默认压缩阈值（字节）
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 2048;
+
+    /**
+     * 默认心跳间隔（毫秒），注册中心未下发建议值时使用
+     */
+    private static final long DEFAULT_HEARTBEAT_INTERVAL_MILLIS = 10_000;
+
+    /**
+     * 心跳失败后的首次重试间隔（毫秒）
+     */
+    private static final long HEARTBEAT_RETRY_MILLIS = 1_000;
+
+    /**
+     * RPC 协议版本，注册时写入实例元数据，协议不兼容的变更需要递增
+     */
+    public static final int PROTOCOL_VERSION = 4;
+
+    /**
+     * 注册 / 发布的服务主机地址，实际应该获取本机IP
+     */
+    private static final String HOST = "127.0.0.1";
+
     private final int port;
-    private final String registryHost;
-    private final int registryPort;
+    private final List<String> registryAddresses;
     private final Map<String, Object> serviceRegistry = new HashMap<>();
+
+    /**
+     * 注册中心客户端，使用 Gossip 服务发现时为 null
+     */
     private final RegistryClient registryClient;
+
+    /**
+     * Gossip 节点，使用注册中心时为 null
+     */
+    private final GossipNode gossipNode;
     private final ScheduledExecutorService heartbeatExecutor;
     private final Serializer serializer;
+    private final CompressionCodec compressionCodec;
+    private final CompressionMetrics compressionMetrics = new CompressionMetrics();
+
+    /**
+     * 注册到注册中心的实例元数据，需要在 start 之前设置
+     */
+    private final Map<String, String> metadata = new LinkedHashMap<>();
+
+    /**
+     * 错误响应中携带的堆栈深度，默认 0 即不传输堆栈
+     */
+    private volatile int errorStackTraceDepth = 0;
+
+    /**
+     * 构造函数 - 指定序列化类型和压缩方式
+     *
+     * @param port                 服务端口
+     * @param registryHost         注册中心主机
+     * @param registryPort         注册中心端口
+     * @param serializationType    序列化类型
+     * @param compressionType      压缩类型
+     * @param compressionThreshold 压缩阈值（字节），响应体超过该值才压缩
+     */
+    public RpcServer(int port, String registryHost, int registryPort, SerializationTypeEnum serializationType,
+                     CompressionTypeEnum compressionType, int compressionThreshold) {
+        this(port, Collections.singletonList(registryHost + ":" + registryPort), serializationType,
+                compressionType, compressionThreshold);
+    }
 
     /**
-     * 构造函数 - 指定序列化类型
+     * 构造函数 - 注册中心集群
+     *
+     * @param port                 服务端口
+     * @param registryAddresses    注册中心各节点地址（host:port），节点不可用时自动切换
+     * @param serializationType    序列化类型
+     * @param compressionType      压缩类型
+     * @param compressionThreshold 压缩阈值（字节），响应体超过该值才压缩
+     */
+    public RpcServer(int port, List<String> registryAddresses, SerializationTypeEnum serializationType,
+                     CompressionTypeEnum compressionType, int compressionThreshold) {
+        this(port, registryAddresses, null, serializationType, compressionType, compressionThreshold);
+    }
+
+    /**
+     * 构造函数 - Gossip 服务发现，不使用注册中心
+     * 启动后通过 Gossip 节点发布服务，存活由成员协议探测，不再发送心跳
+     *
+     * @param port                 服务端口
+     * @param gossipNode           已启动的 Gossip 节点，由调用方关闭（可以与同一进程的客户端共用）
+     * @param serializationType    序列化类型
+     * @param compressionType      压缩类型
+     * @param compressionThreshold 压缩阈值（字节），响应体超过该值才压缩
+     */
+    public RpcServer(int port, GossipNode gossipNode, SerializationTypeEnum serializationType,
+                     CompressionTypeEnum compressionType, int compressionThreshold) {
+        this(port, null, gossipNode, serializationType, compressionType, compressionThreshold);
+    }
+
+    /**
+     * 构造函数 - Gossip 服务发现，使用默认压缩方式
      *
      * @param port              服务端口
-     * @param registryHost      注册中心主机
-     * @param registryPort      注册中心端口
+     * @param gossipNode        已启动的 Gossip 节点，由调用方关闭
      * @param serializationType 序列化类型
      */
-    public RpcServer(int port, String registryHost, int registryPort, SerializationTypeEnum serializationType) {
+    public RpcServer(int port, GossipNode gossipNode, SerializationTypeEnum serializationType) {
+        this(port, gossipNode, serializationType, CompressionTypeEnum.LZF, DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * 注册中心地址和 Gossip 节点二选一
+     */
+    private RpcServer(int port, List<String> registryAddresses, GossipNode gossipNode,
+                      SerializationTypeEnum serializationType, CompressionTypeEnum compressionType,
+                      int compressionThreshold) {
         this.port = port;
-        this.registryHost = registryHost;
-        this.registryPort = registryPort;
+        this.registryAddresses = registryAddresses;
         this.serializer = SerializerFactory.getSerializer(serializationType);
-        this.registryClient = new RegistryClient(registryHost, registryPort);
+        this.compressionCodec = new CompressionCodec(compressionType, compressionThreshold, MAX_FRAME_LENGTH,
+                compressionMetrics);
+        this.gossipNode = gossipNode;
+        this.registryClient = gossipNode == null ? new RegistryClient(registryAddresses) : null;
         this.heartbeatExecutor = Executors.newSingleThreadScheduledExecutor();
+        this.metadata.put(ServiceInstance.METADATA_SERIALIZERS, serializationType.getCode());
+        this.metadata.put(ServiceInstance.METADATA_PROTOCOL_VERSION, String.valueOf(PROTOCOL_VERSION));
         System.out.println("[服务提供者] 使用序列化方式: " + serializationType.getDescription());
+        System.out.println("[服务提供者] 使用压缩方式: " + compressionType.getDescription() + "，阈值: " + compressionThreshold + " 字节");
+    }
+
+    /**
+     * 构造函数 - 指定序列化类型，使用默认压缩方式（LZF，超过 2KB 才压缩）
+     *
+     * @param port              服务端口
+     * @param registryHost      注册中心主机
+     * @param registryPort      注册中心端口
+     * @param serializationType 序列化类型
+     */
+    public RpcServer(int port, String registryHost, int registryPort, SerializationTypeEnum serializationType) {
+        this(port, registryHost, registryPort, serializationType, CompressionTypeEnum.LZF, DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * 构造函数 - 注册中心集群，使用默认压缩方式
+     *
+     * @param port              服务端口
+     * @param registryAddresses 注册中心各节点地址（host:port）
+     * @param serializationType 序列化类型
+     */
+    public RpcServer(int port, List<String> registryAddresses, SerializationTypeEnum serializationType) {
+        this(port, registryAddresses, serializationType, CompressionTypeEnum.LZF, DEFAULT_COMPRESSION_THRESHOLD);
     }
 
     /**
@@ -67,7 +212,7 @@ public class RpcServer {
      * @param port                服务端口
      * @param registryHost        注册中心主机
      * @param registryPort        注册中心端口
-     * @param serializationTypeCode 序列化类型代码（"java", "json", "hessian", "kryo"）
+     * @param serializationTypeCode 序列化类型代码（"java", "json", "hessian", "kryo", "codegen"）
      */
     public RpcServer(int port, String registryHost, int registryPort, String serializationTypeCode) {
         this(port, registryHost, registryPort, SerializationTypeEnum.fromCode(serializationTypeCode));
@@ -97,7 +242,12 @@ public class RpcServer {
                     .childHandler(new ChannelInitializer<SocketChannel>() {
                         @Override
                         protected void initChannel(SocketChannel ch) {
-                            ch.pipeline().addLast(new RpcServerHandler());
+                            ch.pipeline()
+                                    .addLast(new LengthFieldBasedFrameDecoder(MAX_FRAME_LENGTH, 0, 4, 0, 4))
+                                    .addLast(new LengthFieldPrepender(4))
+                                    .addLast(compressionCodec)
+                                    .addLast(new SerializationCodec(serializer, RpcRequest.class))
+                                    .addLast(new RpcServerHandler());
                         }
                     })
                     .option(ChannelOption.SO_BACKLOG, 128)
@@ -106,11 +256,16 @@ public class RpcServer {
             ChannelFuture future = bootstrap.bind(port).sync();
             System.out.println("[服务提供者] 启动成功，监听端口: " + port);
 
-            // 注册所有服务到注册中心
-            registerToRegistry();
+            if (gossipNode != null) {
+                // 通过 Gossip 发布所有服务
+                gossipNode.advertise(HOST, port, serviceRegistry.keySet(), metadata);
+            } else {
+                // 注册所有服务到注册中心
+                registerToRegistry();
 
-            // 启动心跳
-            startHeartbeat();
+                // 启动心跳
+                startHeartbeat();
+            }
 
             // 等待服务器 socket 关闭
             future.channel().closeFuture().sync();
@@ -121,6 +276,11 @@ public class RpcServer {
             workerGroup.shutdownGracefully();
             bossGroup.shutdownGracefully();
             heartbeatExecutor.shutdown();
+            if (gossipNode != null) {
+                gossipNode.withdraw();
+            } else {
+                registryClient.close();
+            }
         }
     }
 
@@ -128,60 +288,165 @@ public class RpcServer {
      * 注册到注册中心
      */
     private void registerToRegistry() {
-        String instanceId = UUID.randomUUID().toString();
-        String host = "127.0.0.1"; // 实际应该获取本机IP
-
-        for (String serviceName : serviceRegistry.keySet()) {
-            registryClient.register(serviceName, host, port, instanceId);
-        }
+        // 保存实例ID用于心跳和重新注册
+        this.instanceId = UUID.randomUUID().toString();
+        registerAllAsync().join();
+    }
 
-        // 保存实例ID用于心跳
-        this.instanceId = instanceId;
-        this.serviceNameList = new ArrayList<>(serviceRegistry.keySet());
+    /**
+     * 一个批量注册请求注册所有服务
+     */
+    private CompletableFuture<Void> registerAllAsync() {
+        return registryClient.registerAllAsync(new ArrayList<>(serviceRegistry.keySet()), HOST, port, instanceId,
+                new LinkedHashMap<>(metadata));
     }
 
     private String instanceId;
-    private List<String> serviceNameList;
+
+    /**
+     * 当前心跳间隔，注册中心在心跳响应中下发建议值
+     */
+    private volatile long heartbeatIntervalMillis = DEFAULT_HEARTBEAT_INTERVAL_MILLIS;
+
+    /**
+     * 连续心跳失败次数，只在心跳回调中访问（同一时刻只有一个心跳在途）
+     */
+    private int heartbeatFailures;
 
     /**
      * 启动心跳
+     * 每个实例一条心跳消息续约所有服务；首次心跳在一个周期内随机延迟，避免大批实例同时重启后心跳集中到达
      */
     private void startHeartbeat() {
-        heartbeatExecutor.scheduleAtFixedRate(() -> {
-            for (String serviceName : serviceNameList) {
-                try {
-                    registryClient.heartbeat(serviceName, instanceId);
-                } catch (Exception e) {
-                    System.err.println("[服务提供者] 心跳失败: " + serviceName);
+        scheduleHeartbeat(ThreadLocalRandom.current().nextLong(heartbeatIntervalMillis));
+    }
+
+    private void scheduleHeartbeat(long delayMillis) {
+        if (!heartbeatExecutor.isShutdown()) {
+            heartbeatExecutor.schedule(this::sendHeartbeat, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 发送心跳，完成后安排下一次：成功时按注册中心建议的间隔加随机抖动，失败时以指数退避尽快重试。
+     * 只有注册中心明确回复实例未注册（注册中心重启或实例已过期）时才重新注册；连接失败、超时只退避重试，
+     * 避免注册中心故障期间所有提供者反复发送全量注册
+     */
+    private void sendHeartbeat() {
+        registryClient.heartbeatAsync(instanceId).whenComplete((suggestedInterval, e) -> {
+            if (e == null) {
+                heartbeatFailures = 0;
+                if (suggestedInterval > 0) {
+                    heartbeatIntervalMillis = suggestedInterval;
                 }
+                scheduleHeartbeat(jitter(heartbeatIntervalMillis));
+                return;
+            }
+
+            heartbeatFailures++;
+            Throwable cause = e;
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
             }
-        }, 10, 10, TimeUnit.SECONDS);
+            System.err.println("[服务提供者] 心跳失败（第 " + heartbeatFailures + " 次）: " + cause.getMessage());
+            if (cause instanceof InstanceNotRegisteredException) {
+                registerAllAsync().whenComplete((result, registerError) -> {
+                    if (registerError == null) {
+                        System.out.println("[服务提供者] 已重新注册所有服务");
+                    }
+                });
+            }
+            long retryDelay = HEARTBEAT_RETRY_MILLIS << Math.min(heartbeatFailures - 1, 4);
+            scheduleHeartbeat(jitter(Math.min(retryDelay, heartbeatIntervalMillis)));
+        });
+    }
+
+    /**
+     * 在 [0.8, 1.2) 倍间隔内随机取值
+     */
+    private static long jitter(long intervalMillis) {
+        return (long) (intervalMillis * (0.8 + ThreadLocalRandom.current().nextDouble() * 0.4));
+    }
+
+    /**
+     * 设置实例权重（默认 100），客户端按权重比例分配请求，例如 32 核机器可以设置为 2 核机器的 16 倍
+     */
+    public void setWeight(int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("权重必须大于 0: " + weight);
+        }
+        metadata.put(ServiceInstance.METADATA_WEIGHT, String.valueOf(weight));
+    }
+
+    /**
+     * 设置实例所在的机房 / 可用区
+     */
+    public void setZone(String zone) {
+        metadata.put(ServiceInstance.METADATA_ZONE, zone);
+    }
+
+    /**
+     * 设置实例建议的最大并发请求数，0 表示不限制
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 0) {
+            throw new IllegalArgumentException("最大并发请求数不能小于 0: " + maxConcurrency);
+        }
+        metadata.put(ServiceInstance.METADATA_MAX_CONCURRENCY, String.valueOf(maxConcurrency));
+    }
+
+    /**
+     * 设置自定义的实例元数据，随服务发现下发给客户端
+     */
+    public void setMetadata(String key, String value) {
+        metadata.put(key, value);
+    }
+
+    /**
+     * 设置错误响应中携带的堆栈深度（调试用），0 表示不传输堆栈
+     */
+    public void setErrorStackTraceDepth(int errorStackTraceDepth) {
+        this.errorStackTraceDepth = errorStackTraceDepth;
+    }
+
+    /**
+     * 获取压缩统计指标
+     */
+    public CompressionMetrics getCompressionMetrics() {
+        return compressionMetrics;
     }
 
     /**
      * 处理 RPC 请求
      */
     public RpcResponse handleRequest(RpcRequest request) {
-        RpcResponse response = new RpcResponse();
-        response.setRequestId(request.getRequestId());
+        Object service = serviceRegistry.get(request.getInterfaceName());
+        if (service == null) {
+            return fail(request, RpcErrorCodeEnum.SERVICE_NOT_FOUND,
+                    new IllegalStateException("服务未找到: " + request.getInterfaceName()));
+        }
 
+        Method method;
         try {
-            Object service = serviceRegistry.get(request.getInterfaceName());
-            if (service == null) {
-                throw new RuntimeException("服务未找到: " + request.getInterfaceName());
-            }
-
-            Object result = service.getClass()
-                    .getMethod(request.getMethodName(), request.getParameterTypes())
-                    .invoke(service, request.getParameters());
+            method = service.getClass().getMethod(request.getMethodName(), request.getParameterTypes());
+        } catch (NoSuchMethodException e) {
+            return fail(request, RpcErrorCodeEnum.METHOD_NOT_FOUND, e);
+        }
 
-            response.setResult(result);
+        try {
+            Object result = method.invoke(service, request.getParameters());
+            return RpcResponse.success(request.getRequestId(), result);
+        } catch (InvocationTargetException e) {
+            // 反射调用会把业务异常包装一层，返回给客户端的应该是业务异常本身
+            return fail(request, RpcErrorCodeEnum.BUSINESS_EXCEPTION, e.getTargetException());
         } catch (Exception e) {
-            response.setException(e);
-            System.err.println("[服务提供者] 请求处理失败: " + e.getMessage());
+            return fail(request, RpcErrorCodeEnum.INTERNAL_ERROR, e);
         }
+    }
 
-        return response;
+    private RpcResponse fail(RpcRequest request, RpcErrorCodeEnum errorCode, Throwable throwable) {
+        System.err.println("[服务提供者] 请求处理失败: " + errorCode.getDescription() + ", " + throwable);
+        return RpcResponse.fail(request.getRequestId(), RpcError.of(errorCode, throwable, errorStackTraceDepth));
     }
 
     @ChannelHandler.Sharable
@@ -189,28 +454,20 @@ public class RpcServer {
 
         @Override
         public void channelRead(ChannelHandlerContext ctx, Object msg) {
-            ByteBuf buf = (ByteBuf) msg;
-            try {
-                byte[] data = new byte[buf.readableBytes()];
-                buf.readBytes(data);
-
-                // 使用配置的序列化器反序列化请求
-                RpcRequest request = serializer.deserialize(data, RpcRequest.class);
-                RpcResponse response = handleRequest(request);
-
-                // 使用配置的序列化器序列化响应
-                byte[] responseData = serializer.serialize(response);
-                ByteBuf responseBuf = Unpooled.buffer(responseData.length);
-                responseBuf.writeBytes(responseData);
-                ctx.writeAndFlush(responseBuf);
-
-                System.out.println("[服务提供者] 处理请求完成: " + request.getRequestId());
-            } catch (Exception e) {
-                System.err.println("[服务提供者] 处理请求异常: " + e.getMessage());
-                e.printStackTrace();
-            } finally {
-                buf.release();
-            }
+            // 请求已由 SerializationCodec 在连接的序列化会话内反序列化
+            RpcRequest request = (RpcRequest) msg;
+            RpcResponse response = handleRequest(request);
+
+            ctx.writeAndFlush(response).addListener(future -> {
+                if (future.isSuccess()) {
+                    System.out.println("[服务提供者] 处理请求完成: " + request.getRequestId());
+                } else if (response.getError() == null) {
+                    // 返回值无法序列化时，至少让客户端收到错误而不是一直等待
+                    ctx.writeAndFlush(fail(request, RpcErrorCodeEnum.INTERNAL_ERROR, future.cause()));
+                } else {
+                    System.err.println("[服务提供者] 发送响应失败: " + future.cause().getMessage());
+                }
+            });
         }
 
         @Override
@@ -0,0 +1,12 @@
+package com.alan.rpc.v4.registry;
+
+/**
+ * 注册中心回复实例未注册（例如注册中心重启后丢失了注册表、实例租约已过期）
+ * 与连接失败、超时等通信异常区分开：只有收到该异常时服务提供者才需要重新注册
+ */
+public class InstanceNotRegisteredException extends RegistryException {
+
+    public InstanceNotRegisteredException(String message) {
+        super(message);
+    }
+}
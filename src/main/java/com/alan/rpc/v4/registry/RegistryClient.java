@@ -1,128 +1,1049 @@
 package com.alan.rpc.v4.registry;
 
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
-import java.util.List;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.AttributeKey;
+
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * 注册中心客户端
  * 服务提供者和消费者通过它与注册中心交互
+ * 与注册中心保持一条长连接，请求按 requestId 关联响应，可以不等响应连续发送；
+ * 连接断开后，下一次请求时自动重连，并重新订阅之前订阅过的服务
+ *
+ * 注册中心集群：可以配置多个节点地址，客户端随机选择一个节点连接（不同客户端的读请求分散到各个节点），
+ * 连接失败、断开或请求超时时切换到下一个节点并重试请求（注册中心的请求都是幂等的）
+ *
+ * 增量服务发现：客户端为发现和订阅过的服务保存一份本地实例列表及其版本号，请求时带上版本号，
+ * 注册中心只返回之后的变化，本地合并后得到完整列表；返回给调用方和监听器的始终是完整列表（只读）
+ *
+ * 分片部署（见 {@link ShardRing}）：配置的节点地址只作为入口，第一次请求前从中获取分片拓扑，之后每个服务的请求
+ * 发往该服务所属的分片（每个分片一条连接，分片内的节点之间同样可以切换），批量请求按分片拆分，实例级心跳发往
+ * 该实例注册过的所有分片。拓扑变化（注册中心推送，或请求被拒绝时随响应返回）后，把归属变化的注册和订阅迁移到新的分片
  */
 public class RegistryClient {
 
     /**
-     * 注册中心地址
+     * 请求超时时间（毫秒）
+     */
+    private static final long REQUEST_TIMEOUT_MILLIS = 5_000;
+
+    /**
+     * 连接超时时间（毫秒）
+     */
+    private static final int CONNECT_TIMEOUT_MILLIS = 3_000;
+
+    /**
+     * 节点的分片拓扑比客户端旧（拓扑广播尚未到达）而拒绝请求时，等待该时间后重试（毫秒）
+     */
+    private static final long STALE_TOPOLOGY_RETRY_MILLIS = 500;
+
+    /**
+     * 连接上等待响应的请求：requestId -> 响应
+     */
+    private static final AttributeKey<Map<Long, CompletableFuture<RegistryResponse>>> PENDING_REQUESTS =
+            AttributeKey.valueOf("pendingRegistryRequests");
+
+    /**
+     * 连接所属的节点组，收到变更通知时据此判断来自哪个分片
+     */
+    private static final AttributeKey<NodeConnection> NODE_CONNECTION = AttributeKey.valueOf("registryNodeConnection");
+
+    private final EventLoopGroup eventLoopGroup = new NioEventLoopGroup(1);
+    private final Bootstrap bootstrap;
+    private final AtomicLong nextRequestId = new AtomicLong();
+
+    /**
+     * 订阅的服务：服务名称 -> 实例变更监听器
+     */
+    private final Map<String, Consumer<List<ServiceInstance>>> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * 本地实例列表：服务名称 -> 已知的版本及实例
+     */
+    private final Map<String, ServiceView> views = new ConcurrentHashMap<>();
+
+    /**
+     * 通过本客户端注册的实例：实例ID -> 注册信息，实例级心跳据此发往注册过的分片，拓扑变化时据此迁移注册
+     */
+    private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+
+    /**
+     * 配置的注册中心节点：未分片部署时处理所有请求，分片部署时只用来获取拓扑
+     */
+    private final NodeConnection seed;
+
+    /**
+     * 是否从注册中心获取分片拓扑（注册中心节点之间的复制连接固定发往配置的节点，不获取）
      */
-    private final String registryHost;
+    private final boolean discoverTopology;
 
     /**
-     * 注册中心端口
+     * 分片拓扑，未分片部署时为 null；获取拓扑的请求只发一次，由 topologyLock 保护
      */
-    private final int registryPort;
+    private volatile ShardRing ring;
+    private CompletableFuture<Void> topologyFetched;
+    private final Object topologyLock = new Object();
+
+    /**
+     * 各分片的节点组：分片标识 -> 节点组，第一次访问该分片时创建，分片移出拓扑时关闭
+     */
+    private final Map<String, NodeConnection> shardConnections = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
 
     public RegistryClient(String registryHost, int registryPort) {
-        this.registryHost = registryHost;
-        this.registryPort = registryPort;
+        this(Collections.singletonList(registryHost + ":" + registryPort));
+    }
+
+    /**
+     * @param registryAddresses 注册中心集群各节点地址（host:port），分片部署时可以是任意几个节点
+     */
+    public RegistryClient(List<String> registryAddresses) {
+        this(registryAddresses, true);
+    }
+
+    /**
+     * @param discoverTopology 是否获取分片拓扑，为 false 时所有请求都发往配置的节点
+     */
+    RegistryClient(List<String> registryAddresses, boolean discoverTopology) {
+        this.seed = new NodeConnection(registryAddresses);
+        this.discoverTopology = discoverTopology;
+        RegistryClientHandler clientHandler = new RegistryClientHandler();
+        this.bootstrap = new Bootstrap()
+                .group(eventLoopGroup)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT_MILLIS)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.attr(PENDING_REQUESTS).set(new ConcurrentHashMap<>());
+                        RegistryProtocol.initPipeline(ch.pipeline(), RegistryResponse.class);
+                        ch.pipeline().addLast(clientHandler);
+                    }
+                });
     }
 
     /**
      * 注册服务
      */
     public void register(String serviceName, String host, int port, String instanceId) {
-        sendRequest("REGISTER", () -> {
-            try (Socket socket = new Socket(registryHost, registryPort);
-                 ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream());
-                 ObjectInputStream ois = new ObjectInputStream(socket.getInputStream())) {
+        await(registerAsync(serviceName, host, port, instanceId), RegistryRequestTypeEnum.REGISTER);
+    }
+
+    /**
+     * 注册服务，携带实例元数据（权重、机房等，见 ServiceInstance 的 METADATA_* 常量）
+     */
+    public void register(String serviceName, String host, int port, String instanceId, Map<String, String> metadata) {
+        await(registerAsync(serviceName, host, port, instanceId, metadata), RegistryRequestTypeEnum.REGISTER);
+    }
+
+    /**
+     * 发现服务
+     */
+    public List<ServiceInstance> discover(String serviceName) {
+        return await(discoverAsync(serviceName), RegistryRequestTypeEnum.DISCOVER);
+    }
+
+    /**
+     * 服务下线
+     */
+    public void deregister(String serviceName, String instanceId) {
+        await(deregisterAsync(serviceName, instanceId), RegistryRequestTypeEnum.DEREGISTER);
+    }
+
+    /**
+     * 发送心跳
+     */
+    public void heartbeat(String serviceName, String instanceId) {
+        await(heartbeatAsync(serviceName, instanceId), RegistryRequestTypeEnum.HEARTBEAT);
+    }
+
+    /**
+     * 订阅服务
+     *
+     * @param listener 收到注册中心推送的实例变更（完整实例列表）时回调，在连接的 EventLoop 线程中执行
+     * @return 当前的实例列表
+     */
+    public List<ServiceInstance> subscribe(String serviceName, Consumer<List<ServiceInstance>> listener) {
+        return await(subscribeAsync(serviceName, listener), RegistryRequestTypeEnum.SUBSCRIBE);
+    }
+
+    /**
+     * 批量注册：同一实例的多个服务一次注册，任一服务名称不合法时整批失败
+     */
+    public void registerAll(List<String> serviceNames, String host, int port, String instanceId) {
+        await(registerAllAsync(serviceNames, host, port, instanceId), RegistryRequestTypeEnum.REGISTER_BATCH);
+    }
+
+    /**
+     * 批量注册，各服务共用同一份实例元数据
+     */
+    public void registerAll(List<String> serviceNames, String host, int port, String instanceId,
+                            Map<String, String> metadata) {
+        await(registerAllAsync(serviceNames, host, port, instanceId, metadata), RegistryRequestTypeEnum.REGISTER_BATCH);
+    }
+
+    /**
+     * 批量发现：一次请求获取多个服务的实例列表
+     *
+     * @return 服务名称 -> 实例列表，顺序与参数一致
+     */
+    public Map<String, List<ServiceInstance>> discoverAll(Collection<String> serviceNames) {
+        return await(discoverAllAsync(serviceNames), RegistryRequestTypeEnum.DISCOVER_BATCH);
+    }
+
+    /**
+     * 批量订阅：一次请求订阅多个服务
+     *
+     * @param listeners 服务名称 -> 实例变更监听器
+     * @return 服务名称 -> 当前的实例列表
+     */
+    public Map<String, List<ServiceInstance>> subscribeAll(Map<String, Consumer<List<ServiceInstance>>> listeners) {
+        return await(subscribeAllAsync(listeners), RegistryRequestTypeEnum.DISCOVER_BATCH);
+    }
+
+    /**
+     * 更新分片拓扑（加入或移除分片）：发给配置的节点，由它广播给新旧拓扑中的所有节点；
+     * 移出拓扑的分片上的服务由各客户端迁移到新的分片，之后可以下线这些节点
+     *
+     * @param shards 新的分片拓扑，格式见 {@link ShardRing}
+     * @return 更新后的拓扑
+     */
+    public ShardRing updateTopology(String shards) {
+        return await(updateTopologyAsync(shards), RegistryRequestTypeEnum.TOPOLOGY);
+    }
+
+    /**
+     * 当前的分片拓扑，未分片部署或尚未获取时为 null
+     */
+    public ShardRing getShardRing() {
+        return ring;
+    }
+
+    /**
+     * 注册服务（不等待响应）
+     */
+    public CompletableFuture<Void> registerAsync(String serviceName, String host, int port, String instanceId) {
+        return registerAsync(serviceName, host, port, instanceId, null);
+    }
+
+    /**
+     * 注册服务，携带实例元数据（不等待响应）
+     */
+    public CompletableFuture<Void> registerAsync(String serviceName, String host, int port, String instanceId,
+                                                 Map<String, String> metadata) {
+        remember(Collections.singletonList(serviceName), host, port, instanceId, metadata);
+        RegistryRequest request = new RegistryRequest(0, RegistryRequestTypeEnum.REGISTER, serviceName, host, port, instanceId);
+        request.setMetadata(metadata);
+        return routed(() -> send(request)).thenApply(response -> null);
+    }
+
+    /**
+     * 发现服务（不等待响应）
+     */
+    public CompletableFuture<List<ServiceInstance>> discoverAsync(String serviceName) {
+        return routed(() -> fetch(RegistryRequestTypeEnum.DISCOVER, serviceName));
+    }
+
+    /**
+     * 实例级心跳（不等待响应）：一条消息续约该实例注册的所有服务，分片部署时发往该实例注册过的每个分片
+     * 注册中心续约的服务比本客户端注册过的少时（例如拓扑变化期间迁移注册失败），在该节点组上补发注册
+     *
+     * @return 注册中心建议的心跳间隔（毫秒），0 表示不建议；实例未注册时以 InstanceNotRegisteredException 失败，
+     * 通信失败时以 RegistryException 失败
+     */
+    public CompletableFuture<Long> heartbeatAsync(String instanceId) {
+        return routed(() -> {
+            Registration registration = registrations.get(instanceId);
+            Map<NodeConnection, List<String>> targets = registration == null
+                    ? Collections.singletonMap(seed, Collections.emptyList()) : group(registration.serviceNames);
+            List<CompletableFuture<Long>> heartbeats = new ArrayList<>(targets.size());
+            targets.forEach((connection, serviceNames) -> heartbeats.add(send(connection,
+                    new RegistryRequest(0, RegistryRequestTypeEnum.HEARTBEAT, null, null, 0, instanceId)).thenApply(response -> {
+                if (response.getRevision() < serviceNames.size()) {
+                    System.out.println("[注册中心客户端] 注册中心只续约了实例 " + instanceId + " 的 " + response.getRevision()
+                            + "/" + serviceNames.size() + " 个服务，重新注册");
+                    registerAllAsync(serviceNames, registration.host, registration.port, instanceId, registration.metadata);
+                }
+                return response.getHeartbeatIntervalMillis();
+            })));
+            return CompletableFuture.allOf(heartbeats.toArray(new CompletableFuture[0])).thenApply(v -> {
+                // 各分片的租约时长相同，建议值一致，取其中最小的非零值
+                long interval = 0;
+                for (CompletableFuture<Long> heartbeat : heartbeats) {
+                    long suggested = heartbeat.join();
+                    if (suggested > 0 && (interval == 0 || suggested < interval)) {
+                        interval = suggested;
+                    }
+                }
+                return interval;
+            });
+        });
+    }
+
+    /**
+     * 订阅服务（不等待响应），重复订阅同一服务会替换监听器并返回最新的实例列表
+     */
+    public CompletableFuture<List<ServiceInstance>> subscribeAsync(String serviceName,
+                                                                   Consumer<List<ServiceInstance>> listener) {
+        subscriptions.put(serviceName, listener);
+        return routed(() -> fetch(RegistryRequestTypeEnum.SUBSCRIBE, serviceName));
+    }
+
+    /**
+     * 批量注册（不等待响应）
+     */
+    public CompletableFuture<Void> registerAllAsync(List<String> serviceNames, String host, int port, String instanceId) {
+        return registerAllAsync(serviceNames, host, port, instanceId, null);
+    }
+
+    /**
+     * 批量注册，携带实例元数据（不等待响应）；分片部署时按分片拆分为多个批量注册请求
+     */
+    public CompletableFuture<Void> registerAllAsync(List<String> serviceNames, String host, int port, String instanceId,
+                                                    Map<String, String> metadata) {
+        remember(serviceNames, host, port, instanceId, metadata);
+        return routed(() -> {
+            List<CompletableFuture<RegistryResponse>> responses = new ArrayList<>();
+            group(serviceNames).forEach((connection, names) -> {
+                RegistryRequest request = new RegistryRequest(0, RegistryRequestTypeEnum.REGISTER_BATCH, null, host, port,
+                        instanceId);
+                request.setServiceNames(names);
+                request.setMetadata(metadata);
+                responses.add(send(connection, request));
+            });
+            return CompletableFuture.allOf(responses.toArray(new CompletableFuture[0]));
+        });
+    }
+
+    /**
+     * 批量发现（不等待响应）
+     */
+    public CompletableFuture<Map<String, List<ServiceInstance>>> discoverAllAsync(Collection<String> serviceNames) {
+        return routed(() -> fetchAll(RegistryRequestTypeEnum.DISCOVER, serviceNames));
+    }
+
+    /**
+     * 批量订阅（不等待响应），已订阅的服务会替换监听器
+     */
+    public CompletableFuture<Map<String, List<ServiceInstance>>> subscribeAllAsync(
+            Map<String, Consumer<List<ServiceInstance>>> listeners) {
+        subscriptions.putAll(listeners);
+        return routed(() -> fetchAll(RegistryRequestTypeEnum.SUBSCRIBE, listeners.keySet()));
+    }
+
+    /**
+     * 服务下线（不等待响应）
+     */
+    public CompletableFuture<Void> deregisterAsync(String serviceName, String instanceId) {
+        forget(serviceName, instanceId);
+        return routed(() -> send(new RegistryRequest(0, RegistryRequestTypeEnum.DEREGISTER, serviceName, null, 0, instanceId)))
+                .thenApply(response -> null);
+    }
+
+    /**
+     * 发送心跳（不等待响应）
+     */
+    public CompletableFuture<Void> heartbeatAsync(String serviceName, String instanceId) {
+        return routed(() -> send(new RegistryRequest(0, RegistryRequestTypeEnum.HEARTBEAT, serviceName, null, 0, instanceId)))
+                .thenApply(response -> null);
+    }
+
+    /**
+     * 更新分片拓扑（不等待响应）：先查询集群当前的拓扑，再以下一个版本号提交
+     */
+    public CompletableFuture<ShardRing> updateTopologyAsync(String shards) {
+        ShardRing proposed = ShardRing.parse(0, shards);
+        return send(seed, new RegistryRequest(0, RegistryRequestTypeEnum.TOPOLOGY, null, null, 0, null))
+                .thenCompose(current -> {
+                    if (current.getShards() == null) {
+                        throw new RegistryException("注册中心未分片部署，不能更新分片拓扑");
+                    }
+                    RegistryRequest request = new RegistryRequest(0, RegistryRequestTypeEnum.TOPOLOGY, null, null, 0, null);
+                    request.setServiceNames(proposed.toWire());
+                    request.setRevision(current.getRevision() + 1);
+                    return send(seed, request);
+                })
+                .thenApply(response -> {
+                    ShardRing updated = ShardRing.fromWire(response.getRevision(), response.getShards());
+                    if (!updated.sameShards(proposed)) {
+                        throw new RegistryException("分片拓扑已被其他更新修改: " + updated);
+                    }
+                    adoptTopology(updated);
+                    return updated;
+                });
+    }
+
+    /**
+     * 关闭客户端，断开与注册中心的连接
+     */
+    public void close() {
+        closed = true;
+        seed.close();
+        shardConnections.values().forEach(NodeConnection::close);
+        eventLoopGroup.shutdownGracefully();
+    }
+
+    /**
+     * 解析逗号分隔的注册中心地址，例如 "127.0.0.1:9000,127.0.0.1:9001"
+     */
+    public static List<String> parseAddresses(String addresses) {
+        List<String> result = new ArrayList<>();
+        for (String address : addresses.split(",")) {
+            if (!address.isBlank()) {
+                result.add(address.trim());
+            }
+        }
+        return result;
+    }
 
-                oos.writeObject("REGISTER");
-                oos.writeObject(serviceName);
-                oos.writeObject(host);
-                oos.writeObject(port);
-                oos.writeObject(instanceId);
-                oos.flush();
+    /**
+     * 发往服务所属的分片，注册中心返回失败时以 RegistryException 失败
+     */
+    private CompletableFuture<RegistryResponse> send(RegistryRequest request) {
+        return send(route(request.getServiceName()), request);
+    }
 
-                ois.readBoolean();
+    /**
+     * 发往指定的节点组，注册中心返回失败时以 RegistryException 失败；
+     * 失败响应带有拓扑（服务不属于该节点的分片）时先采用，并以 WrongShardException 失败
+     */
+    private CompletableFuture<RegistryResponse> send(NodeConnection connection, RegistryRequest request) {
+        return connection.exchange(request).thenApply(response -> {
+            if (!response.isSuccess()) {
+                String message = request.getType().getDescription() + "失败: " + response.getMessage();
+                if (response.getShards() != null) {
+                    adoptTopology(ShardRing.fromWire(response.getRevision(), response.getShards()));
+                    throw new WrongShardException(message);
+                }
+                if (request.getType() == RegistryRequestTypeEnum.HEARTBEAT && request.getServiceName() == null) {
+                    // 实例级心跳只在实例未注册时失败
+                    throw new InstanceNotRegisteredException(message);
+                }
+                throw new RegistryException(message);
             }
-            return null;
+            return response;
         });
     }
 
     /**
-     * 发现服务
+     * 按分片路由执行一个操作：第一次请求前先获取拓扑。请求因分片不对被拒绝时重试一次：
+     * 期间拓扑发生了变化（请求发到了旧的分片）时立即按新拓扑重试，否则是节点的拓扑比客户端旧，稍后重试
      */
-    public List<ServiceInstance> discover(String serviceName) {
-        return sendRequest("DISCOVER", () -> {
-            try (Socket socket = new Socket(registryHost, registryPort);
-                 ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream());
-                 ObjectInputStream ois = new ObjectInputStream(socket.getInputStream())) {
+    private <T> CompletableFuture<T> routed(Supplier<CompletableFuture<T>> operation) {
+        return topologyFetched().thenCompose(v -> {
+            ShardRing before = ring;
+            return operation.get().exceptionallyCompose(e -> {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (closed || !(cause instanceof WrongShardException)) {
+                    return CompletableFuture.failedFuture(e);
+                }
+                if (ring != before) {
+                    return operation.get();
+                }
+                CompletableFuture<T> retry = new CompletableFuture<>();
+                eventLoopGroup.schedule(() -> operation.get().whenComplete((result, error) -> {
+                    if (error != null) {
+                        retry.completeExceptionally(error);
+                    } else {
+                        retry.complete(result);
+                    }
+                }), STALE_TOPOLOGY_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+                return retry;
+            });
+        });
+    }
 
-                oos.writeObject("DISCOVER");
-                oos.writeObject(serviceName);
-                oos.flush();
+    /**
+     * 从配置的节点获取分片拓扑，只在第一次请求前执行一次。获取失败时按未分片处理，
+     * 请求发往配置的节点；如果注册中心实际是分片部署，被拒绝的响应中会带上拓扑
+     */
+    private CompletableFuture<Void> topologyFetched() {
+        if (!discoverTopology) {
+            return CompletableFuture.completedFuture(null);
+        }
+        synchronized (topologyLock) {
+            if (topologyFetched == null) {
+                topologyFetched = seed.exchange(new RegistryRequest(0, RegistryRequestTypeEnum.TOPOLOGY, null, null, 0, null))
+                        .handle((response, e) -> {
+                            if (e == null && response.isSuccess() && response.getShards() != null) {
+                                adoptTopology(ShardRing.fromWire(response.getRevision(), response.getShards()));
+                            }
+                            return null;
+                        });
+            }
+            return topologyFetched;
+        }
+    }
 
-                @SuppressWarnings("unchecked")
-                List<ServiceInstance> instances = (List<ServiceInstance>) ois.readObject();
-                return instances;
+    /**
+     * 采用比当前更新的拓扑：关闭已移出拓扑的分片的连接，把归属变化的注册和订阅迁移到新的分片
+     */
+    private void adoptTopology(ShardRing proposed) {
+        if (!discoverTopology) {
+            return;
+        }
+        ShardRing previous;
+        synchronized (topologyLock) {
+            previous = ring;
+            if (previous != null && proposed.getVersion() <= previous.getVersion()) {
+                return;
+            }
+            ring = proposed;
+        }
+        System.out.println("[注册中心客户端] 分片拓扑更新: " + proposed);
+        Set<String> shardKeys = new HashSet<>();
+        for (int i = 0; i < proposed.size(); i++) {
+            shardKeys.add(proposed.getShardKey(i));
+        }
+        shardConnections.entrySet().removeIf(entry -> {
+            if (shardKeys.contains(entry.getKey())) {
+                return false;
             }
+            entry.getValue().close();
+            return true;
         });
+        migrate(previous, proposed);
     }
 
     /**
-     * 服务下线
+     * 拓扑变化后迁移归属变化的服务：在新的分片上重新注册（旧分片的节点会自行移除不再属于它的服务）并重新订阅。
+     * 之前没有拓扑时请求都发往了配置的节点，全部迁移
      */
-    public void deregister(String serviceName, String instanceId) {
-        sendRequest("DEREGISTER", () -> {
-            try (Socket socket = new Socket(registryHost, registryPort);
-                 ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream());
-                 ObjectInputStream ois = new ObjectInputStream(socket.getInputStream())) {
+    private void migrate(ShardRing previous, ShardRing current) {
+        for (Map.Entry<String, Registration> entry : registrations.entrySet()) {
+            Registration registration = entry.getValue();
+            List<String> moved = new ArrayList<>();
+            for (String serviceName : registration.serviceNames) {
+                if (moved(previous, current, serviceName)) {
+                    moved.add(serviceName);
+                }
+            }
+            if (!moved.isEmpty()) {
+                registerAllAsync(moved, registration.host, registration.port, entry.getKey(), registration.metadata)
+                        .whenComplete((v, e) -> {
+                            if (e != null) {
+                                System.err.println("[注册中心客户端] 迁移注册失败: " + moved + ", " + e.getMessage());
+                            }
+                        });
+            }
+        }
+
+        List<String> movedSubscriptions = new ArrayList<>();
+        for (String serviceName : subscriptions.keySet()) {
+            if (moved(previous, current, serviceName)) {
+                movedSubscriptions.add(serviceName);
+            }
+        }
+        resubscribe(movedSubscriptions);
+    }
+
+    private static boolean moved(ShardRing previous, ShardRing current, String serviceName) {
+        return previous == null || !previous.shardKeyOf(serviceName).equals(current.shardKeyOf(serviceName));
+    }
+
+    /**
+     * 服务的请求发往的节点组：分片部署时为服务所属的分片，否则（或没有服务名称时）为配置的节点
+     */
+    private NodeConnection route(String serviceName) {
+        ShardRing current = ring;
+        if (current == null || serviceName == null) {
+            return seed;
+        }
+        return shardConnections.computeIfAbsent(current.shardKeyOf(serviceName),
+                shardKey -> new NodeConnection(parseAddresses(shardKey)));
+    }
+
+    /**
+     * 按发往的节点组对服务分组，组内保持参数顺序
+     */
+    private Map<NodeConnection, List<String>> group(Collection<String> serviceNames) {
+        Map<NodeConnection, List<String>> groups = new LinkedHashMap<>();
+        for (String serviceName : serviceNames) {
+            groups.computeIfAbsent(route(serviceName), k -> new ArrayList<>()).add(serviceName);
+        }
+        return groups;
+    }
+
+    /**
+     * 记录通过本客户端注册的服务，同一实例的多次注册合并
+     */
+    private void remember(List<String> serviceNames, String host, int port, String instanceId,
+                          Map<String, String> metadata) {
+        Registration registration = registrations.computeIfAbsent(instanceId, k -> new Registration());
+        registration.host = host;
+        registration.port = port;
+        registration.metadata = metadata;
+        registration.serviceNames.addAll(serviceNames);
+    }
 
-                oos.writeObject("DEREGISTER");
-                oos.writeObject(serviceName);
-                oos.writeObject(instanceId);
-                oos.flush();
+    private void forget(String serviceName, String instanceId) {
+        registrations.computeIfPresent(instanceId, (k, registration) -> {
+            registration.serviceNames.remove(serviceName);
+            return registration.serviceNames.isEmpty() ? null : registration;
+        });
+    }
 
-                ois.readBoolean();
+    /**
+     * 发现或订阅服务：带上本地版本号，把返回的变化合并到本地实例列表
+     */
+    private CompletableFuture<List<ServiceInstance>> fetch(RegistryRequestTypeEnum type, String serviceName) {
+        ServiceView view = views.computeIfAbsent(serviceName, k -> new ServiceView());
+        RegistryRequest request = new RegistryRequest(0, type, serviceName, null, 0, null);
+        view.stamp(request);
+        return send(request).thenCompose(response -> {
+            List<ServiceInstance> instances = view.apply(response);
+            if (instances != null) {
+                return CompletableFuture.completedFuture(instances);
             }
-            return null;
+            // 请求期间本地列表被其他节点的完整列表替换，增量无法合并，重新拉取完整列表
+            return send(new RegistryRequest(0, type, serviceName, null, 0, null)).thenApply(view::apply);
         });
     }
 
     /**
-     * 发送心跳
+     * 批量发现或订阅：按发往的节点组拆分，每组一个 DISCOVER_BATCH 请求，结果顺序与参数一致
      */
-    public void heartbeat(String serviceName, String instanceId) {
-        sendRequest("HEARTBEAT", () -> {
-            try (Socket socket = new Socket(registryHost, registryPort);
-                 ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream());
-                 ObjectInputStream ois = new ObjectInputStream(socket.getInputStream())) {
+    private CompletableFuture<Map<String, List<ServiceInstance>>> fetchAll(RegistryRequestTypeEnum type,
+                                                                        Collection<String> serviceNames) {
+        List<String> names = new ArrayList<>(new LinkedHashSet<>(serviceNames));
+        List<CompletableFuture<Map<String, List<ServiceInstance>>>> batches = new ArrayList<>();
+        group(names).forEach((connection, group) -> batches.add(fetchBatch(connection, type, group)));
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).thenApply(v -> {
+            Map<String, List<ServiceInstance>> fetched = new HashMap<>();
+            for (CompletableFuture<Map<String, List<ServiceInstance>>> batch : batches) {
+                fetched.putAll(batch.join());
+            }
+            Map<String, List<ServiceInstance>> result = new LinkedHashMap<>();
+            for (String serviceName : names) {
+                result.put(serviceName, fetched.get(serviceName));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 一个节点组上的批量发现或订阅：每个服务一个带本地版本号的子请求，合并在一个 DISCOVER_BATCH 请求中发送
+     */
+    private CompletableFuture<Map<String, List<ServiceInstance>>> fetchBatch(NodeConnection connection,
+                                                                          RegistryRequestTypeEnum type,
+                                                                          List<String> names) {
+        List<ServiceView> batchViews = new ArrayList<>(names.size());
+        List<RegistryRequest> batch = new ArrayList<>(names.size());
+        for (String serviceName : names) {
+            ServiceView view = views.computeIfAbsent(serviceName, k -> new ServiceView());
+            RegistryRequest item = new RegistryRequest(0, type, serviceName, null, 0, null);
+            view.stamp(item);
+            batchViews.add(view);
+            batch.add(item);
+        }
+        RegistryRequest request = new RegistryRequest(0, RegistryRequestTypeEnum.DISCOVER_BATCH, null, null, 0, null);
+        request.setBatch(batch);
+
+        return send(connection, request).thenCompose(response -> {
+            if (response.getBatch() == null || response.getBatch().size() != names.size()) {
+                throw new RegistryException("批量发现的响应与请求不一致");
+            }
+            Map<String, List<ServiceInstance>> result = new LinkedHashMap<>();
+            List<CompletableFuture<Void>> refetches = new ArrayList<>();
+            for (int i = 0; i < names.size(); i++) {
+                String serviceName = names.get(i);
+                List<ServiceInstance> instances = batchViews.get(i).apply(response.getBatch().get(i));
+                result.put(serviceName, instances);
+                if (instances == null) {
+                    // 与单个服务相同：增量无法合并时单独重新拉取
+                    refetches.add(fetch(type, serviceName).thenAccept(latest -> {
+                        synchronized (result) {
+                            result.put(serviceName, latest);
+                        }
+                    }));
+                }
+            }
+            return CompletableFuture.allOf(refetches.toArray(new CompletableFuture[0])).thenApply(v -> {
+                synchronized (result) {
+                    return result;
+                }
+            });
+        });
+    }
 
-                oos.writeObject("HEARTBEAT");
-                oos.writeObject(serviceName);
-                oos.writeObject(instanceId);
-                oos.flush();
+    /**
+     * 处理变更通知：合并到本地实例列表后回调监听器，错过了中间的变更时先补拉一次
+     * 分片部署时忽略来自不再负责该服务的分片的通知；拓扑变更通知交给 {@link #adoptTopology}
+     */
+    private void onNotification(NodeConnection connection, RegistryResponse notification) {
+        if (notification.getShards() != null) {
+            adoptTopology(ShardRing.fromWire(notification.getRevision(), notification.getShards()));
+            return;
+        }
+        String serviceName = notification.getServiceName();
+        Consumer<List<ServiceInstance>> listener = subscriptions.get(serviceName);
+        if (listener == null || route(serviceName) != connection) {
+            return;
+        }
+        List<ServiceInstance> instances = views.computeIfAbsent(serviceName, k -> new ServiceView()).apply(notification);
+        if (instances != null) {
+            listener.accept(instances);
+            return;
+        }
+        discoverAsync(serviceName).whenComplete((latest, e) -> {
+            if (e != null) {
+                System.err.println("[注册中心客户端] 补拉实例列表失败: " + serviceName + ", " + e.getMessage());
+            } else {
+                listener.accept(latest);
+            }
+        });
+    }
+
+    /**
+     * 发送请求并返回注册中心的原始响应（包括失败响应），发往配置的节点，不按分片路由
+     * 连接失败、断开或超时时依次换到其他节点重试，每个节点最多尝试一次
+     */
+    CompletableFuture<RegistryResponse> exchange(RegistryRequest request) {
+        return seed.exchange(request);
+    }
 
-                ois.readBoolean();
+    /**
+     * 重新订阅：注册中心的订阅关系随旧连接一起失效（或服务已迁移到其他分片），期间错过的变更通过订阅结果补齐
+     * 发往同一节点组的服务合并为一个批量订阅请求
+     */
+    private void resubscribe(Collection<String> serviceNames) {
+        if (serviceNames.isEmpty()) {
+            return;
+        }
+        routed(() -> fetchAll(RegistryRequestTypeEnum.SUBSCRIBE, serviceNames)).whenComplete((results, e) -> {
+            if (e != null) {
+                System.err.println("[注册中心客户端] 重新订阅失败: " + serviceNames + ", " + e.getMessage());
+                return;
             }
-            return null;
+            results.forEach((serviceName, instances) -> {
+                Consumer<List<ServiceInstance>> listener = subscriptions.get(serviceName);
+                if (listener != null) {
+                    listener.accept(instances);
+                }
+            });
         });
     }
 
     /**
-     * 发送请求的通用方法
+     * 等待异步请求完成，失败时统一抛出 RegistryException
      */
-    private <T> T sendRequest(String type, RequestCallback<T> callback) {
+    private static <T> T await(CompletableFuture<T> future, RegistryRequestTypeEnum type) {
         try {
-            return callback.execute();
-        } catch (Exception e) {
-            System.err.println("[注册中心客户端] " + type + " 请求失败: " + e.getMessage());
-            throw new RuntimeException("注册中心通信失败", e);
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            System.err.println("[注册中心客户端] " + type + " 请求失败: " + cause.getMessage());
+            if (cause instanceof RegistryException) {
+                throw (RegistryException) cause;
+            }
+            throw new RegistryException("注册中心通信失败", cause);
+        }
+    }
+
+    /**
+     * 一组互为副本的注册中心节点（未分片部署时为配置的全部节点，分片部署时为一个分片）
+     * 同一时刻保持一条连接，连接失败、断开或请求超时时切换到下一个节点
+     */
+    private class NodeConnection {
+
+        /**
+         * 节点地址
+         */
+        private final List<InetSocketAddress> addresses;
+
+        /**
+         * 下一次建立连接使用的节点下标，初始随机，每次重连换到下一个节点
+         */
+        private final AtomicInteger nextAddress;
+
+        /**
+         * 当前连接及正在进行的连接操作，由 connectLock 保护
+         */
+        private final Object connectLock = new Object();
+        private volatile Channel channel;
+        private CompletableFuture<Channel> connecting;
+        private volatile boolean closed;
+
+        NodeConnection(List<String> registryAddresses) {
+            if (registryAddresses.isEmpty()) {
+                throw new IllegalArgumentException("注册中心地址不能为空");
+            }
+            this.addresses = new ArrayList<>(registryAddresses.size());
+            for (String address : registryAddresses) {
+                int index = address.lastIndexOf(':');
+                if (index <= 0) {
+                    throw new IllegalArgumentException("注册中心地址格式错误（应为 host:port）: " + address);
+                }
+                this.addresses.add(InetSocketAddress.createUnresolved(
+                        address.substring(0, index).trim(), Integer.parseInt(address.substring(index + 1).trim())));
+            }
+            this.nextAddress = new AtomicInteger(ThreadLocalRandom.current().nextInt(addresses.size()));
+        }
+
+        /**
+         * 发送请求并返回注册中心的原始响应，失败时依次换到其他节点重试，每个节点最多尝试一次
+         */
+        CompletableFuture<RegistryResponse> exchange(RegistryRequest request) {
+            return exchange(request, addresses.size() - 1);
+        }
+
+        private CompletableFuture<RegistryResponse> exchange(RegistryRequest request, int retries) {
+            CompletableFuture<RegistryResponse> future = transmit(request);
+            if (retries <= 0) {
+                return future;
+            }
+            return future.exceptionallyCompose(e -> {
+                if (isClosed()) {
+                    return CompletableFuture.failedFuture(e);
+                }
+                System.err.println("[注册中心客户端] " + request.getType() + " 请求失败，切换注册中心节点重试: " + e.getMessage());
+                return exchange(request, retries - 1);
+            });
+        }
+
+        /**
+         * 在当前连接上发送一次请求，返回的 future 在收到响应、超时或连接断开时完成
+         */
+        private CompletableFuture<RegistryResponse> transmit(RegistryRequest request) {
+            long requestId = nextRequestId.incrementAndGet();
+            request.setRequestId(requestId);
+
+            CompletableFuture<RegistryResponse> future = new CompletableFuture<>();
+            getChannel().whenComplete((ch, cause) -> {
+                if (cause != null) {
+                    future.completeExceptionally(cause);
+                    return;
+                }
+
+                Map<Long, CompletableFuture<RegistryResponse>> pendingRequests = ch.attr(PENDING_REQUESTS).get();
+                pendingRequests.put(requestId, future);
+                ch.writeAndFlush(request).addListener(writeFuture -> {
+                    if (!writeFuture.isSuccess() && pendingRequests.remove(requestId) != null) {
+                        future.completeExceptionally(new RegistryException("发送请求失败: " + request.getType(), writeFuture.cause()));
+                    }
+                });
+
+                ScheduledFuture<?> timeout = ch.eventLoop().schedule(() -> {
+                    if (pendingRequests.remove(requestId) != null) {
+                        future.completeExceptionally(new RegistryException("请求超时: " + request.getType()));
+                        if (addresses.size() > 1) {
+                            // 集群模式下把超时的节点视为不可用，关闭连接，之后的请求切换到其他节点
+                            ch.close();
+                        }
+                    }
+                }, REQUEST_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                future.whenComplete((response, error) -> timeout.cancel(false));
+            });
+            return future;
+        }
+
+        /**
+         * 获取到注册中心的连接，不存在或已断开时重新建立，并发调用只会发起一次连接
+         */
+        private CompletableFuture<Channel> getChannel() {
+            Channel current = channel;
+            if (current != null && current.isActive()) {
+                return CompletableFuture.completedFuture(current);
+            }
+
+            synchronized (connectLock) {
+                current = channel;
+                if (current != null && current.isActive()) {
+                    return CompletableFuture.completedFuture(current);
+                }
+                if (connecting != null) {
+                    return connecting;
+                }
+                if (isClosed()) {
+                    CompletableFuture<Channel> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(new RegistryException("注册中心客户端已关闭"));
+                    return failed;
+                }
+
+                // 之前连接过说明是重连，连接建立后需要恢复订阅
+                boolean reconnect = current != null;
+                InetSocketAddress address = addresses.get(Math.floorMod(nextAddress.getAndIncrement(), addresses.size()));
+                CompletableFuture<Channel> future = new CompletableFuture<>();
+                connecting = future;
+                bootstrap.connect(address.getHostString(), address.getPort()).addListener((ChannelFutureListener) connectFuture -> {
+                    synchronized (connectLock) {
+                        connecting = null;
+                        if (connectFuture.isSuccess()) {
+                            channel = connectFuture.channel();
+                            channel.attr(NODE_CONNECTION).set(this);
+                        }
+                    }
+                    if (connectFuture.isSuccess()) {
+                        System.out.println("[注册中心客户端] 建立连接: " + address.getHostString() + ":" + address.getPort());
+                        future.complete(connectFuture.channel());
+                        if (reconnect) {
+                            resubscribe(subscribedHere());
+                        }
+                    } else {
+                        future.completeExceptionally(new RegistryException(
+                                "连接注册中心失败: " + address.getHostString() + ":" + address.getPort(), connectFuture.cause()));
+                    }
+                });
+                return future;
+            }
+        }
+
+        /**
+         * 订阅请求发往本节点组的服务
+         */
+        private List<String> subscribedHere() {
+            List<String> serviceNames = new ArrayList<>();
+            for (String serviceName : subscriptions.keySet()) {
+                if (route(serviceName) == this) {
+                    serviceNames.add(serviceName);
+                }
+            }
+            return serviceNames;
+        }
+
+        private boolean isClosed() {
+            return closed || RegistryClient.this.closed;
+        }
+
+        void close() {
+            closed = true;
+            Channel current = channel;
+            if (current != null) {
+                current.close();
+            }
+        }
+    }
+
+    /**
+     * 请求的服务不属于节点所在的分片
+     */
+    private static class WrongShardException extends RegistryException {
+
+        WrongShardException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * 通过本客户端注册的一个实例
+     */
+    private static class Registration {
+
+        private volatile String host;
+        private volatile int port;
+        private volatile Map<String, String> metadata;
+        private final Set<String> serviceNames = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * 一个服务的本地实例列表及其版本号
+     */
+    private static class ServiceView {
+
+        private long epoch;
+        private long revision;
+        private final Map<String, ServiceInstance> instances = new LinkedHashMap<>();
+
+        /**
+         * 返回给调用方的列表，每次变化时重新生成，之后不再修改
+         */
+        private List<ServiceInstance> list = Collections.emptyList();
+
+        /**
+         * 在请求中带上已知的版本号
+         */
+        synchronized void stamp(RegistryRequest request) {
+            request.setEpoch(epoch);
+            request.setRevision(revision);
+        }
+
+        /**
+         * 合并注册中心返回的实例列表
+         *
+         * @return 合并后的完整列表；增量的基准版本与本地不衔接（无法合并）时返回 null
+         */
+        synchronized List<ServiceInstance> apply(RegistryResponse response) {
+            if (!response.isDelta()) {
+                // 完整列表：来自其他注册中心节点（或注册中心重启）时总是采用，否则忽略比本地旧的响应
+                if (response.getEpoch() != epoch || response.getRevision() >= revision) {
+                    instances.clear();
+                    for (ServiceInstance instance : response.getInstances()) {
+                        instances.put(instance.getInstanceId(), instance);
+                    }
+                    epoch = response.getEpoch();
+                    revision = response.getRevision();
+                    list = Collections.unmodifiableList(new ArrayList<>(instances.values()));
+                }
+                return list;
+            }
+
+            if (response.getEpoch() != epoch || response.getBaseRevision() > revision) {
+                return null;
+            }
+            if (response.getRevision() > revision) {
+                // 先删除再添加：重新注册的实例同时出现在两个列表中
+                for (String instanceId : response.getRemovedInstanceIds()) {
+                    instances.remove(instanceId);
+                }
+                for (ServiceInstance instance : response.getInstances()) {
+                    instances.put(instance.getInstanceId(), instance);
+                }
+                revision = response.getRevision();
+                list = Collections.unmodifiableList(new ArrayList<>(instances.values()));
+            }
+            return list;
         }
     }
 
-    @FunctionalInterface
-    private interface RequestCallback<T> {
-        T execute() throws Exception;
+    /**
+     * 注册中心客户端处理器
+     * 按 requestId 把响应交给对应的等待方，变更通知交给订阅的监听器，连接断开时让所有未完成的请求失败
+     */
+    @ChannelHandler.Sharable
+    private class RegistryClientHandler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            RegistryResponse response = (RegistryResponse) msg;
+            if (response.isNotification()) {
+                onNotification(ctx.channel().attr(NODE_CONNECTION).get(), response);
+                return;
+            }
+
+            CompletableFuture<RegistryResponse> future = ctx.channel().attr(PENDING_REQUESTS).get().remove(response.getRequestId());
+            if (future != null) {
+                future.complete(response);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            Map<Long, CompletableFuture<RegistryResponse>> pendingRequests = ctx.channel().attr(PENDING_REQUESTS).get();
+            RegistryException cause = new RegistryException("与注册中心的连接已断开");
+            pendingRequests.values().forEach(future -> future.completeExceptionally(cause));
+            pendingRequests.clear();
+            System.out.println("[注册中心客户端] 连接断开: " + ctx.channel().remoteAddress());
+            ctx.fireChannelInactive();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            System.err.println("[注册中心客户端] 连接异常，关闭连接: " + cause.getMessage());
+            ctx.close();
+        }
     }
 }
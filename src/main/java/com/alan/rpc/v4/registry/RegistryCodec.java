@@ -0,0 +1,519 @@
+package com.alan.rpc.v4.registry;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 注册中心二进制编解码器
+ * 按字段直接读写 RegistryRequest / RegistryResponse，整数使用 varint，不经过通用序列化框架。
+ *
+ * 服务名称、主机地址和实例ID在连接内驻留：某个字符串第一次发送时携带内容并分配编号，之后只发送编号
+ * （双方各自维护本方向的字符串表，每条连接一个实例，连接断开后随之重置）。字符串字段的编码：
+ * <pre>
+ * 0          null
+ * 1 + 字面量  新字符串，加入字符串表（编号为表中的顺序）
+ * 2 + 字面量  不加入字符串表（表已满）
+ * n + 3      引用字符串表中编号为 n 的字符串
+ * </pre>
+ *
+ * 请求：requestId | 类型 (1字节) | 标记 (1字节) | serviceName | host | port | instanceId | [epoch (8字节)] | revision
+ *      | [服务数 + serviceNames] | [子请求数 + 子请求] | [元数据]
+ * 响应：requestId | 标记 (1字节) | [message] | serviceName | heartbeatIntervalMillis | [epoch (8字节)]
+ *      | revision | baseRevision | [实例数 + 实例] | [下线实例数 + 实例ID] | [子响应数 + 子响应] | [分片数 + 分片]
+ * 实例：serviceName | host | port | instanceId | lastHeartbeat | revision | 元数据
+ * 元数据：条目数 + (键 | 值)，键和值都驻留（同一服务的实例通常有相同的权重、机房等取值）
+ * 分片：节点地址按逗号连接，不驻留（只出现在拓扑响应和拓扑变更通知中）
+ *
+ * 预编码响应：注册中心把热点服务的完整实例列表、发给多个订阅者的同一条通知预先编码一次（{@link #encodeBody}），
+ * 之后每次只写 requestId 再接上同一份字节。这类响应体带 SHARED 标记，其中的字符串使用只在本条消息内有效的
+ * 字符串表（编码规则同上，表从空开始），与连接的字符串表无关，因此可以发给任意连接
+ *
+ * 编解码都在连接所属的 EventLoop 线程中执行，不需要同步
+ */
+public class RegistryCodec extends MessageToMessageCodec<ByteBuf, Object> {
+
+    /**
+     * 每个方向最多驻留的字符串数，超出后的字符串每次都发送内容
+     */
+    static final int MAX_INTERNED_STRINGS = 8192;
+
+    private static final int STRING_NULL = 0;
+    private static final int STRING_NEW = 1;
+    private static final int STRING_LITERAL = 2;
+    private static final int STRING_REFERENCE = 3;
+
+    private static final int REQUEST_REPLICATED = 1;
+    private static final int REQUEST_EPOCH = 1 << 1;
+    private static final int REQUEST_SERVICE_NAMES = 1 << 2;
+    private static final int REQUEST_BATCH = 1 << 3;
+    private static final int REQUEST_METADATA = 1 << 4;
+
+    private static final int RESPONSE_SUCCESS = 1;
+    private static final int RESPONSE_DELTA = 1 << 1;
+    private static final int RESPONSE_EPOCH = 1 << 2;
+    private static final int RESPONSE_INSTANCES = 1 << 3;
+    private static final int RESPONSE_REMOVED = 1 << 4;
+    private static final int RESPONSE_BATCH = 1 << 5;
+    private static final int RESPONSE_SHARED = 1 << 6;
+    private static final int RESPONSE_SHARDS = 1 << 7;
+
+    private final boolean requestInbound;
+
+    /**
+     * 已发送的字符串 -> 编号；编码 SHARED 响应体时临时替换为该消息自己的表
+     */
+    private Map<String, Integer> sentStrings = new HashMap<>();
+
+    /**
+     * 已收到的字符串，下标即编号；解码 SHARED 响应体时临时替换为该消息自己的表
+     */
+    private List<String> receivedStrings = new ArrayList<>();
+
+    /**
+     * @param inboundType 入站消息类型（服务端为 RegistryRequest，客户端为 RegistryResponse）
+     */
+    public RegistryCodec(Class<?> inboundType) {
+        if (inboundType != RegistryRequest.class && inboundType != RegistryResponse.class) {
+            throw new IllegalArgumentException("不支持的注册中心消息类型: " + inboundType.getName());
+        }
+        this.requestInbound = inboundType == RegistryRequest.class;
+    }
+
+    /**
+     * 预编码响应体（requestId 之后的部分），结果与连接无关，可以放入 {@link RegistryResponse#setEncodedBody} 反复发送
+     */
+    public static byte[] encodeBody(RegistryResponse response) {
+        ByteBuf buffer = Unpooled.buffer(256);
+        new RegistryCodec(RegistryRequest.class).writeResponseBody(buffer, response, true);
+        byte[] body = new byte[buffer.readableBytes()];
+        buffer.readBytes(body);
+        return body;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) {
+        if (msg instanceof RegistryResponse && ((RegistryResponse) msg).getEncodedBody() != null) {
+            // 预编码响应：requestId 之后直接接上共享的字节，不复制
+            ByteBuf header = ctx.alloc().buffer(10);
+            writeVarLong(header, ((RegistryResponse) msg).getRequestId());
+            out.add(Unpooled.wrappedBuffer(header, Unpooled.wrappedBuffer(((RegistryResponse) msg).getEncodedBody())));
+            return;
+        }
+        ByteBuf buffer = ctx.alloc().buffer();
+        try {
+            write(msg, buffer);
+        } catch (RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+        out.add(buffer);
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) {
+        out.add(read(msg));
+    }
+
+    /**
+     * 把一条消息写入 buffer。编码失败时撤销本条消息新加入字符串表的条目（对方不会收到这条消息），
+     * 连接之后的消息不会引用对方不认识的编号
+     */
+    public void write(Object msg, ByteBuf buffer) {
+        int committedStrings = sentStrings.size();
+        try {
+            if (msg instanceof RegistryRequest) {
+                writeRequest(buffer, (RegistryRequest) msg);
+            } else if (msg instanceof RegistryResponse) {
+                writeResponse(buffer, (RegistryResponse) msg);
+            } else {
+                throw new RegistryException("不支持的注册中心消息: " + msg.getClass().getName());
+            }
+        } catch (RuntimeException e) {
+            // 编号按加入顺序分配，本条消息加入的条目正好是编号不小于 committedStrings 的部分
+            sentStrings.values().removeIf(id -> id >= committedStrings);
+            throw e;
+        }
+    }
+
+    /**
+     * 从 buffer 读取一条消息（一个完整帧）
+     */
+    public Object read(ByteBuf buffer) {
+        try {
+            Object msg = requestInbound ? readRequest(buffer, false) : readResponse(buffer, false);
+            if (buffer.isReadable()) {
+                throw new RegistryException("注册中心消息末尾有多余数据: " + buffer.readableBytes() + " 字节");
+            }
+            return msg;
+        } catch (IndexOutOfBoundsException e) {
+            throw new RegistryException("注册中心消息不完整", e);
+        }
+    }
+
+    // ---------------------------------------------------------------- 请求
+
+    private void writeRequest(ByteBuf out, RegistryRequest request) {
+        if (request.getType() == null) {
+            throw new RegistryException("缺少请求类型");
+        }
+        int flags = (request.isReplicated() ? REQUEST_REPLICATED : 0)
+                | (request.getEpoch() != 0 ? REQUEST_EPOCH : 0)
+                | (request.getServiceNames() != null ? REQUEST_SERVICE_NAMES : 0)
+                | (request.getBatch() != null ? REQUEST_BATCH : 0)
+                | (request.getMetadata() != null ? REQUEST_METADATA : 0);
+        writeVarLong(out, request.getRequestId());
+        out.writeByte(request.getType().getCode());
+        out.writeByte(flags);
+        writeInterned(out, request.getServiceName());
+        writeInterned(out, request.getHost());
+        writeVarLong(out, request.getPort());
+        writeInterned(out, request.getInstanceId());
+        if ((flags & REQUEST_EPOCH) != 0) {
+            out.writeLong(request.getEpoch());
+        }
+        writeVarLong(out, request.getRevision());
+        if (request.getServiceNames() != null) {
+            writeVarLong(out, request.getServiceNames().size());
+            for (String serviceName : request.getServiceNames()) {
+                writeInterned(out, serviceName);
+            }
+        }
+        if (request.getBatch() != null) {
+            writeVarLong(out, request.getBatch().size());
+            for (RegistryRequest item : request.getBatch()) {
+                writeRequest(out, item);
+            }
+        }
+        if (request.getMetadata() != null) {
+            writeMetadata(out, request.getMetadata());
+        }
+    }
+
+    private RegistryRequest readRequest(ByteBuf in, boolean nested) {
+        RegistryRequest request = new RegistryRequest();
+        request.setRequestId(readVarLong(in));
+        request.setType(RegistryRequestTypeEnum.fromCode(in.readByte()));
+        int flags = in.readByte();
+        request.setReplicated((flags & REQUEST_REPLICATED) != 0);
+        request.setServiceName(readInterned(in));
+        request.setHost(readInterned(in));
+        request.setPort((int) readVarLong(in));
+        request.setInstanceId(readInterned(in));
+        if ((flags & REQUEST_EPOCH) != 0) {
+            request.setEpoch(in.readLong());
+        }
+        request.setRevision(readVarLong(in));
+        if (nested && (flags & REQUEST_BATCH) != 0) {
+            throw new RegistryException("子请求不能再包含子请求");
+        }
+        if ((flags & REQUEST_SERVICE_NAMES) != 0) {
+            int count = readCount(in);
+            List<String> serviceNames = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                serviceNames.add(readInterned(in));
+            }
+            request.setServiceNames(serviceNames);
+        }
+        if ((flags & REQUEST_BATCH) != 0) {
+            int count = readCount(in);
+            List<RegistryRequest> batch = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                batch.add(readRequest(in, true));
+            }
+            request.setBatch(batch);
+        }
+        if ((flags & REQUEST_METADATA) != 0) {
+            request.setMetadata(readMetadata(in));
+        }
+        return request;
+    }
+
+    // ---------------------------------------------------------------- 响应
+
+    private void writeResponse(ByteBuf out, RegistryResponse response) {
+        writeVarLong(out, response.getRequestId());
+        if (response.getEncodedBody() != null) {
+            out.writeBytes(response.getEncodedBody());
+        } else {
+            writeResponseBody(out, response, false);
+        }
+    }
+
+    /**
+     * 写入 requestId 之后的部分，shared 为 true 时使用消息内的字符串表
+     */
+    private void writeResponseBody(ByteBuf out, RegistryResponse response, boolean shared) {
+        int flags = (shared ? RESPONSE_SHARED : 0)
+                | (response.isSuccess() ? RESPONSE_SUCCESS : 0)
+                | (response.isDelta() ? RESPONSE_DELTA : 0)
+                | (response.getEpoch() != 0 ? RESPONSE_EPOCH : 0)
+                | (response.getInstances() != null ? RESPONSE_INSTANCES : 0)
+                | (response.getRemovedInstanceIds() != null ? RESPONSE_REMOVED : 0)
+                | (response.getBatch() != null ? RESPONSE_BATCH : 0)
+                | (response.getShards() != null ? RESPONSE_SHARDS : 0);
+        out.writeByte(flags);
+        Map<String, Integer> connectionStrings = sentStrings;
+        if (shared) {
+            sentStrings = new HashMap<>();
+        }
+        try {
+            if (!response.isSuccess()) {
+                writeLiteral(out, response.getMessage());
+            }
+            writeInterned(out, response.getServiceName());
+            writeVarLong(out, response.getHeartbeatIntervalMillis());
+            if ((flags & RESPONSE_EPOCH) != 0) {
+                out.writeLong(response.getEpoch());
+            }
+            writeVarLong(out, response.getRevision());
+            writeVarLong(out, response.getBaseRevision());
+            if (response.getInstances() != null) {
+                writeVarLong(out, response.getInstances().size());
+                for (ServiceInstance instance : response.getInstances()) {
+                    writeInstance(out, instance);
+                }
+            }
+            if (response.getRemovedInstanceIds() != null) {
+                writeVarLong(out, response.getRemovedInstanceIds().size());
+                for (String instanceId : response.getRemovedInstanceIds()) {
+                    writeInterned(out, instanceId);
+                }
+            }
+            if (response.getBatch() != null) {
+                writeVarLong(out, response.getBatch().size());
+                for (RegistryResponse item : response.getBatch()) {
+                    writeResponse(out, item);
+                }
+            }
+            if (response.getShards() != null) {
+                writeVarLong(out, response.getShards().size());
+                for (String shard : response.getShards()) {
+                    writeLiteral(out, shard);
+                }
+            }
+        } finally {
+            sentStrings = connectionStrings;
+        }
+    }
+
+    private RegistryResponse readResponse(ByteBuf in, boolean nested) {
+        RegistryResponse response = new RegistryResponse();
+        response.setRequestId(readVarLong(in));
+        int flags = in.readUnsignedByte();
+        if (nested && (flags & RESPONSE_BATCH) != 0) {
+            throw new RegistryException("子响应不能再包含子响应");
+        }
+        response.setSuccess((flags & RESPONSE_SUCCESS) != 0);
+        response.setDelta((flags & RESPONSE_DELTA) != 0);
+        List<String> connectionStrings = receivedStrings;
+        if ((flags & RESPONSE_SHARED) != 0) {
+            receivedStrings = new ArrayList<>();
+        }
+        try {
+            if (!response.isSuccess()) {
+                response.setMessage(readLiteral(in));
+            }
+            response.setServiceName(readInterned(in));
+            response.setHeartbeatIntervalMillis(readVarLong(in));
+            if ((flags & RESPONSE_EPOCH) != 0) {
+                response.setEpoch(in.readLong());
+            }
+            response.setRevision(readVarLong(in));
+            response.setBaseRevision(readVarLong(in));
+            if ((flags & RESPONSE_INSTANCES) != 0) {
+                int count = readCount(in);
+                List<ServiceInstance> instances = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    instances.add(readInstance(in));
+                }
+                response.setInstances(instances);
+            }
+            if ((flags & RESPONSE_REMOVED) != 0) {
+                int count = readCount(in);
+                List<String> removed = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    removed.add(readInterned(in));
+                }
+                response.setRemovedInstanceIds(removed);
+            }
+            if ((flags & RESPONSE_BATCH) != 0) {
+                int count = readCount(in);
+                List<RegistryResponse> batch = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    batch.add(readResponse(in, true));
+                }
+                response.setBatch(batch);
+            }
+            if ((flags & RESPONSE_SHARDS) != 0) {
+                int count = readCount(in);
+                List<String> shards = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    shards.add(readLiteral(in));
+                }
+                response.setShards(shards);
+            }
+        } finally {
+            receivedStrings = connectionStrings;
+        }
+        return response;
+    }
+
+    private void writeInstance(ByteBuf out, ServiceInstance instance) {
+        writeInterned(out, instance.getServiceName());
+        writeInterned(out, instance.getHost());
+        writeVarLong(out, instance.getPort());
+        writeInterned(out, instance.getInstanceId());
+        writeVarLong(out, instance.getLastHeartbeat());
+        writeVarLong(out, instance.getRevision());
+        writeMetadata(out, instance.getMetadata());
+    }
+
+    private ServiceInstance readInstance(ByteBuf in) {
+        ServiceInstance instance = new ServiceInstance();
+        instance.setServiceName(readInterned(in));
+        instance.setHost(readInterned(in));
+        instance.setPort((int) readVarLong(in));
+        instance.setInstanceId(readInterned(in));
+        instance.setLastHeartbeat(readVarLong(in));
+        instance.setRevision(readVarLong(in));
+        instance.setMetadata(readMetadata(in));
+        return instance;
+    }
+
+    private void writeMetadata(ByteBuf out, Map<String, String> metadata) {
+        writeVarLong(out, metadata == null ? 0 : metadata.size());
+        if (metadata != null) {
+            for (Map.Entry<String, String> entry : metadata.entrySet()) {
+                writeInterned(out, entry.getKey());
+                writeInterned(out, entry.getValue());
+            }
+        }
+    }
+
+    private Map<String, String> readMetadata(ByteBuf in) {
+        int count = readCount(in);
+        if (count == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> metadata = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String key = readInterned(in);
+            if (key == null) {
+                throw new RegistryException("元数据的键不能为 null");
+            }
+            metadata.put(key, readInterned(in));
+        }
+        return Collections.unmodifiableMap(metadata);
+    }
+
+    // ---------------------------------------------------------------- 基础类型
+
+    private void writeInterned(ByteBuf out, String value) {
+        if (value == null) {
+            writeVarLong(out, STRING_NULL);
+            return;
+        }
+        Integer id = sentStrings.get(value);
+        if (id != null) {
+            writeVarLong(out, id + STRING_REFERENCE);
+        } else if (sentStrings.size() < MAX_INTERNED_STRINGS) {
+            sentStrings.put(value, sentStrings.size());
+            writeVarLong(out, STRING_NEW);
+            writeUtf8(out, value);
+        } else {
+            writeVarLong(out, STRING_LITERAL);
+            writeUtf8(out, value);
+        }
+    }
+
+    private String readInterned(ByteBuf in) {
+        long code = readVarLong(in);
+        if (code == STRING_NULL) {
+            return null;
+        }
+        if (code == STRING_NEW) {
+            String value = readUtf8(in);
+            receivedStrings.add(value);
+            return value;
+        }
+        if (code == STRING_LITERAL) {
+            return readUtf8(in);
+        }
+        long id = code - STRING_REFERENCE;
+        if (id >= receivedStrings.size()) {
+            throw new RegistryException("未知的字符串编号: " + id);
+        }
+        return receivedStrings.get((int) id);
+    }
+
+    /**
+     * 不驻留的字符串（失败原因、分片）：长度 + 1（0 表示 null）+ UTF-8 字节
+     */
+    private static void writeLiteral(ByteBuf out, String value) {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1);
+        out.writeBytes(bytes);
+    }
+
+    private static String readLiteral(ByteBuf in) {
+        int length = (int) readVarLong(in) - 1;
+        return length < 0 ? null : readBytes(in, length);
+    }
+
+    private static void writeUtf8(ByteBuf out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static String readUtf8(ByteBuf in) {
+        return readBytes(in, readCount(in));
+    }
+
+    private static String readBytes(ByteBuf in, int length) {
+        if (length > in.readableBytes()) {
+            throw new RegistryException("字符串长度超出消息范围: " + length);
+        }
+        return in.readCharSequence(length, StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * 读取元素个数或长度，不能超过剩余字节数（每个元素至少 1 字节）
+     */
+    private static int readCount(ByteBuf in) {
+        long count = readVarLong(in);
+        if (count < 0 || count > in.readableBytes()) {
+            throw new RegistryException("非法的长度: " + count);
+        }
+        return (int) count;
+    }
+
+    private static void writeVarLong(ByteBuf out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(ByteBuf in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new RegistryException("非法的 varint 编码");
+    }
+}
@@ -0,0 +1,16 @@
+package com.alan.rpc.v4.registry;
+
+/**
+ * 注册中心异常
+ * 统一封装与注册中心通信失败、注册中心处理失败的异常
+ */
+public class RegistryException extends RuntimeException {
+
+    public RegistryException(String message) {
+        super(message);
+    }
+
+    public RegistryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,33 @@
+package com.alan.rpc.v4.registry;
+
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+
+/**
+ * 注册中心通信协议
+ * 帧格式：长度 (4字节) + 二进制编码的 RegistryRequest / RegistryResponse（见 {@link RegistryCodec}）；
+ * 注册中心与客户端之间保持长连接，每条连接一个编解码器，字符串在连接内驻留
+ */
+public final class RegistryProtocol {
+
+    /**
+     * 单帧最大长度，节点间同步完整注册表（SYNC）时响应较大
+     */
+    public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    private RegistryProtocol() {
+    }
+
+    /**
+     * 添加分帧和编解码处理器
+     *
+     * @param pipeline    连接的 pipeline
+     * @param inboundType 入站消息类型（服务端为 RegistryRequest，客户端为 RegistryResponse）
+     */
+    public static void initPipeline(ChannelPipeline pipeline, Class<?> inboundType) {
+        pipeline.addLast(new LengthFieldBasedFrameDecoder(MAX_FRAME_LENGTH, 0, 4, 0, 4))
+                .addLast(new LengthFieldPrepender(4))
+                .addLast(new RegistryCodec(inboundType));
+    }
+}
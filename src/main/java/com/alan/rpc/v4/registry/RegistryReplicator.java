@@ -0,0 +1,179 @@
+package com.alan.rpc.v4.registry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 注册中心集群复制
+ * 节点之间没有主从，任意节点都可以处理注册、下线、心跳和服务发现。节点直接收到的注册、下线、心跳
+ * 处理成功后异步转发给其他所有节点（标记为复制请求，收到的节点只应用、不再转发）；
+ * 各节点独立维护租约，心跳复制后各节点上同一实例的租约基本同时到期
+ *
+ * 节点之间的不一致通过以下方式收敛：
+ * - 节点启动时从其他节点拉取完整注册表（SYNC）
+ * - 转发心跳时对方回复"实例未注册"（对方重启或错过了注册），补发该实例的全部注册
+ * - 对方错过的下线：实例不再有心跳，在对方节点上租约到期后移除
+ */
+class RegistryReplicator {
+
+    /**
+     * 节点不可用时暂停转发的时间（毫秒），之后的第一个请求作为探测
+     */
+    private static final long PEER_RETRY_MILLIS = 1_000;
+
+    private final ServiceRegistry registry;
+
+    /**
+     * 复制对象，拓扑变化时整体替换（见 {@link #updatePeers}），转发时遍历当时的列表
+     */
+    private volatile List<Peer> peers = Collections.emptyList();
+
+    /**
+     * @param peerAddresses 其他注册中心节点的地址（host:port）
+     */
+    RegistryReplicator(List<String> peerAddresses, ServiceRegistry registry) {
+        this.registry = registry;
+        updatePeers(peerAddresses);
+    }
+
+    /**
+     * 更新复制对象：保留仍在列表中的节点（及其连接和可用状态），为新节点建立客户端，关闭移除的节点
+     */
+    synchronized void updatePeers(List<String> peerAddresses) {
+        List<Peer> previous = peers;
+        List<Peer> updated = new ArrayList<>(peerAddresses.size());
+        for (String address : peerAddresses) {
+            Peer peer = null;
+            for (Peer candidate : previous) {
+                if (candidate.address.equals(address)) {
+                    peer = candidate;
+                    break;
+                }
+            }
+            updated.add(peer != null ? peer : new Peer(address));
+        }
+        peers = Collections.unmodifiableList(updated);
+        for (Peer peer : previous) {
+            if (!updated.contains(peer)) {
+                System.out.println("[注册中心] 节点不再是复制对象: " + peer.address);
+                peer.client.close();
+            }
+        }
+    }
+
+    /**
+     * 从第一个可用的节点拉取完整注册表，所有节点都不可用时（例如集群首次启动）返回空列表
+     */
+    List<ServiceInstance> syncFromPeers() {
+        for (Peer peer : peers) {
+            try {
+                RegistryRequest request = new RegistryRequest(0, RegistryRequestTypeEnum.SYNC, null, null, 0, null);
+                request.setReplicated(true);
+                RegistryResponse response = peer.client.exchange(request).join();
+                if (response.isSuccess()) {
+                    System.out.println("[注册中心] 从节点 " + peer.address + " 同步注册表: " + response.getInstances().size() + " 个实例");
+                    return response.getInstances();
+                }
+            } catch (CompletionException e) {
+                System.out.println("[注册中心] 节点 " + peer.address + " 不可用，跳过同步: " + e.getCause().getMessage());
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 把本节点处理成功的请求转发给其他节点
+     */
+    void replicate(RegistryRequest request) {
+        for (Peer peer : peers) {
+            peer.send(request);
+        }
+    }
+
+    synchronized void close() {
+        for (Peer peer : peers) {
+            peer.client.close();
+        }
+        peers = Collections.emptyList();
+    }
+
+    /**
+     * 集群中的另一个节点
+     */
+    private class Peer {
+
+        private final String address;
+        private final RegistryClient client;
+
+        /**
+         * 节点是否可用，不可用期间暂停转发，避免每个请求都尝试连接
+         */
+        private volatile boolean available = true;
+        private volatile long retryAtMillis;
+
+        Peer(String address) {
+            this.address = address;
+            this.client = new RegistryClient(Collections.singletonList(address), false);
+        }
+
+        void send(RegistryRequest request) {
+            if (!available && System.currentTimeMillis() < retryAtMillis) {
+                return;
+            }
+            // 每个节点单独复制一份请求，requestId 由各自的客户端分配
+            RegistryRequest copy = new RegistryRequest(0, request.getType(), request.getServiceName(),
+                    request.getHost(), request.getPort(), request.getInstanceId());
+            copy.setServiceNames(request.getServiceNames());
+            copy.setMetadata(request.getMetadata());
+            copy.setReplicated(true);
+            client.exchange(copy).whenComplete((response, e) -> {
+                if (e != null) {
+                    markUnavailable(e);
+                    return;
+                }
+                markAvailable();
+                if (!response.isSuccess() && request.getType() == RegistryRequestTypeEnum.HEARTBEAT
+                        && request.getServiceName() == null) {
+                    repair(request.getInstanceId());
+                }
+            });
+        }
+
+        /**
+         * 对方不认识该实例：以一个批量注册补发实例在本节点上的全部注册
+         */
+        private void repair(String instanceId) {
+            List<ServiceInstance> instances = registry.getInstances(instanceId);
+            if (instances.isEmpty()) {
+                return;
+            }
+            RegistryRequest request = new RegistryRequest(0, RegistryRequestTypeEnum.REGISTER_BATCH, null,
+                    instances.get(0).getHost(), instances.get(0).getPort(), instanceId);
+            List<String> serviceNames = new ArrayList<>(instances.size());
+            for (ServiceInstance instance : instances) {
+                serviceNames.add(instance.getServiceName());
+            }
+            request.setServiceNames(serviceNames);
+            request.setMetadata(instances.get(0).getMetadata());
+            send(request);
+        }
+
+        private void markAvailable() {
+            if (!available) {
+                available = true;
+                System.out.println("[注册中心] 节点恢复，继续复制: " + address);
+            }
+        }
+
+        private void markUnavailable(Throwable e) {
+            retryAtMillis = System.currentTimeMillis() + PEER_RETRY_MILLIS;
+            if (available) {
+                available = false;
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                System.err.println("[注册中心] 节点不可用，暂停复制: " + address + ", " + cause.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.alan.rpc.v4.registry;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 注册中心请求
+ * 同一连接上可以连续发送多个请求，响应通过 requestId 对应
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistryRequest implements Serializable {
+
+    /**
+     * 请求编号，连接内唯一
+     */
+    private long requestId;
+
+    /**
+     * 请求类型
+     */
+    private RegistryRequestTypeEnum type;
+
+    /**
+     * 服务名称（接口全限定名），实例级心跳时为 null
+     */
+    private String serviceName;
+
+    /**
+     * 服务主机地址（仅 REGISTER）
+     */
+    private String host;
+
+    /**
+     * 服务端口（仅 REGISTER）
+     */
+    private int port;
+
+    /**
+     * 实例ID（REGISTER / DEREGISTER / HEARTBEAT）
+     */
+    private String instanceId;
+
+    /**
+     * 是否为注册中心节点之间的复制请求，复制请求不再转发给其他节点
+     */
+    private boolean replicated;
+
+    /**
+     * 客户端已知的注册中心 epoch（仅 DISCOVER / SUBSCRIBE），0 表示没有本地列表
+     */
+    private long epoch;
+
+    /**
+     * 客户端已知的服务版本号（仅 DISCOVER / SUBSCRIBE），与 epoch 一致时注册中心只返回之后的变化；
+     * TOPOLOGY 中为拓扑版本号
+     */
+    private long revision;
+
+    /**
+     * 服务名称列表（仅 REGISTER_BATCH）；TOPOLOGY 中为各分片的节点地址（逗号分隔）
+     */
+    private List<String> serviceNames;
+
+    /**
+     * 子请求（仅 DISCOVER_BATCH），每个是一个 DISCOVER 或 SUBSCRIBE 请求，子请求的 requestId 不使用
+     */
+    private List<RegistryRequest> batch;
+
+    /**
+     * 实例元数据（仅 REGISTER / REGISTER_BATCH），为 null 时没有元数据
+     */
+    private Map<String, String> metadata;
+
+    public RegistryRequest(long requestId, RegistryRequestTypeEnum type, String serviceName, String host, int port,
+                           String instanceId) {
+        this(requestId, type, serviceName, host, port, instanceId, false, 0, 0, null, null, null);
+    }
+}
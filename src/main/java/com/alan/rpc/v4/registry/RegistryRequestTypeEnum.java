@@ -0,0 +1,79 @@
+package com.alan.rpc.v4.registry;
+
+/**
+ * 注册中心请求类型枚举
+ */
+public enum RegistryRequestTypeEnum {
+    /**
+     * 注册服务实例
+     */
+    REGISTER((byte) 1, "注册服务"),
+
+    /**
+     * 发现服务实例
+     */
+    DISCOVER((byte) 2, "发现服务"),
+
+    /**
+     * 服务实例下线
+     */
+    DEREGISTER((byte) 3, "服务下线"),
+
+    /**
+     * 服务实例心跳
+     */
+    HEARTBEAT((byte) 4, "心跳"),
+
+    /**
+     * 订阅服务：返回当前实例列表，之后实例变化时注册中心主动推送
+     */
+    SUBSCRIBE((byte) 5, "订阅服务"),
+
+    /**
+     * 同步注册表：返回全部实例，注册中心节点启动时从其他节点拉取
+     */
+    SYNC((byte) 6, "同步注册表"),
+
+    /**
+     * 批量注册：同一实例一次注册多个服务
+     */
+    REGISTER_BATCH((byte) 7, "批量注册服务"),
+
+    /**
+     * 批量发现：一次请求发现或订阅多个服务，每个服务对应一个 DISCOVER / SUBSCRIBE 子请求
+     */
+    DISCOVER_BATCH((byte) 8, "批量发现服务"),
+
+    /**
+     * 分片拓扑：不带拓扑时查询节点当前的拓扑，带拓扑（serviceNames 为各分片，revision 为版本号）时更新
+     */
+    TOPOLOGY((byte) 9, "分片拓扑");
+
+    private final byte code;
+    private final String description;
+
+    RegistryRequestTypeEnum(byte code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 根据 code 获取枚举类型
+     */
+    public static RegistryRequestTypeEnum fromCode(byte code) {
+        for (RegistryRequestTypeEnum type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("未知的注册中心请求类型: " + code);
+    }
+}
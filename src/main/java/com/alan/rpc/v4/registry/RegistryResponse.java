@@ -0,0 +1,171 @@
+package com.alan.rpc.v4.registry;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 注册中心响应
+ * requestId 为 0 的是注册中心主动推送的变更通知，携带服务名称和变更后的实例列表
+ *
+ * DISCOVER / SUBSCRIBE 的响应和变更通知都带有 epoch 和服务版本号，实例列表有两种形式：
+ * - 完整列表（delta 为 false）：instances 为服务的全部实例
+ * - 增量（delta 为 true）：相对 baseRevision 的变化，先按 removedInstanceIds 删除，再加入 instances；
+ *   没有任何变化时两个列表都为 null
+ *
+ * 分片部署时，TOPOLOGY 的响应、拓扑变更通知和"服务不属于本分片"的失败响应带有节点当前的拓扑（shards，版本号在 revision 中）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistryResponse implements Serializable {
+
+    /**
+     * 变更通知的 requestId（客户端的请求编号从 1 开始）
+     */
+    public static final long NOTIFICATION_ID = 0;
+
+    /**
+     * 对应的请求编号
+     */
+    private long requestId;
+
+    /**
+     * 是否处理成功
+     */
+    private boolean success;
+
+    /**
+     * 失败原因，成功时为 null
+     */
+    private String message;
+
+    /**
+     * 服务名称（仅变更通知）
+     */
+    private String serviceName;
+
+    /**
+     * 服务实例列表（DISCOVER / SUBSCRIBE / 变更通知）
+     */
+    private List<ServiceInstance> instances;
+
+    /**
+     * 注册中心建议的心跳间隔（毫秒，仅 HEARTBEAT），0 表示不建议
+     */
+    private long heartbeatIntervalMillis;
+
+    /**
+     * 注册中心本次启动的标识（DISCOVER / SUBSCRIBE / 变更通知）
+     */
+    private long epoch;
+
+    /**
+     * 服务版本号（DISCOVER / SUBSCRIBE / 变更通知）；实例级心跳的响应中为续约的服务数
+     */
+    private long revision;
+
+    /**
+     * 是否为增量响应
+     */
+    private boolean delta;
+
+    /**
+     * 增量的基准版本号（仅增量响应）
+     */
+    private long baseRevision;
+
+    /**
+     * 基准版本之后下线的实例ID（仅增量响应）
+     */
+    private List<String> removedInstanceIds;
+
+    /**
+     * 子响应（仅 DISCOVER_BATCH），与请求的子请求一一对应
+     */
+    private List<RegistryResponse> batch;
+
+    /**
+     * 分片拓扑，每个元素是一个分片的节点地址（逗号分隔），见 {@link ShardRing}；未分片部署时为 null
+     */
+    private List<String> shards;
+
+    /**
+     * 预编码的响应体（requestId 之后的全部内容，见 {@link RegistryCodec#encodeBody}），不为 null 时编解码器直接写出，
+     * 不再逐字段编码。只在注册中心内部使用，不参与传输
+     */
+    private transient byte[] encodedBody;
+
+    /**
+     * 创建成功响应
+     */
+    public static RegistryResponse success(long requestId, List<ServiceInstance> instances) {
+        return new RegistryResponse(requestId, true, null, null, instances, 0, 0, 0, false, 0, null, null, null, null);
+    }
+
+    /**
+     * 创建心跳响应，携带建议的心跳间隔和续约的服务数（客户端据此发现注册中心缺少的注册）
+     */
+    public static RegistryResponse heartbeat(long requestId, long heartbeatIntervalMillis, int renewedServices) {
+        return new RegistryResponse(requestId, true, null, null, null, heartbeatIntervalMillis, 0, renewedServices, false,
+                0, null, null, null, null);
+    }
+
+    /**
+     * 创建失败响应
+     */
+    public static RegistryResponse fail(long requestId, String message) {
+        return new RegistryResponse(requestId, false, message, null, null, 0, 0, 0, false, 0, null, null, null, null);
+    }
+
+    /**
+     * 创建完整列表响应，requestId 为 {@link #NOTIFICATION_ID} 时为变更通知
+     */
+    public static RegistryResponse full(long requestId, String serviceName, long epoch, long revision,
+                                        List<ServiceInstance> instances) {
+        return new RegistryResponse(requestId, true, null, serviceName, instances, 0, epoch, revision, false, 0, null,
+                null, null, null);
+    }
+
+    /**
+     * 创建增量响应，requestId 为 {@link #NOTIFICATION_ID} 时为变更通知；added 和 removedInstanceIds 都为 null 表示没有变化
+     */
+    public static RegistryResponse delta(long requestId, String serviceName, long epoch, long baseRevision,
+                                         long revision, List<ServiceInstance> added, List<String> removedInstanceIds) {
+        return new RegistryResponse(requestId, true, null, serviceName, added, 0, epoch, revision, true, baseRevision,
+                removedInstanceIds, null, null, null);
+    }
+
+    /**
+     * 创建批量响应
+     */
+    public static RegistryResponse batch(long requestId, List<RegistryResponse> batch) {
+        return new RegistryResponse(requestId, true, null, null, null, 0, 0, 0, false, 0, null, batch, null, null);
+    }
+
+    /**
+     * 创建拓扑响应，requestId 为 {@link #NOTIFICATION_ID} 时为拓扑变更通知；ring 为 null（未分片部署）时不带拓扑
+     */
+    public static RegistryResponse topology(long requestId, ShardRing ring) {
+        return new RegistryResponse(requestId, true, null, null, null, 0, 0, ring == null ? 0 : ring.getVersion(), false,
+                0, null, null, ring == null ? null : ring.toWire(), null);
+    }
+
+    /**
+     * 创建"服务不属于本分片"的失败响应，带上节点当前的拓扑，客户端据此更新拓扑后重试
+     */
+    public static RegistryResponse wrongShard(long requestId, String serviceName, ShardRing ring) {
+        return new RegistryResponse(requestId, false, "服务不属于本分片: " + serviceName, null, null, 0, 0,
+                ring.getVersion(), false, 0, null, null, ring.toWire(), null);
+    }
+
+    /**
+     * 是否为注册中心主动推送的变更通知
+     */
+    public boolean isNotification() {
+        return requestId == NOTIFICATION_ID;
+    }
+}
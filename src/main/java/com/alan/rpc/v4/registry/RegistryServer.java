@@ -1,17 +1,70 @@
 package com.alan.rpc.v4.registry;
 
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 注册中心服务器
  * 提供远程服务注册、发现、下线、心跳功能
+ * 基于 Netty 事件循环，工作线程数固定；客户端保持长连接，同一连接上的请求可以流水线发送
+ * 客户端订阅服务后，该服务的实例发生变化（注册、下线、过期）时主动推送变化
+ * 服务发现、订阅和推送按版本号增量传输：客户端带上已知的版本号，只返回之后加入和下线的实例，
+ * 没有变化时只返回版本号；无法计算增量时（注册中心重启、下线记录已丢弃）返回完整列表。
+ * 完整列表按服务版本预编码并缓存，推送给多个订阅者的通知也只编码一次，见 {@link RegistryCodec#encodeBody}
+ * 配置了其他节点地址时组成集群，节点之间互相复制注册、下线和心跳，见 {@link RegistryReplicator}
+ *
+ * 分片部署：集群由多个分片组成（见 {@link ShardRing}），服务名称按一致性哈希归属于某一个分片，
+ * 节点只处理本分片的服务，复制也只发生在分片内的节点之间；收到其他分片的服务的请求时返回失败并带上当前拓扑，
+ * 客户端据此更新拓扑并改发到正确的分片。拓扑变化（分片加入或移除）时节点：
+ * - 移除不再属于本分片的服务（不通知订阅者，订阅者会改到新的分片重新订阅）
+ * - 向所有连接推送新的拓扑，客户端把归属变化的注册和订阅迁移到新的分片
+ * 新分片的节点启动时从已有节点获取拓扑，拓扑中没有本分片时以更高的版本号加入并广播给所有节点；
+ * 移除分片通过任一节点更新拓扑（{@link RegistryClient#updateTopology}）
  */
 public class RegistryServer {
 
+    /**
+     * 默认工作线程数
+     */
+    public static final int DEFAULT_WORKER_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * 连接空闲超时（秒），超过该时间没有收到任何请求则关闭连接
+     */
+    private static final int IDLE_TIMEOUT_SECONDS = 90;
+
+    /**
+     * 每个租约周期内建议的心跳次数上下限：负载低时每个租约周期心跳 3 次，负载高时放宽到 2 次（仍能容忍丢失一次心跳）
+     */
+    private static final int MAX_HEARTBEATS_PER_LEASE = 3;
+    private static final int MIN_HEARTBEATS_PER_LEASE = 2;
+
+    /**
+     * 希望每个注册中心节点承受的心跳速率（次/秒），在线实例数超过 该值 × 心跳间隔 时按比例放宽建议的心跳间隔
+     */
+    private static final int TARGET_HEARTBEATS_PER_SECOND = 10_000;
+
+    /**
+     * 实例元数据的条目数上限和键、值的长度上限，元数据随每次服务发现下发，需要限制大小
+     */
+    private static final int MAX_METADATA_ENTRIES = 32;
+    private static final int MAX_METADATA_LENGTH = 256;
+
     /**
      * 注册中心端口
      */
@@ -22,111 +75,667 @@ public class RegistryServer {
      */
     private final ServiceRegistry registry;
 
+    /**
+     * 建议服务提供者使用的心跳间隔的范围（毫秒），实际建议值随在线实例数在其中变化，见 {@link #suggestedHeartbeatInterval}
+     */
+    private final long minHeartbeatIntervalMillis;
+    private final long maxHeartbeatIntervalMillis;
+
+    /**
+     * 订阅关系：服务名称 -> 订阅该服务的连接（连接关闭时自动移出）
+     */
+    private final Map<String, ChannelGroup> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * 每个服务最后推送的版本号，下一次推送相对它计算增量，只在该服务订阅组的锁内读写
+     */
+    private final Map<String, Long> notifiedRevisions = new ConcurrentHashMap<>();
+
+    /**
+     * 集群复制，单节点部署时为 null；分片部署时总是存在，复制对象随拓扑中本分片的节点变化
+     */
+    private final RegistryReplicator replicator;
+
+    /**
+     * 本节点地址（host:port），未分片部署时为 null。所在分片每次都从当前拓扑中查找，分片内增减副本后仍然正确
+     */
+    private final String selfAddress;
+
+    /**
+     * 分片拓扑，未分片部署时为 null，更新由 topologyLock 保护
+     */
+    private volatile ShardRing ring;
+    private final Object topologyLock = new Object();
+
+    /**
+     * 所有连接，拓扑变化时推送新的拓扑
+     */
+    private final ChannelGroup connections = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+
+    private final EventLoopGroup bossGroup = new NioEventLoopGroup(1);
+    private final EventLoopGroup workerGroup;
+    private final RegistryServerHandler serverHandler = new RegistryServerHandler();
+    private Channel serverChannel;
+
     public RegistryServer(int port) {
+        this(port, DEFAULT_WORKER_THREADS);
+    }
+
+    /**
+     * @param port          注册中心端口
+     * @param workerThreads 处理连接读写的工作线程数
+     */
+    public RegistryServer(int port, int workerThreads) {
+        this(port, workerThreads, ServiceRegistry.DEFAULT_LEASE_TTL_MILLIS);
+    }
+
+    /**
+     * @param port           注册中心端口
+     * @param workerThreads  处理连接读写的工作线程数
+     * @param leaseTtlMillis 实例租约时长（毫秒），超过该时间没有心跳的实例被移除并通知订阅者
+     */
+    public RegistryServer(int port, int workerThreads, long leaseTtlMillis) {
+        this(port, workerThreads, leaseTtlMillis, null);
+    }
+
+    /**
+     * @param port           注册中心端口
+     * @param workerThreads  处理连接读写的工作线程数
+     * @param leaseTtlMillis 实例租约时长（毫秒），超过该时间没有心跳的实例被移除并通知订阅者
+     * @param dataDir        注册表持久化目录，重启后从中恢复注册表；为 null 时只保存在内存中
+     */
+    public RegistryServer(int port, int workerThreads, long leaseTtlMillis, Path dataDir) {
+        this(port, workerThreads, leaseTtlMillis, dataDir, Collections.emptyList());
+    }
+
+    /**
+     * @param port           注册中心端口
+     * @param workerThreads  处理连接读写的工作线程数
+     * @param leaseTtlMillis 实例租约时长（毫秒），超过该时间没有心跳的实例被移除并通知订阅者
+     * @param dataDir        注册表持久化目录，重启后从中恢复注册表；为 null 时只保存在内存中
+     * @param peers          集群中其他注册中心节点的地址（host:port），为空时单节点运行
+     */
+    public RegistryServer(int port, int workerThreads, long leaseTtlMillis, Path dataDir, List<String> peers) {
+        this(port, workerThreads, leaseTtlMillis, dataDir, peers, null, null);
+    }
+
+    /**
+     * 分片部署
+     *
+     * @param port           注册中心端口
+     * @param workerThreads  处理连接读写的工作线程数
+     * @param leaseTtlMillis 实例租约时长（毫秒），超过该时间没有心跳的实例被移除并通知订阅者
+     * @param dataDir        注册表持久化目录，重启后从中恢复注册表；为 null 时只保存在内存中
+     * @param ring           配置的分片拓扑，集群中已有更新的拓扑时以集群的为准
+     * @param selfAddress    本节点在拓扑中的地址（host:port），同一分片的其他节点作为复制对象
+     */
+    public RegistryServer(int port, int workerThreads, long leaseTtlMillis, Path dataDir, ShardRing ring,
+                          String selfAddress) {
+        this(port, workerThreads, leaseTtlMillis, dataDir, configuredPeers(ring, selfAddress), ring, selfAddress);
+    }
+
+    private RegistryServer(int port, int workerThreads, long leaseTtlMillis, Path dataDir, List<String> peers,
+                           ShardRing ring, String selfAddress) {
         this.port = port;
-        this.registry = new ServiceRegistry();
+        this.ring = ring;
+        this.selfAddress = selfAddress;
+        this.registry = new ServiceRegistry(leaseTtlMillis, this::notifySubscribers,
+                dataDir == null ? null : new RegistryStore(dataDir));
+        this.replicator = peers.isEmpty() && ring == null ? null : new RegistryReplicator(peers, registry);
+        this.minHeartbeatIntervalMillis = leaseTtlMillis / MAX_HEARTBEATS_PER_LEASE;
+        this.maxHeartbeatIntervalMillis = leaseTtlMillis / MIN_HEARTBEATS_PER_LEASE;
+        this.workerGroup = new NioEventLoopGroup(workerThreads);
     }
 
     /**
-     * 启动注册中心服务器
+     * 启动注册中心服务器，端口绑定完成后返回
      */
     public void start() {
-        new Thread(() -> {
-            try (ServerSocket serverSocket = new ServerSocket(port)) {
-                System.out.println("[注册中心] 启动成功，监听端口: " + port);
+        ServerBootstrap bootstrap = new ServerBootstrap();
+        bootstrap.group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new IdleStateHandler(IDLE_TIMEOUT_SECONDS, 0, 0, TimeUnit.SECONDS));
+                        RegistryProtocol.initPipeline(ch.pipeline(), RegistryRequest.class);
+                        ch.pipeline().addLast(serverHandler);
+                    }
+                })
+                .option(ChannelOption.SO_BACKLOG, 1024)
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childOption(ChannelOption.TCP_NODELAY, true);
 
-                while (true) {
-                    Socket socket = serverSocket.accept();
-                    new Thread(() -> handleRequest(socket)).start();
-                }
-            } catch (IOException e) {
-                System.err.println("[注册中心] 启动失败: " + e.getMessage());
+        try {
+            ShardRing joinedFrom = ring == null ? null : joinCluster();
+            if (replicator != null) {
+                // 先从其他节点补齐注册表，再对外提供服务
+                registry.merge(replicator.syncFromPeers());
+            }
+            if (ring != null) {
+                // 持久化恢复或同步来的注册可能属于拓扑变化后的其他分片
+                dropForeignServices();
+            }
+            serverChannel = bootstrap.bind(port).sync().channel();
+            System.out.println("[注册中心] 启动成功，监听端口: " + port);
+            if (joinedFrom != null) {
+                // 端口绑定之后再广播，其他节点和客户端收到新拓扑时本节点已经可以访问
+                broadcastTopology(ring, joinedFrom);
             }
-        }).start();
+        } catch (Exception e) {
+            System.err.println("[注册中心] 启动失败: " + e.getMessage());
+            close();
+        }
     }
 
     /**
-     * 处理客户端请求
+     * 关闭注册中心服务器
      */
-    private void handleRequest(Socket socket) {
-        try (ObjectInputStream ois = new ObjectInputStream(socket.getInputStream());
-             ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream())) {
+    public void close() {
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+        if (replicator != null) {
+            replicator.close();
+        }
+        registry.close();
+        workerGroup.shutdownGracefully();
+        bossGroup.shutdownGracefully();
+    }
 
-            // 读取请求类型
-            String requestType = (String) ois.readObject();
+    /**
+     * 处理注册中心请求
+     *
+     * @param channel 请求所在的连接，订阅时作为推送目标
+     */
+    RegistryResponse handleRequest(Channel channel, RegistryRequest request) {
+        if (request.getType() == null) {
+            return RegistryResponse.fail(request.getRequestId(), "缺少请求类型");
+        }
+        ShardRing current = ring;
+        if (current != null && !request.isReplicated()) {
+            // 复制请求来自同一分片的节点，不再检查归属（双方的拓扑可能短暂不一致）
+            String foreign = foreignService(current, request);
+            if (foreign != null) {
+                return RegistryResponse.wrongShard(request.getRequestId(), foreign, current);
+            }
+        }
 
-            switch (requestType) {
-                case "REGISTER":
-                    handleRegister(ois, oos);
-                    break;
-                case "DISCOVER":
-                    handleDiscover(ois, oos);
+        RegistryResponse response = apply(channel, request);
+        if (replicator != null && !request.isReplicated() && response.isSuccess()) {
+            switch (request.getType()) {
+                case REGISTER:
+                case REGISTER_BATCH:
+                case DEREGISTER:
+                case HEARTBEAT:
+                    replicator.replicate(request);
                     break;
-                case "DEREGISTER":
-                    handleDeregister(ois, oos);
+                default:
                     break;
-                case "HEARTBEAT":
-                    handleHeartbeat(ois, oos);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * 在本节点上执行请求
+     */
+    private RegistryResponse apply(Channel channel, RegistryRequest request) {
+        String serviceName = request.getServiceName();
+        switch (request.getType()) {
+            case REGISTER:
+                String invalidMetadata = checkMetadata(request.getMetadata());
+                if (invalidMetadata != null) {
+                    return RegistryResponse.fail(request.getRequestId(), invalidMetadata);
+                }
+                if (registry.register(serviceName, request.getHost(), request.getPort(), request.getInstanceId(),
+                        request.getMetadata())) {
+                    notifySubscribers(serviceName);
+                }
+                return RegistryResponse.success(request.getRequestId(), null);
+            case DISCOVER:
+                return discoverResponse(request);
+            case SUBSCRIBE:
+                subscribers.computeIfAbsent(serviceName, k -> new DefaultChannelGroup(GlobalEventExecutor.INSTANCE))
+                        .add(channel);
+                return discoverResponse(request);
+            case DEREGISTER:
+                if (registry.deregister(serviceName, request.getInstanceId())) {
+                    notifySubscribers(serviceName);
+                }
+                return RegistryResponse.success(request.getRequestId(), null);
+            case HEARTBEAT:
+                if (serviceName != null) {
+                    registry.heartbeat(serviceName, request.getInstanceId());
+                    return RegistryResponse.heartbeat(request.getRequestId(), suggestedHeartbeatInterval(), 0);
+                }
+                int renewed = registry.heartbeat(request.getInstanceId());
+                if (renewed == 0) {
+                    // 实例级心跳：未注册的实例需要重新注册
+                    return RegistryResponse.fail(request.getRequestId(), "实例未注册: " + request.getInstanceId());
+                }
+                return RegistryResponse.heartbeat(request.getRequestId(), suggestedHeartbeatInterval(), renewed);
+            case REGISTER_BATCH:
+                return registerBatch(request);
+            case DISCOVER_BATCH:
+                return discoverBatch(channel, request);
+            case TOPOLOGY:
+                return topology(request);
+            case SYNC:
+                List<ServiceInstance> all = new ArrayList<>();
+                registry.getAllServices().values().forEach(all::addAll);
+                return RegistryResponse.success(request.getRequestId(), all);
+            default:
+                return RegistryResponse.fail(request.getRequestId(), "未知请求类型: " + request.getType());
+        }
+    }
+
+    /**
+     * 请求涉及的服务中第一个不属于本分片的，都属于本分片时返回 null
+     */
+    private String foreignService(ShardRing current, RegistryRequest request) {
+        switch (request.getType()) {
+            case REGISTER:
+            case DISCOVER:
+            case SUBSCRIBE:
+            case DEREGISTER:
+            case HEARTBEAT:
+                return isForeign(current, request.getServiceName()) ? request.getServiceName() : null;
+            case REGISTER_BATCH:
+                if (request.getServiceNames() != null) {
+                    for (String serviceName : request.getServiceNames()) {
+                        if (isForeign(current, serviceName)) {
+                            return serviceName;
+                        }
+                    }
+                }
+                return null;
+            case DISCOVER_BATCH:
+                if (request.getBatch() != null) {
+                    for (RegistryRequest item : request.getBatch()) {
+                        if (isForeign(current, item.getServiceName())) {
+                            return item.getServiceName();
+                        }
+                    }
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 服务是否属于其他分片，服务名称为 null（实例级心跳、不合法的请求）时不算
+     */
+    private boolean isForeign(ShardRing current, String serviceName) {
+        return serviceName != null && current.shardOf(serviceName) != current.indexOf(selfAddress);
+    }
+
+    /**
+     * 建议的心跳间隔：在线实例不多时为租约时长的 1/3；实例数按该间隔产生的心跳速率超过
+     * {@link #TARGET_HEARTBEATS_PER_SECOND} 时按比例放宽，最长为租约时长的 1/2
+     */
+    private long suggestedHeartbeatInterval() {
+        long loadBased = registry.getInstanceCount() * 1000L / TARGET_HEARTBEATS_PER_SECOND;
+        return Math.min(maxHeartbeatIntervalMillis, Math.max(minHeartbeatIntervalMillis, loadBased));
+    }
+
+    /**
+     * 查询或更新分片拓扑：带拓扑且版本号更新时采用，直接来自客户端的更新再广播给拓扑中的所有节点
+     */
+    private RegistryResponse topology(RegistryRequest request) {
+        if (request.getServiceNames() != null) {
+            if (ring == null) {
+                return RegistryResponse.fail(request.getRequestId(), "注册中心未分片部署，不能更新分片拓扑");
+            }
+            ShardRing proposed;
+            try {
+                proposed = ShardRing.fromWire(request.getRevision(), request.getServiceNames());
+            } catch (IllegalArgumentException e) {
+                return RegistryResponse.fail(request.getRequestId(), "分片拓扑不合法: " + e.getMessage());
+            }
+            updateTopology(proposed, !request.isReplicated());
+        }
+        return RegistryResponse.topology(request.getRequestId(), ring);
+    }
+
+    /**
+     * 采用更新的拓扑：移除不再属于本分片的服务，向所有连接推送新拓扑
+     *
+     * @param broadcast 是否广播给新旧拓扑中的其他节点
+     * @return 是否采用（版本号不比当前的新时忽略）
+     */
+    private boolean updateTopology(ShardRing proposed, boolean broadcast) {
+        ShardRing previous;
+        synchronized (topologyLock) {
+            previous = ring;
+            if (proposed.getVersion() <= previous.getVersion()) {
+                return false;
+            }
+            ring = proposed;
+            // 在锁内更新，并发的拓扑更新不会让复制对象停在较旧的拓扑上
+            replicator.updatePeers(shardPeers(proposed, selfAddress));
+        }
+        System.out.println("[注册中心] 分片拓扑更新: " + previous + " -> " + proposed);
+        dropForeignServices();
+        connections.writeAndFlush(RegistryResponse.topology(RegistryResponse.NOTIFICATION_ID, proposed));
+        if (broadcast) {
+            broadcastTopology(proposed, previous);
+        }
+        return true;
+    }
+
+    /**
+     * 移除不属于本分片的服务：先移除订阅关系（不推送，订阅者收到拓扑后会改到新的分片订阅），再逐个下线实例
+     */
+    private void dropForeignServices() {
+        ShardRing current = ring;
+        int dropped = 0;
+        for (Map.Entry<String, List<ServiceInstance>> entry : registry.getAllServices().entrySet()) {
+            String serviceName = entry.getKey();
+            if (!isForeign(current, serviceName)) {
+                continue;
+            }
+            subscribers.remove(serviceName);
+            notifiedRevisions.remove(serviceName);
+            for (ServiceInstance instance : entry.getValue()) {
+                registry.deregister(serviceName, instance.getInstanceId());
+            }
+            dropped++;
+        }
+        if (dropped > 0) {
+            System.out.println("[注册中心] 移除不属于本分片的服务: " + dropped + " 个");
+        }
+    }
+
+    /**
+     * 启动时加入集群：从第一个可用的其他节点获取当前拓扑。拓扑中已有本节点（重启）时以集群的拓扑为准；
+     * 没有本节点（新分片加入）时以更高的版本号采用配置的拓扑；所有节点都不可用（集群首次启动）时使用配置的拓扑
+     *
+     * @return 新分片加入时集群原来的拓扑（启动完成后向其中的节点广播新拓扑），否则为 null
+     */
+    private ShardRing joinCluster() {
+        ShardRing configured = ring;
+        ShardRing current = null;
+        for (String address : otherNodes(configured, null)) {
+            RegistryClient client = new RegistryClient(Collections.singletonList(address), false);
+            try {
+                RegistryResponse response = client.exchange(
+                        new RegistryRequest(0, RegistryRequestTypeEnum.TOPOLOGY, null, null, 0, null)).join();
+                if (response.isSuccess() && response.getShards() != null) {
+                    current = ShardRing.fromWire(response.getRevision(), response.getShards());
                     break;
-                default:
-                    System.err.println("[注册中心] 未知请求类型: " + requestType);
+                }
+            } catch (CompletionException e) {
+                System.out.println("[注册中心] 节点 " + address + " 不可用，跳过获取拓扑: " + e.getCause().getMessage());
+            } finally {
+                client.close();
             }
-        } catch (Exception e) {
-            System.err.println("[注册中心] 处理请求异常: " + e.getMessage());
         }
+        if (current == null || current.sameShards(configured) && current.getVersion() <= configured.getVersion()) {
+            System.out.println("[注册中心] 使用配置的分片拓扑: " + configured);
+            return null;
+        } else if (current.indexOf(selfAddress) >= 0) {
+            ring = current;
+            replicator.updatePeers(shardPeers(current, selfAddress));
+            System.out.println("[注册中心] 使用集群当前的分片拓扑: " + current);
+            return null;
+        } else {
+            ring = configured.withVersion(Math.max(current.getVersion(), configured.getVersion()) + 1);
+            System.out.println("[注册中心] 新节点加入集群，分片拓扑: " + current + " -> " + ring);
+            return current;
+        }
+    }
+
+    /**
+     * 把拓扑发给新旧拓扑中的其他所有节点（标记为复制请求，收到的节点采用后不再广播），不等待结果
+     */
+    private void broadcastTopology(ShardRing current, ShardRing previous) {
+        for (String address : otherNodes(current, previous)) {
+            RegistryClient client = new RegistryClient(Collections.singletonList(address), false);
+            RegistryRequest request = new RegistryRequest(0, RegistryRequestTypeEnum.TOPOLOGY, null, null, 0, null);
+            request.setServiceNames(current.toWire());
+            request.setRevision(current.getVersion());
+            request.setReplicated(true);
+            client.exchange(request).whenComplete((response, e) -> {
+                if (e != null) {
+                    System.err.println("[注册中心] 拓扑广播失败: " + address + ", " + e.getMessage());
+                }
+                client.close();
+            });
+        }
+    }
+
+    /**
+     * 拓扑中除本节点外的所有节点地址，previous 不为 null 时合并其中的节点
+     */
+    private List<String> otherNodes(ShardRing current, ShardRing previous) {
+        Set<String> addresses = new LinkedHashSet<>();
+        for (ShardRing r : previous == null ? List.of(current) : List.of(current, previous)) {
+            for (int i = 0; i < r.size(); i++) {
+                addresses.addAll(r.getShard(i));
+            }
+        }
+        addresses.remove(selfAddress);
+        return new ArrayList<>(addresses);
+    }
+
+    /**
+     * 配置的拓扑中同一分片的其他节点，配置的拓扑必须包含本节点
+     */
+    private static List<String> configuredPeers(ShardRing ring, String selfAddress) {
+        if (ring.indexOf(selfAddress) < 0) {
+            throw new IllegalArgumentException("本节点不在分片拓扑中: " + selfAddress);
+        }
+        return shardPeers(ring, selfAddress);
+    }
+
+    /**
+     * 同一分片中的其他节点，本节点已被移出拓扑时为空
+     */
+    private static List<String> shardPeers(ShardRing ring, String selfAddress) {
+        int shard = ring.indexOf(selfAddress);
+        if (shard < 0) {
+            return Collections.emptyList();
+        }
+        List<String> peers = new ArrayList<>(ring.getShard(shard));
+        peers.remove(selfAddress);
+        return peers;
     }
 
     /**
-     * 处理服务注册
+     * 批量注册：先校验全部服务名称，任一不合法时整批拒绝，不注册任何服务
      */
-    private void handleRegister(ObjectInputStream ois, ObjectOutputStream oos) throws Exception {
-        String serviceName = (String) ois.readObject();
-        String host = (String) ois.readObject();
-        int port = (int) ois.readObject();
-        String instanceId = (String) ois.readObject();
+    private RegistryResponse registerBatch(RegistryRequest request) {
+        List<String> serviceNames = request.getServiceNames();
+        if (serviceNames == null || serviceNames.isEmpty()) {
+            return RegistryResponse.fail(request.getRequestId(), "批量注册缺少服务名称");
+        }
+        for (String serviceName : serviceNames) {
+            if (serviceName == null || serviceName.isBlank()) {
+                return RegistryResponse.fail(request.getRequestId(), "批量注册包含空的服务名称");
+            }
+        }
+        String invalidMetadata = checkMetadata(request.getMetadata());
+        if (invalidMetadata != null) {
+            return RegistryResponse.fail(request.getRequestId(), invalidMetadata);
+        }
+        for (String serviceName : registry.registerAll(serviceNames, request.getHost(), request.getPort(),
+                request.getInstanceId(), request.getMetadata())) {
+            notifySubscribers(serviceName);
+        }
+        return RegistryResponse.success(request.getRequestId(), null);
+    }
 
-        registry.register(serviceName, host, port, instanceId);
-        oos.writeBoolean(true);
-        oos.flush();
+    /**
+     * 校验实例元数据的大小
+     *
+     * @return 不合法的原因，合法时返回 null
+     */
+    private static String checkMetadata(Map<String, String> metadata) {
+        if (metadata == null) {
+            return null;
+        }
+        if (metadata.size() > MAX_METADATA_ENTRIES) {
+            return "实例元数据条目过多: " + metadata.size() + "，上限 " + MAX_METADATA_ENTRIES;
+        }
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            if (entry.getKey().length() > MAX_METADATA_LENGTH
+                    || entry.getValue() != null && entry.getValue().length() > MAX_METADATA_LENGTH) {
+                return "实例元数据过长: " + entry.getKey() + "，键和值的长度上限 " + MAX_METADATA_LENGTH;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 批量发现：逐个处理 DISCOVER / SUBSCRIBE 子请求，子响应与子请求一一对应
+     */
+    private RegistryResponse discoverBatch(Channel channel, RegistryRequest request) {
+        List<RegistryRequest> batch = request.getBatch();
+        if (batch == null || batch.isEmpty()) {
+            return RegistryResponse.fail(request.getRequestId(), "批量发现缺少子请求");
+        }
+        for (RegistryRequest item : batch) {
+            if (item.getType() != RegistryRequestTypeEnum.DISCOVER && item.getType() != RegistryRequestTypeEnum.SUBSCRIBE
+                    || item.getServiceName() == null) {
+                return RegistryResponse.fail(request.getRequestId(), "批量发现只支持带服务名称的 DISCOVER / SUBSCRIBE 子请求");
+            }
+        }
+        List<RegistryResponse> responses = new ArrayList<>(batch.size());
+        for (RegistryRequest item : batch) {
+            responses.add(apply(channel, item));
+        }
+        return RegistryResponse.batch(request.getRequestId(), responses);
     }
 
     /**
-     * 处理服务发现
+     * 服务发现响应：客户端的 epoch 与本节点一致且版本号仍可计算增量时返回增量，否则返回完整列表
      */
-    private void handleDiscover(ObjectInputStream ois, ObjectOutputStream oos) throws Exception {
-        String serviceName = (String) ois.readObject();
+    private RegistryResponse discoverResponse(RegistryRequest request) {
+        ServiceSnapshot snapshot = registry.snapshot(request.getServiceName());
+        return snapshotResponse(request.getRequestId(), request.getServiceName(), snapshot,
+                request.getEpoch() == registry.getEpoch() ? request.getRevision() : -1);
+    }
 
-        java.util.List<ServiceInstance> instances = registry.discover(serviceName);
-        oos.writeObject(instances);
-        oos.flush();
+    /**
+     * 相对 knownRevision 的响应，knownRevision 为负数或无法计算增量时返回完整列表
+     */
+    private RegistryResponse snapshotResponse(long requestId, String serviceName, ServiceSnapshot snapshot,
+                                              long knownRevision) {
+        long epoch = registry.getEpoch();
+        if (knownRevision < 0 || !snapshot.canDiffFrom(knownRevision)) {
+            RegistryResponse response = RegistryResponse.full(requestId, serviceName, epoch, snapshot.getRevision(),
+                    snapshot.getInstances());
+            response.setEncodedBody(encodedFullResponse(snapshot, response));
+            return response;
+        }
+        if (knownRevision == snapshot.getRevision()) {
+            return RegistryResponse.delta(requestId, serviceName, epoch, knownRevision, knownRevision, null, null);
+        }
+        return RegistryResponse.delta(requestId, serviceName, epoch, knownRevision, snapshot.getRevision(),
+                snapshot.addedSince(knownRevision), snapshot.removedSince(knownRevision));
     }
 
     /**
-     * 处理服务下线
+     * 完整列表响应的预编码，缓存在快照上，同一版本只编码一次
+     * 实例列表为空时不缓存（不存在的服务每次查询都生成新的空快照，且空列表编码本身很快）
      */
-    private void handleDeregister(ObjectInputStream ois, ObjectOutputStream oos) throws Exception {
-        String serviceName = (String) ois.readObject();
-        String instanceId = (String) ois.readObject();
+    private static byte[] encodedFullResponse(ServiceSnapshot snapshot, RegistryResponse response) {
+        if (snapshot.getInstances().isEmpty()) {
+            return null;
+        }
+        byte[] encoded = snapshot.getEncodedFullResponse();
+        if (encoded == null) {
+            encoded = RegistryCodec.encodeBody(response);
+            snapshot.setEncodedFullResponse(encoded);
+        }
+        return encoded;
+    }
 
-        registry.deregister(serviceName, instanceId);
-        oos.writeBoolean(true);
-        oos.flush();
+    /**
+     * 向订阅者推送服务相对上一次推送的变化，也作为租约过期回调在时间轮线程中调用
+     */
+    private void notifySubscribers(String serviceName) {
+        ChannelGroup group = subscribers.get(serviceName);
+        if (group == null || group.isEmpty()) {
+            return;
+        }
+        // 同一服务的通知串行生成，并统一放入连接的任务队列（即使当前就在该连接的 EventLoop 中），
+        // 保证每条连接按生成顺序收到通知，最后一条总是最新的实例列表
+        // 订阅者的版本号不低于上一次推送的版本号（订阅响应之后才会收到推送），因此统一推送相对上一次推送的增量
+        synchronized (group) {
+            ServiceSnapshot snapshot = registry.snapshot(serviceName);
+            Long notified = notifiedRevisions.put(serviceName, snapshot.getRevision());
+            if (notified != null && notified == snapshot.getRevision()) {
+                return;
+            }
+            RegistryResponse notification = snapshotResponse(RegistryResponse.NOTIFICATION_ID, serviceName, snapshot,
+                    notified == null ? -1 : notified);
+            if (notification.getEncodedBody() == null && group.size() > 1) {
+                // 同一条通知发给所有订阅者，只编码一次
+                notification.setEncodedBody(RegistryCodec.encodeBody(notification));
+            }
+            for (Channel channel : group) {
+                channel.eventLoop().execute(() -> channel.writeAndFlush(notification));
+            }
+            System.out.println("[注册中心] 推送变更通知: " + serviceName + "，版本: " + snapshot.getRevision()
+                    + (notification.isDelta() ? "（增量）" : "") + "，实例数: " + snapshot.getInstances().size()
+                    + "，订阅者: " + group.size());
+        }
     }
 
     /**
-     * 处理心跳
+     * 注册中心处理器
+     * 响应先写入缓冲区，一批请求读完后再统一 flush，减少流水线请求的系统调用次数
      */
-    private void handleHeartbeat(ObjectInputStream ois, ObjectOutputStream oos) throws Exception {
-        String serviceName = (String) ois.readObject();
-        String instanceId = (String) ois.readObject();
+    @ChannelHandler.Sharable
+    private class RegistryServerHandler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            connections.add(ctx.channel());
+            ctx.fireChannelActive();
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            RegistryRequest request = (RegistryRequest) msg;
+            RegistryResponse response;
+            try {
+                response = handleRequest(ctx.channel(), request);
+            } catch (Exception e) {
+                System.err.println("[注册中心] 处理请求异常: " + e.getMessage());
+                response = RegistryResponse.fail(request.getRequestId(), e.getMessage());
+            }
+            ctx.write(response);
+        }
 
-        registry.heartbeat(serviceName, instanceId);
-        oos.writeBoolean(true);
-        oos.flush();
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+            if (evt instanceof IdleStateEvent) {
+                System.out.println("[注册中心] 连接空闲超时，关闭连接: " + ctx.channel().remoteAddress());
+                ctx.close();
+            } else {
+                ctx.fireUserEventTriggered(evt);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            System.err.println("[注册中心] 连接异常，关闭连接: " + cause.getMessage());
+            ctx.close();
+        }
     }
 
     public static void main(String[] args) {
-        RegistryServer server = new RegistryServer(9000);
+        RegistryServer server = new RegistryServer(9000, DEFAULT_WORKER_THREADS,
+                ServiceRegistry.DEFAULT_LEASE_TTL_MILLIS, Paths.get("registry-data", "9000"));
         server.start();
     }
 }
@@ -0,0 +1,457 @@
+package com.alan.rpc.v4.registry;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 注册表持久化
+ * 注册、下线、过期以追加日志的形式写入本地文件，并定期生成快照压缩日志，注册中心重启后据此恢复注册表
+ *
+ * 文件布局（数据目录下）：
+ * <pre>
+ * registry.snapshot        快照：日志代数 + 全部实例（含元数据），整体校验，先写临时文件再原子替换
+ * registry-&lt;代数&gt;.log     追加日志：每条记录为 长度 + CRC32 + 内容，末尾不完整或校验失败的记录在恢复时丢弃
+ * </pre>
+ * 生成快照时先切换到新一代日志，再取注册表当前状态写快照，最后删除旧日志；
+ * 恢复时加载快照，再按顺序重放代数不小于快照代数的日志（重放是幂等的，与快照重叠的记录不影响结果）
+ *
+ * 写入采用组提交：调用方只把记录放入队列，由单独的写线程批量写入并 fsync 一次，注册请求不等待磁盘。
+ * 心跳不写日志，恢复出的实例重新获得一个完整租约，期间没有心跳的实例照常过期
+ */
+public class RegistryStore {
+
+    /**
+     * 距上次快照的日志记录数达到该值时生成快照
+     */
+    private static final int SNAPSHOT_LOG_RECORDS = 10_000;
+
+    /**
+     * 有新日志记录时，最长间隔多久生成一次快照（毫秒）
+     */
+    private static final long SNAPSHOT_INTERVAL_MILLIS = 60_000;
+
+    private static final String SNAPSHOT_FILE = "registry.snapshot";
+    private static final String LOG_PREFIX = "registry-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final int SNAPSHOT_MAGIC = 0x52454753;
+    private static final int SNAPSHOT_VERSION = 2;
+
+    /**
+     * 不含实例元数据的旧版快照，仍可读取
+     */
+    private static final int SNAPSHOT_VERSION_WITHOUT_METADATA = 1;
+
+    private static final byte RECORD_REGISTER = 1;
+    private static final byte RECORD_DEREGISTER = 2;
+    private static final byte RECORD_REGISTER_WITH_METADATA = 3;
+
+    private final Path dataDir;
+    private final BlockingQueue<LogRecord> queue = new LinkedBlockingQueue<>();
+    private Supplier<Map<String, List<ServiceInstance>>> stateSupplier;
+    private Thread writer;
+    private volatile boolean running;
+
+    /**
+     * 以下字段只在 start 和写线程中访问
+     */
+    private long generation;
+    private FileOutputStream logFile;
+    private DataOutputStream logOut;
+    private int recordsSinceSnapshot;
+    private long lastSnapshotMillis;
+
+    /**
+     * @param dataDir 数据目录，不存在时自动创建
+     */
+    public RegistryStore(Path dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    /**
+     * 从快照和日志恢复注册表
+     *
+     * @return 恢复出的服务实例
+     */
+    public List<ServiceInstance> recover() {
+        try {
+            Files.createDirectories(dataDir);
+            // 服务名称 -> (实例ID -> 实例)
+            Map<String, Map<String, ServiceInstance>> state = new LinkedHashMap<>();
+            long snapshotGeneration = readSnapshot(state);
+            for (long logGeneration : logGenerations()) {
+                if (logGeneration >= snapshotGeneration) {
+                    replayLog(logPath(logGeneration), state);
+                }
+                generation = Math.max(generation, logGeneration);
+            }
+            generation = Math.max(generation, snapshotGeneration);
+
+            List<ServiceInstance> instances = new ArrayList<>();
+            for (Map<String, ServiceInstance> serviceInstances : state.values()) {
+                instances.addAll(serviceInstances.values());
+            }
+            return instances;
+        } catch (IOException e) {
+            throw new RegistryException("恢复注册表失败: " + dataDir, e);
+        }
+    }
+
+    /**
+     * 开始记录日志：切换到新一代日志并立即生成一次快照（压缩恢复时读取的日志），然后启动写线程
+     *
+     * @param stateSupplier 注册表当前状态，生成快照时调用
+     */
+    public void start(Supplier<Map<String, List<ServiceInstance>>> stateSupplier) {
+        this.stateSupplier = stateSupplier;
+        try {
+            snapshot();
+        } catch (IOException e) {
+            throw new RegistryException("初始化注册表日志失败: " + dataDir, e);
+        }
+        running = true;
+        writer = new Thread(this::runWriter, "registry-store");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 记录实例注册，在注册表的更新函数内调用，保证同一服务的记录顺序与变更顺序一致
+     */
+    void appendRegister(ServiceInstance instance) {
+        if (!running) {
+            return;
+        }
+        Map<String, String> metadata = instance.getMetadata();
+        queue.add(new LogRecord(metadata.isEmpty() ? RECORD_REGISTER : RECORD_REGISTER_WITH_METADATA,
+                instance.getServiceName(), instance.getInstanceId(), instance.getHost(), instance.getPort(), metadata));
+    }
+
+    /**
+     * 记录实例下线或过期，调用要求同 appendRegister
+     */
+    void appendDeregister(String serviceName, String instanceId) {
+        if (!running) {
+            return;
+        }
+        queue.add(new LogRecord(RECORD_DEREGISTER, serviceName, instanceId, null, 0, Collections.emptyMap()));
+    }
+
+    /**
+     * 写完队列中剩余的记录后关闭
+     */
+    public void close() {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        List<LogRecord> batch = new ArrayList<>();
+        try {
+            while (running || !queue.isEmpty()) {
+                LogRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                    writeBatch(batch);
+                    batch.clear();
+                }
+                if (recordsSinceSnapshot >= SNAPSHOT_LOG_RECORDS || (recordsSinceSnapshot > 0
+                        && System.currentTimeMillis() - lastSnapshotMillis >= SNAPSHOT_INTERVAL_MILLIS)) {
+                    snapshot();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            running = false;
+            queue.clear();
+            System.err.println("[注册中心] 写注册表日志失败，停止持久化: " + e.getMessage());
+        } finally {
+            closeLog();
+        }
+    }
+
+    /**
+     * 组提交：一批记录只 fsync 一次
+     */
+    private void writeBatch(List<LogRecord> batch) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+        DataOutputStream record = new DataOutputStream(buffer);
+        CRC32 crc = new CRC32();
+        for (LogRecord logRecord : batch) {
+            buffer.reset();
+            logRecord.writeTo(record);
+            crc.reset();
+            crc.update(buffer.toByteArray(), 0, buffer.size());
+            logOut.writeInt(buffer.size());
+            logOut.writeInt((int) crc.getValue());
+            buffer.writeTo(logOut);
+        }
+        logOut.flush();
+        logFile.getChannel().force(false);
+        recordsSinceSnapshot += batch.size();
+    }
+
+    /**
+     * 切换到新一代日志，写入快照后删除旧日志
+     */
+    private void snapshot() throws IOException {
+        closeLog();
+        generation++;
+        logFile = new FileOutputStream(logPath(generation).toFile(), true);
+        logOut = new DataOutputStream(new BufferedOutputStream(logFile));
+
+        long start = System.currentTimeMillis();
+        int count = writeSnapshot(stateSupplier.get());
+        for (long logGeneration : logGenerations()) {
+            if (logGeneration < generation) {
+                Files.deleteIfExists(logPath(logGeneration));
+            }
+        }
+        recordsSinceSnapshot = 0;
+        lastSnapshotMillis = System.currentTimeMillis();
+        System.out.println("[注册中心] 生成注册表快照: " + count + " 个实例，耗时 " + (lastSnapshotMillis - start) + "ms");
+    }
+
+    private int writeSnapshot(Map<String, List<ServiceInstance>> state) throws IOException {
+        Path tmp = dataDir.resolve(SNAPSHOT_FILE + ".tmp");
+        int count = 0;
+        for (List<ServiceInstance> instances : state.values()) {
+            count += instances.size();
+        }
+
+        try (FileOutputStream file = new FileOutputStream(tmp.toFile())) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc)));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(generation);
+            out.writeInt(count);
+            for (List<ServiceInstance> instances : state.values()) {
+                for (ServiceInstance instance : instances) {
+                    out.writeUTF(instance.getServiceName());
+                    out.writeUTF(instance.getInstanceId());
+                    out.writeUTF(instance.getHost());
+                    out.writeInt(instance.getPort());
+                    writeMetadata(out, instance.getMetadata());
+                }
+            }
+            out.flush();
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            file.getChannel().force(true);
+        }
+        Files.move(tmp, dataDir.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * 读取快照
+     *
+     * @return 快照对应的日志代数，没有快照时返回 0
+     */
+    private long readSnapshot(Map<String, Map<String, ServiceInstance>> state) throws IOException {
+        Path path = dataDir.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+
+        byte[] bytes = Files.readAllBytes(path);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (bytes.length < 24 || in.readInt() != SNAPSHOT_MAGIC) {
+            throw new RegistryException("注册表快照格式错误: " + path);
+        }
+        int version = in.readInt();
+        if (version != SNAPSHOT_VERSION && version != SNAPSHOT_VERSION_WITHOUT_METADATA) {
+            throw new RegistryException("不支持的注册表快照版本: " + version);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        int storedCrc = ((bytes[bytes.length - 4] & 0xFF) << 24) | ((bytes[bytes.length - 3] & 0xFF) << 16)
+                | ((bytes[bytes.length - 2] & 0xFF) << 8) | (bytes[bytes.length - 1] & 0xFF);
+        if (storedCrc != (int) crc.getValue()) {
+            throw new RegistryException("注册表快照校验失败: " + path);
+        }
+
+        long snapshotGeneration = in.readLong();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String serviceName = in.readUTF();
+            String instanceId = in.readUTF();
+            String host = in.readUTF();
+            int port = in.readInt();
+            Map<String, String> metadata = version == SNAPSHOT_VERSION ? readMetadata(in) : Collections.emptyMap();
+            state.computeIfAbsent(serviceName, k -> new LinkedHashMap<>())
+                    .put(instanceId, new ServiceInstance(serviceName, host, port, instanceId, metadata));
+        }
+        return snapshotGeneration;
+    }
+
+    /**
+     * 重放日志，遇到不完整或校验失败的记录（写入时进程退出）即停止
+     */
+    private void replayLog(Path path, Map<String, Map<String, ServiceInstance>> state) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] payload;
+                int storedCrc;
+                try {
+                    int length = in.readInt();
+                    storedCrc = in.readInt();
+                    if (length <= 0 || length > 1 << 20) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload, 0, payload.length);
+                if (storedCrc != (int) crc.getValue()) {
+                    System.err.println("[注册中心] 注册表日志记录校验失败，忽略之后的记录: " + path);
+                    break;
+                }
+                LogRecord.readFrom(new DataInputStream(new ByteArrayInputStream(payload))).applyTo(state);
+            }
+        }
+    }
+
+    private static void writeMetadata(DataOutputStream out, Map<String, String> metadata) throws IOException {
+        out.writeInt(metadata.size());
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue());
+        }
+    }
+
+    private static Map<String, String> readMetadata(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> metadata = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            metadata.put(in.readUTF(), in.readUTF());
+        }
+        return Collections.unmodifiableMap(metadata);
+    }
+
+    private List<Long> logGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dataDir, LOG_PREFIX + "*" + LOG_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                    // 不是日志文件
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    private Path logPath(long logGeneration) {
+        return dataDir.resolve(LOG_PREFIX + logGeneration + LOG_SUFFIX);
+    }
+
+    private void closeLog() {
+        if (logOut == null) {
+            return;
+        }
+        try {
+            logOut.flush();
+            logFile.getChannel().force(false);
+            logOut.close();
+        } catch (IOException e) {
+            System.err.println("[注册中心] 关闭注册表日志失败: " + e.getMessage());
+        }
+        logOut = null;
+        logFile = null;
+    }
+
+    /**
+     * 日志记录
+     */
+    private static final class LogRecord {
+        private final byte type;
+        private final String serviceName;
+        private final String instanceId;
+        private final String host;
+        private final int port;
+        private final Map<String, String> metadata;
+
+        LogRecord(byte type, String serviceName, String instanceId, String host, int port, Map<String, String> metadata) {
+            this.type = type;
+            this.serviceName = serviceName;
+            this.instanceId = instanceId;
+            this.host = host;
+            this.port = port;
+            this.metadata = metadata;
+        }
+
+        /**
+         * 没有元数据的注册记录使用 RECORD_REGISTER，与旧版日志格式相同
+         */
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeByte(type);
+            out.writeUTF(serviceName);
+            out.writeUTF(instanceId);
+            if (type != RECORD_DEREGISTER) {
+                out.writeUTF(host);
+                out.writeInt(port);
+            }
+            if (type == RECORD_REGISTER_WITH_METADATA) {
+                writeMetadata(out, metadata);
+            }
+        }
+
+        static LogRecord readFrom(DataInputStream in) throws IOException {
+            byte type = in.readByte();
+            String serviceName = in.readUTF();
+            String instanceId = in.readUTF();
+            if (type == RECORD_DEREGISTER) {
+                return new LogRecord(type, serviceName, instanceId, null, 0, Collections.emptyMap());
+            }
+            String host = in.readUTF();
+            int port = in.readInt();
+            Map<String, String> metadata = type == RECORD_REGISTER_WITH_METADATA ? readMetadata(in) : Collections.emptyMap();
+            return new LogRecord(type, serviceName, instanceId, host, port, metadata);
+        }
+
+        /**
+         * 与 ServiceRegistry 一致：已存在的实例重复注册不改变实例信息
+         */
+        void applyTo(Map<String, Map<String, ServiceInstance>> state) {
+            if (type != RECORD_DEREGISTER) {
+                state.computeIfAbsent(serviceName, k -> new LinkedHashMap<>())
+                        .putIfAbsent(instanceId, new ServiceInstance(serviceName, host, port, instanceId, metadata));
+                return;
+            }
+            Map<String, ServiceInstance> instances = state.get(serviceName);
+            if (instances != null) {
+                instances.remove(instanceId);
+                if (instances.isEmpty()) {
+                    state.remove(serviceName);
+                }
+            }
+        }
+    }
+}
@@ -2,16 +2,50 @@ package com.alan.rpc.v4.registry;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * 服务实例信息
  */
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class ServiceInstance implements Serializable {
 
+    /**
+     * 元数据键：权重（正整数，默认 100），客户端按权重比例分配请求
+     */
+    public static final String METADATA_WEIGHT = "weight";
+
+    /**
+     * 元数据键：所在机房 / 可用区
+     */
+    public static final String METADATA_ZONE = "zone";
+
+    /**
+     * 元数据键：支持的序列化方式（SerializationTypeEnum 的 code，逗号分隔）
+     */
+    public static final String METADATA_SERIALIZERS = "serializers";
+
+    /**
+     * 元数据键：RPC 协议版本
+     */
+    public static final String METADATA_PROTOCOL_VERSION = "protocolVersion";
+
+    /**
+     * 元数据键：最大并发请求数，0 表示不限制
+     */
+    public static final String METADATA_MAX_CONCURRENCY = "maxConcurrency";
+
+    /**
+     * 默认权重
+     */
+    public static final int DEFAULT_WEIGHT = 100;
+
     /**
      * 服务名称（接口全限定名）
      */
@@ -33,15 +67,31 @@ public class ServiceInstance implements Serializable {
     private String instanceId;
 
     /**
-     * 最后心跳时间戳
+     * 最后心跳时间戳，心跳时原地更新，读取方无需加锁
+     */
+    private volatile long lastHeartbeat;
+
+    /**
+     * 实例加入服务时服务的版本号，用于计算增量服务发现
+     */
+    private long revision;
+
+    /**
+     * 实例元数据，注册时由服务提供者给出，随服务发现下发给客户端；发布后不再修改
+     * 预定义的键见 METADATA_* 常量，也可以放入自定义的键
      */
-    private long lastHeartbeat;
+    private Map<String, String> metadata = Collections.emptyMap();
 
     public ServiceInstance(String serviceName, String host, int port, String instanceId) {
+        this(serviceName, host, port, instanceId, Collections.emptyMap());
+    }
+
+    public ServiceInstance(String serviceName, String host, int port, String instanceId, Map<String, String> metadata) {
         this.serviceName = serviceName;
         this.host = host;
         this.port = port;
         this.instanceId = instanceId;
+        this.metadata = metadata == null ? Collections.emptyMap() : metadata;
         this.lastHeartbeat = System.currentTimeMillis();
     }
 
@@ -60,9 +110,59 @@ public class ServiceInstance implements Serializable {
     }
 
     /**
-     * 判断实例是否过期（超过30秒没有心跳）
+     * 权重，未设置或不合法时为默认权重
+     */
+    public int getWeight() {
+        int weight = intMetadata(METADATA_WEIGHT, DEFAULT_WEIGHT);
+        return weight > 0 ? weight : DEFAULT_WEIGHT;
+    }
+
+    /**
+     * 所在机房 / 可用区，未设置时为 null
+     */
+    public String getZone() {
+        return metadata.get(METADATA_ZONE);
+    }
+
+    /**
+     * 协议版本，未设置时为 0
+     */
+    public int getProtocolVersion() {
+        return intMetadata(METADATA_PROTOCOL_VERSION, 0);
+    }
+
+    /**
+     * 最大并发请求数，0 表示不限制
      */
-    public boolean isExpired() {
-        return System.currentTimeMillis() - lastHeartbeat > 30000;
+    public int getMaxConcurrency() {
+        return Math.max(0, intMetadata(METADATA_MAX_CONCURRENCY, 0));
+    }
+
+    /**
+     * 是否支持指定的序列化方式，未声明支持的序列化方式时（旧版本的服务提供者）视为支持
+     */
+    public boolean supportsSerializer(String serializationCode) {
+        String serializers = metadata.get(METADATA_SERIALIZERS);
+        if (serializers == null) {
+            return true;
+        }
+        for (String code : serializers.split(",")) {
+            if (code.trim().equalsIgnoreCase(serializationCode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int intMetadata(String key, int defaultValue) {
+        String value = metadata.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
     }
 }
@@ -1,20 +1,125 @@
 package com.alan.rpc.v4.registry;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * 服务注册中心
  * 管理所有服务的注册信息，支持服务注册、发现、下线
+ *
+ * 并发设计：每个服务的实例列表是一个快照，发布后不再修改，注册/下线/过期时复制出新列表整体替换
+ * （写操作只锁 ConcurrentHashMap 中该服务所在的桶），服务发现直接读取快照，不加锁；
+ * 心跳只更新实例上的 volatile 时间戳，不复制列表，也不与其他操作互斥
+ *
+ * 版本号：实例加入或移除时，服务获得一个新的版本号（全局递增），客户端带上已知的版本号做服务发现，
+ * 注册中心只返回之后的变化（见 {@link ServiceSnapshot}）。版本号只在本次启动内有意义，
+ * 注册中心每次启动生成新的 epoch，客户端发现 epoch 变化时丢弃本地版本，重新拉取完整列表
+ *
+ * 租约过期：每个实例注册时在时间轮上登记一个租约到期任务，到期时若期间有过心跳则按最后心跳时间
+ * 重新登记剩余时长，否则移除实例并通知监听者。心跳本身不操作时间轮，每个租约每个周期只被处理一次
  */
 public class ServiceRegistry {
 
     /**
-     * 服务注册表：接口名称 -> 服务实例列表
+     * 默认租约时长（毫秒），超过该时间没有心跳的实例被移除
+     */
+    public static final long DEFAULT_LEASE_TTL_MILLIS = 30_000;
+
+    /**
+     * 时间轮刻度（毫秒）和槽数，一圈约 51 秒，默认租约一圈内到期
+     */
+    private static final long WHEEL_TICK_MILLIS = 100;
+    private static final int WHEEL_SIZE = 512;
+
+    /**
+     * 服务注册表：接口名称 -> 服务实例集合的当前版本
+     */
+    private final Map<String, ServiceSnapshot> registry = new ConcurrentHashMap<>();
+
+    /**
+     * 版本号计数器，所有服务共用，保证同一服务的版本号单调递增
+     */
+    private final AtomicLong revisions = new AtomicLong();
+
+    /**
+     * 本次启动的标识，版本号只在同一 epoch 内可比较
+     */
+    private final long epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+
+    /**
+     * 实例索引：实例ID -> 该实例在各个服务下的实例对象快照，用于按实例批量续约
+     * 只在 registry 的更新函数内部修改（先 registry 后索引，顺序固定）
+     */
+    private final Map<String, List<ServiceInstance>> instanceIndex = new ConcurrentHashMap<>();
+
+    /**
+     * 租约时长（毫秒）
+     */
+    private final long leaseTtlMillis;
+
+    /**
+     * 实例过期回调，参数为实例发生变化的服务名称，在时间轮线程中调用
+     */
+    private final Consumer<String> expiredListener;
+
+    private final Timer leaseTimer;
+
+    /**
+     * 持久化，为 null 时只保存在内存中
+     */
+    private final RegistryStore store;
+
+    public ServiceRegistry() {
+        this(DEFAULT_LEASE_TTL_MILLIS, serviceName -> { });
+    }
+
+    public ServiceRegistry(long leaseTtlMillis, Consumer<String> expiredListener) {
+        this(leaseTtlMillis, expiredListener, null);
+    }
+
+    /**
+     * @param leaseTtlMillis  租约时长（毫秒）
+     * @param expiredListener 实例过期回调，参数为服务名称
+     * @param store           持久化，不为 null 时先从中恢复注册表，之后的注册、下线、过期都写入日志
+     */
+    public ServiceRegistry(long leaseTtlMillis, Consumer<String> expiredListener, RegistryStore store) {
+        if (leaseTtlMillis <= 0) {
+            throw new IllegalArgumentException("租约时长必须大于 0: " + leaseTtlMillis);
+        }
+        this.leaseTtlMillis = leaseTtlMillis;
+        this.expiredListener = expiredListener;
+        this.leaseTimer = new HashedWheelTimer(r -> {
+            Thread thread = new Thread(r, "registry-lease");
+            thread.setDaemon(true);
+            return thread;
+        }, WHEEL_TICK_MILLIS, TimeUnit.MILLISECONDS, WHEEL_SIZE);
+        this.store = store;
+        if (store != null) {
+            restore(store.recover());
+            store.start(this::getAllServices);
+        }
+    }
+
+    /**
+     * 获取租约时长（毫秒）
+     */
+    public long getLeaseTtlMillis() {
+        return leaseTtlMillis;
+    }
+
+    /**
+     * 获取本次启动的标识
      */
-    private final Map<String, List<ServiceInstance>> registry = new ConcurrentHashMap<>();
+    public long getEpoch() {
+        return epoch;
+    }
 
     /**
      * 注册服务
@@ -23,56 +128,94 @@ public class ServiceRegistry {
      * @param host           服务主机地址
      * @param port           服务端口
      * @param instanceId     实例ID
+     * @return 是否新增了实例（已存在的实例只更新心跳，返回 false）
      */
-    public synchronized void register(String serviceName, String host, int port, String instanceId) {
-        List<ServiceInstance> instances = registry.computeIfAbsent(serviceName, k -> new ArrayList<>());
+    public boolean register(String serviceName, String host, int port, String instanceId) {
+        return register(serviceName, host, port, instanceId, Collections.emptyMap());
+    }
 
-        // 检查是否已存在该实例
-        for (ServiceInstance instance : instances) {
-            if (instance.getInstanceId().equals(instanceId)) {
-                // 更新心跳时间
-                instance.updateHeartbeat();
-                System.out.println("[注册中心] 服务实例已存在，更新心跳: " + serviceName + " -> " + host + ":" + port);
-                return;
-            }
+    /**
+     * 注册服务，携带实例元数据
+     *
+     * @param metadata 实例元数据（权重、机房等），实例已存在时不更新
+     * @return 是否新增了实例（已存在的实例只更新心跳，返回 false）
+     */
+    public boolean register(String serviceName, String host, int port, String instanceId, Map<String, String> metadata) {
+        metadata = immutable(metadata);
+        if (add(serviceName, host, port, instanceId, metadata) == null) {
+            System.out.println("[注册中心] 服务实例已存在，更新心跳: " + serviceName + " -> " + host + ":" + port);
+            return false;
         }
+        System.out.println("[注册中心] 注册服务: " + serviceName + " -> " + host + ":" + port + " (实例: " + instanceId + ")"
+                + (metadata.isEmpty() ? "" : "，元数据: " + metadata));
+        return true;
+    }
 
-        // 新增服务实例
-        ServiceInstance instance = new ServiceInstance(serviceName, host, port, instanceId);
-        instances.add(instance);
-        System.out.println("[注册中心] 注册服务: " + serviceName + " -> " + host + ":" + port + " (实例: " + instanceId + ")");
+    /**
+     * 批量注册：同一实例一次注册多个服务，已注册的服务只更新心跳
+     *
+     * @return 新增了实例的服务名称
+     */
+    public List<String> registerAll(List<String> serviceNames, String host, int port, String instanceId) {
+        return registerAll(serviceNames, host, port, instanceId, Collections.emptyMap());
     }
 
     /**
-     * 发现服务
+     * 批量注册，各服务下的实例共用同一份元数据
      *
-     * @param serviceName 服务名称
-     * @return 服务实例列表，如果不存在返回空列表
+     * @return 新增了实例的服务名称
      */
-    public synchronized List<ServiceInstance> discover(String serviceName) {
-        List<ServiceInstance> instances = registry.get(serviceName);
-        if (instances == null || instances.isEmpty()) {
-            System.out.println("[注册中心] 服务未找到: " + serviceName);
-            return new ArrayList<>();
+    public List<String> registerAll(List<String> serviceNames, String host, int port, String instanceId,
+                                    Map<String, String> metadata) {
+        metadata = immutable(metadata);
+        List<String> addedServices = new ArrayList<>();
+        for (String serviceName : serviceNames) {
+            if (add(serviceName, host, port, instanceId, metadata) != null) {
+                addedServices.add(serviceName);
+            }
         }
+        System.out.println("[注册中心] 批量注册服务: " + host + ":" + port + " (实例: " + instanceId + ")，服务数: "
+                + serviceNames.size() + "，新增: " + addedServices.size() + (metadata.isEmpty() ? "" : "，元数据: " + metadata));
+        return addedServices;
+    }
 
-        // 过滤掉过期的实例（超过30秒没有心跳）
-        List<ServiceInstance> validInstances = new ArrayList<>();
-        long now = System.currentTimeMillis();
+    /**
+     * 批量合并其他注册中心节点同步来的实例，已存在的实例只更新心跳，不逐条输出日志
+     *
+     * @return 有实例新增的服务名称
+     */
+    public Set<String> merge(List<ServiceInstance> instances) {
+        Set<String> changedServices = new LinkedHashSet<>();
         for (ServiceInstance instance : instances) {
-            if (now - instance.getLastHeartbeat() < 30000) {
-                validInstances.add(instance);
+            if (add(instance.getServiceName(), instance.getHost(), instance.getPort(), instance.getInstanceId(),
+                    instance.getMetadata()) != null) {
+                changedServices.add(instance.getServiceName());
             }
         }
+        return changedServices;
+    }
 
-        // 更新注册表，移除过期实例
-        if (validInstances.size() != instances.size()) {
-            registry.put(serviceName, validInstances);
-            System.out.println("[注册中心] 清理过期实例: " + serviceName + ", 剩余 " + validInstances.size() + " 个实例");
-        }
+    /**
+     * 发现服务
+     *
+     * @param serviceName 服务名称
+     * @return 服务实例列表快照（只读），如果不存在返回空列表；过期实例由租约到期任务在后台移除
+     */
+    public List<ServiceInstance> discover(String serviceName) {
+        ServiceSnapshot snapshot = registry.get(serviceName);
+        return snapshot == null ? Collections.emptyList() : snapshot.getInstances();
+    }
 
-        System.out.println("[注册中心] 发现服务: " + serviceName + ", 可用实例: " + validInstances.size());
-        return validInstances;
+    /**
+     * 获取服务实例集合的当前版本
+     *
+     * @param serviceName 服务名称
+     * @return 当前版本，服务不存在时返回以注册表当前版本号表示的空集合（见 {@link ServiceSnapshot#empty}）
+     */
+    public ServiceSnapshot snapshot(String serviceName) {
+        // 无锁读路径，不输出日志：服务不存在是正常情况（例如消费者先于提供者启动），逐条打印会让 System.out 成为瓶颈
+        ServiceSnapshot snapshot = registry.get(serviceName);
+        return snapshot == null ? ServiceSnapshot.empty(revisions.get()) : snapshot;
     }
 
     /**
@@ -80,13 +223,27 @@ public class ServiceRegistry {
      *
      * @param serviceName 服务名称
      * @param instanceId  实例ID
+     * @return 是否有实例被移除
      */
-    public synchronized void deregister(String serviceName, String instanceId) {
-        List<ServiceInstance> instances = registry.get(serviceName);
-        if (instances != null) {
-            instances.removeIf(instance -> instance.getInstanceId().equals(instanceId));
+    public boolean deregister(String serviceName, String instanceId) {
+        boolean[] removed = new boolean[1];
+        registry.computeIfPresent(serviceName, (name, snapshot) -> {
+            ServiceInstance instance = find(snapshot.getInstances(), instanceId);
+            if (instance == null) {
+                return snapshot;
+            }
+            unindex(instance);
+            if (store != null) {
+                store.appendDeregister(serviceName, instanceId);
+            }
+            removed[0] = true;
+            return removeFrom(snapshot, instance);
+        });
+
+        if (removed[0]) {
             System.out.println("[注册中心] 服务下线: " + serviceName + " (实例: " + instanceId + ")");
         }
+        return removed[0];
     }
 
     /**
@@ -95,22 +252,239 @@ public class ServiceRegistry {
      * @param serviceName 服务名称
      * @param instanceId  实例ID
      */
-    public synchronized void heartbeat(String serviceName, String instanceId) {
-        List<ServiceInstance> instances = registry.get(serviceName);
+    public void heartbeat(String serviceName, String instanceId) {
+        ServiceSnapshot snapshot = registry.get(serviceName);
+        ServiceInstance instance = snapshot == null ? null : find(snapshot.getInstances(), instanceId);
+        if (instance != null) {
+            instance.updateHeartbeat();
+        }
+    }
+
+    /**
+     * 实例级心跳：一次续约该实例提供的所有服务
+     *
+     * @param instanceId 实例ID
+     * @return 续约的服务数，0 表示实例未注册（例如注册中心重启或实例已过期被清理）
+     */
+    public int heartbeat(String instanceId) {
+        List<ServiceInstance> instances = instanceIndex.get(instanceId);
+        if (instances == null) {
+            return 0;
+        }
+        for (ServiceInstance instance : instances) {
+            instance.updateHeartbeat();
+        }
+        return instances.size();
+    }
+
+    /**
+     * 在线实例数（同一实例注册多个服务只算一次）
+     */
+    public int getInstanceCount() {
+        return instanceIndex.size();
+    }
+
+    /**
+     * 获取实例在各个服务下的注册信息
+     *
+     * @return 实例注册的服务实例列表（只读），实例未注册时返回空列表
+     */
+    public List<ServiceInstance> getInstances(String instanceId) {
+        List<ServiceInstance> instances = instanceIndex.get(instanceId);
+        return instances == null ? Collections.emptyList() : instances;
+    }
+
+    /**
+     * 关闭注册表，停止租约时间轮，并写完未落盘的日志
+     */
+    public void close() {
+        leaseTimer.stop();
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    /**
+     * 从服务中移除一个实例，生成新版本；移除的是最后一个实例时返回 null，注册表不再保留该服务
+     * （版本号来自全局计数器，不会回退，之后的查询以当前版本号返回空集合）
+     */
+    private ServiceSnapshot removeFrom(ServiceSnapshot snapshot, ServiceInstance instance) {
+        long revision = revisions.incrementAndGet();
+        if (snapshot.getInstances().size() == 1) {
+            return null;
+        }
+        return snapshot.withRemoved(Collections.singletonList(instance), revision);
+    }
+
+    /**
+     * 获取所有注册的服务
+     */
+    public Map<String, List<ServiceInstance>> getAllServices() {
+        Map<String, List<ServiceInstance>> services = new HashMap<>();
+        registry.forEach((serviceName, snapshot) -> services.put(serviceName, snapshot.getInstances()));
+        return services;
+    }
+
+    /**
+     * 新增实例并登记租约，已存在的实例只更新心跳
+     *
+     * @return 新增的实例，已存在时返回 null
+     */
+    private ServiceInstance add(String serviceName, String host, int port, String instanceId, Map<String, String> metadata) {
+        ServiceInstance[] added = new ServiceInstance[1];
+        registry.compute(serviceName, (name, snapshot) -> {
+            ServiceInstance existing = snapshot == null ? null : find(snapshot.getInstances(), instanceId);
+            if (existing != null) {
+                // 更新心跳时间
+                existing.updateHeartbeat();
+                return snapshot;
+            }
+
+            // 新增服务实例
+            ServiceInstance instance = new ServiceInstance(serviceName, host, port, instanceId, metadata);
+            instanceIndex.compute(instanceId, (id, indexed) -> copyWith(indexed, instance));
+            if (store != null) {
+                store.appendRegister(instance);
+            }
+            added[0] = instance;
+            // 重新出现的服务从当前版本号开始，早于它的客户端（可能还持有已下线的实例）拿完整列表
+            return (snapshot == null ? ServiceSnapshot.empty(revisions.get()) : snapshot)
+                    .withAdded(instance, revisions.incrementAndGet());
+        });
+
+        if (added[0] != null) {
+            scheduleLease(added[0], leaseTtlMillis);
+        }
+        return added[0];
+    }
+
+    /**
+     * 恢复持久化的实例，每个实例获得一个完整租约，不写日志
+     * 在构造函数中调用，列表发布前直接追加，不需要复制；每个服务恢复为一个版本
+     */
+    private void restore(List<ServiceInstance> instances) {
+        long start = System.currentTimeMillis();
+        Map<String, List<ServiceInstance>> services = new HashMap<>();
+        for (ServiceInstance instance : instances) {
+            services.computeIfAbsent(instance.getServiceName(), k -> new ArrayList<>()).add(instance);
+            instanceIndex.computeIfAbsent(instance.getInstanceId(), k -> new ArrayList<>()).add(instance);
+            scheduleLease(instance, leaseTtlMillis);
+        }
+        services.forEach((serviceName, serviceInstances) -> {
+            long revision = revisions.incrementAndGet();
+            for (ServiceInstance instance : serviceInstances) {
+                instance.setRevision(revision);
+            }
+            registry.put(serviceName, ServiceSnapshot.of(serviceInstances, revision));
+        });
+        System.out.println("[注册中心] 恢复注册表: " + registry.size() + " 个服务，" + instances.size()
+                + " 个实例，耗时 " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * 在时间轮上登记租约到期检查
+     */
+    private void scheduleLease(ServiceInstance instance, long delayMillis) {
+        leaseTimer.newTimeout(timeout -> checkLease(instance), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 租约到期检查：期间有过心跳则顺延剩余时长，否则移除实例
+     * 实例已下线（或已重新注册为新对象）时不做任何处理，任务自然结束
+     */
+    private void checkLease(ServiceInstance instance) {
+        long remaining = instance.getLastHeartbeat() + leaseTtlMillis - System.currentTimeMillis();
+        if (remaining > 0) {
+            if (isRegistered(instance)) {
+                scheduleLease(instance, remaining);
+            }
+            return;
+        }
+
+        String serviceName = instance.getServiceName();
+        boolean[] expired = new boolean[1];
+        ServiceSnapshot after = registry.computeIfPresent(serviceName, (name, snapshot) -> {
+            // 在桶锁内再确认一次，避免与并发的心跳、下线冲突
+            if (!ServiceSnapshot.containsSame(snapshot.getInstances(), instance)
+                    || instance.getLastHeartbeat() + leaseTtlMillis > System.currentTimeMillis()) {
+                return snapshot;
+            }
+            unindex(instance);
+            if (store != null) {
+                store.appendDeregister(serviceName, instance.getInstanceId());
+            }
+            expired[0] = true;
+            return removeFrom(snapshot, instance);
+        });
+
+        if (expired[0]) {
+            System.out.println("[注册中心] 实例租约过期: " + serviceName + " (实例: " + instance.getInstanceId()
+                    + ")，剩余 " + (after == null ? 0 : after.getInstances().size()) + " 个实例");
+            try {
+                expiredListener.accept(serviceName);
+            } catch (Exception e) {
+                System.err.println("[注册中心] 处理实例过期事件失败: " + e.getMessage());
+            }
+        } else if (isRegistered(instance)) {
+            // 桶锁内发现刚刚续约
+            scheduleLease(instance, leaseTtlMillis);
+        }
+    }
+
+    private boolean isRegistered(ServiceInstance instance) {
+        ServiceSnapshot snapshot = registry.get(instance.getServiceName());
+        return snapshot != null && ServiceSnapshot.containsSame(snapshot.getInstances(), instance);
+    }
+
+    /**
+     * 从实例索引中移除，在 registry 的更新函数内调用
+     */
+    private void unindex(ServiceInstance instance) {
+        instanceIndex.computeIfPresent(instance.getInstanceId(), (id, indexed) -> {
+            List<ServiceInstance> remaining = copyWithout(indexed, instance);
+            return remaining.isEmpty() ? null : remaining;
+        });
+    }
+
+    /**
+     * 元数据在实例之间共享，保存不可修改的副本，去掉值为 null 的条目
+     */
+    private static Map<String, String> immutable(Map<String, String> metadata) {
+        if (metadata == null || metadata.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> copy = new LinkedHashMap<>(metadata);
+        copy.values().removeIf(Objects::isNull);
+        return copy.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(copy);
+    }
+
+    private static ServiceInstance find(List<ServiceInstance> instances, String instanceId) {
         if (instances != null) {
             for (ServiceInstance instance : instances) {
                 if (instance.getInstanceId().equals(instanceId)) {
-                    instance.updateHeartbeat();
-                    break;
+                    return instance;
                 }
             }
         }
+        return null;
     }
 
-    /**
-     * 获取所有注册的服务
-     */
-    public synchronized Map<String, List<ServiceInstance>> getAllServices() {
-        return new ConcurrentHashMap<>(registry);
+    private static List<ServiceInstance> copyWith(List<ServiceInstance> instances, ServiceInstance added) {
+        List<ServiceInstance> copy = new ArrayList<>(instances == null ? 1 : instances.size() + 1);
+        if (instances != null) {
+            copy.addAll(instances);
+        }
+        copy.add(added);
+        return copy;
+    }
+
+    private static List<ServiceInstance> copyWithout(List<ServiceInstance> instances, ServiceInstance removed) {
+        List<ServiceInstance> copy = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            if (instance != removed) {
+                copy.add(instance);
+            }
+        }
+        return copy;
     }
 }
@@ -0,0 +1,180 @@
+package com.alan.rpc.v4.registry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 服务实例集合的一个版本
+ * 发布后不再修改，实例加入或移除时生成新的版本。每个实例记录自己加入时的版本号，
+ * 另外保留最近的下线记录（实例ID + 下线时的版本号），据此可以算出任意较新版本相对旧版本的增量
+ */
+public final class ServiceSnapshot {
+
+    /**
+     * 保留的下线记录数，客户端的版本早于最老的一条下线记录时无法计算增量，只能返回完整列表
+     */
+    static final int MAX_TOMBSTONES = 1024;
+
+
+    /**
+     * 版本号，同一注册表内单调递增
+     */
+    private final long revision;
+
+    /**
+     * 实例列表，不可修改，发布后在线程之间共享
+     */
+    private final List<ServiceInstance> instances;
+
+    /**
+     * 下线记录，按版本号递增排列
+     */
+    private final String[] removedIds;
+    private final long[] removedRevisions;
+
+    /**
+     * 已丢弃的下线记录中最新的版本号，早于该版本的客户端只能拿完整列表
+     */
+    private final long tombstoneFloor;
+
+    /**
+     * 完整列表响应的预编码，首次返回完整列表时生成。快照发布后不再修改，成员变化时生成新的快照，
+     * 缓存随之失效，不需要额外处理；并发生成时结果相同，后写入的覆盖先写入的即可。
+     * 其中实例的 lastHeartbeat 是生成时的值（客户端不使用）
+     */
+    private volatile byte[] encodedFullResponse;
+
+    private ServiceSnapshot(long revision, List<ServiceInstance> instances, String[] removedIds,
+                            long[] removedRevisions, long tombstoneFloor) {
+        this.revision = revision;
+        this.instances = instances;
+        this.removedIds = removedIds;
+        this.removedRevisions = removedRevisions;
+        this.tombstoneFloor = tombstoneFloor;
+    }
+
+    /**
+     * 不存在的服务在 revision 时的状态：没有实例，也不保留下线记录，早于 revision 的客户端只能拿完整（空）列表。
+     * 服务的最后一个实例移除后注册表不再保留该服务，以注册表当前的版本号表示它，版本号不会比客户端已知的旧
+     */
+    static ServiceSnapshot empty(long revision) {
+        return new ServiceSnapshot(revision, Collections.emptyList(), new String[0], new long[0], revision);
+    }
+
+    /**
+     * 由一组实例直接创建（恢复注册表时使用），实例的版本号需要已经设置好
+     */
+    static ServiceSnapshot of(List<ServiceInstance> instances, long revision) {
+        return new ServiceSnapshot(revision, Collections.unmodifiableList(new ArrayList<>(instances)),
+                new String[0], new long[0], 0);
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * 实例列表（不可修改）
+     */
+    public List<ServiceInstance> getInstances() {
+        return instances;
+    }
+
+    byte[] getEncodedFullResponse() {
+        return encodedFullResponse;
+    }
+
+    void setEncodedFullResponse(byte[] encodedFullResponse) {
+        this.encodedFullResponse = encodedFullResponse;
+    }
+
+    /**
+     * 能否计算相对 knownRevision 的增量
+     */
+    public boolean canDiffFrom(long knownRevision) {
+        return knownRevision >= tombstoneFloor && knownRevision <= revision;
+    }
+
+    /**
+     * knownRevision 之后加入的实例
+     */
+    public List<ServiceInstance> addedSince(long knownRevision) {
+        List<ServiceInstance> added = new ArrayList<>();
+        for (ServiceInstance instance : instances) {
+            if (instance.getRevision() > knownRevision) {
+                added.add(instance);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * knownRevision 之后下线的实例ID（可能包含之后又重新加入的实例，客户端先删除再添加即可）
+     */
+    public List<String> removedSince(long knownRevision) {
+        int from = removedRevisions.length;
+        while (from > 0 && removedRevisions[from - 1] > knownRevision) {
+            from--;
+        }
+        return new ArrayList<>(Arrays.asList(removedIds).subList(from, removedIds.length));
+    }
+
+    /**
+     * 加入一个实例，生成新版本
+     */
+    ServiceSnapshot withAdded(ServiceInstance instance, long newRevision) {
+        instance.setRevision(newRevision);
+        List<ServiceInstance> copy = new ArrayList<>(instances.size() + 1);
+        copy.addAll(instances);
+        copy.add(instance);
+        return new ServiceSnapshot(newRevision, Collections.unmodifiableList(copy), removedIds, removedRevisions,
+                tombstoneFloor);
+    }
+
+    /**
+     * 移除一批实例（按对象引用），生成新版本
+     */
+    ServiceSnapshot withRemoved(List<ServiceInstance> removed, long newRevision) {
+        List<ServiceInstance> copy = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            if (!containsSame(removed, instance)) {
+                copy.add(instance);
+            }
+        }
+
+        List<ServiceInstance> remaining = Collections.unmodifiableList(copy);
+        if (removed.size() >= MAX_TOMBSTONES) {
+            // 一次移除的实例超过保留上限，不保留任何下线记录，旧版本的客户端拿完整列表
+            return new ServiceSnapshot(newRevision, remaining, new String[0], new long[0], newRevision);
+        }
+        int dropped = Math.max(0, removedIds.length + removed.size() - MAX_TOMBSTONES);
+        int kept = removedIds.length - dropped;
+        String[] ids = Arrays.copyOfRange(removedIds, dropped, removedIds.length + removed.size());
+        long[] revisions = Arrays.copyOfRange(removedRevisions, dropped, removedIds.length + removed.size());
+        for (int i = 0; i < removed.size(); i++) {
+            ids[kept + i] = removed.get(i).getInstanceId();
+            revisions[kept + i] = newRevision;
+        }
+        long floor = dropped > 0 ? removedRevisions[dropped - 1] : tombstoneFloor;
+        return new ServiceSnapshot(newRevision, remaining, ids, revisions, floor);
+    }
+
+    /**
+     * 按对象引用判断（ServiceInstance 的 equals 比较字段值，包括心跳时间）
+     */
+    static boolean containsSame(List<ServiceInstance> instances, ServiceInstance instance) {
+        for (ServiceInstance candidate : instances) {
+            if (candidate == instance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ServiceSnapshot(revision=" + revision + ", instances=" + instances.size() + ")";
+    }
+}
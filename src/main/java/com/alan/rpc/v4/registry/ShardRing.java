@@ -0,0 +1,277 @@
+package com.alan.rpc.v4.registry;
+
+import com.alan.rpc.v4.common.util.HashUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 注册中心分片拓扑：一致性哈希环
+ * 集群由若干分片组成，每个分片是一组互为副本的节点（分片内全量复制，见 {@link RegistryReplicator}），
+ * 服务名称按一致性哈希归属于某一个分片，该服务的注册、发现、心跳和订阅都由这个分片处理。
+ * 每个分片在环上有 {@link #VIRTUAL_NODES} 个虚拟节点，增减一个分片时只有约 1/分片数 的服务改变归属。
+ * 虚拟节点的位置由分片 ID 决定，与分片内的节点无关，分片内增减副本不改变任何服务的归属
+ *
+ * 拓扑带版本号，节点和客户端都只采用比已知版本更新的拓扑。文本格式为分片之间用分号、分片内节点用逗号分隔，
+ * 节点前可以用"ID="指定分片 ID，例如
+ * <pre>
+ * a=127.0.0.1:9000,127.0.0.1:9001;b=127.0.0.1:9002,127.0.0.1:9003
+ * </pre>
+ * 未指定时分片 ID 为 "shard" 加分片下标，之后移除中间的分片会改变其后分片的 ID，需要移除分片的部署应显式指定
+ * 实例不可变，可以在线程之间共享
+ */
+public final class ShardRing {
+
+    /**
+     * 每个分片在环上的虚拟节点数
+     */
+    public static final int VIRTUAL_NODES = 128;
+
+    /**
+     * 虚拟节点哈希值的低位用来存分片下标，分片数不能超过该值
+     */
+    private static final int MAX_SHARDS = 1 << 16;
+
+    /**
+     * 文本格式和传输格式中分片 ID 与节点地址之间的分隔符
+     */
+    private static final String ID_SEPARATOR = "=";
+
+    private final long version;
+
+    /**
+     * 各分片的 ID，决定分片在环上的位置
+     */
+    private final List<String> shardIds;
+
+    /**
+     * 各分片的节点地址
+     */
+    private final List<List<String>> shards;
+
+    /**
+     * 各分片的标识：节点地址按逗号连接，客户端按它复用到同一组节点的连接
+     */
+    private final List<String> shardKeys;
+
+    /**
+     * 传输格式：各分片的"ID=节点地址"
+     */
+    private final List<String> wire;
+
+    /**
+     * 节点地址 -> 所在分片下标
+     */
+    private final Map<String, Integer> addressIndex;
+
+    /**
+     * 环上的虚拟节点：按哈希值排序，owners[i] 为 points[i] 所属的分片下标
+     */
+    private final long[] points;
+    private final int[] owners;
+
+    /**
+     * 分片 ID 为 "shard" 加分片下标
+     *
+     * @param version 拓扑版本号
+     * @param shards  各分片的节点地址（host:port），不能为空
+     */
+    public ShardRing(long version, List<List<String>> shards) {
+        this(version, defaultIds(shards.size()), shards);
+    }
+
+    /**
+     * @param version  拓扑版本号
+     * @param shardIds 各分片的 ID，与 shards 一一对应
+     * @param shards   各分片的节点地址（host:port），不能为空
+     */
+    public ShardRing(long version, List<String> shardIds, List<List<String>> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("分片拓扑不能为空");
+        }
+        if (shards.size() > MAX_SHARDS) {
+            throw new IllegalArgumentException("分片数超过上限: " + shards.size());
+        }
+        if (shardIds.size() != shards.size()) {
+            throw new IllegalArgumentException("分片 ID 数量与分片数量不一致");
+        }
+        this.version = version;
+        List<List<String>> copy = new ArrayList<>(shards.size());
+        List<String> keys = new ArrayList<>(shards.size());
+        List<String> wireShards = new ArrayList<>(shards.size());
+        Map<String, Integer> addresses = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            String id = shardIds.get(shard);
+            List<String> nodes = shards.get(shard);
+            if (id == null || id.isEmpty() || id.contains(ID_SEPARATOR) || id.contains(",") || id.contains(";")) {
+                throw new IllegalArgumentException("非法的分片 ID: " + id);
+            }
+            if (shardIds.indexOf(id) != shard) {
+                throw new IllegalArgumentException("重复的分片 ID: " + id);
+            }
+            if (nodes.isEmpty()) {
+                throw new IllegalArgumentException("分片至少需要一个节点: " + id);
+            }
+            for (String address : nodes) {
+                if (addresses.putIfAbsent(address, shard) != null) {
+                    throw new IllegalArgumentException("节点属于多个分片: " + address);
+                }
+            }
+            String key = String.join(",", nodes);
+            copy.add(Collections.unmodifiableList(new ArrayList<>(nodes)));
+            keys.add(key);
+            wireShards.add(id + ID_SEPARATOR + key);
+        }
+        this.shardIds = Collections.unmodifiableList(new ArrayList<>(shardIds));
+        this.shards = Collections.unmodifiableList(copy);
+        this.shardKeys = Collections.unmodifiableList(keys);
+        this.wire = Collections.unmodifiableList(wireShards);
+        this.addressIndex = addresses;
+
+        int count = shards.size() * VIRTUAL_NODES;
+        long[] hashes = new long[count];
+        for (int shard = 0; shard < shards.size(); shard++) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                // 低 16 位存分片下标，排序后仍能找回所属分片（哈希值的低 16 位对分布影响可以忽略）
+                hashes[shard * VIRTUAL_NODES + i] = (HashUtils.hash64(this.shardIds.get(shard) + "#" + i) & -MAX_SHARDS) | shard;
+            }
+        }
+        Arrays.sort(hashes);
+        this.points = hashes;
+        this.owners = new int[count];
+        for (int i = 0; i < count; i++) {
+            owners[i] = (int) (hashes[i] & (MAX_SHARDS - 1));
+        }
+    }
+
+    /**
+     * 解析文本格式的拓扑，分片之间用分号、分片内节点用逗号分隔，节点前可以用"ID="指定分片 ID
+     */
+    public static ShardRing parse(long version, String spec) {
+        List<String> shards = new ArrayList<>();
+        for (String shard : spec.split(";")) {
+            if (!shard.isBlank()) {
+                shards.add(shard);
+            }
+        }
+        return fromWire(version, shards);
+    }
+
+    /**
+     * 从传输格式恢复拓扑：每个元素是一个分片的"ID=节点地址"（逗号分隔），没有 ID 时使用默认 ID
+     */
+    static ShardRing fromWire(long version, List<String> shards) {
+        List<String> ids = defaultIds(shards.size());
+        List<List<String>> parsed = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            String shard = shards.get(i);
+            int separator = shard.indexOf(ID_SEPARATOR);
+            if (separator >= 0) {
+                ids.set(i, shard.substring(0, separator).trim());
+                shard = shard.substring(separator + 1);
+            }
+            parsed.add(RegistryClient.parseAddresses(shard));
+        }
+        return new ShardRing(version, ids, parsed);
+    }
+
+    /**
+     * 传输格式，见 {@link #fromWire}
+     */
+    List<String> toWire() {
+        return wire;
+    }
+
+    /**
+     * 分片相同、版本号不同的拓扑
+     */
+    public ShardRing withVersion(long version) {
+        return new ShardRing(version, shardIds, shards);
+    }
+
+    private static List<String> defaultIds(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add("shard" + i);
+        }
+        return ids;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    /**
+     * 服务所属的分片下标：环上顺时针方向第一个虚拟节点所属的分片
+     */
+    public int shardOf(String serviceName) {
+        long hash = HashUtils.hash64(serviceName);
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * 各分片的节点地址（只读）
+     */
+    public List<List<String>> getShards() {
+        return shards;
+    }
+
+    /**
+     * 分片的节点地址
+     */
+    public List<String> getShard(int index) {
+        return shards.get(index);
+    }
+
+    /**
+     * 分片的 ID
+     */
+    public String getShardId(int index) {
+        return shardIds.get(index);
+    }
+
+    /**
+     * 分片的标识（节点地址按逗号连接）
+     */
+    public String getShardKey(int index) {
+        return shardKeys.get(index);
+    }
+
+    /**
+     * 服务所属分片的标识
+     */
+    public String shardKeyOf(String serviceName) {
+        return shardKeys.get(shardOf(serviceName));
+    }
+
+    /**
+     * 包含该节点的分片下标，不在拓扑中时返回 -1
+     */
+    public int indexOf(String address) {
+        return addressIndex.getOrDefault(address, -1);
+    }
+
+    /**
+     * 两个拓扑的分片 ID 和节点是否都相同（不比较版本号）
+     */
+    public boolean sameShards(ShardRing other) {
+        return other != null && wire.equals(other.wire);
+    }
+
+    @Override
+    public String toString() {
+        return String.join(";", wire) + "（版本 " + version + "）";
+    }
+}